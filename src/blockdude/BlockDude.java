@@ -7,6 +7,7 @@ import blockdude.controller.BlockDudeController;
 import blockdude.controller.ClassicBlockDudeController;
 import blockdude.model.BlockDudeModel;
 import blockdude.model.ClassicBlockDudeModel;
+import blockdude.model.PackedBlockDudeModel;
 import blockdude.util.LevelSet;
 import blockdude.util.LevelSetReader;
 import blockdude.view.BlockDudeView;
@@ -21,7 +22,8 @@ public class BlockDude {
    * FILE_NAME, "-view", VIEW_TYPE} where FILE_NAME is the name of the file (including its .txt
    * extension) from which to read level data (which must be placed in the levelSources folder) and
    * VIEW_TYPE is the view to use for the game (currently, the only supported view is "text"). An
-   * example of valid args is: {"-source", "levels.txt", "-view", "text"}.
+   * example of valid args is: {"-source", "levels.txt", "-view", "text"}. Optionally, {"-model",
+   * MODEL_TYPE} may also be given, where MODEL_TYPE is either "classic" (the default) or "packed".
    *
    * @param args list of game configuration arguments
    */
@@ -73,12 +75,15 @@ public class BlockDude {
         case "-view":
           argIndex = parseView(args, argIndex, config);
           break;
+        case "-model":
+          argIndex = parseModel(args, argIndex, config);
+          break;
         default:
           throw new IllegalArgumentException("Unexpected token ('" + arg + "') found.");
       }
     }
 
-    config.model = new ClassicBlockDudeModel();
+    if (config.model == null) config.model = new ClassicBlockDudeModel();
     // below line will throw IAE if view or levels is null, do not catch it
     config.controller = new ClassicBlockDudeController(config.model, config.view, config.levels);
 
@@ -140,6 +145,38 @@ public class BlockDude {
     return index;
   }
 
+  /**
+   * Parses a model from the current index in the given list of arguments.
+   *
+   * @param args   array of arguments / tokens
+   * @param index  index of '-model' token
+   * @param config game configurations to modify
+   * @return index immediately after all '-model' arguments
+   * @throws IllegalArgumentException if a model could not be parsed from the given arguments
+   */
+  private static int parseModel(String[] args, int index, BlockDudeConfigurations config)
+          throws IllegalArgumentException {
+    requireHasMoreTokens(args, index, 1);
+    index++;
+
+    BlockDudeModel model;
+    String modelName = args[index];
+    switch (modelName) {
+      case "classic":
+        model = new ClassicBlockDudeModel();
+        break;
+      case "packed":
+        model = new PackedBlockDudeModel();
+        break;
+      default:
+        throw new IllegalArgumentException("'" + modelName + "' could not be parsed as a model.");
+    }
+
+    config.model = model;
+    index++;
+    return index;
+  }
+
   /**
    * Throws a detailed IllegalArgumentException if there are not at least the specified number of
    * tokens required following the current token.
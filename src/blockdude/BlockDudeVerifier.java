@@ -0,0 +1,230 @@
+package blockdude;
+
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+
+import blockdude.solver.AStarSolver;
+import blockdude.solver.BreadthFirstSolver;
+import blockdude.solver.Heuristics;
+import blockdude.solver.LevelSetVerifier;
+import blockdude.solver.MacroMoveSolver;
+import blockdude.solver.Solver;
+import blockdude.util.LevelSet;
+import blockdude.util.LevelSetReader;
+
+/**
+ * A class for checking that every level of a level set can be completed, without playing it.
+ */
+public class BlockDudeVerifier {
+  private static final long DEFAULT_BUDGET_SECONDS = 60;
+
+  /**
+   * Main method for verifying a level set. Args should be of the structure: {"-source",
+   * FILE_NAME} where FILE_NAME is the name of the file (including its .txt extension) from which to
+   * read level data (which must be placed in the levelSources folder). Optionally, any of
+   * {"-threads", THREADS} (the number of levels to solve at once, by default the number of
+   * processors), {"-budget", SECONDS} (the most time to spend on each level, by default 60),
+   * {"-solver", SOLVER_TYPE} (one of "macro" (the default), "bfs" and "astar") and {"-report",
+   * REPORT_FILE} (the file to write the report to, by default standard output) may also be given.
+   * The report has one line for each level (see LevelSetVerifier), and a summary is printed to
+   * standard error. The program exits with status 1 if any level could not be verified.
+   *
+   * @param args list of verification configuration arguments
+   */
+  public static void main(String[] args) {
+    VerifierConfigurations config = parseArgs(args);
+    int failures = runVerifier(config);
+    if (failures > 0) System.exit(1);
+  }
+
+  /**
+   * Verifies the level set using the given configurations, printing a summary to standard error.
+   *
+   * @param config configurations to use for the verification
+   * @return number of levels that could not be verified
+   * @throws IllegalStateException if the report could not be written
+   */
+  private static int runVerifier(VerifierConfigurations config) throws IllegalStateException {
+    LevelSetVerifier verifier = new LevelSetVerifier(config.solver, config.threads,
+            config.budgetSeconds * 1000);
+    long start = System.nanoTime();
+    int failures;
+    if (config.reportFile == null) {
+      failures = verifier.verify(config.levels, System.out);
+    } else {
+      try (Writer report = new FileWriter(config.reportFile)) {
+        failures = verifier.verify(config.levels, report);
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not write report to " + config.reportFile + ".", e);
+      }
+    }
+
+    PrintStream summary = System.err;
+    summary.println((failures == 0 ? "All levels verified" : failures + " level(s) not verified")
+            + " in " + (System.nanoTime() - start) / 1000000 + " ms.");
+    return failures;
+  }
+
+  /* Parsing verification configurations -------------------------------------------------------- */
+
+  /**
+   * A class to represent the configurations for verifying a level set.
+   */
+  private static class VerifierConfigurations {
+    LevelSet levels;
+    Solver solver;
+    int threads = Runtime.getRuntime().availableProcessors();
+    long budgetSeconds = DEFAULT_BUDGET_SECONDS;
+    String reportFile;
+  }
+
+  /**
+   * Parses the array of string arguments as VerifierConfigurations.
+   *
+   * @param args arguments to parse VerifierConfigurations from
+   * @return VerifierConfigurations parsed from given string arguments
+   * @throws IllegalArgumentException if given args cannot be used to generate configurations
+   */
+  private static VerifierConfigurations parseArgs(String[] args) throws IllegalArgumentException {
+    VerifierConfigurations config = new VerifierConfigurations();
+
+    int argIndex = 0;
+    while (argIndex < args.length) {
+      String arg = args[argIndex];
+
+      switch (arg) {
+        case "-source":
+          argIndex = parseSource(args, argIndex, config);
+          break;
+        case "-threads":
+          requireHasMoreTokens(args, argIndex, 1);
+          config.threads = (int) parsePositive(args[argIndex + 1], "threads");
+          argIndex += 2;
+          break;
+        case "-budget":
+          requireHasMoreTokens(args, argIndex, 1);
+          config.budgetSeconds = parsePositive(args[argIndex + 1], "time budget");
+          argIndex += 2;
+          break;
+        case "-solver":
+          argIndex = parseSolver(args, argIndex, config);
+          break;
+        case "-report":
+          requireHasMoreTokens(args, argIndex, 1);
+          config.reportFile = args[argIndex + 1];
+          argIndex += 2;
+          break;
+        default:
+          throw new IllegalArgumentException("Unexpected token ('" + arg + "') found.");
+      }
+    }
+
+    if (config.levels == null) throw new IllegalArgumentException("No source was given.");
+    if (config.solver == null) config.solver = new MacroMoveSolver(Long.MAX_VALUE, true);
+
+    return config;
+  }
+
+  /**
+   * Parses a level set from the current index in the given list of arguments.
+   *
+   * @param args   array of arguments / tokens
+   * @param index  index of '-source' token
+   * @param config verification configurations to modify
+   * @return index immediately after all '-source' arguments
+   * @throws IllegalArgumentException if the specified source could not be found
+   * @throws IllegalStateException    if the specified source could not be parsed
+   */
+  private static int parseSource(String[] args, int index, VerifierConfigurations config)
+          throws IllegalArgumentException, IllegalStateException {
+    requireHasMoreTokens(args, index, 1);
+    index++;
+    String filename = "levelSources/" + args[index];
+
+    try {
+      // may throw either IAE or ISE - do not catch
+      config.levels = LevelSetReader.parseLevelSet(new FileReader(filename));
+    } catch (FileNotFoundException e) {
+      throw new IllegalArgumentException("No file named " + filename + " found.");
+    }
+
+    return index + 1;
+  }
+
+  /**
+   * Parses a solver from the current index in the given list of arguments. Every solver skips dead
+   * states and searches until it has decided whether the level can be completed, leaving the time
+   * budget to stop it.
+   *
+   * @param args   array of arguments / tokens
+   * @param index  index of '-solver' token
+   * @param config verification configurations to modify
+   * @return index immediately after all '-solver' arguments
+   * @throws IllegalArgumentException if a solver could not be parsed from the given arguments
+   */
+  private static int parseSolver(String[] args, int index, VerifierConfigurations config)
+          throws IllegalArgumentException {
+    requireHasMoreTokens(args, index, 1);
+    index++;
+
+    Solver solver;
+    String solverName = args[index];
+    switch (solverName) {
+      case "macro":
+        solver = new MacroMoveSolver(Long.MAX_VALUE, true);
+        break;
+      case "bfs":
+        solver = new BreadthFirstSolver(Long.MAX_VALUE, true);
+        break;
+      case "astar":
+        solver = new AStarSolver(Heuristics.STAIRCASE, Long.MAX_VALUE, true);
+        break;
+      default:
+        throw new IllegalArgumentException("'" + solverName + "' could not be parsed as a solver.");
+    }
+
+    config.solver = solver;
+    index++;
+    return index;
+  }
+
+  /**
+   * Parses the given token as a positive number.
+   *
+   * @param token token to parse
+   * @param name  name of number, for error messages
+   * @return number parsed from token
+   * @throws IllegalArgumentException if token is not a positive number
+   */
+  private static long parsePositive(String token, String name) throws IllegalArgumentException {
+    long number;
+    try {
+      number = Integer.parseInt(token);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("'" + token + "' could not be parsed as " + name + ".");
+    }
+    if (number <= 0) throw new IllegalArgumentException("The " + name + " must be > 0.");
+    return number;
+  }
+
+  /**
+   * Throws a detailed IllegalArgumentException if there are not at least the specified number of
+   * tokens required following the current token.
+   *
+   * @param args           array of arguments / tokens
+   * @param index          index of current argument / token
+   * @param tokensRequired tokens required after the current one
+   * @throws IllegalArgumentException if there are not enough tokens in the given array
+   */
+  private static void requireHasMoreTokens(String[] args, int index, int tokensRequired)
+          throws IllegalArgumentException {
+    int argsLeft = args.length - index - 1;
+    String lastToken = args[index];
+    if (argsLeft < tokensRequired) throw new IllegalArgumentException("Expected '" + lastToken +
+            "' to be followed by " + tokensRequired + " token(s), but found " + argsLeft + ".");
+  }
+}
@@ -0,0 +1,65 @@
+package blockdude.collections;
+
+/**
+ * Static methods shared by the hash tables of this package and the sets of game states built on
+ * them.
+ */
+public final class Hashing {
+  /**
+   * Not meant to be constructed.
+   */
+  private Hashing() {
+  }
+
+  /**
+   * Returns the slot of a table with the given mask (its size less one) that the given key goes
+   * in first. Keys are mixed before being masked, since keys such as packed states or coordinates
+   * often differ only in their high bits.
+   *
+   * @param key  key to find slot of
+   * @param mask size of table less one, where the size is a power of 2
+   * @return slot of key
+   */
+  static int slotOf(long key, int mask) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    h ^= h >>> 32;
+    return (int) (h ^ (h >>> 16)) & mask;
+  }
+
+  /**
+   * Returns a well-mixed 64-bit hash of the state of the given length that starts at the given
+   * offset in the given array (such as a snapshot of a PackedBlockDudeModel).
+   *
+   * @param source array containing state
+   * @param offset index in array at which state starts
+   * @param length number of longs in state
+   * @return hash of state
+   */
+  public static long stateHash(long[] source, int offset, int length) {
+    long h = 0;
+    for (int i = 0; i < length; i++) {
+      h = (h ^ source[offset + i]) * 0x9E3779B97F4A7C15L;
+      h ^= h >>> 29;
+    }
+    return h;
+  }
+
+  /**
+   * Returns the size of a table that can hold the given number of keys while at most half full.
+   *
+   * @param expectedSize number of keys table needs to hold
+   * @param minSize      smallest size to return, a power of 2
+   * @param maxSize      largest size a table may have, a power of 2
+   * @return size of table, a power of 2
+   * @throws IllegalArgumentException if expectedSize is negative or needs a table over maxSize
+   */
+  static int tableSizeFor(int expectedSize, int minSize, int maxSize)
+          throws IllegalArgumentException {
+    if (expectedSize < 0) throw new IllegalArgumentException("Expected size must be >= 0.");
+    if (expectedSize > maxSize / 2)
+      throw new IllegalArgumentException("Expected size must be <= " + maxSize / 2 + ".");
+    int size = minSize;
+    while (size < expectedSize * 2) size *= 2;
+    return size;
+  }
+}
@@ -0,0 +1,143 @@
+package blockdude.collections;
+
+import java.util.Arrays;
+
+/**
+ * A set of longs, kept in an open addressing hash table of longs with linear probing, so that
+ * nothing is boxed and looking a key up touches one array. Since 0 marks an empty slot, whether 0
+ * is in the set is kept on its own. The table doubles in size when it is half full, so apart from
+ * those occasional resizes, adding a key allocates nothing.
+ */
+public final class LongHashSet {
+  private static final int MIN_TABLE_SIZE = 16;
+  private static final int MAX_TABLE_SIZE = 1 << 30;
+
+  private long[] keys; // INVARIANT: each entry is 0 (empty) or a non-zero key in the set
+  private boolean containsZero;
+  private int size; // including 0
+
+  /**
+   * Constructs a new, empty LongHashSet.
+   */
+  public LongHashSet() {
+    this(0);
+  }
+
+  /**
+   * Constructs a new, empty LongHashSet that can hold the given number of keys before it has to
+   * grow.
+   *
+   * @param expectedSize number of keys to make room for
+   * @throws IllegalArgumentException if expectedSize is negative or too large for a table
+   */
+  public LongHashSet(int expectedSize) throws IllegalArgumentException {
+    this.keys = new long[Hashing.tableSizeFor(expectedSize, MIN_TABLE_SIZE, MAX_TABLE_SIZE)];
+  }
+
+  /**
+   * Adds the given key to this set, unless it is already in it.
+   *
+   * @param key key to add
+   * @return true if key was added, false if it was already in set
+   * @throws IllegalStateException if the set cannot hold any more keys
+   */
+  public boolean add(long key) throws IllegalStateException {
+    if (key == 0) {
+      if (containsZero) return false;
+      containsZero = true;
+      size++;
+      return true;
+    }
+
+    int mask = keys.length - 1;
+    int slot = Hashing.slotOf(key, mask);
+    while (keys[slot] != 0) {
+      if (keys[slot] == key) return false;
+      slot = (slot + 1) & mask;
+    }
+
+    if ((long) (size + 1) * 2 > keys.length) {
+      grow();
+      return add(key);
+    }
+
+    keys[slot] = key;
+    size++;
+    return true;
+  }
+
+  /**
+   * Returns whether the given key is in this set.
+   *
+   * @param key key to look for
+   * @return true if key is in set, false otherwise
+   */
+  public boolean contains(long key) {
+    if (key == 0) return containsZero;
+    int mask = keys.length - 1;
+    int slot = Hashing.slotOf(key, mask);
+    while (keys[slot] != 0) {
+      if (keys[slot] == key) return true;
+      slot = (slot + 1) & mask;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of keys in this set.
+   *
+   * @return size of set
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns whether this set is empty.
+   *
+   * @return true if set has no keys in it, false otherwise
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Removes every key from this set, keeping the table at its current size.
+   */
+  public void clear() {
+    Arrays.fill(keys, 0);
+    containsZero = false;
+    size = 0;
+  }
+
+  /**
+   * Returns the number of bytes of memory currently used by the table of this set.
+   *
+   * @return memory used in bytes
+   */
+  public long memoryBytes() {
+    return (long) keys.length * Long.BYTES;
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Doubles the size of the table, putting every key back in it.
+   *
+   * @throws IllegalStateException if the set cannot grow any larger
+   */
+  private void grow() throws IllegalStateException {
+    if (keys.length == MAX_TABLE_SIZE)
+      throw new IllegalStateException("Set cannot hold more than " + size + " keys.");
+
+    long[] old = keys;
+    keys = new long[old.length * 2];
+    int mask = keys.length - 1;
+    for (long key : old) {
+      if (key == 0) continue;
+      int slot = Hashing.slotOf(key, mask);
+      while (keys[slot] != 0) slot = (slot + 1) & mask;
+      keys[slot] = key;
+    }
+  }
+}
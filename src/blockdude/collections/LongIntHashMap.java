@@ -0,0 +1,172 @@
+package blockdude.collections;
+
+import java.util.Arrays;
+
+/**
+ * A map from longs to ints, kept in an open addressing hash table with linear probing: keys in one
+ * array of longs and their values in a parallel array of ints, so that nothing is boxed. Since 0
+ * marks an empty slot, the value of the key 0 is kept on its own. The table doubles in size when
+ * it is half full, so apart from those occasional resizes, putting a key allocates nothing.
+ */
+public final class LongIntHashMap {
+  private static final int MIN_TABLE_SIZE = 16;
+  private static final int MAX_TABLE_SIZE = 1 << 30;
+
+  private long[] keys; // INVARIANT: each entry is 0 (empty) or a non-zero key in the map
+  private int[] values; // INVARIANT: values[i] is the value of keys[i]
+  private boolean containsZero;
+  private int zeroValue;
+  private int size; // including 0
+
+  /**
+   * Constructs a new, empty LongIntHashMap.
+   */
+  public LongIntHashMap() {
+    this(0);
+  }
+
+  /**
+   * Constructs a new, empty LongIntHashMap that can hold the given number of keys before it has to
+   * grow.
+   *
+   * @param expectedSize number of keys to make room for
+   * @throws IllegalArgumentException if expectedSize is negative or too large for a table
+   */
+  public LongIntHashMap(int expectedSize) throws IllegalArgumentException {
+    int tableSize = Hashing.tableSizeFor(expectedSize, MIN_TABLE_SIZE, MAX_TABLE_SIZE);
+    this.keys = new long[tableSize];
+    this.values = new int[tableSize];
+  }
+
+  /**
+   * Returns the value of the given key, or the given value if the key is not in this map.
+   *
+   * @param key    key to look up
+   * @param absent value to return if key is not in map
+   * @return value of key, or absent
+   */
+  public int get(long key, int absent) {
+    if (key == 0) return containsZero ? zeroValue : absent;
+    int mask = keys.length - 1;
+    int slot = Hashing.slotOf(key, mask);
+    while (keys[slot] != 0) {
+      if (keys[slot] == key) return values[slot];
+      slot = (slot + 1) & mask;
+    }
+    return absent;
+  }
+
+  /**
+   * Returns whether the given key is in this map.
+   *
+   * @param key key to look for
+   * @return true if key is in map, false otherwise
+   */
+  public boolean containsKey(long key) {
+    if (key == 0) return containsZero;
+    int mask = keys.length - 1;
+    int slot = Hashing.slotOf(key, mask);
+    while (keys[slot] != 0) {
+      if (keys[slot] == key) return true;
+      slot = (slot + 1) & mask;
+    }
+    return false;
+  }
+
+  /**
+   * Makes the given value the value of the given key, adding the key if it is not in this map.
+   *
+   * @param key   key to set value of
+   * @param value new value of key
+   * @throws IllegalStateException if the map cannot hold any more keys
+   */
+  public void put(long key, int value) throws IllegalStateException {
+    if (key == 0) {
+      if (!containsZero) size++;
+      containsZero = true;
+      zeroValue = value;
+      return;
+    }
+
+    int mask = keys.length - 1;
+    int slot = Hashing.slotOf(key, mask);
+    while (keys[slot] != 0) {
+      if (keys[slot] == key) {
+        values[slot] = value;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    if ((long) (size + 1) * 2 > keys.length) {
+      grow();
+      put(key, value);
+      return;
+    }
+
+    keys[slot] = key;
+    values[slot] = value;
+    size++;
+  }
+
+  /**
+   * Returns the number of keys in this map.
+   *
+   * @return size of map
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns whether this map is empty.
+   *
+   * @return true if map has no keys in it, false otherwise
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Removes every key from this map, keeping the table at its current size.
+   */
+  public void clear() {
+    Arrays.fill(keys, 0);
+    containsZero = false;
+    size = 0;
+  }
+
+  /**
+   * Returns the number of bytes of memory currently used by the table of this map.
+   *
+   * @return memory used in bytes
+   */
+  public long memoryBytes() {
+    return (long) keys.length * (Long.BYTES + Integer.BYTES);
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Doubles the size of the table, putting every key and its value back in it.
+   *
+   * @throws IllegalStateException if the map cannot grow any larger
+   */
+  private void grow() throws IllegalStateException {
+    if (keys.length == MAX_TABLE_SIZE)
+      throw new IllegalStateException("Map cannot hold more than " + size + " keys.");
+
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new long[oldKeys.length * 2];
+    values = new int[oldKeys.length * 2];
+    int mask = keys.length - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] == 0) continue;
+      int slot = Hashing.slotOf(oldKeys[i], mask);
+      while (keys[slot] != 0) slot = (slot + 1) & mask;
+      keys[slot] = oldKeys[i];
+      values[slot] = oldValues[i];
+    }
+  }
+}
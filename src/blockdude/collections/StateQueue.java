@@ -0,0 +1,132 @@
+package blockdude.collections;
+
+/**
+ * A first in, first out queue of game states, each a fixed number of longs (such as a snapshot of
+ * a PackedBlockDudeModel). States are copied back to back into a single circular array of longs,
+ * which doubles in size when it fills up, so a search frontier of millions of states costs no more
+ * than the longs themselves and adding or removing a state allocates nothing.
+ */
+public final class StateQueue {
+  private static final int INITIAL_CAPACITY = 16; // in states, must be a power of 2
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private final int stateLength;
+  private long[] states; // INVARIANT: holds a whole number of states, a power of 2
+  private int head; // index of state that comes out next, in states
+  private int size;
+
+  /**
+   * Constructs a new, empty StateQueue for states of the given length.
+   *
+   * @param stateLength number of longs in each state
+   * @throws IllegalArgumentException if stateLength is not positive
+   */
+  public StateQueue(int stateLength) throws IllegalArgumentException {
+    if (stateLength <= 0) throw new IllegalArgumentException("State length must be > 0.");
+    this.stateLength = stateLength;
+    this.states = new long[INITIAL_CAPACITY * stateLength];
+  }
+
+  /**
+   * Returns the number of longs in each state in this queue.
+   *
+   * @return length of a state
+   */
+  public int stateLength() {
+    return stateLength;
+  }
+
+  /**
+   * Adds a copy of the state that starts at the given offset in the given array to the back of
+   * this queue.
+   *
+   * @param source array containing state
+   * @param offset index in array at which state starts
+   * @throws IllegalStateException if the queue cannot hold any more states
+   */
+  public void add(long[] source, int offset) throws IllegalStateException {
+    if (size == capacity()) grow();
+    int tail = (head + size) & (capacity() - 1);
+    System.arraycopy(source, offset, states, tail * stateLength, stateLength);
+    size++;
+  }
+
+  /**
+   * Removes the state at the front of this queue, copying it to the given offset in the given
+   * array.
+   *
+   * @param destination array to copy state to
+   * @param offset      index in array at which to put state
+   * @throws IllegalStateException if queue is empty
+   */
+  public void remove(long[] destination, int offset) throws IllegalStateException {
+    if (size == 0) throw new IllegalStateException("Queue is empty.");
+    System.arraycopy(states, head * stateLength, destination, offset, stateLength);
+    head = (head + 1) & (capacity() - 1);
+    size--;
+  }
+
+  /**
+   * Returns the number of states in this queue.
+   *
+   * @return size of queue
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns whether this queue is empty.
+   *
+   * @return true if queue has no states in it, false otherwise
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Removes every state from this queue, keeping the array at its current size.
+   */
+  public void clear() {
+    head = 0;
+    size = 0;
+  }
+
+  /**
+   * Returns the number of bytes of memory currently used by the array of this queue.
+   *
+   * @return memory used in bytes
+   */
+  public long memoryBytes() {
+    return (long) states.length * Long.BYTES;
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Returns the number of states the array can hold.
+   *
+   * @return capacity of array, in states
+   */
+  private int capacity() {
+    return states.length / stateLength;
+  }
+
+  /**
+   * Doubles the size of the array, moving the states so the front of the queue is at its start.
+   *
+   * @throws IllegalStateException if the queue cannot grow any larger
+   */
+  private void grow() throws IllegalStateException {
+    int capacity = capacity();
+    if (capacity == MAX_CAPACITY || (long) capacity * 2 * stateLength > Integer.MAX_VALUE - 8)
+      throw new IllegalStateException("Queue cannot hold more than " + size + " states.");
+
+    long[] grown = new long[capacity * 2 * stateLength];
+    int firstPart = capacity - head; // states from head to the end of the array
+    System.arraycopy(states, head * stateLength, grown, 0, firstPart * stateLength);
+    System.arraycopy(states, 0, grown, firstPart * stateLength, head * stateLength);
+    states = grown;
+    head = 0;
+  }
+}
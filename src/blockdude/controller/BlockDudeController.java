@@ -1,5 +1,7 @@
 package blockdude.controller;
 
+import java.util.List;
+
 import blockdude.util.Command;
 import blockdude.util.CommandArguments;
 
@@ -27,6 +29,21 @@ public interface BlockDudeController {
    */
   void handleCommand(Command command) throws RuntimeException;
 
+  /**
+   * Handles every given command in order, as if each were given to handleCommand(...), except that
+   * the view is only refreshed once (after the last command) and no messages are displayed for
+   * commands that fail. If a command completes a level, the next level is loaded and the remaining
+   * commands are handled on it.
+   *
+   * @param commands commands to execute
+   * @return whether each command succeeded, which commands completed levels, and the final state
+   * @throws IllegalArgumentException if commands is null or contains a command that cannot be
+   *                                  handled in a batch (null, QUIT, TRY_PASSWORD or HINT)
+   * @throws RuntimeException         if something goes wrong and the program needs to terminate
+   */
+  CommandBatchResult handleCommands(List<Command> commands)
+          throws IllegalArgumentException, RuntimeException;
+
   /**
    * Refreshes the view.
    */
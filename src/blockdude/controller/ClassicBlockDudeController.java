@@ -1,6 +1,13 @@
 package blockdude.controller;
 
+import java.util.Arrays;
+import java.util.List;
+
 import blockdude.model.BlockDudeModel;
+import blockdude.model.PackedBlockDudeModel;
+import blockdude.model.SearchableBlockDudeModel;
+import blockdude.solver.Hint;
+import blockdude.solver.HintCache;
 import blockdude.util.Command;
 import blockdude.util.CommandArguments;
 import blockdude.util.Level;
@@ -9,15 +16,23 @@ import blockdude.view.BlockDudeView;
 
 /**
  * A classic controller for the Block Dude game.
+ *
+ * <p>Hints are given by a HintCache, which needs the state of the game as a
+ * SearchableBlockDudeModel. A model being controlled that is not searchable is only copied into a
+ * PackedBlockDudeModel when a hint is asked for, so handling any other command costs nothing
+ * extra. Controllers share a HintCache unless given one of their own, so a state solved for one
+ * player gives hints to every other.
  */
 public class ClassicBlockDudeController implements BlockDudeController {
   private final BlockDudeModel model;
   private final BlockDudeView view;
   private final LevelSet levels;
+  private final HintCache hints;
   private CommandArguments commandArguments;
 
   /**
-   * Constructs a new ClassicBlockDudeController using given model, view, and set of levels.
+   * Constructs a new ClassicBlockDudeController using given model, view, and set of levels, giving
+   * hints from the HintCache shared by the whole program.
    *
    * @param model  model to control
    * @param view   view to use for output
@@ -26,13 +41,29 @@ public class ClassicBlockDudeController implements BlockDudeController {
    */
   public ClassicBlockDudeController(BlockDudeModel model, BlockDudeView view, LevelSet levels)
           throws IllegalArgumentException {
-    if (model == null || levels == null || view == null)
-      throw new IllegalArgumentException("Model, view, and level set must be non-null.");
+    this(model, view, levels, HintCache.shared());
+  }
+
+  /**
+   * Constructs a new ClassicBlockDudeController using given model, view, set of levels, and cache
+   * of hints.
+   *
+   * @param model  model to control
+   * @param view   view to use for output
+   * @param levels levels to load into model
+   * @param hints  cache to give hints from
+   * @throws IllegalArgumentException if given model, view, level set, or hint cache are null
+   */
+  public ClassicBlockDudeController(BlockDudeModel model, BlockDudeView view, LevelSet levels,
+                                    HintCache hints) throws IllegalArgumentException {
+    if (model == null || levels == null || view == null || hints == null)
+      throw new IllegalArgumentException("Model, view, level set, and hints must be non-null.");
 
     model.loadLevel(levels.currentLevel());
     this.model = model;
     this.view = view;
     this.levels = levels;
+    this.hints = hints;
   }
 
   /* Interface methods -------------------------------------------------------------------------- */
@@ -49,45 +80,14 @@ public class ClassicBlockDudeController implements BlockDudeController {
 
   @Override
   public void handleCommand(Command command) throws RuntimeException {
-    boolean commandSuccessful;
-    String errorMessage = "Unspecified error.";
-
-    switch (command) {
-      case MOVE_LEFT:
-        commandSuccessful = model.moveLeft();
-        errorMessage = "Cannot move left.";
-        break;
-      case MOVE_RIGHT:
-        commandSuccessful = model.moveRight();
-        errorMessage = "Cannot move right.";
-        break;
-      case MOVE_UP:
-        commandSuccessful = model.moveUp();
-        errorMessage = "Cannot move up.";
-        break;
-      case PICK_UP_PUT_DOWN:
-        commandSuccessful = model.pickUpOrPutDown();
-        errorMessage = "Cannot pick up or put down.";
-        break;
-      case RESTART_LEVEL:
-        restartLevel();
-        commandSuccessful = true;
-        break;
-      case RESTART_GAME:
-        restartGame();
-        commandSuccessful = true;
-        break;
-      case QUIT:
-        throw new RuntimeException("Game ended by player.");
-      case TRY_PASSWORD:
-        commandSuccessful = tryPassword();
-        errorMessage = "Password not recognized.";
-        break;
-      default:
-        // this will never actually be thrown
-        throw new RuntimeException("Cannot handle null command.");
+    if (command == Command.HINT) {
+      view.displayMessage(hintMessage());
+      commandArguments = null;
+      return;
     }
 
+    boolean commandSuccessful = executeCommand(command);
+
     if (commandSuccessful) {
       refreshView();
       if (model.isLevelCompleted() && !nextLevel()) {
@@ -95,21 +95,91 @@ public class ClassicBlockDudeController implements BlockDudeController {
         handleCommand(Command.RESTART_GAME);
       }
     } else {
-      view.displayMessage(errorMessage);
+      view.displayMessage(errorMessageFor(command));
     }
 
     commandArguments = null;
   }
 
+  @Override
+  public CommandBatchResult handleCommands(List<Command> commands)
+          throws IllegalArgumentException, RuntimeException {
+    if (commands == null) throw new IllegalArgumentException("Commands must be non-null.");
+    for (Command command : commands) {
+      if (command == null || command == Command.QUIT || command == Command.TRY_PASSWORD
+              || command == Command.HINT)
+        throw new IllegalArgumentException("Command '" + command + "' cannot be batched.");
+    }
+
+    boolean[] successes = new boolean[commands.size()];
+    int[] levelCompletions = new int[commands.size()];
+    int levelCompletionCount = 0;
+
+    int index = 0;
+    for (Command command : commands) {
+      successes[index] = executeCommand(command);
+      if (successes[index] && model.isLevelCompleted()) {
+        levelCompletions[levelCompletionCount++] = index;
+        if (!loadNextLevel()) {
+          view.displayMessage("Congrats! You beat this level set.");
+          restartGame();
+        }
+      }
+      index++;
+    }
+
+    refreshView();
+    return new CommandBatchResult(successes,
+            Arrays.copyOf(levelCompletions, levelCompletionCount),
+            levels.currentLevelIndex(), model.layoutToRender());
+  }
+
   @Override
   public void refreshView() {
     int levelIndex = levels.currentLevelIndex();
     String levelPassword = levels.currentLevel().password();
-    view.refresh(model.layoutToRender(), levelIndex, levelPassword);
+    view.refresh(model.boardToRender(), levelIndex, levelPassword);
   }
 
   /* Private methods ---------------------------------------------------------------------------- */
 
+  /**
+   * Executes the given command on the model (or level set) without updating the view.
+   *
+   * @param command command to execute
+   * @return true if the command changed the state of the game, false otherwise
+   * @throws RuntimeException if something goes wrong and the program needs to terminate
+   */
+  private boolean executeCommand(Command command) throws RuntimeException {
+    switch (command) {
+      case MOVE_LEFT:
+        return model.moveLeft();
+      case MOVE_RIGHT:
+        return model.moveRight();
+      case MOVE_UP:
+        return model.moveUp();
+      case PICK_UP_PUT_DOWN:
+        return model.pickUpOrPutDown();
+      case UNDO:
+        return model.undo();
+      case REDO:
+        return model.redo();
+      case RESTART_LEVEL:
+        restartLevel();
+        return true;
+      case RESTART_GAME:
+        restartGame();
+        return true;
+      case QUIT:
+        throw new RuntimeException("Game ended by player.");
+      case TRY_PASSWORD:
+        return tryPassword();
+      default:
+        // this will never actually be thrown
+        throw new RuntimeException("Cannot handle null command.");
+    }
+  }
+
   /**
    * Restarts the current level.
    */
@@ -126,15 +196,25 @@ public class ClassicBlockDudeController implements BlockDudeController {
   }
 
   /**
-   * Goes to next level, if there is one.
+   * Goes to next level and refreshes the view, if there is one.
    *
    * @return true if could advance to next level, false otherwise.
    */
   private boolean nextLevel() {
+    if (!loadNextLevel()) return false;
+    refreshView();
+    return true;
+  }
+
+  /**
+   * Loads the next level into the model without updating the view, if there is one.
+   *
+   * @return true if could advance to next level, false otherwise.
+   */
+  private boolean loadNextLevel() {
     try {
       Level nextLevel = levels.nextLevel();
       model.loadLevel(nextLevel);
-      refreshView();
       return true;
     } catch (IllegalStateException e) {
       // there is no next level, return false
@@ -162,4 +242,94 @@ public class ClassicBlockDudeController implements BlockDudeController {
       return false;
     }
   }
+
+  /**
+   * Returns the message to display when a hint is asked for, asking the HintCache for the next
+   * move from the current state of the game.
+   *
+   * @return hint, or why there is none
+   */
+  private String hintMessage() {
+    Level level = levels.currentLevel();
+    Hint hint;
+    try {
+      hint = hints.hintFor(level, searchableState(level), this);
+    } catch (IllegalStateException e) {
+      return "Hints are not available.";
+    }
+    switch (hint.status()) {
+      case READY:
+        return "Hint: " + hintFor(hint.move());
+      case PENDING:
+        return "Working out a hint, ask again in a moment.";
+      case UNSOLVABLE:
+        return "The level cannot be completed from here. Try undoing or restarting the level.";
+      default:
+        return "No hint could be found for this position.";
+    }
+  }
+
+  /**
+   * Returns the current state of the game as a SearchableBlockDudeModel: the model itself if it is
+   * one, or else a PackedBlockDudeModel put into the state its board shows.
+   *
+   * @param level level loaded into model
+   * @return model in current state of game
+   */
+  private SearchableBlockDudeModel searchableState(Level level) {
+    if (model instanceof SearchableBlockDudeModel) return (SearchableBlockDudeModel) model;
+    // no moves are made on the copy, so it needs no history
+    PackedBlockDudeModel state = new PackedBlockDudeModel(0);
+    state.loadLevel(level);
+    state.restore(model.boardToRender());
+    return state;
+  }
+
+  /* Static methods ----------------------------------------------------------------------------- */
+
+  /**
+   * Returns the message to display when the given command does not succeed.
+   *
+   * @param command command that did not succeed
+   * @return message explaining why command did not succeed
+   */
+  private static String errorMessageFor(Command command) {
+    switch (command) {
+      case MOVE_LEFT:
+        return "Cannot move left.";
+      case MOVE_RIGHT:
+        return "Cannot move right.";
+      case MOVE_UP:
+        return "Cannot move up.";
+      case PICK_UP_PUT_DOWN:
+        return "Cannot pick up or put down.";
+      case UNDO:
+        return "Nothing to undo.";
+      case REDO:
+        return "Nothing to redo.";
+      case TRY_PASSWORD:
+        return "Password not recognized.";
+      default:
+        return "Unspecified error.";
+    }
+  }
+
+  /**
+   * Returns the words to hint at the given move with.
+   *
+   * @param move move to hint at
+   * @return description of move
+   */
+  private static String hintFor(Command move) {
+    switch (move) {
+      case MOVE_LEFT:
+        return "move left.";
+      case MOVE_RIGHT:
+        return "move right.";
+      case MOVE_UP:
+        return "move up.";
+      default:
+        return "pick up or put down a block.";
+    }
+  }
 }
@@ -0,0 +1,97 @@
+package blockdude.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import blockdude.util.GamePiece;
+
+/**
+ * Represents the outcome of handling a batch of commands with a controller: whether each command
+ * changed the state of the game, which commands completed a level, and the state of the game once
+ * every command had been handled.
+ */
+public final class CommandBatchResult {
+  private final boolean[] successes;
+  private final int[] levelCompletions;
+  private final int levelIndex;
+  private final List<List<GamePiece>> layout;
+
+  /**
+   * Constructs a new CommandBatchResult. Access is package private since results should only ever
+   * be created by a controller.
+   *
+   * @param successes        whether each command in the batch succeeded
+   * @param levelCompletions indices (in the batch) of the commands that completed a level
+   * @param levelIndex       index of the current level after the batch
+   * @param layout           layout of the model after the batch
+   */
+  CommandBatchResult(boolean[] successes, int[] levelCompletions, int levelIndex,
+                     List<List<GamePiece>> layout) {
+    this.successes = successes;
+    this.levelCompletions = levelCompletions;
+    this.levelIndex = levelIndex;
+    this.layout = layout;
+  }
+
+  /**
+   * Returns the number of commands in the batch.
+   *
+   * @return number of commands handled
+   */
+  public int size() {
+    return successes.length;
+  }
+
+  /**
+   * Returns whether the command at the given index in the batch changed the state of the game.
+   *
+   * @param index index of command in batch
+   * @return true if command succeeded, false otherwise
+   * @throws IndexOutOfBoundsException if index is not that of a command in the batch
+   */
+  public boolean succeeded(int index) throws IndexOutOfBoundsException {
+    return successes[index];
+  }
+
+  /**
+   * Returns the number of commands in the batch that changed the state of the game.
+   *
+   * @return number of successful commands
+   */
+  public int successCount() {
+    int count = 0;
+    for (boolean success : successes) if (success) count++;
+    return count;
+  }
+
+  /**
+   * Returns the indices (in the batch) of the commands that completed a level, in order.
+   *
+   * @return indices of commands that completed a level
+   */
+  public int[] levelCompletions() {
+    // copying so that result cannot be manipulated externally
+    return levelCompletions.clone();
+  }
+
+  /**
+   * Returns the index of the level that was current once every command had been handled.
+   *
+   * @return index of final level
+   */
+  public int levelIndex() {
+    return levelIndex;
+  }
+
+  /**
+   * Returns the layout of the model once every command had been handled.
+   *
+   * @return final layout
+   */
+  public List<List<GamePiece>> layout() {
+    // copying layout so that it cannot be manipulated externally
+    List<List<GamePiece>> layoutCopy = new ArrayList<>();
+    for (List<GamePiece> row : layout) layoutCopy.add(new ArrayList<>(row));
+    return layoutCopy;
+  }
+}
@@ -0,0 +1,105 @@
+package blockdude.model;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A listener that passes events on to another listener asynchronously, so that a slow listener
+ * never holds up the moves of a model. Events are put in a bounded buffer and handed to the other
+ * listener in order by a task run on the given executor. If the other listener falls so far behind
+ * that the buffer fills up, new events are dropped (and counted) rather than making the model wait.
+ *
+ * <p>At most one task is scheduled on the executor at a time, so the other listener is never called
+ * from two threads at once.
+ */
+public final class AsyncModelListener implements ModelListener {
+  private final ModelListener listener;
+  private final Executor executor;
+  private final BlockingQueue<ModelEvent> buffer;
+  private final AtomicBoolean draining = new AtomicBoolean(false);
+  private final AtomicLong dropped = new AtomicLong(0);
+  private final Runnable drain = new Runnable() {
+    @Override
+    public void run() {
+      drainBuffer();
+    }
+  };
+
+  /**
+   * Constructs a new AsyncModelListener.
+   *
+   * @param listener listener to pass events on to
+   * @param executor executor to call listener on
+   * @param capacity maximum number of events that can be waiting for listener
+   * @throws IllegalArgumentException if listener or executor is null or capacity is not positive
+   */
+  public AsyncModelListener(ModelListener listener, Executor executor, int capacity)
+          throws IllegalArgumentException {
+    if (listener == null || executor == null)
+      throw new IllegalArgumentException("Listener and executor cannot be null.");
+    if (capacity <= 0) throw new IllegalArgumentException("Capacity must be > 0.");
+
+    this.listener = listener;
+    this.executor = executor;
+    this.buffer = new ArrayBlockingQueue<>(capacity);
+  }
+
+  /* Interface methods -------------------------------------------------------------------------- */
+
+  @Override
+  public void onEvent(ModelEvent event) {
+    if (!buffer.offer(event)) {
+      dropped.incrementAndGet();
+      return;
+    }
+    scheduleDrain();
+  }
+
+  /* Public methods ----------------------------------------------------------------------------- */
+
+  /**
+   * Returns the number of events that were dropped because the buffer was full.
+   *
+   * @return number of dropped events
+   */
+  public long droppedCount() {
+    return dropped.get();
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Schedules a task to pass the buffered events on, unless one is already scheduled or running.
+   * If the executor will not run the task, the buffered events are dropped.
+   */
+  private void scheduleDrain() {
+    if (!draining.compareAndSet(false, true)) return;
+    try {
+      executor.execute(drain);
+    } catch (RejectedExecutionException e) {
+      draining.set(false);
+      int lost = 0;
+      while (buffer.poll() != null) lost++;
+      dropped.addAndGet(lost);
+    }
+  }
+
+  /**
+   * Passes every buffered event on to the listener, in order.
+   */
+  private void drainBuffer() {
+    try {
+      ModelEvent event;
+      while ((event = buffer.poll()) != null) listener.onEvent(event);
+    } finally {
+      draining.set(false);
+    }
+
+    // an event may have been buffered after the last poll but before draining was reset
+    if (!buffer.isEmpty()) scheduleDrain();
+  }
+}
@@ -2,8 +2,10 @@ package blockdude.model;
 
 import java.util.List;
 
+import blockdude.util.BoardChanges;
 import blockdude.util.GamePiece;
 import blockdude.util.Level;
+import blockdude.util.ReadOnlyBoard;
 
 /**
  * Represents a model for the Block Dude game.
@@ -61,6 +63,25 @@ public interface BlockDudeModel {
    */
   boolean pickUpOrPutDown() throws RuntimeException;
 
+  /**
+   * Takes back the most recent move that changed the state of the board (moving left, right, or
+   * up, or picking up or putting down a block). Moves made before the level was last loaded or
+   * restarted cannot be undone, and only a limited number of the most recent moves are remembered.
+   *
+   * @return true if a move was undone, false if there was no move to undo
+   * @throws RuntimeException if no level has been loaded into model yet
+   */
+  boolean undo() throws RuntimeException;
+
+  /**
+   * Makes the most recently undone move again. Once a new move is made, moves that were undone
+   * before it can no longer be redone.
+   *
+   * @return true if a move was redone, false if there was no move to redo
+   * @throws RuntimeException if no level has been loaded into model yet
+   */
+  boolean redo() throws RuntimeException;
+
   /**
    * Returns list of list of game pieces representing the current state of the model.
    *
@@ -69,6 +90,49 @@ public interface BlockDudeModel {
    */
   List<List<GamePiece>> layoutToRender() throws RuntimeException;
 
+  /**
+   * Returns a read-only view of the current state of the model, showing the same pieces as
+   * layoutToRender() (including any held piece above the player) without copying the board. The
+   * view keeps reflecting the model as moves are made and levels are loaded, so it can be read
+   * again after every move without allocating anything.
+   *
+   * @return read-only view of board of model
+   * @throws RuntimeException if no level has been loaded into model yet
+   */
+  ReadOnlyBoard boardToRender() throws RuntimeException;
+
+  /**
+   * Returns the cells changed by the most recent move, undo, or redo, as they would be rendered by
+   * boardToRender() (so a held piece moving with the player shows up as changes too). This lets a
+   * view update only the cells that changed instead of comparing whole layouts. If the move did not
+   * change anything, there are no changes. The returned changes are not a copy: they are replaced
+   * by the next move, and are emptied when a level is loaded or restarted (in which case the whole
+   * board should be treated as changed).
+   *
+   * @return changes made by most recent move
+   * @throws RuntimeException if no level has been loaded into model yet
+   */
+  BoardChanges lastChanges() throws RuntimeException;
+
+  /**
+   * Starts telling the given listener about everything that happens in this model: moves, turns,
+   * blocks being picked up, put down and falling, the door being reached, undoing and redoing, and
+   * levels being loaded and restarted. Listeners are told synchronously, after each operation has
+   * finished, in the order they were added.
+   *
+   * @param listener listener to add
+   * @throws IllegalArgumentException if listener is null
+   */
+  void addListener(ModelListener listener) throws IllegalArgumentException;
+
+  /**
+   * Stops telling the given listener about what happens in this model, if it was being told.
+   *
+   * @param listener listener to remove
+   * @throws IllegalArgumentException if listener is null
+   */
+  void removeListener(ModelListener listener) throws IllegalArgumentException;
+
   /**
    * Returns whether the current level has been beat yet.
    *
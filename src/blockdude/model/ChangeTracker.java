@@ -0,0 +1,178 @@
+package blockdude.model;
+
+import blockdude.util.BoardChanges;
+import blockdude.util.GamePiece;
+
+/**
+ * Tracks the cells changed by the move a model is currently making, as they would be rendered
+ * (so a held piece shows up in the cell above the player). The model reports the previous piece of
+ * every cell it changes along with where the held piece is drawn before and after the move, and
+ * the tracker works out what each touched cell showed before and after, dropping the ones that
+ * ended up unchanged.
+ *
+ * <p>Pieces are identified by the same codes as in a MoveHistory (their ordinals), and all storage
+ * is allocated up front, so tracking a move allocates nothing.
+ */
+final class ChangeTracker implements BoardChanges {
+  // code of the overlay piece when nothing is held
+  static final byte NO_PIECE = -1;
+
+  // a move changes at most MAX_CHANGES_PER_MOVE board cells, plus the two overlay cells
+  private static final int MAX_CHANGES = MoveHistory.MAX_CHANGES_PER_MOVE + 2;
+  private static final GamePiece[] PIECES = GamePiece.values();
+
+  /**
+   * Represents a board whose current pieces can be read by the tracker.
+   */
+  interface Board {
+    /**
+     * Returns the code of the piece in the given cell of the board, ignoring any held piece.
+     *
+     * @param row row of cell
+     * @param col column of cell
+     * @return code of piece in cell
+     */
+    byte pieceAt(int row, int col);
+  }
+
+  private final int[] rows = new int[MAX_CHANGES];
+  private final int[] cols = new int[MAX_CHANGES];
+  private final byte[] before = new byte[MAX_CHANGES];
+  private final byte[] after = new byte[MAX_CHANGES];
+  private int size;
+
+  /**
+   * Forgets every tracked change.
+   */
+  void clear() {
+    size = 0;
+  }
+
+  /**
+   * Starts tracking a move, given where the held piece is drawn before the move. Any changes from
+   * the previous move are forgotten.
+   *
+   * @param overlayRow   row of cell the held piece is drawn in
+   * @param overlayCol   column of cell the held piece is drawn in
+   * @param overlayPiece code of held piece (NO_PIECE if nothing is held)
+   */
+  void begin(int overlayRow, int overlayCol, byte overlayPiece) {
+    size = 0;
+    if (overlayPiece != NO_PIECE && overlayRow >= 0) add(overlayRow, overlayCol, overlayPiece);
+  }
+
+  /**
+   * Records that the given cell of the board is about to change during the move being tracked.
+   * Only the first change to each cell matters, since that is when its previous piece is known.
+   *
+   * @param row           row of cell
+   * @param col           column of cell
+   * @param previousPiece code of piece in cell before the change
+   * @throws IllegalStateException if the move changes more cells than any move should
+   */
+  void recordChange(int row, int col, byte previousPiece) throws IllegalStateException {
+    if (indexOf(row, col) < 0) add(row, col, previousPiece);
+  }
+
+  /**
+   * Finishes tracking the current move, given where the held piece is drawn after the move and
+   * the board the move was made on.
+   *
+   * @param overlayRow   row of cell the held piece is drawn in
+   * @param overlayCol   column of cell the held piece is drawn in
+   * @param overlayPiece code of held piece (NO_PIECE if nothing is held)
+   * @param board        board the move was made on
+   */
+  void end(int overlayRow, int overlayCol, byte overlayPiece, Board board) {
+    boolean overlaid = overlayPiece != NO_PIECE && overlayRow >= 0;
+    if (overlaid && indexOf(overlayRow, overlayCol) < 0)
+      add(overlayRow, overlayCol, board.pieceAt(overlayRow, overlayCol));
+
+    // finding what each cell shows now, keeping only the cells that look different
+    int kept = 0;
+    for (int i = 0; i < size; i++) {
+      boolean isOverlay = overlaid && rows[i] == overlayRow && cols[i] == overlayCol;
+      byte now = isOverlay ? overlayPiece : board.pieceAt(rows[i], cols[i]);
+      if (now == before[i]) continue;
+      rows[kept] = rows[i];
+      cols[kept] = cols[i];
+      before[kept] = before[i];
+      after[kept] = now;
+      kept++;
+    }
+    size = kept;
+  }
+
+  /* Interface methods -------------------------------------------------------------------------- */
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int row(int index) throws IndexOutOfBoundsException {
+    requireIndex(index);
+    return rows[index];
+  }
+
+  @Override
+  public int col(int index) throws IndexOutOfBoundsException {
+    requireIndex(index);
+    return cols[index];
+  }
+
+  @Override
+  public GamePiece before(int index) throws IndexOutOfBoundsException {
+    requireIndex(index);
+    return PIECES[before[index]];
+  }
+
+  @Override
+  public GamePiece after(int index) throws IndexOutOfBoundsException {
+    requireIndex(index);
+    return PIECES[after[index]];
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Adds the given cell to the tracked cells.
+   *
+   * @param row           row of cell
+   * @param col           column of cell
+   * @param previousPiece code of piece shown in cell before the move
+   * @throws IllegalStateException if the move changes more cells than any move should
+   */
+  private void add(int row, int col, byte previousPiece) throws IllegalStateException {
+    if (size == MAX_CHANGES)
+      throw new IllegalStateException("Move changed more cells than can be tracked.");
+    rows[size] = row;
+    cols[size] = col;
+    before[size] = previousPiece;
+    size++;
+  }
+
+  /**
+   * Returns the index of the given cell among the tracked cells.
+   *
+   * @param row row of cell
+   * @param col column of cell
+   * @return index of cell, or -1 if it is not tracked
+   */
+  private int indexOf(int row, int col) {
+    for (int i = 0; i < size; i++) if (rows[i] == row && cols[i] == col) return i;
+    return -1;
+  }
+
+  /**
+   * Throws IndexOutOfBoundsException if the given index is not the index of a change.
+   *
+   * @param index index to check
+   * @throws IndexOutOfBoundsException if index is not in [0, size())
+   */
+  private void requireIndex(int index) throws IndexOutOfBoundsException {
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException("No change with index " + index + ".");
+  }
+}
@@ -3,9 +3,10 @@ package blockdude.model;
 import java.util.ArrayList;
 import java.util.List;
 
+import blockdude.util.BoardChanges;
 import blockdude.util.GamePiece;
 import blockdude.util.Level;
-import blockdude.util.Position;
+import blockdude.util.ReadOnlyBoard;
 
 /**
  * A classic model for the Block Dude game.
@@ -14,91 +15,195 @@ public class ClassicBlockDudeModel implements BlockDudeModel {
   // INVARIANT: below chunk of fields will never be null once set
   private Level level;
   private GamePiece player; // INVARIANT: either PLAYER_LEFT or PLAYER_RIGHT
-  private Position playerPosition; // INVARIANT: never has coors beyond limits of board
-  private List<List<GamePiece>> layout; // INVARIANT: correct for current level
+  private int playerCell; // INVARIANT: index of a cell on the board, (row * width + col)
+  // INVARIANT: correct for current level, row-major with (row * width + col) as the cell index
+  private GamePiece[] board;
+  private int width;
+  private int height;
+  // rows[cell] and cols[cell] are the row and column of a cell, looked up rather than divided out
+  private int[] rows;
+  private int[] cols;
 
   private GamePiece heldPiece; // will be null if nothing is held
   private boolean doorReached;
 
+  // moves are recorded using board indices as cell indices and ordinals as piece codes
+  private static final GamePiece[] PIECES = GamePiece.values();
+  private static final byte NO_PIECE = -1;
+  private final MoveHistory history;
+  private final MoveHistory.Board historyBoard;
+  private final ReadOnlyBoard renderBoard;
+  private final ChangeTracker changes;
+  private final ChangeTracker.Board changesBoard;
+  private final ModelEventPublisher events = new ModelEventPublisher();
+
   private enum Direction { LEFT, RIGHT }
 
+  /**
+   * Constructs a new ClassicBlockDudeModel that remembers a default number of moves for undoing.
+   */
+  public ClassicBlockDudeModel() {
+    this(MoveHistory.DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs a new ClassicBlockDudeModel that remembers the given number of moves for undoing.
+   *
+   * @param historyCapacity maximum number of moves that can be undone (0 disables undoing)
+   * @throws IllegalArgumentException if historyCapacity is negative
+   */
+  public ClassicBlockDudeModel(int historyCapacity) throws IllegalArgumentException {
+    history = new MoveHistory(historyCapacity);
+    historyBoard = new MoveHistory.Board() {
+      @Override
+      public void restoreCell(int cell, byte piece) {
+        changes.recordChange(rows[cell], cols[cell], code(board[cell]));
+        board[cell] = PIECES[piece];
+      }
+
+      @Override
+      public void restorePlayer(int playerCell, byte player, byte heldPiece, boolean doorReached) {
+        ClassicBlockDudeModel.this.playerCell = playerCell;
+        ClassicBlockDudeModel.this.player = PIECES[player];
+        ClassicBlockDudeModel.this.heldPiece = (heldPiece == NO_PIECE) ? null : PIECES[heldPiece];
+        ClassicBlockDudeModel.this.doorReached = doorReached;
+      }
+    };
+    changes = new ChangeTracker();
+    changesBoard = new ChangeTracker.Board() {
+      @Override
+      public byte pieceAt(int row, int col) {
+        return code(board[row * width + col]);
+      }
+    };
+    renderBoard = new ReadOnlyBoard() {
+      @Override
+      public int width() {
+        return width;
+      }
+
+      @Override
+      public int height() {
+        return height;
+      }
+
+      @Override
+      public GamePiece get(int row, int col) throws IndexOutOfBoundsException {
+        if (row < 0 || row >= height || col < 0 || col >= width)
+          throw new IndexOutOfBoundsException("Position is not on board.");
+        if (heldPiece != null && row * width + col == playerCell - width) return heldPiece;
+        return board[row * width + col];
+      }
+    };
+  }
+
   /* Interface methods -------------------------------------------------------------------------- */
 
   @Override
   public void restartLevel() throws RuntimeException {
     requireLevel();
-    playerPosition = level.playerPosition();
-    player = level.player();
-    heldPiece = null;
-    layout = level.layout();
-    doorReached = false;
+    startLevel();
+    announce(ModelEvent.Type.LEVEL_RESTARTED);
   }
 
   @Override
   public void loadLevel(Level level) throws IllegalArgumentException {
     if (level == null) throw new IllegalArgumentException("Cannot load null level into model.");
     this.level = level;
-    restartLevel();
+    startLevel();
+    rows = new int[width * height];
+    cols = new int[width * height];
+    for (int cell = 0; cell < rows.length; cell++) {
+      rows[cell] = cell / width;
+      cols[cell] = cell % width;
+    }
+    announce(ModelEvent.Type.LEVEL_LOADED);
   }
 
   @Override
   public boolean moveLeft() throws RuntimeException {
-    return movePlayerHorizontally(Direction.LEFT);
+    beginMove();
+    return endMove(movePlayerHorizontally(Direction.LEFT));
   }
 
   @Override
   public boolean moveRight() throws RuntimeException {
-    return movePlayerHorizontally(Direction.RIGHT);
+    beginMove();
+    return endMove(movePlayerHorizontally(Direction.RIGHT));
   }
 
   @Override
   public boolean moveUp() throws RuntimeException {
-    requireLevel();
-
-    // making sure piece above player is not solid
-    GamePiece pieceAbovePlayer = getGamePiece(shiftPosition(playerPosition, 0, -1));
-    if (GamePiece.isSolid(pieceAbovePlayer)) return false;
-
-    // making sure piece to side is solid and does not have a solid piece above it
-    int colDif = (player == GamePiece.PLAYER_LEFT ? -1 : 1);
-    Position positionToSide = shiftPosition(playerPosition, colDif, 0);
-    GamePiece pieceToSide = getGamePiece(positionToSide);
-    Position targetPosition = shiftPosition(playerPosition, colDif, -1);
-    GamePiece targetPiece = getGamePiece(targetPosition);
-    if (!GamePiece.isSolid(pieceToSide) || GamePiece.isSolid(targetPiece)) return false;
-
-    // move player to target position
-    setGamePiece(targetPosition, player);
-    setGamePiece(playerPosition, GamePiece.EMPTY);
-    playerPosition = targetPosition.copy();
+    beginMove();
+    return endMove(climb());
+  }
 
-    // check if door reached
-    if (targetPiece == GamePiece.DOOR) doorReached = true;
+  @Override
+  public boolean pickUpOrPutDown() throws RuntimeException {
+    beginMove();
+    return endMove((heldPiece == null) ? pickUp() : putDown());
+  }
 
-    return true;
+  @Override
+  public boolean undo() throws RuntimeException {
+    requireLevel();
+    beginChanges();
+    boolean undone = history.undo(historyBoard);
+    endChanges();
+    if (undone) announce(ModelEvent.Type.UNDONE);
+    return undone;
   }
 
   @Override
-  public boolean pickUpOrPutDown() throws RuntimeException {
-    return (heldPiece == null) ? pickUp() : putDown();
+  public boolean redo() throws RuntimeException {
+    requireLevel();
+    beginChanges();
+    boolean redone = history.redo(historyBoard);
+    endChanges();
+    if (redone) announce(ModelEvent.Type.REDONE);
+    return redone;
   }
 
   @Override
   public List<List<GamePiece>> layoutToRender() throws RuntimeException {
     requireLevel();
 
-    List<List<GamePiece>> layoutToRender = new ArrayList<>();
-    for (List<GamePiece> row : layout) layoutToRender.add(new ArrayList<>(row));
+    List<List<GamePiece>> layoutToRender = new ArrayList<>(height);
+    for (int row = 0; row < height; row++) {
+      List<GamePiece> layoutRow = new ArrayList<>(width);
+      for (int col = 0; col < width; col++) layoutRow.add(board[row * width + col]);
+      layoutToRender.add(layoutRow);
+    }
 
     if (heldPiece != null) {
-      int row = playerPosition.row - 1;
-      int col = playerPosition.col;
-      layoutToRender.get(row).set(col, heldPiece);
+      layoutToRender.get(playerCell / width - 1).set(playerCell % width, heldPiece);
     }
 
     return layoutToRender;
   }
 
+  @Override
+  public ReadOnlyBoard boardToRender() throws RuntimeException {
+    requireLevel();
+    return renderBoard;
+  }
+
+  @Override
+  public BoardChanges lastChanges() throws RuntimeException {
+    requireLevel();
+    return changes;
+  }
+
+  @Override
+  public void addListener(ModelListener listener) throws IllegalArgumentException {
+    events.addListener(listener);
+  }
+
+  @Override
+  public void removeListener(ModelListener listener) throws IllegalArgumentException {
+    events.removeListener(listener);
+  }
+
   @Override
   public boolean isLevelCompleted() throws RuntimeException {
     requireLevel();
@@ -107,6 +212,129 @@ public class ClassicBlockDudeModel implements BlockDudeModel {
 
   /* Private methods ---------------------------------------------------------------------------- */
 
+  /**
+   * Puts the current level back in its starting state.
+   */
+  private void startLevel() {
+    playerCell = level.playerCell();
+    player = level.player();
+    heldPiece = null;
+    board = level.copyCells();
+    width = level.width();
+    height = level.height();
+    doorReached = false;
+    history.clear();
+    changes.clear();
+  }
+
+  /**
+   * Starts recording a move in the history and tracking the cells it changes.
+   *
+   * @throws RuntimeException if no level has been loaded into model yet
+   */
+  private void beginMove() throws RuntimeException {
+    requireLevel();
+    history.beginMove(playerCell, code(player), code(heldPiece), doorReached);
+    beginChanges();
+    events.begin();
+  }
+
+  /**
+   * Finishes recording a move in the history, keeping it only if it changed the board, finishes
+   * tracking the cells it changed, and tells listeners what happened during it.
+   *
+   * @param changed whether the move changed the state of the board
+   * @return the given value
+   */
+  private boolean endMove(boolean changed) {
+    if (changed)
+      history.commitMove(playerCell, code(player), code(heldPiece), doorReached);
+    endChanges();
+    events.deliver();
+    return changed;
+  }
+
+  /**
+   * Tells listeners that an event that is not about a single piece happened.
+   *
+   * @param type type of event
+   */
+  private void announce(ModelEvent.Type type) {
+    events.begin();
+    events.publish(type);
+    events.deliver();
+  }
+
+  /**
+   * Adds an event about the given piece moving between the given cells to the events of the
+   * current move.
+   *
+   * @param type  type of event
+   * @param piece piece the event is about
+   * @param from  cell piece went from
+   * @param to    cell piece went to
+   */
+  private void publish(ModelEvent.Type type, GamePiece piece, int from, int to) {
+    events.publish(type, piece, cols[from], rows[from], cols[to], rows[to]);
+  }
+
+  /**
+   * Marks the door as reached by the player at the given cell.
+   *
+   * @param cell cell of door
+   */
+  private void reachDoor(int cell) {
+    if (!doorReached) publish(ModelEvent.Type.DOOR_REACHED, player, cell, cell);
+    doorReached = true;
+  }
+
+  /**
+   * Starts tracking the cells changed by a move, given where the held piece is currently drawn.
+   */
+  private void beginChanges() {
+    changes.begin(rows[playerCell] - 1, cols[playerCell], code(heldPiece));
+  }
+
+  /**
+   * Finishes tracking the cells changed by a move, given where the held piece is now drawn.
+   */
+  private void endChanges() {
+    changes.end(rows[playerCell] - 1, cols[playerCell], code(heldPiece), changesBoard);
+  }
+
+  /**
+   * Moves player up onto the piece they are facing, if possible.
+   *
+   * @return true if moving up changed the state of the board, false otherwise
+   * @throws RuntimeException if no level has been loaded into model yet or if piece reaches board
+   *                          edge (index off board is accessed)
+   */
+  private boolean climb() throws RuntimeException {
+    requireLevel();
+
+    // making sure piece above player is not solid
+    GamePiece pieceAbovePlayer = board[shift(playerCell, 0, -1)];
+    if (GamePiece.isSolid(pieceAbovePlayer)) return false;
+
+    // making sure piece to side is solid and does not have a solid piece above it
+    int colDif = (player == GamePiece.PLAYER_LEFT ? -1 : 1);
+    GamePiece pieceToSide = board[shift(playerCell, colDif, 0)];
+    int targetCell = shift(playerCell, colDif, -1);
+    GamePiece targetPiece = board[targetCell];
+    if (!GamePiece.isSolid(pieceToSide) || GamePiece.isSolid(targetPiece)) return false;
+
+    // move player to target cell
+    setGamePiece(targetCell, player);
+    setGamePiece(playerCell, GamePiece.EMPTY);
+    publish(ModelEvent.Type.MOVED, player, playerCell, targetCell);
+    playerCell = targetCell;
+
+    // check if door reached
+    if (GamePiece.isGoal(targetPiece)) reachDoor(targetCell);
+
+    return true;
+  }
+
   /**
    * Moves player in specified direction. Will notify listener if game won.
    *
@@ -121,20 +349,25 @@ public class ClassicBlockDudeModel implements BlockDudeModel {
     boolean playerOrientationChanged = changePlayerDirection(direction);
 
     int colDif = (direction == Direction.LEFT ? -1 : 1);
-    Position positionToSide = shiftPosition(playerPosition, colDif, 0);
-    GamePiece pieceToSide = getGamePiece(positionToSide);
+    int cellToSide = shift(playerCell, colDif, 0);
+    GamePiece pieceToSide = board[cellToSide];
 
     // making sure piece at player's side is not solid
-    if (GamePiece.isSolid(pieceToSide)) return playerOrientationChanged;
+    if (GamePiece.isSolid(pieceToSide)) {
+      if (playerOrientationChanged)
+        publish(ModelEvent.Type.TURNED, player, playerCell, playerCell);
+      return playerOrientationChanged;
+    }
 
     // moving player in direction and applying gravity
-    setGamePiece(positionToSide, player);
-    setGamePiece(playerPosition, GamePiece.EMPTY);
-    playerPosition = positionToSide.copy();
-    applyGravity(playerPosition);
+    setGamePiece(cellToSide, player);
+    setGamePiece(playerCell, GamePiece.EMPTY);
+    publish(ModelEvent.Type.MOVED, player, playerCell, cellToSide);
+    playerCell = cellToSide;
+    applyGravity(playerCell);
 
     // checking if piece to player's side is a door
-    if (pieceToSide == GamePiece.DOOR) doorReached = true;
+    if (GamePiece.isGoal(pieceToSide)) reachDoor(cellToSide);
 
     return true;
   }
@@ -152,23 +385,23 @@ public class ClassicBlockDudeModel implements BlockDudeModel {
 
     // finding piece at side of player
     int colDif = (player == GamePiece.PLAYER_LEFT ? -1 : 1);
-    Position targetPosition = shiftPosition(playerPosition, colDif, 0);
-    GamePiece pieceToSide = getGamePiece(targetPosition);
+    int targetCell = shift(playerCell, colDif, 0);
+    GamePiece pieceToSide = board[targetCell];
 
     // make sure the piece is able to be picked up
     if (!GamePiece.canPickUp(pieceToSide)) return false;
 
     // make sure there is nothing on top of piece or above the player
-    Position posAboveTarget = shiftPosition(targetPosition, 0, -1);
-    GamePiece pieceAboveTarget = getGamePiece(posAboveTarget);
+    GamePiece pieceAboveTarget = board[shift(targetCell, 0, -1)];
     if (GamePiece.isSolid(pieceAboveTarget)) return false;
-    Position posAbovePlayer = shiftPosition(playerPosition, 0, -1);
-    GamePiece pieceAbovePlayer = getGamePiece(posAbovePlayer);
+    int cellAbovePlayer = shift(playerCell, 0, -1);
+    GamePiece pieceAbovePlayer = board[cellAbovePlayer];
     if (GamePiece.isSolid(pieceAbovePlayer)) return false;
 
     // pick up the piece and return true
     heldPiece = pieceToSide;
-    setGamePiece(targetPosition, GamePiece.EMPTY);
+    setGamePiece(targetCell, GamePiece.EMPTY);
+    publish(ModelEvent.Type.PICKED_UP, heldPiece, targetCell, cellAbovePlayer);
     return true;
   }
 
@@ -187,82 +420,84 @@ public class ClassicBlockDudeModel implements BlockDudeModel {
 
     // finding piece at side of player
     int colDif = (player == GamePiece.PLAYER_LEFT ? -1 : 1);
-    Position targetPosition = shiftPosition(playerPosition, colDif, 0);
-    GamePiece pieceToSide = getGamePiece(targetPosition);
+    int targetCell = shift(playerCell, colDif, 0);
+    GamePiece pieceToSide = board[targetCell];
 
-    // checking if piece at target position is solid or not
+    // checking if piece at target cell is solid or not
     if (GamePiece.isSolid(pieceToSide)) {
       // piece to side is solid, check if can place block above it
-      Position positionAbove = shiftPosition(targetPosition, 0, -1);
-      GamePiece pieceAbove = getGamePiece(positionAbove);
+      int cellAbove = shift(targetCell, 0, -1);
+      GamePiece pieceAbove = board[cellAbove];
       if (GamePiece.isSolid(pieceAbove)) return false;
-      targetPosition = positionAbove;
+      targetCell = cellAbove;
     }
 
     // put piece down, apply gravity, and return true
-    setGamePiece(targetPosition, heldPiece);
+    setGamePiece(targetCell, heldPiece);
+    // the held piece is drawn above the player, which is not always a cell of the board
+    events.publish(ModelEvent.Type.PUT_DOWN, heldPiece, cols[playerCell], rows[playerCell] - 1,
+            cols[targetCell], rows[targetCell]);
     heldPiece = null;
-    applyGravity(targetPosition);
+    applyGravity(targetCell);
     return true;
   }
 
   /**
-   * Moves the game piece at the given position down until it hits a solid game piece.
+   * Moves the game piece in the given cell down until it hits a solid game piece.
    *
-   * @param pos position of piece to apply gravity to
+   * @param cell cell of piece to apply gravity to
    * @throws RuntimeException if piece reaches board edge (index off board is accessed)
    */
-  private void applyGravity(Position pos) throws RuntimeException {
-    // finding new position of piece
-    Position newPos = pos.copy();
-    GamePiece pieceBelow = getGamePiece(shiftPosition(pos, 0, 1));
-    while (!GamePiece.isSolid(pieceBelow)) {
-      newPos.row++;
-      pieceBelow = getGamePiece(shiftPosition(newPos, 0, 1));
-    }
-
-    // move piece to new position
-    if (pos.equals(newPos)) return;
-    GamePiece piece = getGamePiece(pos);
-    GamePiece reachedPiece = getGamePiece(newPos);
-    setGamePiece(newPos, piece);
-    setGamePiece(pos, GamePiece.EMPTY);
-
-    // if piece is the player, update player position & check if door reached
+  private void applyGravity(int cell) throws RuntimeException {
+    // finding new cell of piece
+    int newCell = cell;
+    while (!GamePiece.isSolid(board[shift(newCell, 0, 1)])) newCell += width;
+
+    // move piece to new cell
+    if (newCell == cell) return;
+    GamePiece piece = board[cell];
+    GamePiece reachedPiece = board[newCell];
+    setGamePiece(newCell, piece);
+    setGamePiece(cell, GamePiece.EMPTY);
+    publish(ModelEvent.Type.FELL, piece, cell, newCell);
+
+    // if piece is the player, update player cell & check if door reached
     if (GamePiece.isPlayer(piece)) {
-      playerPosition = newPos.copy();
-      if (reachedPiece == GamePiece.DOOR) doorReached = true;
+      playerCell = newCell;
+      if (GamePiece.isGoal(reachedPiece)) reachDoor(newCell);
     }
   }
 
   /**
-   * Finds and returns the game piece at the given position.
+   * Sets the given cell to the given game piece, recording the change in the history of the move
+   * being made.
    *
-   * @param pos position at which to get game piece
-   * @return game piece at the given position
-   * @throws RuntimeException if position is not on game board
+   * @param cell cell in which to set game piece
+   * @param gp   game piece to set in cell
    */
-  private GamePiece getGamePiece(Position pos) throws RuntimeException {
-    try {
-      return layout.get(pos.row).get(pos.col);
-    } catch (IndexOutOfBoundsException e) {
-      throw new RuntimeException("Tried to access index that is not on the board.");
-    }
+  private void setGamePiece(int cell, GamePiece gp) {
+    GamePiece previous = board[cell];
+    board[cell] = gp;
+    history.recordChange(cell, code(previous), code(gp));
+    changes.recordChange(rows[cell], cols[cell], code(previous));
   }
 
   /**
-   * Sets the value at the given position to the given game piece.
+   * Returns the cell the given numbers of columns and rows away from the given cell, making sure
+   * that it is actually on the board.
    *
-   * @param pos position at which to set game piece
-   * @param gp  game piece to set at position
-   * @throws RuntimeException if position is not on game board
+   * @param cell      original cell
+   * @param colOffset difference in column index
+   * @param rowOffset difference in row index
+   * @return index of shifted cell
+   * @throws RuntimeException if shifted cell is not on game board
    */
-  private void setGamePiece(Position pos, GamePiece gp) throws RuntimeException {
-    try {
-      layout.get(pos.row).set(pos.col, gp);
-    } catch (IndexOutOfBoundsException e) {
+  private int shift(int cell, int colOffset, int rowOffset) throws RuntimeException {
+    int row = rows[cell] + rowOffset;
+    int col = cols[cell] + colOffset;
+    if (row < 0 || row >= height || col < 0 || col >= width)
       throw new RuntimeException("Tried to access index that is not on the board.");
-    }
+    return cell + rowOffset * width + colOffset;
   }
 
   /**
@@ -274,7 +509,7 @@ public class ClassicBlockDudeModel implements BlockDudeModel {
   private boolean changePlayerDirection(Direction direction) {
     GamePiece playerBefore = player;
     player = getPlayerFromDirection(direction);
-    setGamePiece(playerPosition, player);
+    setGamePiece(playerCell, player);
     return playerBefore != player;
   }
 
@@ -300,15 +535,12 @@ public class ClassicBlockDudeModel implements BlockDudeModel {
   }
 
   /**
-   * Returns a new position in which the column and row indices are shifted from the given position
-   * by the given row and column offsets.
+   * Returns the code used to identify the given game piece in the history.
    *
-   * @param pos       original position
-   * @param colOffset difference in column index
-   * @param rowOffset difference in row index
-   * @return new position with shifted row and column indices
+   * @param gp game piece to find code for (may be null)
+   * @return code of given game piece
    */
-  private static Position shiftPosition(Position pos, int colOffset, int rowOffset) {
-    return new Position(pos.col + colOffset, pos.row + rowOffset);
+  private static byte code(GamePiece gp) {
+    return (gp == null) ? NO_PIECE : (byte) gp.ordinal();
   }
 }
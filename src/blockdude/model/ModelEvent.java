@@ -0,0 +1,133 @@
+package blockdude.model;
+
+import blockdude.util.GamePiece;
+import blockdude.util.Position;
+
+/**
+ * Represents something that happened in a Block Dude model. Every event has a type, and events
+ * about a single piece also say which piece it was and where it went from and to.
+ */
+public final class ModelEvent {
+  /**
+   * Represents the kinds of things that can happen in a model.
+   */
+  public enum Type {
+    /**
+     * The player stepped sideways or climbed up (from and to are the player's old and new cells).
+     */
+    MOVED,
+    /**
+     * The player turned around without moving (from and to are both the player's cell).
+     */
+    TURNED,
+    /**
+     * The player picked up a block (from is the block's cell, to is the cell above the player).
+     */
+    PICKED_UP,
+    /**
+     * The player put down a block (from is the cell above the player, to is the cell it was put
+     * in, before any fall).
+     */
+    PUT_DOWN,
+    /**
+     * A piece fell straight down (from and to are the cells it fell from and landed in).
+     */
+    FELL,
+    /**
+     * The player reached the door (from and to are both the door's cell).
+     */
+    DOOR_REACHED,
+    /**
+     * The most recent move was undone (no piece or cells).
+     */
+    UNDONE,
+    /**
+     * The most recently undone move was redone (no piece or cells).
+     */
+    REDONE,
+    /**
+     * A new level was loaded (no piece or cells).
+     */
+    LEVEL_LOADED,
+    /**
+     * The current level was restarted (no piece or cells).
+     */
+    LEVEL_RESTARTED
+  }
+
+  private final Type type;
+  private final GamePiece piece;
+  private final int fromCol, fromRow, toCol, toRow;
+
+  /**
+   * Constructs a new ModelEvent about a single piece. Access is package private since events
+   * should only ever be created by a model.
+   *
+   * @param type    type of event
+   * @param piece   piece the event is about
+   * @param fromCol column of cell piece went from
+   * @param fromRow row of cell piece went from
+   * @param toCol   column of cell piece went to
+   * @param toRow   row of cell piece went to
+   */
+  ModelEvent(Type type, GamePiece piece, int fromCol, int fromRow, int toCol, int toRow) {
+    this.type = type;
+    this.piece = piece;
+    this.fromCol = fromCol;
+    this.fromRow = fromRow;
+    this.toCol = toCol;
+    this.toRow = toRow;
+  }
+
+  /**
+   * Constructs a new ModelEvent that is not about a single piece. Access is package private since
+   * events should only ever be created by a model.
+   *
+   * @param type type of event
+   */
+  ModelEvent(Type type) {
+    this(type, null, -1, -1, -1, -1);
+  }
+
+  /**
+   * Returns the type of this event.
+   *
+   * @return type of event
+   */
+  public Type type() {
+    return type;
+  }
+
+  /**
+   * Returns the piece this event is about.
+   *
+   * @return piece of event, or null if the event is not about a single piece
+   */
+  public GamePiece piece() {
+    return piece;
+  }
+
+  /**
+   * Returns the position the piece of this event went from.
+   *
+   * @return position piece went from, or null if the event is not about a single piece
+   */
+  public Position from() {
+    return (piece == null) ? null : new Position(fromCol, fromRow);
+  }
+
+  /**
+   * Returns the position the piece of this event went to.
+   *
+   * @return position piece went to, or null if the event is not about a single piece
+   */
+  public Position to() {
+    return (piece == null) ? null : new Position(toCol, toRow);
+  }
+
+  @Override
+  public String toString() {
+    if (piece == null) return type.toString();
+    return type + " " + piece + " " + from() + "->" + to();
+  }
+}
@@ -0,0 +1,85 @@
+package blockdude.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import blockdude.util.GamePiece;
+
+/**
+ * Collects the events of the move a model is currently making and delivers them to the model's
+ * listeners once the move has finished. Events are only created while someone is listening, so a
+ * model that nobody listens to allocates nothing for them.
+ */
+final class ModelEventPublisher {
+  private final List<ModelListener> listeners = new ArrayList<>();
+  private final List<ModelEvent> pending = new ArrayList<>();
+
+  /**
+   * Starts listening to the model with the given listener.
+   *
+   * @param listener listener to add
+   * @throws IllegalArgumentException if listener is null
+   */
+  void addListener(ModelListener listener) throws IllegalArgumentException {
+    if (listener == null) throw new IllegalArgumentException("Listener cannot be null.");
+    listeners.add(listener);
+  }
+
+  /**
+   * Stops listening to the model with the given listener, if it was listening.
+   *
+   * @param listener listener to remove
+   * @throws IllegalArgumentException if listener is null
+   */
+  void removeListener(ModelListener listener) throws IllegalArgumentException {
+    if (listener == null) throw new IllegalArgumentException("Listener cannot be null.");
+    listeners.remove(listener);
+  }
+
+  /**
+   * Starts collecting the events of a move. Events of a move that never finished are discarded.
+   */
+  void begin() {
+    pending.clear();
+  }
+
+  /**
+   * Adds an event about a single piece to the events of the current move.
+   *
+   * @param type    type of event
+   * @param piece   piece the event is about
+   * @param fromCol column of cell piece went from
+   * @param fromRow row of cell piece went from
+   * @param toCol   column of cell piece went to
+   * @param toRow   row of cell piece went to
+   */
+  void publish(ModelEvent.Type type, GamePiece piece, int fromCol, int fromRow, int toCol,
+               int toRow) {
+    if (!listeners.isEmpty())
+      pending.add(new ModelEvent(type, piece, fromCol, fromRow, toCol, toRow));
+  }
+
+  /**
+   * Adds an event that is not about a single piece to the events of the current move.
+   *
+   * @param type type of event
+   */
+  void publish(ModelEvent.Type type) {
+    if (!listeners.isEmpty()) pending.add(new ModelEvent(type));
+  }
+
+  /**
+   * Delivers the events of the current move to every listener, in the order they happened.
+   */
+  void deliver() {
+    if (pending.isEmpty()) return;
+
+    // copying so listeners can make moves or add and remove listeners while being notified
+    ModelEvent[] events = pending.toArray(new ModelEvent[0]);
+    ModelListener[] notified = listeners.toArray(new ModelListener[0]);
+    pending.clear();
+    for (ModelEvent event : events) {
+      for (ModelListener listener : notified) listener.onEvent(event);
+    }
+  }
+}
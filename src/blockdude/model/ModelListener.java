@@ -0,0 +1,16 @@
+package blockdude.model;
+
+/**
+ * Represents something that wants to be told about what happens in a Block Dude model.
+ */
+public interface ModelListener {
+  /**
+   * Handles the given event. This is called on the thread that made the move, after the move has
+   * finished (so the model is in a consistent state), and the move does not return until every
+   * listener has handled its events; listeners that may be slow should be wrapped in an
+   * AsyncModelListener.
+   *
+   * @param event event that happened
+   */
+  void onEvent(ModelEvent event);
+}
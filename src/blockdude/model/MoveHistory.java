@@ -0,0 +1,205 @@
+package blockdude.model;
+
+/**
+ * A bounded log of the moves made in a model, used to undo and redo them. Rather than copying the
+ * board, each move is stored as the handful of cells it changed (with their pieces before and after
+ * the move) plus the state of the player before and after the move, so undoing or redoing a move
+ * costs the same no matter how big the board is. Once more moves than the capacity have been made,
+ * the oldest ones are forgotten.
+ *
+ * <p>Cells are identified by an int index and pieces by a byte code, both chosen by the model that
+ * owns the history. All storage is allocated up front, so recording a move allocates nothing.
+ */
+final class MoveHistory {
+  // number of moves remembered by models that are not given a capacity
+  static final int DEFAULT_CAPACITY = 1000;
+
+  // no move in Block Dude changes more cells than this (a horizontal move that ends in a fall
+  // changes five: turning, stepping, vacating, landing and vacating again)
+  static final int MAX_CHANGES_PER_MOVE = 8;
+
+  /**
+   * Represents a board that moves from this history can be undone and redone on.
+   */
+  interface Board {
+    /**
+     * Sets the given cell to contain the given piece, without recording the change as a move.
+     *
+     * @param cell  index of cell to set
+     * @param piece code of piece to put in the cell
+     */
+    void restoreCell(int cell, byte piece);
+
+    /**
+     * Sets the state of the player, without recording the change as a move.
+     *
+     * @param playerCell  index of cell containing player
+     * @param player      code of player piece (which determines the direction it faces)
+     * @param heldPiece   code of piece held by player
+     * @param doorReached whether the door has been reached
+     */
+    void restorePlayer(int playerCell, byte player, byte heldPiece, boolean doorReached);
+  }
+
+  private final int capacity;
+
+  // ring buffer of recorded moves, indexed by (move number % capacity)
+  private final int[] changedCells;
+  private final byte[] piecesBefore;
+  private final byte[] piecesAfter;
+  private final int[] changeCounts;
+  private final int[] playerCells; // two per move: before, after
+  private final byte[] playerPieces; // two per move: before, after
+  private final byte[] heldPieces; // two per move: before, after
+  private final boolean[] doorsReached; // two per move: before, after
+
+  // INVARIANT: oldest <= current <= newest and newest - oldest <= capacity
+  private long oldest; // move number of oldest move that can be undone
+  private long current; // move number of next move to be recorded or redone
+  private long newest; // move number after newest move that can be redone
+
+  // move that is currently being recorded, only copied into the ring buffer once it is committed
+  private final int[] pendingCells = new int[MAX_CHANGES_PER_MOVE];
+  private final byte[] pendingBefore = new byte[MAX_CHANGES_PER_MOVE];
+  private final byte[] pendingAfter = new byte[MAX_CHANGES_PER_MOVE];
+  private int pendingCount;
+  private int pendingPlayerCell;
+  private byte pendingPlayer;
+  private byte pendingHeldPiece;
+  private boolean pendingDoorReached;
+
+  /**
+   * Constructs a new MoveHistory that remembers at most the given number of moves.
+   *
+   * @param capacity maximum number of moves to remember (0 disables undoing entirely)
+   * @throws IllegalArgumentException if capacity is negative
+   */
+  MoveHistory(int capacity) throws IllegalArgumentException {
+    if (capacity < 0) throw new IllegalArgumentException("History capacity must be >= 0.");
+    this.capacity = capacity;
+    changedCells = new int[capacity * MAX_CHANGES_PER_MOVE];
+    piecesBefore = new byte[capacity * MAX_CHANGES_PER_MOVE];
+    piecesAfter = new byte[capacity * MAX_CHANGES_PER_MOVE];
+    changeCounts = new int[capacity];
+    playerCells = new int[capacity * 2];
+    playerPieces = new byte[capacity * 2];
+    heldPieces = new byte[capacity * 2];
+    doorsReached = new boolean[capacity * 2];
+  }
+
+  /**
+   * Forgets every recorded move.
+   */
+  void clear() {
+    oldest = current = newest = 0;
+    pendingCount = 0;
+  }
+
+  /**
+   * Starts recording a move, given the state of the player before the move. Any move that was
+   * being recorded but was never committed is discarded.
+   *
+   * @param playerCell  index of cell containing player
+   * @param player      code of player piece
+   * @param heldPiece   code of piece held by player
+   * @param doorReached whether the door has been reached
+   */
+  void beginMove(int playerCell, byte player, byte heldPiece, boolean doorReached) {
+    pendingCount = 0;
+    pendingPlayerCell = playerCell;
+    pendingPlayer = player;
+    pendingHeldPiece = heldPiece;
+    pendingDoorReached = doorReached;
+  }
+
+  /**
+   * Records that the given cell changed during the move currently being recorded.
+   *
+   * @param cell   index of cell that changed
+   * @param before code of piece in cell before the change
+   * @param after  code of piece in cell after the change
+   * @throws IllegalStateException if the move changes more cells than any move should
+   */
+  void recordChange(int cell, byte before, byte after) throws IllegalStateException {
+    if (capacity == 0 || before == after) return;
+    if (pendingCount == MAX_CHANGES_PER_MOVE)
+      throw new IllegalStateException("Move changed more cells than can be recorded.");
+    pendingCells[pendingCount] = cell;
+    pendingBefore[pendingCount] = before;
+    pendingAfter[pendingCount] = after;
+    pendingCount++;
+  }
+
+  /**
+   * Finishes recording the current move, given the state of the player after the move. Any moves
+   * that could have been redone are forgotten, and if the history is full, the oldest move is.
+   *
+   * @param playerCell  index of cell containing player
+   * @param player      code of player piece
+   * @param heldPiece   code of piece held by player
+   * @param doorReached whether the door has been reached
+   */
+  void commitMove(int playerCell, byte player, byte heldPiece, boolean doorReached) {
+    if (capacity == 0) return;
+
+    int slot = (int) (current % capacity);
+    int base = slot * MAX_CHANGES_PER_MOVE;
+    System.arraycopy(pendingCells, 0, changedCells, base, pendingCount);
+    System.arraycopy(pendingBefore, 0, piecesBefore, base, pendingCount);
+    System.arraycopy(pendingAfter, 0, piecesAfter, base, pendingCount);
+    changeCounts[slot] = pendingCount;
+
+    playerCells[slot * 2] = pendingPlayerCell;
+    playerPieces[slot * 2] = pendingPlayer;
+    heldPieces[slot * 2] = pendingHeldPiece;
+    doorsReached[slot * 2] = pendingDoorReached;
+    playerCells[slot * 2 + 1] = playerCell;
+    playerPieces[slot * 2 + 1] = player;
+    heldPieces[slot * 2 + 1] = heldPiece;
+    doorsReached[slot * 2 + 1] = doorReached;
+
+    current++;
+    newest = current;
+    if (newest - oldest > capacity) oldest = newest - capacity;
+    pendingCount = 0;
+  }
+
+  /**
+   * Undoes the most recent move that has not already been undone on the given board.
+   *
+   * @param board board to undo move on
+   * @return true if a move was undone, false if there was no move to undo
+   */
+  boolean undo(Board board) {
+    if (current == oldest) return false;
+    current--;
+
+    int slot = (int) (current % capacity);
+    int base = slot * MAX_CHANGES_PER_MOVE;
+    for (int i = changeCounts[slot] - 1; i >= 0; i--)
+      board.restoreCell(changedCells[base + i], piecesBefore[base + i]);
+    board.restorePlayer(playerCells[slot * 2], playerPieces[slot * 2], heldPieces[slot * 2],
+            doorsReached[slot * 2]);
+    return true;
+  }
+
+  /**
+   * Redoes the most recently undone move on the given board.
+   *
+   * @param board board to redo move on
+   * @return true if a move was redone, false if there was no move to redo
+   */
+  boolean redo(Board board) {
+    if (current == newest) return false;
+
+    int slot = (int) (current % capacity);
+    int base = slot * MAX_CHANGES_PER_MOVE;
+    for (int i = 0; i < changeCounts[slot]; i++)
+      board.restoreCell(changedCells[base + i], piecesAfter[base + i]);
+    board.restorePlayer(playerCells[slot * 2 + 1], playerPieces[slot * 2 + 1],
+            heldPieces[slot * 2 + 1], doorsReached[slot * 2 + 1]);
+
+    current++;
+    return true;
+  }
+}
@@ -0,0 +1,1291 @@
+package blockdude.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import blockdude.util.BoardChanges;
+import blockdude.util.Command;
+import blockdude.util.GamePiece;
+import blockdude.util.Level;
+import blockdude.util.ReadOnlyBoard;
+
+/**
+ * A model for the Block Dude game that stores its board as a flat array of bytes, one per cell.
+ * The board is surrounded by a one-cell border of sentinel values, so every neighbor of an on-board
+ * cell is a valid array index and no bounds checking (or exception handling) is required when
+ * looking around the player. This model plays identically to ClassicBlockDudeModel, but is meant
+ * for workloads that simulate a large number of moves (such as replay verification). Positions are
+ * handled as plain int indices into the array, so none of the move operations allocate any objects.
+ *
+ * <p>To keep gravity from having to walk down a column cell by cell, this model also keeps an
+ * index of which cells in each column are solid (a bitset per column) along with the highest solid
+ * row of each column (its surface). Both are updated whenever a cell changes solidity, so finding
+ * where a falling piece lands is a single lookup when nothing overhangs it and a scan of 64 rows at
+ * a time otherwise.
+ *
+ * <p>The model also maintains a Zobrist hash of its state, which is updated with a couple of XORs
+ * whenever a cell, the held piece, or the door flag changes. Rather than a random table, the key
+ * for each (cell, piece) pair is derived by mixing the pair's bits, so the hash of a state does not
+ * depend on the model instance that computed it.
+ *
+ * <p>Snapshots only encode the parts of the state that can change: the player's cell and facing,
+ * the held piece, the door flag, whether each door is still there, and the (sorted) cells of every
+ * block, with each cell index packed into as few bits as the board size allows. Walls and doors
+ * come from a background array that is built once per level, and the model keeps a sorted index of
+ * the cells containing blocks, so taking and restoring snapshots costs time proportional to the
+ * number of blocks rather than the size of the board.
+ *
+ * <p>The tokens make(...) returns keep how many rows a piece fell in 16 bits, so this model only
+ * loads levels at most 65535 rows tall.
+ */
+public class PackedBlockDudeModel implements SearchableBlockDudeModel {
+  // code stored in the border cells that surround the board
+  private static final byte OFF_BOARD = -1;
+  // value of heldPiece when nothing is held
+  private static final byte NO_PIECE = -1;
+  // outcome of a move that would not change the state of the model, and the token of making it
+  private static final long ILLEGAL = -1;
+
+  // layout of the tokens returned by make(...): the move code in the lowest 2 bits, then flags for
+  // the state before the move, the codes of the pieces that were in the first cell a moving piece
+  // entered and the cell it landed in, the rows it fell, and the cell the player was in
+  private static final long FACED_LEFT = 1L << 2;
+  private static final long DOOR_WAS_REACHED = 1L << 3;
+  private static final long PUT_ON_TOP = 1L << 4;
+  private static final int ENTERED_SHIFT = 8;
+  private static final int LANDED_SHIFT = 12;
+  private static final int DROP_SHIFT = 16;
+  private static final int DROP_MASK = 0xFFFF; // so a level can be at most this many rows tall
+  private static final int CELL_SHIFT = 32;
+
+  // lookup tables indexed by piece code (the ordinal of the GamePiece)
+  private static final GamePiece[] PIECES = GamePiece.values();
+  private static final boolean[] SOLID = new boolean[PIECES.length];
+  private static final boolean[] PLAYER = new boolean[PIECES.length];
+  private static final boolean[] LIFTABLE = new boolean[PIECES.length];
+  private static final boolean[] GOAL = new boolean[PIECES.length];
+
+  static {
+    for (GamePiece gp : PIECES) {
+      SOLID[gp.ordinal()] = GamePiece.isSolid(gp);
+      PLAYER[gp.ordinal()] = GamePiece.isPlayer(gp);
+      LIFTABLE[gp.ordinal()] = GamePiece.canPickUp(gp);
+      GOAL[gp.ordinal()] = GamePiece.isGoal(gp);
+    }
+  }
+
+  private static final byte BLOCK = code(GamePiece.BLOCK);
+  private static final byte EMPTY = code(GamePiece.EMPTY);
+  private static final byte PLAYER_LEFT = code(GamePiece.PLAYER_LEFT);
+  private static final byte PLAYER_RIGHT = code(GamePiece.PLAYER_RIGHT);
+
+  // INVARIANT: below chunk of fields will never be null / unset once a level is loaded
+  private Level level;
+  private int width; // number of columns on the board, not including the border
+  private int height; // number of rows on the board, not including the border
+  private int stride; // number of cells in a row of the array, including the border
+  private byte[] cells; // INVARIANT: length is stride * (height + 2), border is all OFF_BOARD
+  private byte player; // INVARIANT: either PLAYER_LEFT or PLAYER_RIGHT
+  private int playerCell; // INVARIANT: index of an on-board cell
+
+  // INVARIANT: bit (row % 64) of solidRows[col * wordsPerColumn + row / 64] is set if and only if
+  // the piece at (col, row) is solid, and surface[col] is the lowest such row (or height if none)
+  private int wordsPerColumn;
+  private long[] solidRows;
+  private int[] surface;
+
+  private byte heldPiece = NO_PIECE; // will be NO_PIECE if nothing is held
+  private boolean doorReached;
+
+  // key slots used for the parts of the state that are not cells
+  private static final int HELD_PIECE_SLOT = -1;
+  private static final int DOOR_REACHED_SLOT = -2;
+  private long hash; // INVARIANT: XOR of the keys of every on-board cell, held piece and door flag
+
+  // INVARIANT: background has the same walls, doors and border as cells, but is EMPTY everywhere
+  // else; liftableCells holds the indices of all cells containing blocks in ascending order
+  private byte[] background;
+  private int[] doorCells;
+  private int blockCount; // number of blocks in the level (including a held one)
+  private int[] liftableCells; // one longer than blockCount, since a block is briefly in two cells
+  private int liftableCount;
+  private int[] restoredCells; // scratch space for decoding snapshots
+  private int bitsPerCell; // number of bits needed to store any cell index
+
+  // state of the board and its indices when the level starts, copied back on restart
+  private byte[] startCells;
+  private long[] startSolidRows;
+  private int[] startSurface;
+  private int[] startLiftableCells;
+  private int startPlayerCell;
+  private byte startPlayer;
+  private long startHash;
+
+  private final MoveHistory history;
+  private final MoveHistory.Board historyBoard;
+  private final ReadOnlyBoard renderBoard;
+  private final ChangeTracker changes;
+  private final ChangeTracker.Board changesBoard;
+  private final ModelEventPublisher events = new ModelEventPublisher();
+
+  /**
+   * Constructs a new PackedBlockDudeModel that remembers a default number of moves for undoing.
+   */
+  public PackedBlockDudeModel() {
+    this(MoveHistory.DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs a new PackedBlockDudeModel that remembers the given number of moves for undoing.
+   *
+   * @param historyCapacity maximum number of moves that can be undone (0 disables undoing)
+   * @throws IllegalArgumentException if historyCapacity is negative
+   */
+  public PackedBlockDudeModel(int historyCapacity) throws IllegalArgumentException {
+    history = new MoveHistory(historyCapacity);
+    historyBoard = new MoveHistory.Board() {
+      @Override
+      public void restoreCell(int cell, byte piece) {
+        changes.recordChange(rowOf(cell), colOf(cell), cells[cell]);
+        writeCell(cell, piece);
+      }
+
+      @Override
+      public void restorePlayer(int playerCell, byte player, byte heldPiece, boolean doorReached) {
+        PackedBlockDudeModel.this.playerCell = playerCell;
+        PackedBlockDudeModel.this.player = player;
+        setHeldPiece(heldPiece);
+        setDoorReached(doorReached);
+      }
+    };
+    changes = new ChangeTracker();
+    changesBoard = new ChangeTracker.Board() {
+      @Override
+      public byte pieceAt(int row, int col) {
+        return cells[cellAt(col, row)];
+      }
+    };
+    renderBoard = new ReadOnlyBoard() {
+      @Override
+      public int width() {
+        return width;
+      }
+
+      @Override
+      public int height() {
+        return height;
+      }
+
+      @Override
+      public GamePiece get(int row, int col) throws IndexOutOfBoundsException {
+        if (row < 0 || row >= height || col < 0 || col >= width)
+          throw new IndexOutOfBoundsException("Position is not on board.");
+        int cell = cellAt(col, row);
+        if (heldPiece != NO_PIECE && cell == playerCell - stride) return PIECES[heldPiece];
+        return PIECES[cells[cell]];
+      }
+    };
+  }
+
+  /* Interface methods -------------------------------------------------------------------------- */
+
+  @Override
+  public void restartLevel() throws RuntimeException {
+    requireLevel();
+    startLevel();
+    announce(ModelEvent.Type.LEVEL_RESTARTED);
+  }
+
+  @Override
+  public void loadLevel(Level level) throws IllegalArgumentException {
+    if (level == null) throw new IllegalArgumentException("Cannot load null level into model.");
+    if (level.height() > DROP_MASK)
+      throw new IllegalArgumentException("Level must be at most " + DROP_MASK + " rows tall.");
+    this.level = level;
+    height = level.height();
+    width = level.width();
+    stride = width + 2;
+
+    cells = new byte[stride * (height + 2)];
+    Arrays.fill(cells, OFF_BOARD);
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) cells[cellAt(col, row)] = code(level.pieceAt(row, col));
+    }
+
+    indexSolidCells();
+    indexBackground();
+
+    long startHash = 0;
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        int cell = cellAt(col, row);
+        startHash ^= zobristKey(cell, cells[cell]);
+      }
+    }
+
+    // keeping the starting state of every index so that restarting is just a few array copies
+    this.startCells = cells.clone();
+    this.startSolidRows = solidRows.clone();
+    this.startSurface = surface.clone();
+    this.startLiftableCells = Arrays.copyOf(liftableCells, blockCount);
+    this.startPlayerCell = cellAt(level.playerCell() % width, level.playerCell() / width);
+    this.startPlayer = code(level.player());
+    this.startHash = startHash;
+    startLevel();
+    announce(ModelEvent.Type.LEVEL_LOADED);
+  }
+
+  @Override
+  public boolean moveLeft() throws RuntimeException {
+    beginMove();
+    return endMove(movePlayerHorizontally(-1));
+  }
+
+  @Override
+  public boolean moveRight() throws RuntimeException {
+    beginMove();
+    return endMove(movePlayerHorizontally(1));
+  }
+
+  @Override
+  public boolean moveUp() throws RuntimeException {
+    beginMove();
+    return endMove(climb());
+  }
+
+  @Override
+  public boolean pickUpOrPutDown() throws RuntimeException {
+    beginMove();
+    return endMove((heldPiece == NO_PIECE) ? pickUp() : putDown());
+  }
+
+  @Override
+  public boolean undo() throws RuntimeException {
+    requireLevel();
+    beginChanges();
+    boolean undone = history.undo(historyBoard);
+    endChanges();
+    if (undone) announce(ModelEvent.Type.UNDONE);
+    return undone;
+  }
+
+  @Override
+  public boolean redo() throws RuntimeException {
+    requireLevel();
+    beginChanges();
+    boolean redone = history.redo(historyBoard);
+    endChanges();
+    if (redone) announce(ModelEvent.Type.REDONE);
+    return redone;
+  }
+
+  @Override
+  public List<List<GamePiece>> layoutToRender() throws RuntimeException {
+    requireLevel();
+
+    List<List<GamePiece>> layoutToRender = new ArrayList<>(height);
+    for (int row = 0; row < height; row++) {
+      List<GamePiece> layoutRow = new ArrayList<>(width);
+      int cell = cellAt(0, row);
+      for (int col = 0; col < width; col++) layoutRow.add(PIECES[cells[cell + col]]);
+      layoutToRender.add(layoutRow);
+    }
+
+    if (heldPiece != NO_PIECE) {
+      int row = rowOf(playerCell) - 1;
+      int col = colOf(playerCell);
+      layoutToRender.get(row).set(col, PIECES[heldPiece]);
+    }
+
+    return layoutToRender;
+  }
+
+  @Override
+  public ReadOnlyBoard boardToRender() throws RuntimeException {
+    requireLevel();
+    return renderBoard;
+  }
+
+  @Override
+  public BoardChanges lastChanges() throws RuntimeException {
+    requireLevel();
+    return changes;
+  }
+
+  @Override
+  public void addListener(ModelListener listener) throws IllegalArgumentException {
+    events.addListener(listener);
+  }
+
+  @Override
+  public void removeListener(ModelListener listener) throws IllegalArgumentException {
+    events.removeListener(listener);
+  }
+
+  @Override
+  public boolean isLevelCompleted() throws RuntimeException {
+    requireLevel();
+    return doorReached;
+  }
+
+  @Override
+  public long stateHash() throws RuntimeException {
+    requireLevel();
+    return hash;
+  }
+
+  @Override
+  public int playerRow() throws RuntimeException {
+    requireLevel();
+    return rowOf(playerCell);
+  }
+
+  @Override
+  public int playerCol() throws RuntimeException {
+    requireLevel();
+    return colOf(playerCell);
+  }
+
+  @Override
+  public boolean isHoldingPiece() throws RuntimeException {
+    requireLevel();
+    return heldPiece != NO_PIECE;
+  }
+
+  @Override
+  public int legalMoves() throws RuntimeException {
+    requireLevel();
+    int legal = 0;
+    for (int move = 0; move <= Command.PICK_UP_PUT_DOWN.ordinal(); move++) {
+      if (outcomeOf(move) != ILLEGAL) legal |= 1 << move;
+    }
+    return legal;
+  }
+
+  @Override
+  public int playerCellAfter(Command move) throws IllegalArgumentException, RuntimeException {
+    requireLevel();
+    long outcome = outcomeOf(moveCode(move));
+    int cell = outcome == ILLEGAL ? playerCell : (int) outcome;
+    return rowOf(cell) * width + colOf(cell);
+  }
+
+  @Override
+  public int dropAfter(Command move) throws IllegalArgumentException, RuntimeException {
+    requireLevel();
+    long outcome = outcomeOf(moveCode(move));
+    return outcome == ILLEGAL ? 0 : (int) (outcome >>> 32);
+  }
+
+  @Override
+  public long make(Command move) throws IllegalArgumentException, RuntimeException {
+    requireLevel();
+    int code = moveCode(move);
+    long outcome = outcomeOf(code);
+    if (outcome == ILLEGAL) return ILLEGAL;
+    int drop = (int) (outcome >>> 32);
+    long token = code | (player == PLAYER_LEFT ? FACED_LEFT : 0)
+            | (doorReached ? DOOR_WAS_REACHED : 0) | (long) (drop & DROP_MASK) << DROP_SHIFT
+            | (long) playerCell << CELL_SHIFT;
+    history.clear();
+    changes.clear();
+
+    if (code < 2) {
+      player = code == 0 ? PLAYER_LEFT : PLAYER_RIGHT;
+      int landedCell = (int) outcome;
+      if (landedCell == playerCell) {
+        // only turning
+        writeCell(playerCell, player);
+        return token;
+      }
+      int enteredCell = playerCell + (code == 0 ? -1 : 1);
+      token |= enteredAndLanded(enteredCell, landedCell);
+      if (GOAL[cells[enteredCell]] || GOAL[cells[landedCell]]) setDoorReached(true);
+      writeCell(playerCell, EMPTY);
+      writeCell(enteredCell, EMPTY);
+      writeCell(landedCell, player);
+      playerCell = landedCell;
+    } else if (code == 2) {
+      int landedCell = (int) outcome;
+      token |= enteredAndLanded(landedCell, landedCell);
+      if (GOAL[cells[landedCell]]) setDoorReached(true);
+      writeCell(playerCell, EMPTY);
+      writeCell(landedCell, player);
+      playerCell = landedCell;
+    } else if (heldPiece == NO_PIECE) {
+      int enteredCell = playerCell + facing();
+      setHeldPiece(cells[enteredCell]);
+      writeCell(enteredCell, EMPTY);
+    } else {
+      int enteredCell = playerCell + facing();
+      if (SOLID[cells[enteredCell]]) {
+        enteredCell -= stride;
+        token |= PUT_ON_TOP;
+      }
+      int landedCell = enteredCell + drop * stride;
+      token |= enteredAndLanded(enteredCell, landedCell);
+      writeCell(enteredCell, EMPTY);
+      writeCell(landedCell, heldPiece);
+      setHeldPiece(NO_PIECE);
+    }
+    return token;
+  }
+
+  @Override
+  public void unmake(long token) throws RuntimeException {
+    requireLevel();
+    if (token == ILLEGAL) return;
+    int code = (int) token & 3;
+    int oldCell = (int) (token >>> CELL_SHIFT);
+    int drop = (int) (token >>> DROP_SHIFT) & DROP_MASK;
+    byte entered = (byte) ((token >>> ENTERED_SHIFT) & 0xF);
+    byte landed = (byte) ((token >>> LANDED_SHIFT) & 0xF);
+    history.clear();
+    changes.clear();
+
+    if (code < 2) {
+      player = (token & FACED_LEFT) != 0 ? PLAYER_LEFT : PLAYER_RIGHT;
+      if (playerCell != oldCell) {
+        int enteredCell = oldCell + (code == 0 ? -1 : 1);
+        writeCell(playerCell, landed);
+        writeCell(enteredCell, entered);
+        playerCell = oldCell;
+      }
+      writeCell(playerCell, player);
+    } else if (code == 2) {
+      writeCell(playerCell, landed);
+      playerCell = oldCell;
+      writeCell(playerCell, player);
+    } else if (heldPiece != NO_PIECE) {
+      writeCell(playerCell + facing(), heldPiece);
+      setHeldPiece(NO_PIECE);
+    } else {
+      int enteredCell = playerCell + facing() - ((token & PUT_ON_TOP) != 0 ? stride : 0);
+      int landedCell = enteredCell + drop * stride;
+      byte piece = cells[landedCell];
+      writeCell(landedCell, landed);
+      writeCell(enteredCell, entered);
+      setHeldPiece(piece);
+    }
+    setDoorReached((token & DOOR_WAS_REACHED) != 0);
+  }
+
+  @Override
+  public GamePiece pieceAt(int row, int col) throws IndexOutOfBoundsException, RuntimeException {
+    requireLevel();
+    if (row < 0 || row >= height || col < 0 || col >= width)
+      throw new IndexOutOfBoundsException("Position is not on board.");
+    return PIECES[cells[cellAt(col, row)]];
+  }
+
+  @Override
+  public int snapshotLength() throws RuntimeException {
+    requireLevel();
+    int bits = bitsPerCell + 1 + 8 + 1 + doorCells.length + blockCount * bitsPerCell;
+    return (bits + 63) >>> 6;
+  }
+
+  @Override
+  public long[] snapshot() throws RuntimeException {
+    long[] snapshot = new long[snapshotLength()];
+    snapshot(snapshot, 0);
+    return snapshot;
+  }
+
+  @Override
+  public void snapshot(long[] destination, int offset) throws RuntimeException {
+    Arrays.fill(destination, offset, offset + snapshotLength(), 0);
+
+    int bit = writeBits(destination, offset, 0, playerCell, bitsPerCell);
+    bit = writeBits(destination, offset, bit, player == PLAYER_RIGHT ? 1 : 0, 1);
+    bit = writeBits(destination, offset, bit, heldPiece + 1, 8);
+    bit = writeBits(destination, offset, bit, doorReached ? 1 : 0, 1);
+    for (int doorCell : doorCells)
+      bit = writeBits(destination, offset, bit, cells[doorCell] == background[doorCell] ? 0 : 1, 1);
+    for (int i = 0; i < liftableCount; i++)
+      bit = writeBits(destination, offset, bit, liftableCells[i], bitsPerCell);
+  }
+
+  @Override
+  public void restore(long[] snapshot) throws IllegalArgumentException, RuntimeException {
+    if (snapshot == null || snapshot.length != snapshotLength())
+      throw new IllegalArgumentException("Snapshot does not have the length of one of this level.");
+    restore(snapshot, 0);
+  }
+
+  @Override
+  public void restore(long[] source, int offset) throws IllegalArgumentException, RuntimeException {
+    requireLevel();
+
+    // decoding and validating everything before touching the board
+    int bit = 0;
+    int newPlayerCell = (int) readBits(source, offset, bit, bitsPerCell);
+    bit += bitsPerCell;
+    byte newPlayer = readBits(source, offset, bit, 1) == 1 ? PLAYER_RIGHT : PLAYER_LEFT;
+    bit += 1;
+    byte newHeldPiece = (byte) (readBits(source, offset, bit, 8) - 1);
+    bit += 8;
+    boolean newDoorReached = readBits(source, offset, bit, 1) == 1;
+    bit += 1;
+    int doorsBit = bit;
+    bit += doorCells.length;
+    int newLiftableCount = blockCount - (newHeldPiece == NO_PIECE ? 0 : 1);
+    for (int i = 0; i < newLiftableCount; i++) {
+      restoredCells[i] = (int) readBits(source, offset, bit, bitsPerCell);
+      bit += bitsPerCell;
+      requireOpenCell(restoredCells[i]);
+    }
+    requireOpenCell(newPlayerCell);
+    if (newHeldPiece != NO_PIECE && newHeldPiece != BLOCK)
+      throw new IllegalArgumentException("Snapshot is not from a model of this level.");
+
+    // clearing every piece that can move, then putting the doors back as they were
+    while (liftableCount > 0) {
+      int cell = liftableCells[liftableCount - 1];
+      writeCell(cell, background[cell]);
+    }
+    writeCell(playerCell, background[playerCell]);
+    for (int i = 0; i < doorCells.length; i++) {
+      boolean doorLost = readBits(source, offset, doorsBit + i, 1) == 1;
+      writeCell(doorCells[i], doorLost ? EMPTY : background[doorCells[i]]);
+    }
+
+    // placing blocks and player
+    for (int i = 0; i < newLiftableCount; i++) writeCell(restoredCells[i], BLOCK);
+    playerCell = newPlayerCell;
+    player = newPlayer;
+    writeCell(playerCell, player);
+    setHeldPiece(newHeldPiece);
+    setDoorReached(newDoorReached);
+    history.clear();
+    changes.clear();
+  }
+
+  /* Public methods ----------------------------------------------------------------------------- */
+
+  /**
+   * Sets the state of the model to the one shown by the given board, as handed out by
+   * boardToRender() of a model of any kind with the same level loaded. A block drawn above the
+   * player is taken to be held, and the door is taken to have been reached if the player is in its
+   * cell. Moves made before restoring cannot be undone.
+   *
+   * @param board board showing state to restore
+   * @throws IllegalArgumentException if the board could not show a state of this level
+   * @throws RuntimeException         if no level has been loaded into model yet
+   */
+  public void restore(ReadOnlyBoard board) throws IllegalArgumentException, RuntimeException {
+    requireLevel();
+    if (board == null || board.width() != width || board.height() != height)
+      throw new IllegalArgumentException("Board is not of this level.");
+
+    // decoding and validating everything before touching the board
+    byte[] newCells = background.clone();
+    int newPlayerCell = -1;
+    int liftables = 0;
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        int cell = cellAt(col, row);
+        byte piece = code(board.get(row, col));
+        if (piece == background[cell]) continue;
+        // only the player and blocks move, and a door can only be covered or gone
+        boolean moved = PLAYER[piece] || LIFTABLE[piece]
+                || (piece == EMPTY && GOAL[background[cell]]);
+        if (!moved || SOLID[background[cell]] || (PLAYER[piece] && newPlayerCell != -1))
+          throw new IllegalArgumentException("Board is not of this level.");
+        if (PLAYER[piece]) newPlayerCell = cell;
+        if (LIFTABLE[piece]) liftables++;
+        newCells[cell] = piece;
+      }
+    }
+    if (newPlayerCell == -1) throw new IllegalArgumentException("Board has no player.");
+
+    byte newHeldPiece = NO_PIECE;
+    int aboveCell = newPlayerCell - stride;
+    if (rowOf(newPlayerCell) > 0 && LIFTABLE[newCells[aboveCell]]) {
+      newHeldPiece = newCells[aboveCell];
+      newCells[aboveCell] = background[aboveCell];
+    }
+    if (liftables != blockCount)
+      throw new IllegalArgumentException("Board does not have the blocks of this level.");
+
+    // clearing every piece that can move, then putting the board in its new state
+    while (liftableCount > 0) {
+      int cell = liftableCells[liftableCount - 1];
+      writeCell(cell, background[cell]);
+    }
+    writeCell(playerCell, background[playerCell]);
+    for (int cell = 0; cell < cells.length; cell++) {
+      if (cells[cell] != newCells[cell]) writeCell(cell, newCells[cell]);
+    }
+    playerCell = newPlayerCell;
+    player = newCells[newPlayerCell];
+    setHeldPiece(newHeldPiece);
+    setDoorReached(GOAL[background[newPlayerCell]]);
+    history.clear();
+    changes.clear();
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Puts the current level back in its starting state by copying the starting board and indices.
+   */
+  private void startLevel() {
+    System.arraycopy(startCells, 0, cells, 0, cells.length);
+    System.arraycopy(startSolidRows, 0, solidRows, 0, solidRows.length);
+    System.arraycopy(startSurface, 0, surface, 0, surface.length);
+    System.arraycopy(startLiftableCells, 0, liftableCells, 0, blockCount);
+    liftableCount = blockCount;
+    playerCell = startPlayerCell;
+    player = startPlayer;
+    heldPiece = NO_PIECE;
+    doorReached = false;
+    hash = startHash;
+    history.clear();
+    changes.clear();
+  }
+
+  /**
+   * Starts recording a move in the history and tracking the cells it changes.
+   *
+   * @throws RuntimeException if no level has been loaded into model yet
+   */
+  private void beginMove() throws RuntimeException {
+    requireLevel();
+    history.beginMove(playerCell, player, heldPiece, doorReached);
+    beginChanges();
+    events.begin();
+  }
+
+  /**
+   * Finishes recording a move in the history, keeping it only if it changed the board, finishes
+   * tracking the cells it changed, and tells listeners what happened during it.
+   *
+   * @param changed whether the move changed the state of the board
+   * @return the given value
+   */
+  private boolean endMove(boolean changed) {
+    if (changed) history.commitMove(playerCell, player, heldPiece, doorReached);
+    endChanges();
+    events.deliver();
+    return changed;
+  }
+
+  /**
+   * Tells listeners that an event that is not about a single piece happened.
+   *
+   * @param type type of event
+   */
+  private void announce(ModelEvent.Type type) {
+    events.begin();
+    events.publish(type);
+    events.deliver();
+  }
+
+  /**
+   * Adds an event about the given piece moving between the given cells to the events of the
+   * current move.
+   *
+   * @param type     type of event
+   * @param piece    code of piece the event is about
+   * @param fromCell index of cell piece went from
+   * @param toCell   index of cell piece went to
+   */
+  private void publish(ModelEvent.Type type, byte piece, int fromCell, int toCell) {
+    events.publish(type, PIECES[piece], colOf(fromCell), rowOf(fromCell), colOf(toCell),
+            rowOf(toCell));
+  }
+
+  /**
+   * Marks the door as reached by the player in the given cell.
+   *
+   * @param cell index of cell of door
+   */
+  private void reachDoor(int cell) {
+    if (!doorReached) publish(ModelEvent.Type.DOOR_REACHED, player, cell, cell);
+    setDoorReached(true);
+  }
+
+  /**
+   * Starts tracking the cells changed by a move, given where the held piece is currently drawn.
+   */
+  private void beginChanges() {
+    changes.begin(rowOf(playerCell) - 1, colOf(playerCell), heldPiece);
+  }
+
+  /**
+   * Finishes tracking the cells changed by a move, given where the held piece is now drawn.
+   */
+  private void endChanges() {
+    changes.end(rowOf(playerCell) - 1, colOf(playerCell), heldPiece, changesBoard);
+  }
+
+  /**
+   * Moves player up onto the piece they are facing, if possible.
+   *
+   * @return true if moving up changed the state of the board, false otherwise
+   * @throws RuntimeException if no level has been loaded into model yet or if piece reaches board
+   *                          edge (border cell is accessed)
+   */
+  private boolean climb() throws RuntimeException {
+    requireLevel();
+
+    // making sure piece above player is not solid
+    byte pieceAbovePlayer = getGamePiece(playerCell - stride);
+    if (SOLID[pieceAbovePlayer]) return false;
+
+    // making sure piece to side is solid and does not have a solid piece above it
+    int sideCell = playerCell + facing();
+    byte pieceToSide = getGamePiece(sideCell);
+    int targetCell = sideCell - stride;
+    byte targetPiece = getGamePiece(targetCell);
+    if (!SOLID[pieceToSide] || SOLID[targetPiece]) return false;
+
+    // move player to target cell
+    setGamePiece(targetCell, player);
+    setGamePiece(playerCell, EMPTY);
+    publish(ModelEvent.Type.MOVED, player, playerCell, targetCell);
+    playerCell = targetCell;
+
+    // check if door reached
+    if (GOAL[targetPiece]) reachDoor(targetCell);
+
+    return true;
+  }
+
+  /**
+   * Moves player in the direction given by the column offset.
+   *
+   * @param colDif -1 to move left, 1 to move right
+   * @return whether or not anything changed after making this move
+   * @throws RuntimeException if no level has been loaded into model yet or if piece reaches board
+   *                          edge (border cell is accessed)
+   */
+  private boolean movePlayerHorizontally(int colDif) throws RuntimeException {
+    requireLevel();
+
+    boolean playerOrientationChanged = changePlayerDirection(colDif);
+
+    int sideCell = playerCell + colDif;
+    byte pieceToSide = getGamePiece(sideCell);
+
+    // making sure piece at player's side is not solid
+    if (SOLID[pieceToSide]) {
+      if (playerOrientationChanged) publish(ModelEvent.Type.TURNED, player, playerCell, playerCell);
+      return playerOrientationChanged;
+    }
+
+    // moving player in direction and applying gravity
+    setGamePiece(sideCell, player);
+    setGamePiece(playerCell, EMPTY);
+    publish(ModelEvent.Type.MOVED, player, playerCell, sideCell);
+    playerCell = sideCell;
+    applyGravity(playerCell);
+
+    // checking if piece to player's side is a door
+    if (GOAL[pieceToSide]) reachDoor(sideCell);
+
+    return true;
+  }
+
+  /**
+   * Picks up the game piece in front of player, if able to do so. If there is a block above the
+   * player or target game piece, the player will not be able to pick it up.
+   *
+   * @return true if picking up was successful and changed the state of the board, false otherwise
+   * @throws RuntimeException if no level has been loaded into model yet or if piece reaches board
+   *                          edge (border cell is accessed)
+   */
+  private boolean pickUp() throws RuntimeException {
+    requireLevel();
+
+    // finding piece at side of player
+    int targetCell = playerCell + facing();
+    byte pieceToSide = getGamePiece(targetCell);
+
+    // make sure the piece is able to be picked up
+    if (!LIFTABLE[pieceToSide]) return false;
+
+    // make sure there is nothing on top of piece or above the player
+    if (SOLID[getGamePiece(targetCell - stride)]) return false;
+    if (SOLID[getGamePiece(playerCell - stride)]) return false;
+
+    // pick up the piece and return true
+    setHeldPiece(pieceToSide);
+    setGamePiece(targetCell, EMPTY);
+    publish(ModelEvent.Type.PICKED_UP, heldPiece, targetCell, playerCell - stride);
+    return true;
+  }
+
+  /**
+   * Puts down the game piece that player is holding. If the block immediately to the facing
+   * direction of the player is solid, then the piece will be placed on top of it (as long as the
+   * piece above is not also solid), otherwise, it will be placed immediately in front of the player
+   * and will fall until it hits a solid block.
+   *
+   * @return true if putting down was successful and changed the state of the board, false otherwise
+   * @throws RuntimeException if no level has been loaded into model yet or if piece reaches board
+   *                          edge (border cell is accessed)
+   */
+  private boolean putDown() throws RuntimeException {
+    requireLevel();
+
+    // finding piece at side of player
+    int targetCell = playerCell + facing();
+    byte pieceToSide = getGamePiece(targetCell);
+
+    // checking if piece at target cell is solid or not
+    if (SOLID[pieceToSide]) {
+      // piece to side is solid, check if can place block above it
+      int cellAbove = targetCell - stride;
+      if (SOLID[getGamePiece(cellAbove)]) return false;
+      targetCell = cellAbove;
+    }
+
+    // put piece down, apply gravity, and return true
+    setGamePiece(targetCell, heldPiece);
+    publish(ModelEvent.Type.PUT_DOWN, heldPiece, playerCell - stride, targetCell);
+    setHeldPiece(NO_PIECE);
+    applyGravity(targetCell);
+    return true;
+  }
+
+  /**
+   * Works out what the move with the given code would do if it were made now, taking the same
+   * steps as climb(), movePlayerHorizontally(...), pickUp() and putDown() but only reading the
+   * board, so nothing is changed, recorded or published.
+   *
+   * @param move code of move (the ordinal of its command)
+   * @return ILLEGAL if the move would not change the state or would reach the board edge, otherwise
+   *         the rows fallen during the move in the high 32 bits and the index of the cell of the
+   *         player after it in the low 32 bits
+   */
+  private long outcomeOf(int move) {
+    int side = move == 0 ? -1 : move == 1 ? 1 : facing();
+    int sideCell = playerCell + side;
+    byte pieceToSide = cells[sideCell];
+    if (pieceToSide == OFF_BOARD) return ILLEGAL;
+
+    if (move < 2) {
+      // only turning if the side is blocked, otherwise stepping and falling
+      if (SOLID[pieceToSide]) return side == facing() ? ILLEGAL : playerCell;
+      int drop = dropBelow(sideCell);
+      return drop < 0 ? ILLEGAL : (long) drop << 32 | (sideCell + drop * stride);
+    }
+
+    if (move == 2) {
+      int targetCell = sideCell - stride;
+      if (isBlocked(playerCell - stride) || !SOLID[pieceToSide] || isBlocked(targetCell))
+        return ILLEGAL;
+      return targetCell;
+    }
+
+    if (heldPiece == NO_PIECE) {
+      if (!LIFTABLE[pieceToSide] || isBlocked(sideCell - stride) || isBlocked(playerCell - stride))
+        return ILLEGAL;
+      return playerCell;
+    }
+
+    int targetCell = sideCell;
+    if (SOLID[pieceToSide]) {
+      targetCell -= stride;
+      if (isBlocked(targetCell)) return ILLEGAL;
+    }
+    int drop = dropBelow(targetCell);
+    return drop < 0 ? ILLEGAL : (long) drop << 32 | playerCell;
+  }
+
+  /**
+   * Returns the part of a make(...) token that remembers the pieces in the first cell a moving
+   * piece entered and the cell it landed in, before the move. The two may be the same cell.
+   *
+   * @param enteredCell index of cell piece entered first
+   * @param landedCell  index of cell piece ended up in
+   * @return bits of token for the two pieces
+   */
+  private long enteredAndLanded(int enteredCell, int landedCell) {
+    return (long) cells[enteredCell] << ENTERED_SHIFT | (long) cells[landedCell] << LANDED_SHIFT;
+  }
+
+  /**
+   * Returns whether the given cell is solid or off the board, so that nothing can move into it.
+   *
+   * @param cell index of cell in array
+   * @return true if cell is blocked, false otherwise
+   */
+  private boolean isBlocked(int cell) {
+    return cells[cell] == OFF_BOARD || SOLID[cells[cell]];
+  }
+
+  /**
+   * Returns the number of rows a piece put in the given open cell would fall, the same way
+   * applyGravity(...) would move it.
+   *
+   * @param cell index of on-board cell
+   * @return rows piece would fall, or -1 if it would fall to the board edge
+   */
+  private int dropBelow(int cell) {
+    int row = rowOf(cell);
+    int landingRow = firstSolidRowBelow(colOf(cell), row) - 1;
+    return landingRow == height - 1 ? -1 : landingRow - row;
+  }
+
+  /**
+   * Moves the game piece at the given cell down until it hits a solid game piece.
+   *
+   * @param cell index of cell containing piece to apply gravity to
+   * @throws RuntimeException if piece reaches board edge (border cell is accessed)
+   */
+  private void applyGravity(int cell) throws RuntimeException {
+    // finding new cell of piece
+    int col = colOf(cell);
+    int landingRow = firstSolidRowBelow(col, rowOf(cell)) - 1;
+    if (landingRow == height - 1)
+      throw new RuntimeException("Tried to access index that is not on the board.");
+    int newCell = cellAt(col, landingRow);
+
+    // move piece to new cell
+    if (newCell == cell) return;
+    byte piece = cells[cell];
+    byte reachedPiece = cells[newCell];
+    setGamePiece(newCell, piece);
+    setGamePiece(cell, EMPTY);
+    publish(ModelEvent.Type.FELL, piece, cell, newCell);
+
+    // if piece is the player, update player cell & check if door reached
+    if (PLAYER[piece]) {
+      playerCell = newCell;
+      if (GOAL[reachedPiece]) reachDoor(newCell);
+    }
+  }
+
+  /**
+   * Returns the code of the game piece in the given cell.
+   *
+   * @param cell index of cell at which to get game piece
+   * @return code of game piece in the given cell
+   * @throws RuntimeException if cell is part of the border (is not on game board)
+   */
+  private byte getGamePiece(int cell) throws RuntimeException {
+    byte piece = cells[cell];
+    if (piece == OFF_BOARD)
+      throw new RuntimeException("Tried to access index that is not on the board.");
+    return piece;
+  }
+
+  /**
+   * Sets the given cell to contain the game piece with the given code, recording the change in the
+   * history of the move being made. The given cell must already be known to be on the board.
+   *
+   * @param cell  index of cell at which to set game piece
+   * @param piece code of game piece to set in cell
+   */
+  private void setGamePiece(int cell, byte piece) {
+    history.recordChange(cell, cells[cell], piece);
+    changes.recordChange(rowOf(cell), colOf(cell), cells[cell]);
+    writeCell(cell, piece);
+  }
+
+  /**
+   * Sets the given cell to contain the game piece with the given code without recording the change
+   * in the history, updating the state hash, the index of cells containing blocks and (if the
+   * solidity of the cell changed) the index of solid cells.
+   *
+   * @param cell  index of cell at which to set game piece
+   * @param piece code of game piece to set in cell
+   */
+  private void writeCell(int cell, byte piece) {
+    byte previous = cells[cell];
+    boolean wasSolid = SOLID[previous];
+    cells[cell] = piece;
+    hash ^= zobristKey(cell, previous) ^ zobristKey(cell, piece);
+    if (LIFTABLE[previous]) removeLiftableCell(cell);
+    if (LIFTABLE[piece]) addLiftableCell(cell);
+    if (wasSolid == SOLID[piece]) return;
+
+    int col = colOf(cell);
+    int row = rowOf(cell);
+    int word = col * wordsPerColumn + (row >>> 6);
+    if (wasSolid) {
+      solidRows[word] &= ~(1L << row);
+      if (surface[col] == row) surface[col] = firstSolidRowBelow(col, row);
+    } else {
+      solidRows[word] |= 1L << row;
+      if (row < surface[col]) surface[col] = row;
+    }
+  }
+
+  /**
+   * Sets the piece held by the player, updating the state hash.
+   *
+   * @param piece code of piece to hold, or NO_PIECE if nothing is held
+   */
+  private void setHeldPiece(byte piece) {
+    hash ^= zobristKey(HELD_PIECE_SLOT, heldPiece) ^ zobristKey(HELD_PIECE_SLOT, piece);
+    heldPiece = piece;
+  }
+
+  /**
+   * Sets whether the door has been reached, updating the state hash.
+   *
+   * @param reached whether the door has been reached
+   */
+  private void setDoorReached(boolean reached) {
+    if (reached != doorReached) hash ^= zobristKey(DOOR_REACHED_SLOT, (byte) 1);
+    doorReached = reached;
+  }
+
+  /**
+   * Rebuilds the index of solid cells and column surfaces from the current board.
+   */
+  private void indexSolidCells() {
+    wordsPerColumn = (height + 63) >>> 6;
+    solidRows = new long[width * wordsPerColumn];
+    surface = new int[width];
+    Arrays.fill(surface, height);
+
+    for (int col = 0; col < width; col++) {
+      for (int row = height - 1; row >= 0; row--) {
+        if (!SOLID[cells[cellAt(col, row)]]) continue;
+        solidRows[col * wordsPerColumn + (row >>> 6)] |= 1L << row;
+        surface[col] = row;
+      }
+    }
+  }
+
+  /**
+   * Builds the background of the board (everything that never moves) from the current board, along
+   * with the list of door cells and the index of cells containing blocks.
+   */
+  private void indexBackground() {
+    background = cells.clone();
+    int doorCount = 0;
+    liftableCount = 0;
+    for (int cell = 0; cell < cells.length; cell++) {
+      byte piece = cells[cell];
+      if (piece == OFF_BOARD) continue;
+      if (GOAL[piece]) doorCount++;
+      if (LIFTABLE[piece]) liftableCount++;
+      if (LIFTABLE[piece] || PLAYER[piece]) background[cell] = EMPTY;
+    }
+
+    blockCount = liftableCount;
+    doorCells = new int[doorCount];
+    liftableCells = new int[blockCount + 1];
+    restoredCells = new int[blockCount];
+    doorCount = 0;
+    liftableCount = 0;
+    for (int cell = 0; cell < cells.length; cell++) {
+      if (cells[cell] != OFF_BOARD && GOAL[cells[cell]]) doorCells[doorCount++] = cell;
+      if (cells[cell] != OFF_BOARD && LIFTABLE[cells[cell]]) liftableCells[liftableCount++] = cell;
+    }
+
+    bitsPerCell = 32 - Integer.numberOfLeadingZeros(cells.length - 1);
+  }
+
+  /**
+   * Adds the given cell to the sorted index of cells containing blocks.
+   *
+   * @param cell index of cell that now contains a block
+   */
+  private void addLiftableCell(int cell) {
+    int i = liftableCount;
+    while (i > 0 && liftableCells[i - 1] > cell) {
+      liftableCells[i] = liftableCells[i - 1];
+      i--;
+    }
+    liftableCells[i] = cell;
+    liftableCount++;
+  }
+
+  /**
+   * Removes the given cell from the sorted index of cells containing blocks.
+   *
+   * @param cell index of cell that no longer contains a block
+   */
+  private void removeLiftableCell(int cell) {
+    int i = 0;
+    while (liftableCells[i] != cell) i++;
+    liftableCount--;
+    System.arraycopy(liftableCells, i + 1, liftableCells, i, liftableCount - i);
+  }
+
+  /**
+   * Throws IllegalArgumentException if the given cell index does not refer to an on-board cell
+   * that a piece could move into.
+   *
+   * @param cell index of cell to check
+   * @throws IllegalArgumentException if cell is not an open on-board cell
+   */
+  private void requireOpenCell(int cell) throws IllegalArgumentException {
+    if (cell >= cells.length || background[cell] == OFF_BOARD || SOLID[background[cell]])
+      throw new IllegalArgumentException("Snapshot is not from a model of this level.");
+  }
+
+  /**
+   * Returns the row of the first solid cell strictly below the given row in the given column. If
+   * the given row is above the column's surface this is a constant-time lookup, otherwise the
+   * column's bitset is scanned one 64-row word at a time.
+   *
+   * @param col column index on board
+   * @param row row index on board to look below
+   * @return row of first solid cell below given row, or height if there is none
+   */
+  private int firstSolidRowBelow(int col, int row) {
+    if (row < surface[col]) return surface[col];
+
+    int start = row + 1;
+    int word = start >>> 6;
+    if (word == wordsPerColumn) return height;
+    int base = col * wordsPerColumn;
+    long bits = solidRows[base + word] & (-1L << start);
+    while (bits == 0) {
+      if (++word == wordsPerColumn) return height;
+      bits = solidRows[base + word];
+    }
+    return (word << 6) + Long.numberOfTrailingZeros(bits);
+  }
+
+  /**
+   * Makes player face the direction given by the column offset.
+   *
+   * @param colDif -1 to face left, 1 to face right
+   * @return true if player changed directions, false otherwise
+   */
+  private boolean changePlayerDirection(int colDif) {
+    byte playerBefore = player;
+    player = colDif < 0 ? PLAYER_LEFT : PLAYER_RIGHT;
+    setGamePiece(playerCell, player);
+    return playerBefore != player;
+  }
+
+  /**
+   * Returns the column offset of the cell the player is facing.
+   *
+   * @return -1 if player is facing left, 1 if player is facing right
+   */
+  private int facing() {
+    return player == PLAYER_LEFT ? -1 : 1;
+  }
+
+  /**
+   * Returns the index of the cell at the given on-board column and row.
+   *
+   * @param col column index on board
+   * @param row row index on board
+   * @return index of cell in array
+   */
+  private int cellAt(int col, int row) {
+    return (row + 1) * stride + col + 1;
+  }
+
+  /**
+   * Returns the on-board column index of the given cell.
+   *
+   * @param cell index of cell in array
+   * @return column index on board
+   */
+  private int colOf(int cell) {
+    return cell % stride - 1;
+  }
+
+  /**
+   * Returns the on-board row index of the given cell.
+   *
+   * @param cell index of cell in array
+   * @return row index on board
+   */
+  private int rowOf(int cell) {
+    return cell / stride - 1;
+  }
+
+  /**
+   * Throws RuntimeException if this model does not have a level to perform operations on.
+   *
+   * @throws RuntimeException if model does not have a level set
+   */
+  private void requireLevel() throws RuntimeException {
+    if (level == null) throw new RuntimeException("Tried to use model before loading level.");
+  }
+
+  /* Static methods ----------------------------------------------------------------------------- */
+
+  /**
+   * Writes the lowest given number of bits of the given value into the given array of longs,
+   * starting at the given bit position. The bits being written to must already be zero.
+   *
+   * @param destination array to write to
+   * @param offset      index in array where the bit positions start
+   * @param bit         bit position to start writing at
+   * @param value       value to write
+   * @param bits        number of bits to write (less than 64)
+   * @return bit position after the written bits
+   */
+  private static int writeBits(long[] destination, int offset, int bit, long value, int bits) {
+    int word = offset + (bit >>> 6);
+    int shift = bit & 63;
+    destination[word] |= value << shift;
+    if (shift + bits > 64) destination[word + 1] |= value >>> (64 - shift);
+    return bit + bits;
+  }
+
+  /**
+   * Reads the given number of bits from the given array of longs, starting at the given bit
+   * position.
+   *
+   * @param source array to read from
+   * @param offset index in array where the bit positions start
+   * @param bit    bit position to start reading at
+   * @param bits   number of bits to read (less than 64)
+   * @return value of the bits that were read
+   */
+  private static long readBits(long[] source, int offset, int bit, int bits) {
+    int word = offset + (bit >>> 6);
+    int shift = bit & 63;
+    long value = source[word] >>> shift;
+    if (shift + bits > 64) value |= source[word + 1] << (64 - shift);
+    return value & ((1L << bits) - 1);
+  }
+
+  /**
+   * Returns the Zobrist key for the given piece being in the given slot (a cell index, or one of
+   * the slots for the parts of the state that are not cells). Having no piece in a slot has a key
+   * of 0. The key is the SplitMix64 finalizer applied to the slot and piece, which spreads every
+   * input bit across the whole key.
+   *
+   * @param slot  cell index or other slot
+   * @param piece code of piece in slot
+   * @return key of piece in slot
+   */
+  private static long zobristKey(int slot, byte piece) {
+    if (piece == NO_PIECE) return 0;
+    long z = ((long) slot << 8 | piece) + 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Returns the code of the given move, which is the ordinal of its command.
+   *
+   * @param move MOVE_LEFT, MOVE_RIGHT, MOVE_UP or PICK_UP_PUT_DOWN
+   * @return code of move
+   * @throws IllegalArgumentException if move is null or is not one of the four moves
+   */
+  private static int moveCode(Command move) throws IllegalArgumentException {
+    if (move == null || move.ordinal() > Command.PICK_UP_PUT_DOWN.ordinal())
+      throw new IllegalArgumentException("Command '" + move + "' is not a move.");
+    return move.ordinal();
+  }
+
+  /**
+   * Returns the code used to store the given game piece in the board array.
+   *
+   * @param gp game piece to find code for
+   * @return code of given game piece
+   */
+  private static byte code(GamePiece gp) {
+    return (byte) gp.ordinal();
+  }
+}
@@ -0,0 +1,170 @@
+package blockdude.model;
+
+import blockdude.util.Command;
+import blockdude.util.GamePiece;
+
+/**
+ * Represents a model for the Block Dude game that also exposes what search and analysis code needs
+ * to explore its states efficiently, without going through layoutToRender().
+ */
+public interface SearchableBlockDudeModel extends BlockDudeModel {
+  /**
+   * Returns a 64-bit Zobrist hash of the current state of the model, covering the piece in every
+   * cell of the board (which includes the direction the player faces), the piece the player is
+   * holding, and whether the door has been reached. Equal states of the same level always have
+   * equal hashes, even across different model instances, so the hash can be used as the key of a
+   * transposition table. Different states may (very rarely) collide.
+   *
+   * @return hash of current state
+   * @throws RuntimeException if no level has been loaded into model yet
+   */
+  long stateHash() throws RuntimeException;
+
+  /**
+   * Returns the row index of the cell the player is in.
+   *
+   * @return row of player
+   * @throws RuntimeException if no level has been loaded into model yet
+   */
+  int playerRow() throws RuntimeException;
+
+  /**
+   * Returns the column index of the cell the player is in.
+   *
+   * @return column of player
+   * @throws RuntimeException if no level has been loaded into model yet
+   */
+  int playerCol() throws RuntimeException;
+
+  /**
+   * Returns whether the player is holding a piece.
+   *
+   * @return true if player is holding a piece, false otherwise
+   * @throws RuntimeException if no level has been loaded into model yet
+   */
+  boolean isHoldingPiece() throws RuntimeException;
+
+  /**
+   * Returns which moves would change the current state of the model, without making any of them.
+   * For each of MOVE_LEFT, MOVE_RIGHT, MOVE_UP and PICK_UP_PUT_DOWN, bit (1 << move.ordinal()) of
+   * the result is set if making that move now would return true. A move that would take a piece
+   * to the edge of the board, which the move operations refuse with an exception, is not legal.
+   *
+   * @return bitmask of legal moves
+   * @throws RuntimeException if no level has been loaded into model yet
+   */
+  int legalMoves() throws RuntimeException;
+
+  /**
+   * Returns the cell the player would end up in if the given move were made now, as
+   * row * width + col (like Level.playerCell()), without making it. This includes any fall after
+   * stepping off a ledge. If the move is not legal, this is the cell the player is in now.
+   *
+   * @param move MOVE_LEFT, MOVE_RIGHT, MOVE_UP or PICK_UP_PUT_DOWN
+   * @return cell of player after move
+   * @throws IllegalArgumentException if move is null or is not one of the four moves
+   * @throws RuntimeException         if no level has been loaded into model yet
+   */
+  int playerCellAfter(Command move) throws IllegalArgumentException, RuntimeException;
+
+  /**
+   * Returns the number of rows something would fall if the given move were made now, without
+   * making it: the player when stepping left or right off a ledge, or the held piece when putting
+   * it down. Moves that make nothing fall, and moves that are not legal, drop 0 rows.
+   *
+   * @param move MOVE_LEFT, MOVE_RIGHT, MOVE_UP or PICK_UP_PUT_DOWN
+   * @return rows fallen during move
+   * @throws IllegalArgumentException if move is null or is not one of the four moves
+   * @throws RuntimeException         if no level has been loaded into model yet
+   */
+  int dropAfter(Command move) throws IllegalArgumentException, RuntimeException;
+
+  /**
+   * Makes the given move for a search that explores states by making moves and taking them back
+   * on a single board. The move is not recorded in the history, shown in lastChanges() or told to
+   * listeners, and nothing is allocated. The returned token is all unmake(...) needs to put the
+   * model back exactly as it was, including the way the player faced, the piece they held, any
+   * door a piece covered and whether the door had been reached. If the move is not legal, the
+   * model is left as it is and the token is -1, which unmake(...) ignores. As with restore(...),
+   * moves made before this one can no longer be undone with undo().
+   *
+   * @param move MOVE_LEFT, MOVE_RIGHT, MOVE_UP or PICK_UP_PUT_DOWN
+   * @return token to take move back with, or -1 if move is not legal
+   * @throws IllegalArgumentException if move is null or is not one of the four moves
+   * @throws RuntimeException         if no level has been loaded into model yet
+   */
+  long make(Command move) throws IllegalArgumentException, RuntimeException;
+
+  /**
+   * Takes back the move that returned the given token from make(...). Moves have to be taken back
+   * in the opposite order from the one they were made in, with nothing else changing the model in
+   * between, and each only once.
+   *
+   * @param token token returned by make(...)
+   * @throws RuntimeException if no level has been loaded into model yet
+   */
+  void unmake(long token) throws RuntimeException;
+
+  /**
+   * Returns the piece in the given cell of the board. Unlike boardToRender(), this does not show
+   * the piece the player is holding above the player, but whatever is really in that cell.
+   *
+   * @param row row of cell
+   * @param col column of cell
+   * @return piece in cell
+   * @throws IndexOutOfBoundsException if the cell is not on the board
+   * @throws RuntimeException          if no level has been loaded into model yet
+   */
+  GamePiece pieceAt(int row, int col) throws IndexOutOfBoundsException, RuntimeException;
+
+  /**
+   * Returns the number of longs needed to store a snapshot of this model's current level. Every
+   * snapshot of the same level has this length.
+   *
+   * @return length of a snapshot
+   * @throws RuntimeException if no level has been loaded into model yet
+   */
+  int snapshotLength() throws RuntimeException;
+
+  /**
+   * Returns a compact encoding of the current state of the model (everything that can change while
+   * playing the level), which can later be given to restore(...) on any model that has the same
+   * level loaded. Equal states always have equal snapshots.
+   *
+   * @return snapshot of current state
+   * @throws RuntimeException if no level has been loaded into model yet
+   */
+  long[] snapshot() throws RuntimeException;
+
+  /**
+   * Writes a snapshot of the current state of the model into the given array, starting at the given
+   * offset, without allocating a new array.
+   *
+   * @param destination array to write snapshot into
+   * @param offset      index in array at which to start writing
+   * @throws RuntimeException if no level has been loaded into model yet or if the snapshot does not
+   *                          fit in the array
+   */
+  void snapshot(long[] destination, int offset) throws RuntimeException;
+
+  /**
+   * Sets the state of the model to the one encoded in the given snapshot, which must have been
+   * taken from a model with the same level loaded. Moves made before restoring cannot be undone.
+   *
+   * @param snapshot snapshot to restore
+   * @throws IllegalArgumentException if the snapshot could not have come from this level
+   * @throws RuntimeException         if no level has been loaded into model yet
+   */
+  void restore(long[] snapshot) throws IllegalArgumentException, RuntimeException;
+
+  /**
+   * Sets the state of the model to the one encoded in the snapshot that starts at the given offset
+   * in the given array.
+   *
+   * @param source array containing snapshot to restore
+   * @param offset index in array at which snapshot starts
+   * @throws IllegalArgumentException if the snapshot could not have come from this level
+   * @throws RuntimeException         if no level has been loaded into model yet
+   */
+  void restore(long[] source, int offset) throws IllegalArgumentException, RuntimeException;
+}
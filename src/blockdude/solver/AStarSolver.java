@@ -0,0 +1,181 @@
+package blockdude.solver;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import blockdude.model.PackedBlockDudeModel;
+import blockdude.util.Command;
+import blockdude.util.Level;
+
+/**
+ * A solver that finds the shortest way to complete a level with A* search: states are expanded in
+ * order of the moves taken to reach them plus the moves a heuristic estimates are still needed, so
+ * with a good heuristic far fewer states have to be stored than with breadth-first search. Since
+ * every one of the Heuristics is admissible and consistent, the solutions found are still optimal.
+ *
+ * <p>Like BreadthFirstSolver, states are stored once each in a StateSet, with the state each one
+ * was best reached from, the move that reached it, its cost and its estimate kept in arrays indexed
+ * by id. Open states are kept in a BucketQueue, since priorities are small integers. Optionally,
+ * states a DeadStateDetector finds the level can no longer be completed from are never stored.
+ */
+public class AStarSolver implements Solver {
+  private final Heuristics heuristics;
+  private final long maxStates;
+  private final boolean pruneDeadStates;
+
+  /**
+   * Constructs a new AStarSolver guided by the STAIRCASE heuristic, that searches until it has
+   * decided whether the level can be completed (or runs out of memory).
+   */
+  public AStarSolver() {
+    this(Heuristics.STAIRCASE);
+  }
+
+  /**
+   * Constructs a new AStarSolver guided by the given heuristic, that searches until it has decided
+   * whether the level can be completed (or runs out of memory).
+   *
+   * @param heuristics heuristic to guide search
+   * @throws IllegalArgumentException if heuristics is null
+   */
+  public AStarSolver(Heuristics heuristics) throws IllegalArgumentException {
+    this(heuristics, Long.MAX_VALUE);
+  }
+
+  /**
+   * Constructs a new AStarSolver guided by the given heuristic, that gives up once it has stored
+   * the given number of states.
+   *
+   * @param heuristics heuristic to guide search
+   * @param maxStates  most states to store before giving up
+   * @throws IllegalArgumentException if heuristics is null or maxStates is not positive
+   */
+  public AStarSolver(Heuristics heuristics, long maxStates) throws IllegalArgumentException {
+    this(heuristics, maxStates, false);
+  }
+
+  /**
+   * Constructs a new AStarSolver guided by the given heuristic, that gives up once it has stored
+   * the given number of states, and that may skip dead states.
+   *
+   * @param heuristics      heuristic to guide search
+   * @param maxStates       most states to store before giving up
+   * @param pruneDeadStates whether to skip states a DeadStateDetector finds the level can no longer
+   *                        be completed from
+   * @throws IllegalArgumentException if heuristics is null or maxStates is not positive
+   */
+  public AStarSolver(Heuristics heuristics, long maxStates, boolean pruneDeadStates)
+          throws IllegalArgumentException {
+    if (heuristics == null) throw new IllegalArgumentException("Heuristics cannot be null.");
+    if (maxStates <= 0) throw new IllegalArgumentException("Maximum states must be > 0.");
+    this.heuristics = heuristics;
+    this.maxStates = maxStates;
+    this.pruneDeadStates = pruneDeadStates;
+  }
+
+  /* Interface methods -------------------------------------------------------------------------- */
+
+  @Override
+  public Solution solve(Level level) throws IllegalArgumentException {
+    if (level == null) throw new IllegalArgumentException("Cannot solve null level.");
+    long start = System.nanoTime();
+
+    // each move tried is taken back with unmake(...), so the model needs no history
+    PackedBlockDudeModel model = new PackedBlockDudeModel(0);
+    model.loadLevel(level);
+    Heuristic heuristic = heuristics.forLevel(level);
+    DeadStateDetector deadStates = pruneDeadStates ? new DeadStateDetector(level) : null;
+    int length = model.snapshotLength();
+    StateSet states = new HashStateSet(length);
+    BucketQueue open = new BucketQueue();
+    long[] current = new long[length];
+    long[] next = new long[length];
+
+    // for each state id: the state it was best reached from, the move that reached it, the number
+    // of moves taken to reach it and the estimated number of moves left
+    int[] parents = new int[1024];
+    byte[] moves = new byte[1024];
+    int[] costs = new int[1024];
+    int[] estimates = new int[1024];
+    model.snapshot(current, 0);
+    states.add(current, 0);
+    parents[0] = -1;
+    estimates[0] = heuristic.estimate(model);
+    open.add(estimates[0], 0);
+    long peakMemory = states.memoryBytes() + parents.length * 13L + open.memoryBytes();
+    if (deadStates != null && deadStates.isDead(model)) {
+      return new Solution(Solution.Status.UNSOLVABLE, Collections.<Command>emptyList(), 0,
+              states.size(), peakMemory, System.nanoTime() - start);
+    }
+
+    long expanded = 0;
+    while (!open.isEmpty()) {
+      int priority = open.lowestPriority();
+      int id = open.remove();
+      // skipping ids that were added again after a shorter way to them was found
+      if (costs[id] + estimates[id] != priority) continue;
+
+      states.get(id, current, 0);
+      model.restore(current, 0);
+      if (model.isLevelCompleted()) {
+        return new Solution(Solution.Status.SOLVED, MovePrimitives.movesTo(id, parents, moves),
+                expanded, states.size(), peakMemory, System.nanoTime() - start);
+      }
+      expanded++;
+      if (Thread.currentThread().isInterrupted()) {
+        return new Solution(Solution.Status.LIMIT_REACHED, Collections.<Command>emptyList(),
+                expanded, states.size(), peakMemory, System.nanoTime() - start);
+      }
+
+      int cost = costs[id] + 1;
+      int legal = model.legalMoves();
+      for (int move = 0; move < MovePrimitives.COMMANDS.length; move++) {
+        if ((legal & (1 << move)) == 0) continue;
+        long token = model.make(MovePrimitives.COMMANDS[move]);
+
+        model.snapshot(next, 0);
+        long existing = states.idOf(next, 0);
+        if (existing >= 0) {
+          model.unmake(token);
+          int other = (int) existing;
+          if (cost < costs[other]) {
+            parents[other] = id;
+            moves[other] = (byte) move;
+            costs[other] = cost;
+            open.add(cost + estimates[other], other);
+          }
+          continue;
+        }
+        if (deadStates != null && deadStates.isDead(model)) {
+          model.unmake(token);
+          continue;
+        }
+
+        if (states.size() >= maxStates) {
+          return new Solution(Solution.Status.LIMIT_REACHED, Collections.<Command>emptyList(),
+                  expanded, states.size(), peakMemory, System.nanoTime() - start);
+        }
+        int estimate = heuristic.estimate(model);
+        model.unmake(token);
+        int added = (int) states.add(next, 0);
+        if (added == parents.length) {
+          int newLength = parents.length * 2;
+          parents = Arrays.copyOf(parents, newLength);
+          moves = Arrays.copyOf(moves, newLength);
+          costs = Arrays.copyOf(costs, newLength);
+          estimates = Arrays.copyOf(estimates, newLength);
+        }
+        parents[added] = id;
+        moves[added] = (byte) move;
+        costs[added] = cost;
+        estimates[added] = estimate;
+        open.add(cost + estimate, added);
+      }
+      peakMemory = Math.max(peakMemory,
+              states.memoryBytes() + parents.length * 13L + open.memoryBytes());
+    }
+
+    return new Solution(Solution.Status.UNSOLVABLE, Collections.<Command>emptyList(), expanded,
+            states.size(), peakMemory, System.nanoTime() - start);
+  }
+}
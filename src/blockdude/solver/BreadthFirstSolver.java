@@ -0,0 +1,239 @@
+package blockdude.solver;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import blockdude.model.PackedBlockDudeModel;
+import blockdude.util.Command;
+import blockdude.util.Level;
+
+/**
+ * A solver that finds the shortest way to complete a level by searching its states breadth first.
+ * Every distinct state that is reached is stored once, as a snapshot of a PackedBlockDudeModel, in
+ * a StateSet that doubles as the search queue (since states get their ids in the order they are
+ * found). Along with each state, the solver remembers the state it was reached from and the move
+ * that reached it, so the moves of a solution can be read back once the door is reached.
+ *
+ * <p>Each state is restored into the model once, and every move is then tried on it and taken back
+ * again, which is much cheaper than restoring the state before every move. Optionally, states a
+ * DeadStateDetector finds the level can no longer be completed from are never stored or expanded.
+ *
+ * <p>Once the search has stored a given number of states, it moves them and their links into
+ * scratch files mapped into memory (see SpillingStateSet), so it can go on well past the size of
+ * the heap. Unless told otherwise, it works that number out from the size of the heap.
+ *
+ * <p>This does not yet check every shipped level within seconds. The first levels of
+ * levelSources/levels.txt are solved in well under a second, but later ones such as Twe and nTy
+ * go past 50 million states without being solved, and even a MacroMoveSolver that skips dead
+ * states gives up on Twe after 20 million states and about five minutes.
+ */
+public class BreadthFirstSolver implements Solver {
+  /** Spill threshold that has the solver spill once the states would fill about half the heap. */
+  public static final long AUTOMATIC_SPILL_THRESHOLD = 0;
+
+  // the most states a HashStateSet can hold
+  private static final long MAX_HEAP_STATES = 1 << 29;
+
+  private final long maxStates;
+  private final boolean pruneDeadStates;
+  private final long spillThreshold;
+  private final File scratchDirectory;
+
+  /**
+   * Constructs a new BreadthFirstSolver that searches until it has decided whether the level can
+   * be completed (or runs out of memory).
+   */
+  public BreadthFirstSolver() {
+    this(Long.MAX_VALUE);
+  }
+
+  /**
+   * Constructs a new BreadthFirstSolver that gives up once it has stored the given number of
+   * states.
+   *
+   * @param maxStates most states to store before giving up
+   * @throws IllegalArgumentException if maxStates is not positive
+   */
+  public BreadthFirstSolver(long maxStates) throws IllegalArgumentException {
+    this(maxStates, false);
+  }
+
+  /**
+   * Constructs a new BreadthFirstSolver that gives up once it has stored the given number of
+   * states, and that may skip dead states.
+   *
+   * @param maxStates       most states to store before giving up
+   * @param pruneDeadStates whether to skip states a DeadStateDetector finds the level can no longer
+   *                        be completed from
+   * @throws IllegalArgumentException if maxStates is not positive
+   */
+  public BreadthFirstSolver(long maxStates, boolean pruneDeadStates)
+          throws IllegalArgumentException {
+    this(maxStates, pruneDeadStates, AUTOMATIC_SPILL_THRESHOLD, null);
+  }
+
+  /**
+   * Constructs a new BreadthFirstSolver that gives up once it has stored the given number of
+   * states, that may skip dead states, and that spills its states into scratch files in the given
+   * directory once it has stored the given number of them.
+   *
+   * @param maxStates        most states to store before giving up
+   * @param pruneDeadStates  whether to skip states a DeadStateDetector finds the level can no
+   *                         longer be completed from
+   * @param spillThreshold   number of states to store on the heap before spilling, or
+   *                         AUTOMATIC_SPILL_THRESHOLD to work it out from the size of the heap
+   * @param scratchDirectory directory to keep scratch files in, or null for the default temporary
+   *                         directory
+   * @throws IllegalArgumentException if maxStates or spillThreshold is negative or 0 (other than
+   *                                  AUTOMATIC_SPILL_THRESHOLD), or scratchDirectory is not a
+   *                                  directory
+   */
+  public BreadthFirstSolver(long maxStates, boolean pruneDeadStates, long spillThreshold,
+                            File scratchDirectory) throws IllegalArgumentException {
+    if (maxStates <= 0) throw new IllegalArgumentException("Maximum states must be > 0.");
+    if (spillThreshold < 0) throw new IllegalArgumentException("Spill threshold must be >= 0.");
+    if (scratchDirectory == null)
+      scratchDirectory = new File(System.getProperty("java.io.tmpdir"));
+    if (!scratchDirectory.isDirectory())
+      throw new IllegalArgumentException("Scratch directory must be a directory.");
+    this.maxStates = maxStates;
+    this.pruneDeadStates = pruneDeadStates;
+    this.spillThreshold = spillThreshold;
+    this.scratchDirectory = scratchDirectory;
+  }
+
+  /* Interface methods -------------------------------------------------------------------------- */
+
+  @Override
+  public Solution solve(Level level) throws IllegalArgumentException {
+    return solve(level, null);
+  }
+
+  /**
+   * Finds the shortest way to complete the given level from the given state of it, rather than
+   * from its start.
+   *
+   * @param level    level to solve
+   * @param snapshot snapshot of a PackedBlockDudeModel with the level loaded, or null to start
+   *                 from the start of the level
+   * @return result of search
+   * @throws IllegalArgumentException if level is null or snapshot is not a snapshot of the level
+   */
+  public Solution solve(Level level, long[] snapshot) throws IllegalArgumentException {
+    if (level == null) throw new IllegalArgumentException("Cannot solve null level.");
+    long start = System.nanoTime();
+
+    // each move tried is taken back with unmake(...), so the model needs no history
+    PackedBlockDudeModel model = new PackedBlockDudeModel(0);
+    model.loadLevel(level);
+    if (snapshot != null) model.restore(snapshot);
+    if (model.isLevelCompleted()) {
+      return new Solution(Solution.Status.SOLVED, Collections.<Command>emptyList(), 0, 0, 0,
+              System.nanoTime() - start);
+    }
+    DeadStateDetector deadStates = pruneDeadStates ? new DeadStateDetector(level) : null;
+    int length = model.snapshotLength();
+    long threshold = spillThreshold == AUTOMATIC_SPILL_THRESHOLD
+            ? automaticSpillThreshold(length) : spillThreshold;
+    SpillingStateSet states = new SpillingStateSet(length, threshold, scratchDirectory);
+    ParentLinks links = new ParentLinks();
+    try {
+      return search(model, deadStates, states, links, start);
+    } finally {
+      states.close();
+      links.close();
+    }
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Searches the states of the level loaded into the given model breadth first, from the state it
+   * is in.
+   *
+   * @param model      model with level loaded, in initial state
+   * @param deadStates detector of dead states to skip, or null to skip none
+   * @param states     empty set to store states in
+   * @param links      links to record how each state was reached in
+   * @param start      time search started at, from System.nanoTime()
+   * @return result of search
+   * @throws IllegalStateException if the scratch files could not be created or mapped
+   */
+  private Solution search(PackedBlockDudeModel model, DeadStateDetector deadStates,
+                          SpillingStateSet states, ParentLinks links, long start)
+          throws IllegalStateException {
+    long[] current = new long[states.stateLength()];
+    long[] next = new long[states.stateLength()];
+    model.snapshot(current, 0);
+    states.add(current, 0);
+    links.set(0, -1, 0);
+    long peakMemory = states.memoryBytes() + links.memoryBytes();
+    if (deadStates != null && deadStates.isDead(model)) {
+      return new Solution(Solution.Status.UNSOLVABLE, Collections.<Command>emptyList(), 0,
+              states.size(), peakMemory, System.nanoTime() - start);
+    }
+
+    long expanded = 0;
+    for (int id = 0; id < states.size(); id++) {
+      if (Thread.currentThread().isInterrupted()) {
+        return new Solution(Solution.Status.LIMIT_REACHED, Collections.<Command>emptyList(),
+                expanded, states.size(), peakMemory, System.nanoTime() - start);
+      }
+      states.get(id, current, 0);
+      model.restore(current, 0);
+      expanded++;
+
+      int legal = model.legalMoves();
+      for (int move = 0; move < MovePrimitives.COMMANDS.length; move++) {
+        if ((legal & (1 << move)) == 0) continue;
+        long token = model.make(MovePrimitives.COMMANDS[move]);
+
+        if (model.isLevelCompleted()) {
+          List<Command> solution = links.movesTo(id);
+          solution.add(MovePrimitives.COMMANDS[move]);
+          return new Solution(Solution.Status.SOLVED, solution, expanded, states.size(),
+                  peakMemory, System.nanoTime() - start);
+        }
+        if (deadStates != null && deadStates.isDead(model)) {
+          model.unmake(token);
+          continue;
+        }
+
+        model.snapshot(next, 0);
+        model.unmake(token);
+        if (states.size() >= maxStates && !states.contains(next, 0)) {
+          return new Solution(Solution.Status.LIMIT_REACHED, Collections.<Command>emptyList(),
+                  expanded, states.size(), peakMemory, System.nanoTime() - start);
+        }
+        long added = states.add(next, 0);
+        if (added < 0) continue;
+
+        if (states.isSpilled() && !links.isSpilled())
+          links.spill(scratchDirectory, (int) added);
+        links.set((int) added, id, move);
+        peakMemory = Math.max(peakMemory, states.memoryBytes() + links.memoryBytes());
+      }
+    }
+
+    return new Solution(Solution.Status.UNSOLVABLE, Collections.<Command>emptyList(), expanded,
+            states.size(), peakMemory, System.nanoTime() - start);
+  }
+
+  /* Static methods ----------------------------------------------------------------------------- */
+
+  /**
+   * Returns the number of states of the given length the solver can store on the heap before they
+   * would fill about half of it. Each state takes up to 16 bytes per long and 16 bytes of hash
+   * table in a HashStateSet just after it has doubled in size, and up to 10 bytes of links, and
+   * half as much again is needed while they are being copied to grow.
+   *
+   * @param stateLength number of longs in each state
+   * @return number of states to store before spilling
+   */
+  private static long automaticSpillThreshold(int stateLength) {
+    long bytesPerState = (16L * stateLength + 26) * 3 / 2;
+    long threshold = Runtime.getRuntime().maxMemory() / 2 / bytesPerState;
+    return Math.max(1, Math.min(threshold, MAX_HEAP_STATES));
+  }
+}
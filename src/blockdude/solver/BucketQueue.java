@@ -0,0 +1,89 @@
+package blockdude.solver;
+
+import java.util.Arrays;
+
+/**
+ * A priority queue of state ids for searches whose priorities are small non-negative integers
+ * (such as the number of moves to a state plus an estimate of the moves left). Ids are kept in one
+ * growable stack per priority, so adding and removing take constant time and ids with equal
+ * priority come out last in, first out, which favours the deepest states.
+ */
+final class BucketQueue {
+  private static final int BUCKET_BYTES = Long.BYTES + Integer.BYTES; // reference and size
+
+  private int[][] buckets = new int[64][];
+  private int[] sizes = new int[64];
+  private int lowest; // INVARIANT: no bucket below this one has anything in it
+  private long size;
+  private long memoryBytes = 64 * BUCKET_BYTES;
+
+  /**
+   * Adds the given id to this queue with the given priority.
+   *
+   * @param priority priority of id (lower comes out first)
+   * @param id       id to add
+   * @throws IllegalArgumentException if priority is negative
+   */
+  void add(int priority, int id) throws IllegalArgumentException {
+    if (priority < 0) throw new IllegalArgumentException("Priority must be >= 0.");
+    if (priority >= buckets.length) {
+      int length = Math.max(buckets.length * 2, priority + 1);
+      memoryBytes += (long) (length - buckets.length) * BUCKET_BYTES;
+      buckets = Arrays.copyOf(buckets, length);
+      sizes = Arrays.copyOf(sizes, length);
+    }
+    if (buckets[priority] == null) {
+      buckets[priority] = new int[16];
+      memoryBytes += 16 * Integer.BYTES;
+    } else if (sizes[priority] == buckets[priority].length) {
+      buckets[priority] = Arrays.copyOf(buckets[priority], sizes[priority] * 2);
+      memoryBytes += (long) sizes[priority] * Integer.BYTES;
+    }
+
+    buckets[priority][sizes[priority]++] = id;
+    lowest = Math.min(lowest, priority);
+    size++;
+  }
+
+  /**
+   * Returns the lowest priority of any id in this queue.
+   *
+   * @return lowest priority
+   * @throws IllegalStateException if queue is empty
+   */
+  int lowestPriority() throws IllegalStateException {
+    if (size == 0) throw new IllegalStateException("Queue is empty.");
+    while (sizes[lowest] == 0) lowest++;
+    return lowest;
+  }
+
+  /**
+   * Removes and returns the most recently added id with the lowest priority.
+   *
+   * @return removed id
+   * @throws IllegalStateException if queue is empty
+   */
+  int remove() throws IllegalStateException {
+    int priority = lowestPriority();
+    size--;
+    return buckets[priority][--sizes[priority]];
+  }
+
+  /**
+   * Returns whether this queue is empty.
+   *
+   * @return true if queue has no ids in it, false otherwise
+   */
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the number of bytes of memory currently used by this queue.
+   *
+   * @return memory used in bytes
+   */
+  long memoryBytes() {
+    return memoryBytes;
+  }
+}
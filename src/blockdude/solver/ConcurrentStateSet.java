@@ -0,0 +1,202 @@
+package blockdude.solver;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import blockdude.collections.Hashing;
+
+/**
+ * A set of game states that many threads can add to at once. The hash table is split into
+ * stripes, each a small open addressing table of ids guarded by its own lock, so threads adding
+ * states that hash to different stripes never wait for each other. States themselves are stored
+ * back to back in fixed-size chunks that are never moved once allocated, and ids are handed out
+ * from a single counter, so they are still dense and increasing like those of a HashStateSet.
+ *
+ * <p>Adding, looking up and counting states are safe from any thread. A state copied out with
+ * get(...) must have been added before the call in a way the calling thread can see (for example,
+ * by a task the caller has joined), which is always the case for the states of an earlier layer of
+ * a breadth-first search.
+ */
+public final class ConcurrentStateSet implements StateSet {
+  private static final int CHUNK_BITS = 16; // each chunk holds 2^16 states
+  private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+  private static final int MAX_CHUNKS = 1 << (31 - CHUNK_BITS);
+
+  private final int stateLength;
+  private final int stripeBits;
+  private final Stripe[] stripes;
+  private final AtomicReferenceArray<long[]> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+  private final AtomicInteger size = new AtomicInteger();
+
+  /**
+   * Represents one stripe of the hash table: the ids of the states whose hash picks it.
+   */
+  private static final class Stripe {
+    private int[] table = new int[16]; // INVARIANT: each entry is 0 (empty) or 1 + a state id
+    private int count;
+  }
+
+  /**
+   * Constructs a new, empty ConcurrentStateSet for states of the given length, with its hash table
+   * split into the given number of stripes.
+   *
+   * @param stateLength number of longs in each state
+   * @param stripes     number of stripes, which must be a power of 2 (more stripes means less
+   *                    waiting between threads)
+   * @throws IllegalArgumentException if stateLength is not positive or stripes is not a power of 2
+   */
+  public ConcurrentStateSet(int stateLength, int stripes) throws IllegalArgumentException {
+    if (stateLength <= 0) throw new IllegalArgumentException("State length must be > 0.");
+    if (stripes <= 0 || Integer.bitCount(stripes) != 1)
+      throw new IllegalArgumentException("Number of stripes must be a power of 2.");
+    this.stateLength = stateLength;
+    this.stripeBits = Integer.numberOfTrailingZeros(stripes);
+    this.stripes = new Stripe[stripes];
+    for (int i = 0; i < stripes; i++) this.stripes[i] = new Stripe();
+  }
+
+  /* Interface methods -------------------------------------------------------------------------- */
+
+  @Override
+  public int stateLength() {
+    return stateLength;
+  }
+
+  @Override
+  public long add(long[] source, int offset) throws IllegalStateException {
+    long hash = Hashing.stateHash(source, offset, stateLength);
+    Stripe stripe = stripes[(int) hash & (stripes.length - 1)];
+    synchronized (stripe) {
+      int mask = stripe.table.length - 1;
+      int slot = slotOf(hash) & mask;
+      while (stripe.table[slot] != 0) {
+        if (equalsState(stripe.table[slot] - 1, source, offset)) return -1;
+        slot = (slot + 1) & mask;
+      }
+
+      int id = size.getAndIncrement();
+      if (id < 0 || id >>> CHUNK_BITS >= MAX_CHUNKS) {
+        size.decrementAndGet();
+        throw new IllegalStateException("State set cannot hold any more states.");
+      }
+      System.arraycopy(source, offset, chunkFor(id), (id & CHUNK_MASK) * stateLength,
+              stateLength);
+      stripe.table[slot] = id + 1;
+      if (++stripe.count * 2 > stripe.table.length) grow(stripe);
+      return id;
+    }
+  }
+
+  @Override
+  public boolean contains(long[] source, int offset) {
+    return idOf(source, offset) >= 0;
+  }
+
+  @Override
+  public long idOf(long[] source, int offset) {
+    long hash = Hashing.stateHash(source, offset, stateLength);
+    Stripe stripe = stripes[(int) hash & (stripes.length - 1)];
+    synchronized (stripe) {
+      int mask = stripe.table.length - 1;
+      int slot = slotOf(hash) & mask;
+      while (stripe.table[slot] != 0) {
+        if (equalsState(stripe.table[slot] - 1, source, offset)) return stripe.table[slot] - 1;
+        slot = (slot + 1) & mask;
+      }
+      return -1;
+    }
+  }
+
+  @Override
+  public void get(long id, long[] destination, int offset) throws IndexOutOfBoundsException {
+    if (id < 0 || id >= size.get())
+      throw new IndexOutOfBoundsException("No state with id " + id + ".");
+    long[] chunk = chunks.get((int) id >>> CHUNK_BITS);
+    System.arraycopy(chunk, ((int) id & CHUNK_MASK) * stateLength, destination, offset,
+            stateLength);
+  }
+
+  @Override
+  public long size() {
+    return size.get();
+  }
+
+  @Override
+  public long memoryBytes() {
+    long bytes = (long) MAX_CHUNKS * Long.BYTES;
+    long chunkCount = ((long) size.get() + CHUNK_MASK) >>> CHUNK_BITS;
+    bytes += chunkCount * (Long.BYTES << CHUNK_BITS) * stateLength;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        bytes += (long) stripe.table.length * Integer.BYTES;
+      }
+    }
+    return bytes;
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Returns the chunk the state with the given id is stored in, allocating it if no thread has
+   * done so yet.
+   *
+   * @param id id of state
+   * @return chunk for state
+   */
+  private long[] chunkFor(int id) {
+    int index = id >>> CHUNK_BITS;
+    long[] chunk = chunks.get(index);
+    if (chunk == null) {
+      chunks.compareAndSet(index, null, new long[stateLength << CHUNK_BITS]);
+      chunk = chunks.get(index);
+    }
+    return chunk;
+  }
+
+  /**
+   * Doubles the size of the table of the given stripe, putting every id back in it. Must be called
+   * with the lock of the stripe held.
+   *
+   * @param stripe stripe to grow
+   */
+  private void grow(Stripe stripe) {
+    int[] old = stripe.table;
+    stripe.table = new int[old.length * 2];
+    int mask = stripe.table.length - 1;
+    long[] state = new long[stateLength];
+    for (int entry : old) {
+      if (entry == 0) continue;
+      get(entry - 1, state, 0);
+      int slot = slotOf(Hashing.stateHash(state, 0, stateLength)) & mask;
+      while (stripe.table[slot] != 0) slot = (slot + 1) & mask;
+      stripe.table[slot] = entry;
+    }
+  }
+
+  /**
+   * Returns whether the state with the given id is equal to the one that starts at the given
+   * offset in the given array.
+   *
+   * @param id     id of state in set
+   * @param source array containing other state
+   * @param offset index in array at which other state starts
+   * @return true if states are equal, false otherwise
+   */
+  private boolean equalsState(int id, long[] source, int offset) {
+    long[] chunk = chunks.get(id >>> CHUNK_BITS);
+    int start = (id & CHUNK_MASK) * stateLength;
+    for (int i = 0; i < stateLength; i++) if (chunk[start + i] != source[offset + i]) return false;
+    return true;
+  }
+
+  /**
+   * Returns the bits of the given hash that pick a slot within a stripe, which are not the ones
+   * that picked the stripe.
+   *
+   * @param hash hash of state
+   * @return slot bits of hash
+   */
+  private int slotOf(long hash) {
+    return (int) (hash >>> 32) ^ (int) (hash >>> stripeBits);
+  }
+}
@@ -0,0 +1,365 @@
+package blockdude.solver;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import blockdude.model.SearchableBlockDudeModel;
+import blockdude.util.GamePiece;
+import blockdude.util.Level;
+
+/**
+ * Finds states of a level from which it can no longer be completed, so searches can skip them and
+ * everything that follows from them. A state is only ever called dead when it really is, so
+ * pruning never loses a solution, but many dead states are not noticed.
+ *
+ * <p>The analysis has a static part, worked out from the fixed pieces of the level (walls and
+ * heavy blocks) alone: for every cell, the cells the player could possibly get to from it, going
+ * by moves that would be allowed if no blocks were in the way (walking into an open cell, falling
+ * into the open cell below, or climbing diagonally up when both the cell above and the one it
+ * leads to are open). Blocks only ever make fewer moves possible, so the player can never get
+ * anywhere outside of these cells. The dynamic part then looks at the current state:
+ * <ul>
+ *   <li>a door that is covered, or that was covered and is gone, cannot be used, and neither can
+ *   one the player cannot get to, so a state where no door can be used is dead,</li>
+ *   <li>to get to a door the player has to climb from every row between their own and the highest
+ *   one on the way, and climbing from a row needs something solid in that row to step onto. In a
+ *   run of n rows with no fixed top the player can climb onto, climbing from the highest one needs
+ *   a block in every row of the run at once: one to step onto and the rest stacked under the
+ *   player. A block the player cannot get next to can never be lifted again, so its row never
+ *   needs another one, but every other block might be needed, so a state with fewer of those
+ *   (counting one the player holds) than the longest such run on the way to every door is
+ *   dead.</li>
+ * </ul>
+ *
+ * <p>The cells the player can get to are worked out the first time each cell is needed, which is
+ * safe to do from several threads at once, and each thread keeps its own scratch space for the
+ * rest, so one DeadStateDetector can be shared by the threads of a search and checking a state
+ * allocates nothing once the cells it needs have been worked out.
+ */
+public final class DeadStateDetector {
+  private final LevelGeometry geometry;
+  private final int words; // number of longs in a set of cells
+  private final AtomicReferenceArray<long[]> reach; // cells player can get to from each cell
+  private final int[][] climbTargets; // for each row, cells above the fixed tops in it
+  private final ThreadLocal<Scratch> scratch; // space each thread checks states in
+
+  /**
+   * Constructs a new DeadStateDetector for the given level.
+   *
+   * @param level level to find dead states of
+   * @throws IllegalArgumentException if level is null
+   */
+  public DeadStateDetector(Level level) throws IllegalArgumentException {
+    if (level == null) throw new IllegalArgumentException("Level cannot be null.");
+    geometry = new LevelGeometry(level);
+    int cells = geometry.width() * geometry.height();
+    words = (cells + 63) >>> 6;
+    reach = new AtomicReferenceArray<>(cells);
+
+    climbTargets = new int[geometry.height()][];
+    for (int row = 0; row < geometry.height(); row++) {
+      int count = 0;
+      int[] targets = new int[geometry.width()];
+      for (int col = 0; col < geometry.width(); col++)
+        if (geometry.isFixed(row, col) && !geometry.isFixed(row - 1, col))
+          targets[count++] = geometry.cellAt(row - 1, col);
+      climbTargets[row] = Arrays.copyOf(targets, count);
+    }
+
+    scratch = new ThreadLocal<Scratch>() {
+      @Override
+      protected Scratch initialValue() {
+        return new Scratch(words, geometry.width() * geometry.height(),
+                (geometry.height() + 63) >>> 6);
+      }
+    };
+  }
+
+  /**
+   * Returns whether the level can no longer be completed from the current state of the given
+   * model, which must have the level this DeadStateDetector was made for loaded.
+   *
+   * @param model model whose state to check
+   * @return true if state is known to be dead, false if it might not be
+   * @throws RuntimeException if no level has been loaded into model yet
+   */
+  public boolean isDead(SearchableBlockDudeModel model) throws RuntimeException {
+    if (model.isLevelCompleted()) return false;
+    int playerRow = model.playerRow();
+    int playerCol = model.playerCol();
+    long[] reachable = reachFrom(geometry.cellAt(playerRow, playerCol));
+    Scratch space = scratch.get();
+    if (!model.isHoldingPiece() && isStuck(model, playerRow, playerCol, space)) return true;
+
+    long[] builtRows = null; // rows with a block that can never be lifted again
+    int usableBlocks = -1;
+    for (int door = 0; door < geometry.doorCount(); door++) {
+      int doorCell = geometry.doorCell(door);
+      if (!contains(reachable, doorCell) || !isDoorLeft(model, doorCell)) continue;
+
+      int fromRow = geometry.topRowOnWay(playerCol, door) + 1;
+      if (longestRunToBuild(reachable, null, fromRow, playerRow) == 0) return false;
+      if (builtRows == null) {
+        // the blocks only need looking at once some door needs tops built
+        builtRows = space.builtRows;
+        Arrays.fill(builtRows, 0);
+        usableBlocks = countUsableBlocks(model, reachable, builtRows);
+      }
+      if (longestRunToBuild(reachable, builtRows, fromRow, playerRow) <= usableBlocks)
+        return false;
+    }
+    return true;
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Returns whether the player of the given model, who is not holding anything, can neither get to
+   * a door nor lift a block from anywhere they can get to by walking, falling and climbing. Since
+   * nothing but the player can move without a block being lifted, the board then stays as it is
+   * for good, so the level can no longer be completed.
+   *
+   * @param model     model whose state to check
+   * @param playerRow row of player
+   * @param playerCol column of player
+   * @param space     scratch space of the calling thread
+   * @return true if player is stuck, false otherwise
+   */
+  private boolean isStuck(SearchableBlockDudeModel model, int playerRow, int playerCol,
+                          Scratch space) {
+    long[] visited = space.visited;
+    int[] queue = space.queue;
+    Arrays.fill(visited, 0);
+    int tail = 0;
+    int start = geometry.cellAt(playerRow, playerCol);
+    visited[start >>> 6] |= 1L << start;
+    queue[tail++] = start;
+
+    for (int head = 0; head < tail; head++) {
+      int row = queue[head] / geometry.width();
+      int col = queue[head] % geometry.width();
+      for (int side = -1; side <= 1; side += 2) {
+        int sideCol = col + side;
+        if (sideCol < 0 || sideCol >= geometry.width()) continue;
+        GamePiece piece = model.pieceAt(row, sideCol);
+        int target;
+        if (!isSolidAt(model, row, sideCol, start)) {
+          // walking to the side, then falling as far as the player goes
+          int landingRow = row;
+          while (!isSolidAt(model, landingRow + 1, sideCol, start)) {
+            if (GamePiece.isGoal(model.pieceAt(landingRow, sideCol))) return false;
+            landingRow++;
+          }
+          target = geometry.cellAt(landingRow, sideCol);
+        } else if (isSolidAt(model, row - 1, col, start)) {
+          continue;
+        } else if (GamePiece.canPickUp(piece) && !isSolidAt(model, row - 1, sideCol, start)) {
+          return false;
+        } else if (!isSolidAt(model, row - 1, sideCol, start)) {
+          target = geometry.cellAt(row - 1, sideCol);
+        } else {
+          continue;
+        }
+        if (GamePiece.isGoal(model.pieceAt(target / geometry.width(), sideCol))) return false;
+        if (contains(visited, target)) continue;
+        visited[target >>> 6] |= 1L << target;
+        queue[tail++] = target;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns whether the given cell of the board of the given model is solid, counting cells off
+   * the board as solid and the cell the player started in as empty.
+   *
+   * @param model       model whose board to look at
+   * @param row         row of cell
+   * @param col         column of cell
+   * @param playerStart cell the player started in
+   * @return true if cell is solid, false otherwise
+   */
+  private boolean isSolidAt(SearchableBlockDudeModel model, int row, int col, int playerStart) {
+    if (row < 0 || row >= geometry.height() || col < 0 || col >= geometry.width()) return true;
+    if (geometry.cellAt(row, col) == playerStart) return false;
+    return GamePiece.isSolid(model.pieceAt(row, col));
+  }
+
+  /**
+   * Returns whether the door in the given cell is still there to be used in the current state of
+   * the given model (not covered by a block, or gone after having been covered).
+   *
+   * @param model    model whose state to check
+   * @param doorCell cell of door
+   * @return true if door might still be used, false otherwise
+   */
+  private boolean isDoorLeft(SearchableBlockDudeModel model, int doorCell) {
+    int row = doorCell / geometry.width();
+    int col = doorCell % geometry.width();
+    return GamePiece.isGoal(model.pieceAt(row, col));
+  }
+
+  /**
+   * Returns the length of the longest run of rows in the given range from none of which the player
+   * can climb without building a top out of a block first.
+   *
+   * @param reachable  cells the player can get to
+   * @param builtRows  rows that have a block in them for good, or null if none are known
+   * @param fromRow    highest row to climb from
+   * @param toRow      lowest row to climb from (the row of the player)
+   * @return length of longest run of rows to build
+   */
+  private int longestRunToBuild(long[] reachable, long[] builtRows, int fromRow, int toRow) {
+    int longest = 0;
+    int run = 0;
+    for (int row = Math.max(0, fromRow); row <= toRow; row++) {
+      // climbing from a row means stepping onto a top in that row
+      boolean built = builtRows != null && contains(builtRows, row);
+      if (built || hasReachableFixedTop(reachable, row)) {
+        run = 0;
+      } else {
+        longest = Math.max(longest, ++run);
+      }
+    }
+    return longest;
+  }
+
+  /**
+   * Returns whether the player can get to the cell above any fixed top in the given row.
+   *
+   * @param reachable cells the player can get to
+   * @param row       row of tops
+   * @return true if player can climb onto a fixed top in row, false otherwise
+   */
+  private boolean hasReachableFixedTop(long[] reachable, int row) {
+    for (int target : climbTargets[row]) if (contains(reachable, target)) return true;
+    return false;
+  }
+
+  /**
+   * Returns the number of blocks in the current state of the given model that the player might
+   * still lift (counting one they are holding), and marks the rows of the blocks they can never
+   * lift again in the given set.
+   *
+   * @param model     model whose state to check
+   * @param reachable cells the player can get to
+   * @param builtRows set to mark rows of blocks that cannot be lifted in
+   * @return number of usable blocks
+   */
+  private int countUsableBlocks(SearchableBlockDudeModel model, long[] reachable,
+                                long[] builtRows) {
+    int usable = model.isHoldingPiece() ? 1 : 0;
+    for (int row = 0; row < geometry.height(); row++) {
+      for (int col = 0; col < geometry.width(); col++) {
+        if (!GamePiece.canPickUp(model.pieceAt(row, col))) continue;
+        if (canStandBeside(reachable, row, col - 1) || canStandBeside(reachable, row, col + 1)) {
+          usable++;
+        } else {
+          builtRows[row >>> 6] |= 1L << row;
+        }
+      }
+    }
+    return usable;
+  }
+
+  /**
+   * Returns whether the player can get to the given cell, which is next to a block.
+   *
+   * @param reachable cells the player can get to
+   * @param row       row of cell
+   * @param col       column of cell
+   * @return true if player can get to cell, false otherwise
+   */
+  private boolean canStandBeside(long[] reachable, int row, int col) {
+    return !geometry.isFixed(row, col) && contains(reachable, geometry.cellAt(row, col));
+  }
+
+  /**
+   * Returns the set of cells the player could possibly get to from the given cell, working it out
+   * if it has not been yet.
+   *
+   * @param from cell player starts in
+   * @return cells player can get to
+   */
+  private long[] reachFrom(int from) {
+    long[] cells = reach.get(from);
+    if (cells != null) return cells;
+
+    cells = new long[words];
+    int[] queue = new int[geometry.width() * geometry.height()];
+    int head = 0;
+    int tail = 0;
+    cells[from >>> 6] |= 1L << from;
+    queue[tail++] = from;
+    while (head < tail) {
+      int cell = queue[head++];
+      int row = cell / geometry.width();
+      int col = cell % geometry.width();
+      for (int side = -1; side <= 1; side += 2) {
+        tail = visit(cells, queue, tail, row, col + side);
+        if (!geometry.isFixed(row - 1, col)) tail = visit(cells, queue, tail, row - 1, col + side);
+      }
+      tail = visit(cells, queue, tail, row + 1, col);
+    }
+
+    // another thread may have got there first, in which case both worked out the same cells
+    reach.compareAndSet(from, null, cells);
+    return reach.get(from);
+  }
+
+  /**
+   * Adds the given cell to the given set and queue of cells the player can get to, unless it is
+   * fixed or already in the set.
+   *
+   * @param cells set of cells
+   * @param queue queue of cells whose neighbours still need visiting
+   * @param tail  index in queue to add at
+   * @param row   row of cell
+   * @param col   column of cell
+   * @return index in queue to add at next
+   */
+  private int visit(long[] cells, int[] queue, int tail, int row, int col) {
+    if (geometry.isFixed(row, col)) return tail;
+    int cell = geometry.cellAt(row, col);
+    if (contains(cells, cell)) return tail;
+    cells[cell >>> 6] |= 1L << cell;
+    queue[tail] = cell;
+    return tail + 1;
+  }
+
+  /* Static methods ----------------------------------------------------------------------------- */
+
+  /**
+   * Returns whether the given set contains the given index.
+   *
+   * @param set   set as bits of longs
+   * @param index index to look for
+   * @return true if index is in set, false otherwise
+   */
+  private static boolean contains(long[] set, int index) {
+    return (set[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Represents the arrays one thread checks states in, kept from one check to the next so that
+   * checking a state does not allocate.
+   */
+  private static final class Scratch {
+    private final long[] visited; // cells player has walked to
+    private final int[] queue; // cells whose neighbours still need visiting
+    private final long[] builtRows; // rows with a block that can never be lifted again
+
+    /**
+     * Constructs a new Scratch for a level of the given size.
+     *
+     * @param words    number of longs in a set of cells
+     * @param cells    number of cells on the board
+     * @param rowWords number of longs in a set of rows
+     */
+    private Scratch(int words, int cells, int rowWords) {
+      visited = new long[words];
+      queue = new int[cells];
+      builtRows = new long[rowWords];
+    }
+  }
+}
@@ -0,0 +1,554 @@
+package blockdude.solver;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import blockdude.model.PackedBlockDudeModel;
+import blockdude.util.Command;
+import blockdude.util.Level;
+
+/**
+ * A solver that finds the shortest way to complete a level by searching its states breadth first,
+ * keeping them in files instead of memory, for levels with more states than even a
+ * MappedStateSet can hold. Each layer (all the states the same number of moves away) is a file of
+ * states in sorted order, as is the set of every state visited so far, and both are only ever read
+ * and written from start to end.
+ *
+ * <p>The states a layer leads to are gathered in a buffer of fixed size, which is sorted, cleared
+ * of duplicates and written out as a run whenever it fills up. Duplicates are only removed once
+ * the layer is done, when the runs and the visited states are merged: states that were not visited
+ * before make up the next layer, and every state goes into the new set of visited states. Every
+ * run being merged holds an open file and a read buffer, so when a layer has more than
+ * MAX_FAN_IN runs, they are first merged MAX_FAN_IN at a time into longer runs until few enough
+ * are left. Since falls cannot be undone, a state can be reached again from much further away than
+ * the two layers before it, so it is checked against every visited state rather than just those two
+ * layers. No links between states are kept; once the door is reached, the moves of the solution
+ * are found by searching each layer, last to first, for a state that leads to the one after it.
+ *
+ * <p>Every file is forced to disk when it is written, and the number of the last layer that was
+ * finished is recorded in the working directory, so if the search stops part way (because of a
+ * crash, an error, or reaching its state limit), solving the same level again with the same
+ * directory carries on from that layer. The files are deleted once the search ends otherwise.
+ * Only one search may use a directory at a time.
+ */
+public class ExternalBreadthFirstSolver implements Solver {
+  private static final int DEFAULT_RUN_STATES = 1 << 18;
+  private static final int MAX_FAN_IN = 64; // most runs merged at once
+  private static final int PROGRESS_VERSION = 1;
+  private static final String PROGRESS = "progress";
+  private static final String PROGRESS_TEMP = "progress.tmp";
+
+  private final File directory;
+  private final long maxStates;
+  private final int runStates;
+
+  /**
+   * Constructs a new ExternalBreadthFirstSolver that keeps its files in the given directory and
+   * searches until it has decided whether the level can be completed (or runs out of disk).
+   *
+   * @param directory directory to keep files in
+   * @throws IllegalArgumentException if directory is not a directory
+   */
+  public ExternalBreadthFirstSolver(File directory) throws IllegalArgumentException {
+    this(directory, Long.MAX_VALUE);
+  }
+
+  /**
+   * Constructs a new ExternalBreadthFirstSolver that keeps its files in the given directory and
+   * gives up after the first layer that takes it to at least the given number of states.
+   *
+   * @param directory directory to keep files in
+   * @param maxStates most states to store before giving up
+   * @throws IllegalArgumentException if directory is not a directory or maxStates is not
+   *                                  positive
+   */
+  public ExternalBreadthFirstSolver(File directory, long maxStates)
+          throws IllegalArgumentException {
+    this(directory, maxStates, DEFAULT_RUN_STATES);
+  }
+
+  /**
+   * Constructs a new ExternalBreadthFirstSolver that keeps its files in the given directory, gives
+   * up after the first layer that takes it to at least the given number of states, and sorts runs
+   * of at most the given number of states in memory.
+   *
+   * @param directory directory to keep files in
+   * @param maxStates most states to store before giving up
+   * @param runStates most states to sort in memory at once
+   * @throws IllegalArgumentException if directory is not a directory or maxStates or runStates is
+   *                                  not positive
+   */
+  public ExternalBreadthFirstSolver(File directory, long maxStates, int runStates)
+          throws IllegalArgumentException {
+    if (directory == null || !directory.isDirectory())
+      throw new IllegalArgumentException("Working directory must be a directory.");
+    if (maxStates <= 0) throw new IllegalArgumentException("Maximum states must be > 0.");
+    if (runStates <= 0) throw new IllegalArgumentException("Run states must be > 0.");
+    this.directory = directory;
+    this.maxStates = maxStates;
+    this.runStates = runStates;
+  }
+
+  /* Interface methods -------------------------------------------------------------------------- */
+
+  /**
+   * {@inheritDoc} The peak memory reported is the size of the buffer runs are sorted in, as that
+   * is all the memory the states take up.
+   *
+   * @throws IllegalStateException if the files of the search could not be read or written
+   */
+  @Override
+  public Solution solve(Level level) throws IllegalArgumentException, IllegalStateException {
+    if (level == null) throw new IllegalArgumentException("Cannot solve null level.");
+    long start = System.nanoTime();
+
+    Search search = new Search(level);
+    try {
+      search.resumeOrStart();
+      while (true) {
+        if (search.stored >= maxStates || Thread.currentThread().isInterrupted()) break;
+
+        List<Command> solution = search.expandLayer();
+        if (solution != null) {
+          search.deleteFiles();
+          return new Solution(Solution.Status.SOLVED, solution, search.expanded, search.stored,
+                  search.buffer.length * 8L, System.nanoTime() - start);
+        }
+        if (search.mergeLayer() == 0) {
+          search.deleteFiles();
+          return new Solution(Solution.Status.UNSOLVABLE, Collections.<Command>emptyList(),
+                  search.expanded, search.stored, search.buffer.length * 8L,
+                  System.nanoTime() - start);
+        }
+      }
+    } catch (IllegalStateException e) {
+      // an interrupt closes any file being read or written, and the search picks up from the
+      // last finished layer next time
+      if (!(e.getCause() instanceof ClosedByInterruptException)) throw e;
+    }
+    return new Solution(Solution.Status.LIMIT_REACHED, Collections.<Command>emptyList(),
+            search.expanded, search.stored, search.buffer.length * 8L, System.nanoTime() - start);
+  }
+
+  /**
+   * Represents one search of a level, and the files in the working directory that hold it.
+   */
+  private final class Search {
+    // each move tried is taken back with unmake(...), so the model needs no history
+    private final PackedBlockDudeModel model = new PackedBlockDudeModel(0);
+    private final int length;
+    private final long[] initial;
+    private final long[] buffer; // states the current layer leads to, not yet written to a run
+    private int buffered;
+    private final List<File> runs = new ArrayList<>();
+    private int runNumber; // number to give the next run file
+    private int layer; // the last layer that was finished
+    private long stored;
+    private long expanded;
+    private int doorMove; // set by successors() to the move that reaches the door, or -1
+
+    /**
+     * Constructs a new Search of the given level.
+     *
+     * @param level level to search
+     */
+    private Search(Level level) {
+      model.loadLevel(level);
+      length = model.snapshotLength();
+      initial = model.snapshot();
+      buffer = new long[Math.min(runStates, (Integer.MAX_VALUE - 8) / length) * length];
+    }
+
+    /**
+     * Carries on from the last layer a search of the same level in the working directory
+     * finished, or starts a new search with the initial state as the only state of layer 0.
+     *
+     * @throws IllegalStateException if the files could not be read or written
+     */
+    private void resumeOrStart() throws IllegalStateException {
+      if (readProgress()) {
+        deleteFiles(layer);
+        return;
+      }
+      deleteFiles();
+      for (String name : new String[]{layerName(0), visitedName(0)}) {
+        StateRunWriter writer = new StateRunWriter(new File(directory, name));
+        try {
+          writer.write(initial, 0, length);
+        } finally {
+          writer.close();
+        }
+      }
+      layer = 0;
+      stored = 1;
+      expanded = 0;
+      writeProgress();
+    }
+
+    /**
+     * Expands every state of the last layer, writing the states they lead to out in sorted runs.
+     *
+     * @return moves of a shortest solution if a state of the layer leads to the door, or null if
+     *         none does
+     * @throws IllegalStateException if the files could not be read or written
+     */
+    private List<Command> expandLayer() throws IllegalStateException {
+      long[] next = new long[MovePrimitives.COMMANDS.length * length];
+      StateRunReader reader = new StateRunReader(new File(directory, layerName(layer)), length);
+      try {
+        while (reader.next()) {
+          expanded++;
+          int found = successors(reader.state(), next);
+          if (doorMove >= 0) {
+            Command last = MovePrimitives.COMMANDS[doorMove];
+            List<Command> solution = movesTo(Arrays.copyOf(reader.state(), length));
+            solution.add(last);
+            deleteRuns();
+            return solution;
+          }
+
+          for (int move = 0; move < MovePrimitives.COMMANDS.length; move++) {
+            if ((found & (1 << move)) == 0) continue;
+            if (buffered * length == buffer.length) writeRun();
+            System.arraycopy(next, move * length, buffer, buffered * length, length);
+            buffered++;
+          }
+        }
+      } finally {
+        reader.close();
+      }
+      writeRun();
+      return null;
+    }
+
+    /**
+     * Merges the runs of the last layer with the states visited so far, making the states that
+     * were not visited before the next layer.
+     *
+     * @return number of states in next layer
+     * @throws IllegalStateException if the files could not be read or written
+     */
+    private long mergeLayer() throws IllegalStateException {
+      while (runs.size() > MAX_FAN_IN) mergeRuns();
+
+      long visitedCount;
+      long nextCount;
+      StateRunWriter nextLayer = new StateRunWriter(new File(directory, layerName(layer + 1)));
+      try {
+        StateRunWriter nextVisited = new StateRunWriter(new File(directory,
+                visitedName(layer + 1)));
+        try {
+          merge(runs, new File(directory, visitedName(layer)), nextVisited, nextLayer);
+        } finally {
+          nextVisited.close();
+        }
+        visitedCount = nextVisited.count();
+      } finally {
+        nextLayer.close();
+      }
+      nextCount = nextLayer.count();
+
+      layer++;
+      stored = visitedCount;
+      writeProgress();
+      deleteRuns();
+      new File(directory, visitedName(layer - 1)).delete();
+      return nextCount;
+    }
+
+    /**
+     * Merges the runs of the last layer MAX_FAN_IN at a time, replacing them with the (fewer)
+     * longer runs that result.
+     *
+     * @throws IllegalStateException if the files could not be read or written
+     */
+    private void mergeRuns() throws IllegalStateException {
+      List<File> merged = new ArrayList<>();
+      for (int from = 0; from < runs.size(); from += MAX_FAN_IN) {
+        List<File> group = runs.subList(from, Math.min(from + MAX_FAN_IN, runs.size()));
+        if (group.size() == 1) {
+          merged.add(group.get(0));
+          continue;
+        }
+        File run = newRunFile();
+        merged.add(run);
+        StateRunWriter writer = new StateRunWriter(run);
+        try {
+          merge(group, null, writer, null);
+        } finally {
+          writer.close();
+        }
+        for (File old : group) old.delete();
+      }
+      runs.clear();
+      runs.addAll(merged);
+    }
+
+    /**
+     * Merges the given files of sorted states, writing each state that is in any of them once. If
+     * a file of visited states is given, it is merged in too, and the states that are not in it
+     * are also written to the given writer of unseen states.
+     *
+     * @param files       files of states to merge
+     * @param visitedFile file of states visited so far, or null if there is none
+     * @param all         writer to write every state to
+     * @param unseen      writer to write states that were not visited to, or null if there is none
+     * @throws IllegalStateException if the files could not be read or written
+     */
+    private void merge(List<File> files, File visitedFile, StateRunWriter all,
+                       StateRunWriter unseen) throws IllegalStateException {
+      PriorityQueue<StateRunReader> readers = new PriorityQueue<>(files.size() + 1,
+              new Comparator<StateRunReader>() {
+                @Override
+                public int compare(StateRunReader a, StateRunReader b) {
+                  return StateRuns.compare(a.state(), 0, b.state(), 0, length);
+                }
+              });
+      List<StateRunReader> open = new ArrayList<>();
+      try {
+        StateRunReader visited = null;
+        if (visitedFile != null) {
+          visited = new StateRunReader(visitedFile, length);
+          open.add(visited);
+        }
+        for (File file : files) open.add(new StateRunReader(file, length));
+        for (StateRunReader reader : open) if (reader.next()) readers.add(reader);
+
+        long[] state = new long[length];
+        while (!readers.isEmpty()) {
+          StateRunReader reader = readers.poll();
+          System.arraycopy(reader.state(), 0, state, 0, length);
+          boolean seen = reader == visited;
+          if (reader.next()) readers.add(reader);
+          // every reader holding the same state is moved past it
+          while (!readers.isEmpty()
+                  && StateRuns.compare(readers.peek().state(), 0, state, 0, length) == 0) {
+            reader = readers.poll();
+            seen |= reader == visited;
+            if (reader.next()) readers.add(reader);
+          }
+
+          all.write(state, 0, length);
+          if (unseen != null && !seen) unseen.write(state, 0, length);
+        }
+      } finally {
+        for (StateRunReader reader : open) reader.close();
+      }
+    }
+
+    /**
+     * Puts every state the given state leads to in one move in the given array, the one a move
+     * leads to starting at the code of the move times the state length. If a move reaches the
+     * door, doorMove is set to its code (and -1 otherwise).
+     *
+     * @param state state to make moves from
+     * @param next  array to hold states moves lead to
+     * @return bit mask of the codes of moves that lead to a different state
+     */
+    private int successors(long[] state, long[] next) {
+      model.restore(state, 0);
+      doorMove = -1;
+      int found = 0;
+      int legal = model.legalMoves();
+      for (int move = 0; move < MovePrimitives.COMMANDS.length; move++) {
+        if ((legal & (1 << move)) == 0) continue;
+        long token = model.make(MovePrimitives.COMMANDS[move]);
+
+        if (model.isLevelCompleted()) {
+          doorMove = move;
+          return found;
+        }
+        model.snapshot(next, move * length);
+        model.unmake(token);
+        found |= 1 << move;
+      }
+      return found;
+    }
+
+    /**
+     * Returns the moves that lead from the initial state to the given state of the last layer,
+     * found by searching each layer before it, last to first, for a state with a move that leads
+     * to the state found in the layer after it.
+     *
+     * @param state state of last layer
+     * @return moves from initial state to state
+     * @throws IllegalStateException if the files could not be read
+     */
+    private List<Command> movesTo(long[] state) throws IllegalStateException {
+      List<Command> moves = new ArrayList<>();
+      long[] target = state;
+      long[] next = new long[MovePrimitives.COMMANDS.length * length];
+      for (int back = layer - 1; back >= 0; back--) {
+        StateRunReader reader = new StateRunReader(new File(directory, layerName(back)), length);
+        try {
+          int move = -1;
+          while (move < 0 && reader.next()) {
+            int found = successors(reader.state(), next);
+            for (int m = 0; m < MovePrimitives.COMMANDS.length && move < 0; m++) {
+              if ((found & (1 << m)) != 0
+                      && StateRuns.compare(next, m * length, target, 0, length) == 0) move = m;
+            }
+          }
+          if (move < 0)
+            throw new IllegalStateException("Layer " + back + " of search is missing a state.");
+          moves.add(MovePrimitives.COMMANDS[move]);
+          target = Arrays.copyOf(reader.state(), length);
+        } finally {
+          reader.close();
+        }
+      }
+      Collections.reverse(moves);
+      return moves;
+    }
+
+    /**
+     * Sorts the buffered states, clears them of duplicates and writes them out as a new run.
+     *
+     * @throws IllegalStateException if the run could not be written
+     */
+    private void writeRun() throws IllegalStateException {
+      if (buffered == 0) return;
+      int unique = StateRuns.sortUnique(buffer, buffered, length);
+      File run = newRunFile();
+      runs.add(run);
+      StateRunWriter writer = new StateRunWriter(run);
+      try {
+        for (int i = 0; i < unique; i++) writer.write(buffer, i * length, length);
+      } finally {
+        writer.close();
+      }
+      buffered = 0;
+    }
+
+    /**
+     * Returns a file for a new run of the last layer, with a name no other run has.
+     *
+     * @return file for run
+     */
+    private File newRunFile() {
+      return new File(directory, "run-" + runNumber++ + ".run");
+    }
+
+    /**
+     * Deletes the runs of the last layer.
+     */
+    private void deleteRuns() {
+      for (File run : runs) run.delete();
+      runs.clear();
+      runNumber = 0;
+      buffered = 0;
+    }
+
+    /**
+     * Reads the record of the last layer finished by a search of this level in the working
+     * directory, if there is one.
+     *
+     * @return true if there was a search of this level to resume, false otherwise
+     */
+    private boolean readProgress() {
+      File file = new File(directory, PROGRESS);
+      if (!file.isFile()) return false;
+      try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+        if (in.readInt() != PROGRESS_VERSION || in.readInt() != length) return false;
+        for (long value : initial) if (in.readLong() != value) return false;
+        layer = in.readInt();
+        stored = in.readLong();
+        expanded = in.readLong();
+      } catch (IOException e) {
+        return false;
+      }
+      return new File(directory, layerName(layer)).isFile()
+              && new File(directory, visitedName(layer)).isFile();
+    }
+
+    /**
+     * Records that the last layer has been finished, replacing the old record in one step so
+     * that a crash leaves one or the other.
+     *
+     * @throws IllegalStateException if the record could not be written
+     */
+    private void writeProgress() throws IllegalStateException {
+      File temp = new File(directory, PROGRESS_TEMP);
+      try {
+        FileOutputStream file = new FileOutputStream(temp);
+        try (DataOutputStream out = new DataOutputStream(file)) {
+          out.writeInt(PROGRESS_VERSION);
+          out.writeInt(length);
+          for (long value : initial) out.writeLong(value);
+          out.writeInt(layer);
+          out.writeLong(stored);
+          out.writeLong(expanded);
+          out.flush();
+          file.getFD().sync();
+        }
+        Files.move(temp.toPath(), new File(directory, PROGRESS).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not record progress in " + directory + ".", e);
+      }
+    }
+
+    /**
+     * Deletes every file of a search in the working directory.
+     */
+    private void deleteFiles() {
+      deleteFiles(-1);
+    }
+
+    /**
+     * Deletes every file of a search in the working directory that is not needed to carry on
+     * from the given layer.
+     *
+     * @param keep last layer finished, or -1 to delete every file
+     */
+    private void deleteFiles(int keep) {
+      File[] files = directory.listFiles();
+      if (files == null) return;
+      for (File file : files) {
+        String name = file.getName();
+        boolean needed = keep >= 0 && (name.equals(PROGRESS) || name.equals(visitedName(keep))
+                || name.matches("layer-\\d+\\.run")
+                && Integer.parseInt(name.substring(6, name.length() - 4)) <= keep);
+        if (!needed && (name.equals(PROGRESS) || name.equals(PROGRESS_TEMP)
+                || name.matches("(layer|visited|run)-\\d+\\.run"))) {
+          file.delete();
+        }
+      }
+    }
+  }
+
+  /* Static methods ----------------------------------------------------------------------------- */
+
+  /**
+   * Returns the name of the file holding the given layer.
+   *
+   * @param layer number of layer
+   * @return name of file
+   */
+  private static String layerName(int layer) {
+    return "layer-" + layer + ".run";
+  }
+
+  /**
+   * Returns the name of the file holding every state visited up to the given layer.
+   *
+   * @param layer number of layer
+   * @return name of file
+   */
+  private static String visitedName(int layer) {
+    return "visited-" + layer + ".run";
+  }
+}
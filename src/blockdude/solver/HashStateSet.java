@@ -0,0 +1,143 @@
+package blockdude.solver;
+
+import java.util.Arrays;
+
+import blockdude.collections.Hashing;
+
+/**
+ * A set of game states kept in memory. States are stored back to back in a single array in the
+ * order they were added (so the id of a state is its position in that array), and an open
+ * addressing hash table of ids is used to find them. Both arrays double in size when they fill
+ * up, so apart from those occasional resizes, adding a state allocates nothing.
+ */
+public final class HashStateSet implements StateSet {
+  // the table is kept at most half full so that probe sequences stay short
+  private static final int INITIAL_TABLE_SIZE = 1 << 10;
+  private static final int MAX_TABLE_SIZE = 1 << 30;
+
+  private final int stateLength;
+  private long[] states; // INVARIANT: state with id i starts at index i * stateLength
+  private int[] table; // INVARIANT: each entry is 0 (empty) or 1 + the id of a state in the set
+  private int size;
+
+  /**
+   * Constructs a new, empty HashStateSet for states of the given length.
+   *
+   * @param stateLength number of longs in each state
+   * @throws IllegalArgumentException if stateLength is not positive
+   */
+  public HashStateSet(int stateLength) throws IllegalArgumentException {
+    if (stateLength <= 0) throw new IllegalArgumentException("State length must be > 0.");
+    this.stateLength = stateLength;
+    this.states = new long[INITIAL_TABLE_SIZE / 2 * stateLength];
+    this.table = new int[INITIAL_TABLE_SIZE];
+  }
+
+  /* Interface methods -------------------------------------------------------------------------- */
+
+  @Override
+  public int stateLength() {
+    return stateLength;
+  }
+
+  @Override
+  public long add(long[] source, int offset) throws IllegalStateException {
+    int mask = table.length - 1;
+    int slot = hash(source, offset) & mask;
+    while (table[slot] != 0) {
+      if (equalsState(table[slot] - 1, source, offset)) return -1;
+      slot = (slot + 1) & mask;
+    }
+
+    if ((long) (size + 1) * 2 > table.length) {
+      grow();
+      return add(source, offset);
+    }
+
+    System.arraycopy(source, offset, states, size * stateLength, stateLength);
+    table[slot] = size + 1;
+    return size++;
+  }
+
+  @Override
+  public boolean contains(long[] source, int offset) {
+    return idOf(source, offset) >= 0;
+  }
+
+  @Override
+  public long idOf(long[] source, int offset) {
+    int mask = table.length - 1;
+    int slot = hash(source, offset) & mask;
+    while (table[slot] != 0) {
+      if (equalsState(table[slot] - 1, source, offset)) return table[slot] - 1;
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  @Override
+  public void get(long id, long[] destination, int offset) throws IndexOutOfBoundsException {
+    if (id < 0 || id >= size) throw new IndexOutOfBoundsException("No state with id " + id + ".");
+    System.arraycopy(states, (int) id * stateLength, destination, offset, stateLength);
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public long memoryBytes() {
+    return (long) states.length * Long.BYTES + (long) table.length * Integer.BYTES;
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Doubles the size of the hash table (and the array of states along with it), putting every
+   * state back in the table.
+   *
+   * @throws IllegalStateException if the set cannot grow any larger
+   */
+  private void grow() throws IllegalStateException {
+    long newStatesLength = (long) table.length * stateLength;
+    if (table.length == MAX_TABLE_SIZE || newStatesLength > Integer.MAX_VALUE - 8)
+      throw new IllegalStateException("State set cannot hold more than " + size + " states.");
+
+    states = Arrays.copyOf(states, (int) newStatesLength);
+    table = new int[table.length * 2];
+    int mask = table.length - 1;
+    for (int id = 0; id < size; id++) {
+      int slot = hash(states, id * stateLength) & mask;
+      while (table[slot] != 0) slot = (slot + 1) & mask;
+      table[slot] = id + 1;
+    }
+  }
+
+  /**
+   * Returns whether the state with the given id is equal to the one that starts at the given
+   * offset in the given array.
+   *
+   * @param id     id of state in set
+   * @param source array containing other state
+   * @param offset index in array at which other state starts
+   * @return true if states are equal, false otherwise
+   */
+  private boolean equalsState(int id, long[] source, int offset) {
+    int start = id * stateLength;
+    for (int i = 0; i < stateLength; i++) if (states[start + i] != source[offset + i]) return false;
+    return true;
+  }
+
+  /**
+   * Returns a well-mixed hash of the state that starts at the given offset in the given array.
+   *
+   * @param source array containing state
+   * @param offset index in array at which state starts
+   * @return hash of state
+   */
+  private int hash(long[] source, int offset) {
+    long h = Hashing.stateHash(source, offset, stateLength);
+    return (int) (h ^ (h >>> 32));
+  }
+}
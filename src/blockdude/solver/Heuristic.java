@@ -0,0 +1,22 @@
+package blockdude.solver;
+
+import blockdude.model.SearchableBlockDudeModel;
+
+/**
+ * Represents an estimate of how many moves are still needed to complete the level loaded in a
+ * model. Informed solvers use it to search the most promising states first. Every heuristic given
+ * by Heuristics is admissible (it never estimates more moves than are actually needed) and
+ * consistent (a single move never lowers the estimate by more than one), so searches guided by
+ * them still find shortest solutions.
+ */
+public interface Heuristic {
+  /**
+   * Returns a lower bound on the number of moves needed to complete the level from the current
+   * state of the given model, which must have the level this heuristic was made for loaded.
+   *
+   * @param model model in state to estimate
+   * @return estimated number of moves left (0 if level is completed)
+   * @throws RuntimeException if no level has been loaded into model yet
+   */
+  int estimate(SearchableBlockDudeModel model) throws RuntimeException;
+}
@@ -0,0 +1,55 @@
+package blockdude.solver;
+
+import blockdude.model.SearchableBlockDudeModel;
+import blockdude.util.Level;
+
+/**
+ * The heuristics informed solvers can be guided by, from weakest to strongest.
+ */
+public enum Heuristics {
+  /**
+   * Estimates no moves at all, which makes an informed search uninformed (useful for comparing node
+   * counts).
+   */
+  NONE,
+  /**
+   * Counts the columns between the player and the nearest door, or the rows the player has to
+   * climb to get over the walls on the way, whichever is more. Every move changes the column and
+   * row of the player by at most one.
+   */
+  DOOR_DISTANCE,
+  /**
+   * Adds to DOOR_DISTANCE the block moves needed to build the staircase for that climb: every row
+   * the player has to climb from that has neither the top of a wall nor a block in it needs a
+   * block put down in it, and every block put down (other than one already held) needs picking up
+   * first.
+   */
+  STAIRCASE;
+
+  // the heuristic for NONE, which is the same for every level
+  private static final Heuristic ZERO = new Heuristic() {
+    @Override
+    public int estimate(SearchableBlockDudeModel model) {
+      return 0;
+    }
+  };
+
+  /**
+   * Returns this heuristic, prepared for the given level.
+   *
+   * @param level level to prepare heuristic for
+   * @return heuristic for level
+   * @throws IllegalArgumentException if level is null
+   */
+  public Heuristic forLevel(Level level) throws IllegalArgumentException {
+    if (level == null) throw new IllegalArgumentException("Cannot make heuristic for null level.");
+    switch (this) {
+      case DOOR_DISTANCE:
+        return new RouteHeuristic(new LevelGeometry(level), false);
+      case STAIRCASE:
+        return new RouteHeuristic(new LevelGeometry(level), true);
+      default:
+        return ZERO;
+    }
+  }
+}
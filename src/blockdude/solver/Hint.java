@@ -0,0 +1,87 @@
+package blockdude.solver;
+
+import blockdude.util.Command;
+
+/**
+ * Represents the answer to asking a HintCache for the next move from a state of a level: the first
+ * move of a shortest way to complete the level from there, or why there is none yet.
+ */
+public final class Hint {
+  /**
+   * Represents whether a hint could be given.
+   */
+  public enum Status {
+    /**
+     * The next move of a shortest solution is known.
+     */
+    READY,
+    /**
+     * The state has not been solved yet, but is being solved in the background.
+     */
+    PENDING,
+    /**
+     * The level can no longer be completed from the state.
+     */
+    UNSOLVABLE,
+    /**
+     * The search for a solution from the state gave up before deciding whether there is one.
+     */
+    UNKNOWN
+  }
+
+  static final Hint PENDING = new Hint(Status.PENDING, null);
+  static final Hint UNSOLVABLE = new Hint(Status.UNSOLVABLE, null);
+  static final Hint UNKNOWN = new Hint(Status.UNKNOWN, null);
+  private static final Hint[] MOVES = new Hint[MovePrimitives.COMMANDS.length];
+
+  static {
+    for (int move = 0; move < MOVES.length; move++)
+      MOVES[move] = new Hint(Status.READY, MovePrimitives.COMMANDS[move]);
+  }
+
+  private final Status status;
+  private final Command move;
+
+  /**
+   * Constructs a new Hint. Access is private since there is only ever one hint of each kind.
+   *
+   * @param status whether a hint could be given
+   * @param move   next move (null unless status is READY)
+   */
+  private Hint(Status status, Command move) {
+    this.status = status;
+    this.move = move;
+  }
+
+  /**
+   * Returns whether a hint could be given.
+   *
+   * @return status of hint
+   */
+  public Status status() {
+    return status;
+  }
+
+  /**
+   * Returns the next move of a shortest solution, one of MOVE_LEFT, MOVE_RIGHT, MOVE_UP and
+   * PICK_UP_PUT_DOWN.
+   *
+   * @return next move, or null unless status is READY
+   */
+  public Command move() {
+    return move;
+  }
+
+  /* Static methods ----------------------------------------------------------------------------- */
+
+  /**
+   * Returns the hint to make the given move.
+   *
+   * @param move next move
+   * @return hint with status READY and given move
+   * @throws IllegalArgumentException if move is not a move
+   */
+  static Hint of(Command move) throws IllegalArgumentException {
+    return MOVES[MovePrimitives.codeOf(move)];
+  }
+}
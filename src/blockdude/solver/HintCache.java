@@ -0,0 +1,340 @@
+package blockdude.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import blockdude.collections.Hashing;
+import blockdude.model.PackedBlockDudeModel;
+import blockdude.model.SearchableBlockDudeModel;
+import blockdude.util.Command;
+import blockdude.util.Level;
+
+/**
+ * Gives hints (the next move of a shortest way to complete a level) for states of levels, from a
+ * bounded cache of states that have already been solved. Asking for a hint never waits for a
+ * search: a state that is not in the cache is solved by a BreadthFirstSolver on an executor, and a
+ * PENDING hint is given until it is done. Every state along the solution that is found is cached,
+ * so a player who follows the hints gets the rest of them straight away.
+ *
+ * <p>Whoever asks for hints waits on at most one search at a time: asking about another state
+ * cancels the search for the old one (interrupting it if it has started), since the asker has
+ * moved away from it, unless someone else is still waiting on it too. Asking about a state that is
+ * already being solved joins its search, so one HintCache can be shared by every player of a
+ * program, as the one returned by shared() is. The executor made by the default constructor also
+ * holds at most a few searches in its queue, dropping (and cancelling) the oldest when another one
+ * comes in.
+ *
+ * <p>States are cached by their level and a hash of their snapshot (and compared in full, so two
+ * states with the same hash never share a hint). Once the cache is full, the state that was used
+ * least recently is dropped. A HintCache is safe to share between threads.
+ */
+public final class HintCache {
+  /** Number of states a HintCache that is not given a capacity remembers. */
+  public static final int DEFAULT_CAPACITY = 1 << 16;
+  /** Number of states a HintCache that is not given a limit stores in each search. */
+  public static final long DEFAULT_MAX_STATES = 1 << 22;
+
+  private static final long KEEP_ALIVE_SECONDS = 60;
+  private static final int QUEUE_CAPACITY = 4;
+  private static final HintCache SHARED = new HintCache();
+
+  private final Map<Key, Hint> hints; // INVARIANT: in order of use, least recent first
+  private final Map<Key, Search> pending = new HashMap<>(); // search of each state being solved
+  private final Map<Object, Search> waiting = new WeakHashMap<>(); // search each asker waits on
+  private final Executor executor;
+  private final BreadthFirstSolver solver;
+
+  /**
+   * Constructs a new HintCache that remembers a default number of states, and solves states on a
+   * thread of its own.
+   */
+  public HintCache() {
+    this(DEFAULT_CAPACITY, backgroundExecutor());
+  }
+
+  /**
+   * Constructs a new HintCache that remembers the given number of states, and solves states on
+   * the given executor.
+   *
+   * @param capacity most states to remember
+   * @param executor executor to solve states on
+   * @throws IllegalArgumentException if capacity is not positive or executor is null
+   */
+  public HintCache(int capacity, Executor executor) throws IllegalArgumentException {
+    this(capacity, executor, DEFAULT_MAX_STATES);
+  }
+
+  /**
+   * Constructs a new HintCache that remembers the given number of states, solves states on the
+   * given executor, and gives up on a state once its search has stored the given number of
+   * states.
+   *
+   * @param capacity  most states to remember
+   * @param executor  executor to solve states on
+   * @param maxStates most states to store in each search
+   * @throws IllegalArgumentException if capacity or maxStates is not positive or executor is null
+   */
+  public HintCache(final int capacity, Executor executor, long maxStates)
+          throws IllegalArgumentException {
+    if (capacity <= 0) throw new IllegalArgumentException("Capacity must be > 0.");
+    if (executor == null) throw new IllegalArgumentException("Executor must be non-null.");
+    this.hints = new LinkedHashMap<Key, Hint>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Hint> eldest) {
+        return size() > capacity;
+      }
+    };
+    this.executor = executor;
+    this.solver = new BreadthFirstSolver(maxStates, true);
+  }
+
+  /**
+   * Returns the hint for the state the given model is in, asked for by the level itself, so that
+   * asking about another state of the same level cancels the search for this one.
+   *
+   * @param level level loaded into model
+   * @param model model in the state to give a hint for
+   * @return hint for state
+   * @throws IllegalArgumentException if level or model is null
+   * @throws IllegalStateException    if the executor will not take any more work
+   */
+  public Hint hintFor(Level level, SearchableBlockDudeModel model)
+          throws IllegalArgumentException, IllegalStateException {
+    return hintFor(level, model, level);
+  }
+
+  /**
+   * Returns the hint for the state the given model is in, for the given asker (such as the player
+   * or controller asking). If the state has not been solved yet, it starts being solved on the
+   * executor (unless it already is) and a PENDING hint is returned. The search the asker waited on
+   * before is cancelled, unless someone else is still waiting on it.
+   *
+   * @param level level loaded into model
+   * @param model model in the state to give a hint for
+   * @param asker whoever is asking, compared by equals(...)
+   * @return hint for state
+   * @throws IllegalArgumentException if level, model or asker is null
+   * @throws IllegalStateException    if the executor will not take any more work
+   */
+  public Hint hintFor(Level level, SearchableBlockDudeModel model, Object asker)
+          throws IllegalArgumentException, IllegalStateException {
+    if (level == null || model == null || asker == null)
+      throw new IllegalArgumentException("Level, model and asker must be non-null.");
+
+    final Key key = new Key(level, model.snapshot());
+    Search search;
+    Search stale = null;
+    boolean started;
+    synchronized (hints) {
+      Hint hint = hints.get(key);
+      if (hint != null) return hint;
+      search = pending.get(key);
+      started = search != null;
+      if (!started) {
+        search = new Search(key);
+        pending.put(key, search);
+      }
+      Search previous = waiting.put(asker, search);
+      if (previous != search) {
+        search.askers++;
+        if (previous != null && --previous.askers == 0) stale = previous;
+      }
+    }
+    if (stale != null) stale.cancel(true);
+    if (started) return Hint.PENDING;
+
+    try {
+      executor.execute(search);
+    } catch (RejectedExecutionException e) {
+      search.cancel(false);
+      throw new IllegalStateException("Hints can no longer be worked out.", e);
+    }
+
+    // the executor may have solved the state straight away
+    synchronized (hints) {
+      Hint hint = hints.get(key);
+      return hint != null ? hint : Hint.PENDING;
+    }
+  }
+
+  /**
+   * Returns the number of states whose hints are remembered.
+   *
+   * @return number of states in cache
+   */
+  public int size() {
+    synchronized (hints) {
+      return hints.size();
+    }
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Solves the given state, and caches the hint for it and for every state along the solution.
+   *
+   * @param key state to solve
+   */
+  private void solve(Key key) {
+    Solution solution;
+    try {
+      solution = solver.solve(key.level, key.state);
+    } catch (IllegalStateException e) {
+      // the search could not store its states, so it is no better than one that gave up
+      put(key, Hint.UNKNOWN);
+      return;
+    }
+    // a search that was cancelled gave up early, which says nothing about the state
+    if (Thread.currentThread().isInterrupted()) return;
+    if (!solution.isSolved()) {
+      put(key, solution.status() == Solution.Status.UNSOLVABLE ? Hint.UNSOLVABLE : Hint.UNKNOWN);
+      return;
+    }
+
+    PackedBlockDudeModel model = new PackedBlockDudeModel(0);
+    model.loadLevel(key.level);
+    model.restore(key.state);
+    List<Key> path = new ArrayList<>();
+    for (Command move : solution.moves()) {
+      path.add(path.isEmpty() ? key : new Key(key.level, model.snapshot()));
+      MovePrimitives.apply(model, MovePrimitives.codeOf(move));
+    }
+    // caching the state that was asked about last keeps it the longest
+    for (int i = path.size() - 1; i >= 0; i--) put(path.get(i), Hint.of(solution.moves().get(i)));
+  }
+
+  /**
+   * Caches the given hint for the given state.
+   *
+   * @param key  state
+   * @param hint hint for state
+   */
+  private void put(Key key, Hint hint) {
+    synchronized (hints) {
+      hints.put(key, hint);
+    }
+  }
+
+  /* Static methods ----------------------------------------------------------------------------- */
+
+  /**
+   * Returns the HintCache shared by the whole program, which remembers a default number of states
+   * and solves states on a thread of its own, so that a state solved for one player gives hints
+   * to every other.
+   *
+   * @return shared HintCache
+   */
+  public static HintCache shared() {
+    return SHARED;
+  }
+
+  /**
+   * Returns an executor with a single thread, which does not keep the program running and stops
+   * when it has been idle for a while. Its queue holds QUEUE_CAPACITY searches, and once it is
+   * full the oldest search waiting in it is cancelled to make room for the next.
+   *
+   * @return new executor
+   */
+  private static Executor backgroundExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY),
+            new ThreadFactory() {
+              @Override
+              public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "hints");
+                thread.setDaemon(true);
+                return thread;
+              }
+            }, new RejectedExecutionHandler() {
+              @Override
+              public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+                if (executor.isShutdown())
+                  throw new RejectedExecutionException("Executor has been shut down.");
+                Runnable oldest = executor.getQueue().poll();
+                if (oldest instanceof Future) ((Future<?>) oldest).cancel(false);
+                executor.execute(task);
+              }
+            });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Represents the search for the hint for a state, which stops being pending once it is done or
+   * cancelled.
+   */
+  private final class Search extends FutureTask<Void> {
+    private final Key key;
+    private int askers; // number of askers waiting on search, guarded by hints
+
+    /**
+     * Constructs a new Search for the given state.
+     *
+     * @param key state to solve
+     */
+    private Search(final Key key) {
+      super(new Runnable() {
+        @Override
+        public void run() {
+          HintCache.this.solve(key);
+        }
+      }, null);
+      this.key = key;
+    }
+
+    @Override
+    protected void done() {
+      synchronized (hints) {
+        if (pending.get(key) == this) pending.remove(key);
+      }
+    }
+  }
+
+  /**
+   * Represents a state of a level, as the key of a cached hint.
+   */
+  private static final class Key {
+    private final Level level;
+    private final long[] state;
+    private final int hash;
+
+    /**
+     * Constructs a new Key for the state with the given snapshot of the given level.
+     *
+     * @param level level state is of
+     * @param state snapshot of state
+     */
+    private Key(Level level, long[] state) {
+      this.level = level;
+      this.state = state;
+      this.hash = System.identityHashCode(level) * 31
+              + (int) Hashing.stateHash(state, 0, state.length);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) return false;
+      Key key = (Key) other;
+      return level == key.level && hash == key.hash && Arrays.equals(state, key.state);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -0,0 +1,213 @@
+package blockdude.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import blockdude.collections.LongIntHashMap;
+import blockdude.model.PackedBlockDudeModel;
+import blockdude.util.Command;
+import blockdude.util.Level;
+
+/**
+ * A solver that finds the shortest way to complete a level with iterative deepening A* (IDA*):
+ * a series of depth-first searches that each give up on any state whose moves taken plus the moves
+ * a heuristic estimates are still needed go over a bound, raising the bound each time to the
+ * smallest total that went over it. Moves are made and taken back on a single model with make(...)
+ * and unmake(...), which allocate nothing, so apart from a table of fixed size, memory use grows
+ * only with the length of the solution, which makes it suitable for levels too big to store the
+ * states of.
+ *
+ * <p>To keep from searching the same states again and again through different orders of moves, a
+ * LongIntHashMap remembers the hash of each state searched and the fewest moves it was reached in
+ * during the current search, and states reached again in no fewer moves are skipped. The map is
+ * made big enough for TABLE_CAPACITY states up front and emptied whenever it holds that many, so
+ * it never grows past about a megabyte and a half. States are only told apart by their 64-bit hash
+ * there, so a (very unlikely) collision could hide a solution. Optionally, states a
+ * DeadStateDetector finds the level can no longer be completed from are given up on straight away.
+ */
+public class IdaStarSolver implements Solver {
+  private static final int TABLE_CAPACITY = 1 << 16;
+
+  private final Heuristics heuristics;
+  private final long maxNodes;
+  private final boolean pruneDeadStates;
+
+  /**
+   * Constructs a new IdaStarSolver guided by the STAIRCASE heuristic, that searches until it has
+   * decided whether the level can be completed.
+   */
+  public IdaStarSolver() {
+    this(Heuristics.STAIRCASE);
+  }
+
+  /**
+   * Constructs a new IdaStarSolver guided by the given heuristic, that searches until it has
+   * decided whether the level can be completed.
+   *
+   * @param heuristics heuristic to guide search
+   * @throws IllegalArgumentException if heuristics is null
+   */
+  public IdaStarSolver(Heuristics heuristics) throws IllegalArgumentException {
+    this(heuristics, Long.MAX_VALUE);
+  }
+
+  /**
+   * Constructs a new IdaStarSolver guided by the given heuristic, that gives up once it has
+   * expanded the given number of states (counting every time a state is searched again).
+   *
+   * @param heuristics heuristic to guide search
+   * @param maxNodes   most states to expand before giving up
+   * @throws IllegalArgumentException if heuristics is null or maxNodes is not positive
+   */
+  public IdaStarSolver(Heuristics heuristics, long maxNodes) throws IllegalArgumentException {
+    this(heuristics, maxNodes, false);
+  }
+
+  /**
+   * Constructs a new IdaStarSolver guided by the given heuristic, that gives up once it has
+   * expanded the given number of states (counting every time a state is searched again), and that
+   * may skip dead states.
+   *
+   * @param heuristics      heuristic to guide search
+   * @param maxNodes        most states to expand before giving up
+   * @param pruneDeadStates whether to skip states a DeadStateDetector finds the level can no longer
+   *                        be completed from
+   * @throws IllegalArgumentException if heuristics is null or maxNodes is not positive
+   */
+  public IdaStarSolver(Heuristics heuristics, long maxNodes, boolean pruneDeadStates)
+          throws IllegalArgumentException {
+    if (heuristics == null) throw new IllegalArgumentException("Heuristics cannot be null.");
+    if (maxNodes <= 0) throw new IllegalArgumentException("Maximum nodes must be > 0.");
+    this.heuristics = heuristics;
+    this.maxNodes = maxNodes;
+    this.pruneDeadStates = pruneDeadStates;
+  }
+
+  /* Interface methods -------------------------------------------------------------------------- */
+
+  @Override
+  public Solution solve(Level level) throws IllegalArgumentException {
+    if (level == null) throw new IllegalArgumentException("Cannot solve null level.");
+    long start = System.nanoTime();
+
+    PackedBlockDudeModel model = new PackedBlockDudeModel(0);
+    model.loadLevel(level);
+    Heuristic heuristic = heuristics.forLevel(level);
+    DeadStateDetector deadStates = pruneDeadStates ? new DeadStateDetector(level) : null;
+    if (deadStates != null && deadStates.isDead(model)) {
+      return new Solution(Solution.Status.UNSOLVABLE, Collections.<Command>emptyList(), 0, 1, 0,
+              System.nanoTime() - start);
+    }
+    long[] root = model.snapshot();
+    long rootHash = model.stateHash();
+    int bound = heuristic.estimate(model);
+
+    LongIntHashMap table = new LongIntHashMap(TABLE_CAPACITY);
+    byte[] path = new byte[0]; // moves taken to reach the current state
+    byte[] nextMoves = new byte[0]; // next move to try in each state on the path
+    byte[] legalMoves = new byte[0]; // bitmask of the moves that change each state on the path
+    long[] tokens = new long[0]; // tokens to take back each move on the path with
+    long expanded = 0;
+    long stored = 1;
+    long peakMemory = 0;
+
+    while (true) {
+      // a path can be as long as the bound, plus the move that goes over it
+      if (path.length < bound + 1) {
+        int length = Math.max(bound + 1, path.length * 2);
+        path = Arrays.copyOf(path, length);
+        nextMoves = Arrays.copyOf(nextMoves, length);
+        legalMoves = Arrays.copyOf(legalMoves, length);
+        tokens = Arrays.copyOf(tokens, length);
+      }
+      model.restore(root, 0);
+      table.clear();
+      table.put(rootHash, 0);
+
+      int nextBound = Integer.MAX_VALUE;
+      int depth = 0;
+      nextMoves[0] = 0;
+      while (depth >= 0) {
+        if (nextMoves[depth] == MovePrimitives.COMMANDS.length) {
+          // every move from this state has been tried, so going back to the one before it
+          depth--;
+          if (depth >= 0) model.unmake(tokens[depth]);
+          continue;
+        }
+        int move = nextMoves[depth]++;
+        if (move == 0 && (++expanded > maxNodes || Thread.currentThread().isInterrupted())) {
+          peakMemory = Math.max(peakMemory, memoryBytes(table, path, root));
+          return new Solution(Solution.Status.LIMIT_REACHED, Collections.<Command>emptyList(),
+                  Math.min(expanded, maxNodes), stored, peakMemory,
+                  System.nanoTime() - start);
+        }
+        if (move == 0) legalMoves[depth] = (byte) model.legalMoves();
+        if ((legalMoves[depth] & (1 << move)) == 0) continue;
+        tokens[depth] = model.make(MovePrimitives.COMMANDS[move]);
+
+        int cost = depth + 1;
+        path[depth] = (byte) move;
+        if (model.isLevelCompleted() && cost <= bound) {
+          peakMemory = Math.max(peakMemory, memoryBytes(table, path, root));
+          return new Solution(Solution.Status.SOLVED, commandsOf(path, cost), expanded,
+                  stored, peakMemory, System.nanoTime() - start);
+        }
+
+        int total = cost + heuristic.estimate(model);
+        long hash = model.stateHash();
+        if (total > bound) {
+          nextBound = Math.min(nextBound, total);
+          model.unmake(tokens[depth]);
+        } else if (table.get(hash, Integer.MAX_VALUE) <= cost) {
+          model.unmake(tokens[depth]);
+        } else if (deadStates != null && deadStates.isDead(model)) {
+          model.unmake(tokens[depth]);
+        } else {
+          if (table.size() == TABLE_CAPACITY) table.clear();
+          table.put(hash, cost);
+          stored = Math.max(stored, table.size());
+          depth++;
+          nextMoves[depth] = 0;
+        }
+      }
+      peakMemory = Math.max(peakMemory, memoryBytes(table, path, root));
+
+      if (nextBound == Integer.MAX_VALUE) {
+        return new Solution(Solution.Status.UNSOLVABLE, Collections.<Command>emptyList(), expanded,
+                stored, peakMemory, System.nanoTime() - start);
+      }
+      bound = nextBound;
+    }
+  }
+
+  /* Static methods ----------------------------------------------------------------------------- */
+
+  /**
+   * Returns the number of bytes of memory used by the given table and the arrays of the path to
+   * the current state.
+   *
+   * @param table table of states searched
+   * @param path  codes of moves on path (with arrays of next and legal moves and of tokens just as
+   *              long)
+   * @param root  snapshot of state path starts from
+   * @return memory used in bytes
+   */
+  private static long memoryBytes(LongIntHashMap table, byte[] path, long[] root) {
+    return table.memoryBytes() + path.length * 11L + root.length * 8L;
+  }
+
+  /**
+   * Returns the commands for the first given number of moves on the given path.
+   *
+   * @param path   codes of moves on path
+   * @param length number of moves to return
+   * @return moves on path
+   */
+  private static List<Command> commandsOf(byte[] path, int length) {
+    List<Command> commands = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) commands.add(MovePrimitives.COMMANDS[path[i]]);
+    return commands;
+  }
+}
@@ -0,0 +1,144 @@
+package blockdude.solver;
+
+import blockdude.util.GamePiece;
+import blockdude.util.Level;
+
+/**
+ * The parts of a level that never change while it is played, worked out once for the heuristics
+ * and analyses that look at them: which cells hold fixed pieces (walls and heavy blocks, which can
+ * never move or be entered), where the doors are, the lowest row the player can be in within each
+ * column, and which fixed pieces have a top the player could climb onto.
+ */
+final class LevelGeometry {
+  private final int width;
+  private final int height;
+  private final boolean[] fixed; // indexed by row * width + col
+  private final int[] doorCells;
+  private final int[] lowestOpenRows; // lowest row not taken by a fixed piece, or -1 if none
+  private final boolean[] fixedTops; // whether a fixed piece in the row has nothing fixed above it
+
+  /**
+   * Constructs a new LevelGeometry of the given level.
+   *
+   * @param level level to work out geometry of
+   */
+  LevelGeometry(Level level) {
+    width = level.width();
+    height = level.height();
+    fixed = new boolean[width * height];
+    lowestOpenRows = new int[width];
+    fixedTops = new boolean[height];
+
+    int doorCount = 0;
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        GamePiece piece = level.pieceAt(row, col);
+        fixed[cellAt(row, col)] = GamePiece.isSolid(piece) && !GamePiece.canPickUp(piece) &&
+                !GamePiece.isPlayer(piece);
+        if (GamePiece.isGoal(piece)) doorCount++;
+      }
+    }
+
+    doorCells = new int[doorCount];
+    doorCount = 0;
+    for (int col = 0; col < width; col++) {
+      lowestOpenRows[col] = -1;
+      for (int row = 0; row < height; row++) {
+        if (GamePiece.isGoal(level.pieceAt(row, col))) doorCells[doorCount++] = cellAt(row, col);
+        if (!isFixed(row, col)) lowestOpenRows[col] = row;
+        else if (row > 0 && !isFixed(row - 1, col)) fixedTops[row] = true;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of columns in the level.
+   *
+   * @return width of level
+   */
+  int width() {
+    return width;
+  }
+
+  /**
+   * Returns the number of rows in the level.
+   *
+   * @return height of level
+   */
+  int height() {
+    return height;
+  }
+
+  /**
+   * Returns the index of the cell at the given row and column, counting row by row from the top
+   * left of the level.
+   *
+   * @param row row of cell
+   * @param col column of cell
+   * @return index of cell
+   */
+  int cellAt(int row, int col) {
+    return row * width + col;
+  }
+
+  /**
+   * Returns whether the cell at the given row and column holds a fixed piece. Cells off the board
+   * count as fixed.
+   *
+   * @param row row of cell
+   * @param col column of cell
+   * @return true if cell is fixed, false otherwise
+   */
+  boolean isFixed(int row, int col) {
+    if (row < 0 || row >= height || col < 0 || col >= width) return true;
+    return fixed[cellAt(row, col)];
+  }
+
+  /**
+   * Returns the number of doors in the level.
+   *
+   * @return number of doors
+   */
+  int doorCount() {
+    return doorCells.length;
+  }
+
+  /**
+   * Returns the index of the cell of the door with the given number.
+   *
+   * @param door number of door, from 0 to doorCount() - 1
+   * @return cell of door
+   */
+  int doorCell(int door) {
+    return doorCells[door];
+  }
+
+  /**
+   * Returns the highest row the player has to get to on the way from the given column to the
+   * given door, going by the fixed pieces in every column in between.
+   *
+   * @param col  column player starts in
+   * @param door number of door
+   * @return highest row on the way (-1 if some column on the way is entirely fixed)
+   */
+  int topRowOnWay(int col, int door) {
+    int doorRow = doorCells[door] / width;
+    int doorCol = doorCells[door] % width;
+    int topRow = doorRow;
+    int step = doorCol < col ? -1 : 1;
+    for (int c = col + step; c != doorCol + step; c += step)
+      topRow = Math.min(topRow, lowestOpenRows[c]);
+    return topRow;
+  }
+
+  /**
+   * Returns whether any fixed piece in the given row has no fixed piece above it, so the player
+   * could climb onto it.
+   *
+   * @param row row to check
+   * @return true if row has a fixed top, false otherwise
+   */
+  boolean hasFixedTop(int row) {
+    return row >= 0 && row < height && fixedTops[row];
+  }
+}
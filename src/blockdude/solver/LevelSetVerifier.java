@@ -0,0 +1,359 @@
+package blockdude.solver;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import blockdude.collections.LongHashSet;
+import blockdude.model.BlockDudeModel;
+import blockdude.model.ClassicBlockDudeModel;
+import blockdude.model.PackedBlockDudeModel;
+import blockdude.util.Command;
+import blockdude.util.Level;
+import blockdude.util.LevelSet;
+
+/**
+ * Checks that every level of a level set can be completed, by solving all of them at once on a
+ * fixed number of threads, each within a time budget. Each solution is checked by making its moves
+ * on a ClassicBlockDudeModel, so a level only counts as verified if the game itself agrees that
+ * the moves complete it. A level whose budget runs out has its solver interrupted (see Solver).
+ *
+ * <p>A line is written to the report for each level as soon as it is done, so the report is in
+ * the order levels finish in. Each line is a JSON object with the fields:
+ * <ul>
+ *   <li>level: number of the level in the set, starting from 1</li>
+ *   <li>password: password of the level</li>
+ *   <li>status: SOLVED, UNSOLVABLE, LIMIT_REACHED, TIMED_OUT or ERROR</li>
+ *   <li>verified: whether a solution was found and completes the level</li>
+ *   <li>length: number of moves in the solution (null unless solved)</li>
+ *   <li>solution: moves of the solution as the keys of the text view, a, d, w and s (null unless
+ *   solved)</li>
+ *   <li>revisits: number of moves of the solution that lead back to a state it was already in,
+ *   which a shortest solution never does (null unless verified)</li>
+ *   <li>nodesExpanded, statesStored, peakMemoryBytes: statistics of the search (null if the
+ *   solver failed)</li>
+ *   <li>elapsedMillis: time taken to solve and check the level</li>
+ *   <li>error: what the solver failed with (null unless status is ERROR)</li>
+ * </ul>
+ */
+public final class LevelSetVerifier {
+  private final Solver solver;
+  private final int threads;
+  private final long budgetMillis;
+
+  /**
+   * Constructs a new LevelSetVerifier that solves levels with the given solver on the given number
+   * of threads, giving each level the given number of milliseconds.
+   *
+   * @param solver       solver to solve levels with, which must be safe to use from many threads
+   *                     at once
+   * @param threads      number of levels to solve at once
+   * @param budgetMillis most time to spend solving each level, in milliseconds
+   * @throws IllegalArgumentException if solver is null or threads or budgetMillis is not positive
+   */
+  public LevelSetVerifier(Solver solver, int threads, long budgetMillis)
+          throws IllegalArgumentException {
+    if (solver == null) throw new IllegalArgumentException("Solver must be non-null.");
+    if (threads <= 0) throw new IllegalArgumentException("Threads must be > 0.");
+    if (budgetMillis <= 0) throw new IllegalArgumentException("Time budget must be > 0.");
+    this.solver = solver;
+    this.threads = threads;
+    this.budgetMillis = budgetMillis;
+  }
+
+  /**
+   * Solves every level of the given level set, writing a line to the given report for each one as
+   * soon as it is done. The level set is restarted afterwards.
+   *
+   * @param levels levels to verify
+   * @param report where to write report to (flushed after each line, if it is Flushable)
+   * @return number of levels that could not be verified
+   * @throws IllegalArgumentException if levels or report is null
+   * @throws IllegalStateException    if the report could not be written or the calling thread was
+   *                                  interrupted
+   */
+  public int verify(LevelSet levels, Appendable report)
+          throws IllegalArgumentException, IllegalStateException {
+    if (levels == null || report == null)
+      throw new IllegalArgumentException("Levels and report must be non-null.");
+
+    List<Level> all = levelsOf(levels);
+    ExecutorService pool = Executors.newFixedThreadPool(threads, daemonThreads("verifier"));
+    ScheduledExecutorService alarms = Executors.newSingleThreadScheduledExecutor(
+            daemonThreads("verifier-alarm"));
+    CompletionService<Outcome> outcomes = new ExecutorCompletionService<>(pool);
+    try {
+      for (int i = 0; i < all.size(); i++) outcomes.submit(new VerifyTask(i, all.get(i), alarms));
+
+      int failures = 0;
+      for (int i = 0; i < all.size(); i++) {
+        Outcome outcome = outcomes.take().get();
+        if (!outcome.verified) failures++;
+        report.append(outcome.line).append('\n');
+        if (report instanceof Flushable) ((Flushable) report).flush();
+      }
+      return failures;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Verification was interrupted.", e);
+    } catch (ExecutionException e) {
+      // tasks report their own failures, so this will never actually be thrown
+      throw new IllegalStateException("Verification failed.", e.getCause());
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not write report.", e);
+    } finally {
+      pool.shutdownNow();
+      alarms.shutdownNow();
+    }
+  }
+
+  /**
+   * Represents the result of verifying one level.
+   */
+  private static final class Outcome {
+    private final boolean verified;
+    private final String line; // line of report
+
+    /**
+     * Constructs a new Outcome.
+     *
+     * @param verified whether the level was verified
+     * @param line     line of report for level
+     */
+    private Outcome(boolean verified, String line) {
+      this.verified = verified;
+      this.line = line;
+    }
+  }
+
+  /**
+   * Represents the alarm that goes off when a level has used up its time budget, interrupting the
+   * thread solving it unless the solver has already stopped.
+   */
+  private static final class Alarm implements Runnable {
+    private final Thread worker;
+    private boolean stopped;
+    private boolean rang;
+
+    /**
+     * Constructs a new Alarm for the given thread.
+     *
+     * @param worker thread to interrupt
+     */
+    private Alarm(Thread worker) {
+      this.worker = worker;
+    }
+
+    @Override
+    public synchronized void run() {
+      if (stopped) return;
+      rang = true;
+      worker.interrupt();
+    }
+
+    /**
+     * Stops the alarm from ringing from now on.
+     *
+     * @return true if the alarm already rang, false otherwise
+     */
+    private synchronized boolean stop() {
+      stopped = true;
+      return rang;
+    }
+  }
+
+  /**
+   * Represents the work of verifying one level.
+   */
+  private final class VerifyTask implements Callable<Outcome> {
+    private final int index;
+    private final Level level;
+    private final ScheduledExecutorService alarms;
+
+    /**
+     * Constructs a new VerifyTask.
+     *
+     * @param index  index of level in level set
+     * @param level  level to verify
+     * @param alarms executor to schedule the alarm for the time budget on
+     */
+    private VerifyTask(int index, Level level, ScheduledExecutorService alarms) {
+      this.index = index;
+      this.level = level;
+      this.alarms = alarms;
+    }
+
+    @Override
+    public Outcome call() {
+      long start = System.nanoTime();
+      Alarm alarm = new Alarm(Thread.currentThread());
+      ScheduledFuture<?> scheduled = alarms.schedule(alarm, budgetMillis, TimeUnit.MILLISECONDS);
+      Solution solution = null;
+      Throwable error = null;
+      boolean timedOut;
+      try {
+        solution = solver.solve(level);
+      } catch (RuntimeException | OutOfMemoryError e) {
+        // one level failing, even for want of memory, should not stop the others being verified
+        error = e;
+      } finally {
+        timedOut = alarm.stop();
+        scheduled.cancel(false);
+        // an interrupt from the alarm must not reach the next level solved on this thread
+        Thread.interrupted();
+      }
+
+      boolean verified = solution != null && solution.isSolved()
+              && completes(level, solution.moves());
+      String status;
+      if (error != null) status = "ERROR";
+      else if (timedOut && !solution.isSolved()) status = "TIMED_OUT";
+      else status = solution.status().name();
+
+      StringBuilder line = new StringBuilder("{");
+      line.append("\"level\":").append(index + 1);
+      line.append(",\"password\":").append(quote(level.password()));
+      line.append(",\"status\":").append(quote(status));
+      line.append(",\"verified\":").append(verified);
+      boolean solved = solution != null && solution.isSolved();
+      line.append(",\"length\":").append(solved ? solution.moves().size() : null);
+      line.append(",\"solution\":").append(solved ? quote(keysFor(solution.moves())) : null);
+      line.append(",\"revisits\":").append(verified ? revisits(level, solution.moves()) : null);
+      line.append(",\"nodesExpanded\":").append(solution != null ? solution.nodesExpanded() : null);
+      line.append(",\"statesStored\":").append(solution != null ? solution.statesStored() : null);
+      line.append(",\"peakMemoryBytes\":")
+              .append(solution != null ? solution.peakMemoryBytes() : null);
+      line.append(",\"elapsedMillis\":")
+              .append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      line.append(",\"error\":").append(error != null ? quote(error.toString()) : null);
+      line.append('}');
+      return new Outcome(verified, line.toString());
+    }
+  }
+
+  /* Static methods ----------------------------------------------------------------------------- */
+
+  /**
+   * Returns every level of the given level set, in order, restarting the set afterwards.
+   *
+   * @param levels level set
+   * @return levels of set
+   */
+  private static List<Level> levelsOf(LevelSet levels) {
+    List<Level> all = new ArrayList<>();
+    levels.restart();
+    all.add(levels.currentLevel());
+    while (true) {
+      try {
+        all.add(levels.nextLevel());
+      } catch (IllegalStateException e) {
+        // there is no next level
+        break;
+      }
+    }
+    levels.restart();
+    return all;
+  }
+
+  /**
+   * Returns whether making the given moves on a ClassicBlockDudeModel completes the given level,
+   * with the last move and not before.
+   *
+   * @param level level to make moves on
+   * @param moves moves to make
+   * @return true if moves complete level, false otherwise
+   */
+  private static boolean completes(Level level, List<Command> moves) {
+    BlockDudeModel model = new ClassicBlockDudeModel(0);
+    model.loadLevel(level);
+    try {
+      for (Command move : moves) {
+        if (model.isLevelCompleted()) return false;
+        MovePrimitives.apply(model, MovePrimitives.codeOf(move));
+      }
+    } catch (RuntimeException e) {
+      return false;
+    }
+    return model.isLevelCompleted();
+  }
+
+  /**
+   * Returns the number of the given moves that lead back to a state of the given level that an
+   * earlier one was already in, making them on a PackedBlockDudeModel and telling states apart by
+   * their hashes alone.
+   *
+   * @param level level to make moves on
+   * @param moves moves to make, which must all be legal
+   * @return number of moves that revisit a state
+   */
+  private static int revisits(Level level, List<Command> moves) {
+    PackedBlockDudeModel model = new PackedBlockDudeModel(0);
+    model.loadLevel(level);
+    LongHashSet seen = new LongHashSet(moves.size() + 1);
+    seen.add(model.stateHash());
+    int revisits = 0;
+    for (Command move : moves) {
+      MovePrimitives.apply(model, MovePrimitives.codeOf(move));
+      if (!seen.add(model.stateHash())) revisits++;
+    }
+    return revisits;
+  }
+
+  /**
+   * Returns the given moves as the keys the text view reads them from.
+   *
+   * @param moves moves to convert
+   * @return one of a, d, w and s for each move
+   */
+  private static String keysFor(List<Command> moves) {
+    StringBuilder keys = new StringBuilder(moves.size());
+    for (Command move : moves) keys.append("adws".charAt(MovePrimitives.codeOf(move)));
+    return keys.toString();
+  }
+
+  /**
+   * Returns the given string as a JSON string literal.
+   *
+   * @param string string to quote
+   * @return quoted and escaped string
+   */
+  private static String quote(String string) {
+    StringBuilder quoted = new StringBuilder("\"");
+    for (int i = 0; i < string.length(); i++) {
+      char c = string.charAt(i);
+      if (c == '"' || c == '\\') quoted.append('\\').append(c);
+      else if (c < ' ') quoted.append(String.format("\\u%04x", (int) c));
+      else quoted.append(c);
+    }
+    return quoted.append('"').toString();
+  }
+
+  /**
+   * Returns a factory of daemon threads with the given name, so that threads left running by a
+   * verification never keep the program from exiting.
+   *
+   * @param name name of threads
+   * @return new thread factory
+   */
+  private static ThreadFactory daemonThreads(final String name) {
+    return new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+  }
+}
@@ -0,0 +1,229 @@
+package blockdude.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import blockdude.model.PackedBlockDudeModel;
+import blockdude.util.Command;
+import blockdude.util.Level;
+
+/**
+ * A solver that finds the shortest way to complete a level by searching over macro moves instead
+ * of single moves. A macro move is a walk to some place the player can get to (a cell, and the
+ * direction they face there) followed by picking up or putting down a block there, or a walk to a
+ * door. The places are found with a flood fill of the current board (a WalkMap), so the search only
+ * branches where a block is moved, and states that differ only in where the player has walked to
+ * are never stored.
+ *
+ * <p>Macro moves cost the number of single moves they are made of, and states are expanded in
+ * order of the moves taken to reach them (with a BucketQueue, like AStarSolver), so the solutions
+ * found are as short in single moves as those of BreadthFirstSolver. Only the state before each
+ * macro move and the place it picked up or put down at are stored, and the single moves of a
+ * solution are worked out again from them once the door is reached. Optionally, states a
+ * DeadStateDetector finds the level can no longer be completed from are never stored.
+ */
+public class MacroMoveSolver implements Solver {
+  private final long maxStates;
+  private final boolean pruneDeadStates;
+
+  /**
+   * Constructs a new MacroMoveSolver that searches until it has decided whether the level can be
+   * completed (or runs out of memory).
+   */
+  public MacroMoveSolver() {
+    this(Long.MAX_VALUE);
+  }
+
+  /**
+   * Constructs a new MacroMoveSolver that gives up once it has stored the given number of states.
+   *
+   * @param maxStates most states to store before giving up
+   * @throws IllegalArgumentException if maxStates is not positive
+   */
+  public MacroMoveSolver(long maxStates) throws IllegalArgumentException {
+    this(maxStates, false);
+  }
+
+  /**
+   * Constructs a new MacroMoveSolver that gives up once it has stored the given number of states,
+   * and that may skip dead states.
+   *
+   * @param maxStates       most states to store before giving up
+   * @param pruneDeadStates whether to skip states a DeadStateDetector finds the level can no longer
+   *                        be completed from
+   * @throws IllegalArgumentException if maxStates is not positive
+   */
+  public MacroMoveSolver(long maxStates, boolean pruneDeadStates) throws IllegalArgumentException {
+    if (maxStates <= 0) throw new IllegalArgumentException("Maximum states must be > 0.");
+    this.maxStates = maxStates;
+    this.pruneDeadStates = pruneDeadStates;
+  }
+
+  /* Interface methods -------------------------------------------------------------------------- */
+
+  @Override
+  public Solution solve(Level level) throws IllegalArgumentException {
+    if (level == null) throw new IllegalArgumentException("Cannot solve null level.");
+    long start = System.nanoTime();
+
+    PackedBlockDudeModel model = new PackedBlockDudeModel(0);
+    model.loadLevel(level);
+    DeadStateDetector deadStates = pruneDeadStates ? new DeadStateDetector(level) : null;
+    WalkMap walks = new WalkMap(level);
+    int length = model.snapshotLength();
+    StateSet states = new HashStateSet(length);
+    BucketQueue open = new BucketQueue();
+    long[] current = new long[length];
+    long[] next = new long[length];
+    byte[] walk = new byte[2 * level.width() * level.height()];
+
+    // for each state id: the state it was best reached from, the place the block was moved at to
+    // reach it and the number of single moves taken to reach it
+    int[] parents = new int[1024];
+    int[] places = new int[1024];
+    int[] costs = new int[1024];
+    model.snapshot(current, 0);
+    states.add(current, 0);
+    parents[0] = -1;
+    open.add(0, 0);
+    long peakMemory = states.memoryBytes() + parents.length * 12L + open.memoryBytes();
+    if (deadStates != null && deadStates.isDead(model)) {
+      return new Solution(Solution.Status.UNSOLVABLE, Collections.<Command>emptyList(), 0,
+              states.size(), peakMemory, System.nanoTime() - start);
+    }
+
+    // the state the cheapest way through a door found so far starts from, and its cost
+    int goal = -1;
+    int goalCost = Integer.MAX_VALUE;
+    long expanded = 0;
+    while (!open.isEmpty() && open.lowestPriority() < goalCost) {
+      int priority = open.lowestPriority();
+      int id = open.remove();
+      // skipping ids that were added again after a shorter way to them was found
+      if (costs[id] != priority) continue;
+
+      states.get(id, current, 0);
+      model.restore(current, 0);
+      walks.fill(model);
+      expanded++;
+      if (Thread.currentThread().isInterrupted()) {
+        return new Solution(Solution.Status.LIMIT_REACHED, Collections.<Command>emptyList(),
+                expanded, states.size(), peakMemory, System.nanoTime() - start);
+      }
+      if (walks.doorDistance() >= 0 && costs[id] + walks.doorDistance() < goalCost) {
+        goal = id;
+        goalCost = costs[id] + walks.doorDistance();
+      }
+
+      boolean holding = model.isHoldingPiece();
+      for (int i = 0; i < walks.reachedCount(); i++) {
+        int place = walks.reached(i);
+        if (!holding && !walks.facesBlock(place)) continue;
+        int cost = costs[id] + walks.distance(place) + 1;
+        if (cost >= goalCost) break;
+
+        if (!moveBlockAt(model, current, walks, place, walk)) continue;
+        if (deadStates != null && deadStates.isDead(model)) continue;
+        model.snapshot(next, 0);
+        long existing = states.idOf(next, 0);
+        if (existing >= 0) {
+          int other = (int) existing;
+          if (cost < costs[other]) {
+            parents[other] = id;
+            places[other] = place;
+            costs[other] = cost;
+            open.add(cost, other);
+          }
+          continue;
+        }
+
+        if (states.size() >= maxStates) {
+          return new Solution(Solution.Status.LIMIT_REACHED, Collections.<Command>emptyList(),
+                  expanded, states.size(), peakMemory, System.nanoTime() - start);
+        }
+        int added = (int) states.add(next, 0);
+        if (added == parents.length) {
+          int newLength = parents.length * 2;
+          parents = Arrays.copyOf(parents, newLength);
+          places = Arrays.copyOf(places, newLength);
+          costs = Arrays.copyOf(costs, newLength);
+        }
+        parents[added] = id;
+        places[added] = place;
+        costs[added] = cost;
+        open.add(cost, added);
+      }
+      peakMemory = Math.max(peakMemory,
+              states.memoryBytes() + parents.length * 12L + open.memoryBytes());
+    }
+
+    if (goal < 0) {
+      return new Solution(Solution.Status.UNSOLVABLE, Collections.<Command>emptyList(), expanded,
+              states.size(), peakMemory, System.nanoTime() - start);
+    }
+    return new Solution(Solution.Status.SOLVED, movesTo(goal, states, parents, places, model,
+            walks), expanded, states.size(), peakMemory, System.nanoTime() - start);
+  }
+
+  /* Static methods ----------------------------------------------------------------------------- */
+
+  /**
+   * Puts the given model in the state with the given snapshot, walks to the given place and picks
+   * up or puts down a block there.
+   *
+   * @param model    model to make moves on
+   * @param snapshot snapshot of state the walk starts from
+   * @param walks    places the player can walk to from state
+   * @param place    place to walk to
+   * @param walk     array to hold the codes of the moves of the walk
+   * @return true if a block was picked up or put down, false if that was not possible
+   */
+  private static boolean moveBlockAt(PackedBlockDudeModel model, long[] snapshot, WalkMap walks,
+                                     int place, byte[] walk) {
+    model.restore(snapshot, 0);
+    int length = walks.walkTo(place, walk);
+    try {
+      for (int i = 0; i < length; i++) MovePrimitives.apply(model, walk[i]);
+      return MovePrimitives.apply(model, 3) && !model.isLevelCompleted();
+    } catch (RuntimeException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns the single moves that lead from the initial state of a search to the door, by way of
+   * the state with the given id, working out the walk of each macro move again.
+   *
+   * @param id      id of state the walk to the door starts from
+   * @param states  states of search
+   * @param parents id of the state each state was reached from (-1 for the initial state)
+   * @param places  place the block was moved at to reach each state
+   * @param model   model to work out walks on
+   * @param walks   WalkMap to work out walks with
+   * @return moves from initial state to door
+   */
+  private static List<Command> movesTo(int id, StateSet states, int[] parents, int[] places,
+                                       PackedBlockDudeModel model, WalkMap walks) {
+    int length = 0;
+    for (int state = id; state >= 0; state = parents[state]) length++;
+    int[] path = new int[length];
+    for (int state = id, i = length - 1; state >= 0; state = parents[state], i--) path[i] = state;
+
+    List<Command> moves = new ArrayList<>();
+    long[] snapshot = new long[states.stateLength()];
+    for (int i = 0; i < path.length; i++) {
+      states.get(path[i], snapshot, 0);
+      model.restore(snapshot, 0);
+      walks.fill(model);
+      if (i == path.length - 1) {
+        walks.addWalkToDoor(moves);
+      } else {
+        walks.addWalkTo(places[path[i + 1]], moves);
+        moves.add(Command.PICK_UP_PUT_DOWN);
+      }
+    }
+    return moves;
+  }
+}
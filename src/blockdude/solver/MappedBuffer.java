@@ -0,0 +1,127 @@
+package blockdude.solver;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A growable array of bytes kept in a scratch file and mapped into memory, so that it takes up no
+ * room on the heap and the operating system pages it in and out as needed. A single mapping can
+ * be at most 2 GiB, so the file is mapped in segments of a fixed size, and longs and ints are read
+ * and written at offsets that are a multiple of their size so they never cross two segments.
+ *
+ * <p>The file is created in a given directory and deleted again when the buffer is closed (or when
+ * the program exits, if it never is). A MappedBuffer is not safe to share between threads.
+ */
+final class MappedBuffer implements Closeable {
+  private static final int SEGMENT_BITS = 26; // each segment is 64 MiB
+  private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+  private final File file;
+  private final RandomAccessFile randomAccessFile;
+  private final FileChannel channel;
+  private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+  /**
+   * Constructs a new, empty MappedBuffer in a new scratch file in the given directory.
+   *
+   * @param directory directory to create scratch file in
+   * @param prefix    start of name of scratch file
+   * @throws IllegalStateException if the scratch file could not be created
+   */
+  MappedBuffer(File directory, String prefix) throws IllegalStateException {
+    try {
+      file = File.createTempFile(prefix, ".bin", directory);
+      file.deleteOnExit();
+      randomAccessFile = new RandomAccessFile(file, "rw");
+      channel = randomAccessFile.getChannel();
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not create scratch file in " + directory + ".", e);
+    }
+  }
+
+  /**
+   * Makes sure the given number of bytes can be read and written, mapping more of the file if
+   * needed. Bytes that have never been written are 0.
+   *
+   * @param bytes number of bytes
+   * @throws IllegalStateException if the file could not be mapped
+   */
+  void ensureCapacity(long bytes) throws IllegalStateException {
+    int needed = (int) ((bytes + SEGMENT_MASK) >>> SEGMENT_BITS);
+    if (needed <= segments.length) return;
+    int old = segments.length;
+    segments = Arrays.copyOf(segments, needed);
+    try {
+      for (int i = old; i < needed; i++) {
+        segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i << SEGMENT_BITS,
+                1L << SEGMENT_BITS);
+        segments[i].order(ByteOrder.nativeOrder());
+      }
+    } catch (IOException e) {
+      segments = Arrays.copyOf(segments, old);
+      throw new IllegalStateException("Could not map scratch file " + file + ".", e);
+    }
+  }
+
+  /**
+   * Returns the long at the given offset, which must be a multiple of 8.
+   *
+   * @param offset offset in bytes
+   * @return long at offset
+   */
+  long getLong(long offset) {
+    return segments[(int) (offset >>> SEGMENT_BITS)].getLong((int) (offset & SEGMENT_MASK));
+  }
+
+  /**
+   * Writes the given long at the given offset, which must be a multiple of 8.
+   *
+   * @param offset offset in bytes
+   * @param value  long to write
+   */
+  void putLong(long offset, long value) {
+    segments[(int) (offset >>> SEGMENT_BITS)].putLong((int) (offset & SEGMENT_MASK), value);
+  }
+
+  /**
+   * Returns the int at the given offset, which must be a multiple of 4.
+   *
+   * @param offset offset in bytes
+   * @return int at offset
+   */
+  int getInt(long offset) {
+    return segments[(int) (offset >>> SEGMENT_BITS)].getInt((int) (offset & SEGMENT_MASK));
+  }
+
+  /**
+   * Writes the given int at the given offset, which must be a multiple of 4.
+   *
+   * @param offset offset in bytes
+   * @param value  int to write
+   */
+  void putInt(long offset, int value) {
+    segments[(int) (offset >>> SEGMENT_BITS)].putInt((int) (offset & SEGMENT_MASK), value);
+  }
+
+  /**
+   * Lets go of the mapped segments and deletes the scratch file. The buffer must not be used
+   * afterwards. The memory of the segments is given back once they are garbage collected, since
+   * there is no way to unmap them sooner.
+   */
+  @Override
+  public void close() {
+    segments = new MappedByteBuffer[0];
+    try {
+      randomAccessFile.close();
+    } catch (IOException e) {
+      // the file is deleted either way, so there is nothing more to do
+    }
+    if (!file.delete()) file.deleteOnExit();
+  }
+}
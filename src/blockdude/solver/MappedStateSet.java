@@ -0,0 +1,192 @@
+package blockdude.solver;
+
+import java.io.Closeable;
+import java.io.File;
+
+import blockdude.collections.Hashing;
+
+/**
+ * A set of game states kept off the heap, in scratch files mapped into memory, for searches with
+ * more states than the heap can hold. It works just like a HashStateSet: states are stored back to
+ * back in the order they were added, and an open addressing hash table of ids, kept at most half
+ * full, is used to find them. Each lives in its own MappedBuffer, and the table is rebuilt in a new
+ * one whenever it fills up, so only a few fixed-size arrays are ever on the heap. The operating
+ * system keeps as much of the files in memory as it can, and pages the rest out to disk.
+ *
+ * <p>The table holds ids as ints, so a set can hold up to 2^31 - 2 states, which at a few longs per
+ * state is tens of gigabytes of scratch files. The scratch files are deleted when the set is
+ * closed, which must be done once it is no longer needed. A MappedStateSet is not safe to share
+ * between threads.
+ */
+public final class MappedStateSet implements StateSet, Closeable {
+  private static final long INITIAL_TABLE_SIZE = 1L << 16;
+  private static final long MAX_TABLE_SIZE = 1L << 32;
+  private static final long MAX_SIZE = Integer.MAX_VALUE - 1;
+
+  private final int stateLength;
+  private final File directory;
+  private final MappedBuffer states; // INVARIANT: state i starts at byte i * stateLength * 8
+  private MappedBuffer table; // INVARIANT: each int is 0 (empty) or 1 + the id of a state in set
+  private long tableSize;
+  private long size;
+  private final long[] scratch; // holds a state read back from the file when growing the table
+
+  /**
+   * Constructs a new, empty MappedStateSet for states of the given length, with its scratch files
+   * in the given directory.
+   *
+   * @param stateLength number of longs in each state
+   * @param directory   directory to keep scratch files in
+   * @throws IllegalArgumentException if stateLength is not positive or directory is not a
+   *                                  directory
+   * @throws IllegalStateException    if the scratch files could not be created
+   */
+  public MappedStateSet(int stateLength, File directory)
+          throws IllegalArgumentException, IllegalStateException {
+    if (stateLength <= 0) throw new IllegalArgumentException("State length must be > 0.");
+    if (directory == null || !directory.isDirectory())
+      throw new IllegalArgumentException("Scratch directory must be a directory.");
+    this.stateLength = stateLength;
+    this.directory = directory;
+    this.scratch = new long[stateLength];
+    this.states = new MappedBuffer(directory, "states");
+    this.tableSize = INITIAL_TABLE_SIZE;
+    this.table = new MappedBuffer(directory, "table");
+    table.ensureCapacity(tableSize * Integer.BYTES);
+  }
+
+  /* Interface methods -------------------------------------------------------------------------- */
+
+  @Override
+  public int stateLength() {
+    return stateLength;
+  }
+
+  @Override
+  public long add(long[] source, int offset) throws IllegalStateException {
+    long slot = find(source, offset);
+    if (table.getInt(slot * Integer.BYTES) != 0) return -1;
+
+    if (size == MAX_SIZE)
+      throw new IllegalStateException("State set cannot hold more than " + size + " states.");
+    if ((size + 1) * 2 > tableSize) {
+      grow();
+      slot = find(source, offset);
+    }
+    long start = size * stateLength * Long.BYTES;
+    states.ensureCapacity(start + (long) stateLength * Long.BYTES);
+    for (int i = 0; i < stateLength; i++)
+      states.putLong(start + i * Long.BYTES, source[offset + i]);
+    table.putInt(slot * Integer.BYTES, (int) (size + 1));
+    return size++;
+  }
+
+  @Override
+  public boolean contains(long[] source, int offset) {
+    return idOf(source, offset) >= 0;
+  }
+
+  @Override
+  public long idOf(long[] source, int offset) {
+    return table.getInt(find(source, offset) * Integer.BYTES) - 1L;
+  }
+
+  @Override
+  public void get(long id, long[] destination, int offset) throws IndexOutOfBoundsException {
+    if (id < 0 || id >= size) throw new IndexOutOfBoundsException("No state with id " + id + ".");
+    long start = id * stateLength * Long.BYTES;
+    for (int i = 0; i < stateLength; i++)
+      destination[offset + i] = states.getLong(start + i * Long.BYTES);
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of bytes of the scratch files in use, which is how much memory the set
+   * takes up when all of it is paged in (very little of it is on the heap).
+   *
+   * @return bytes in use
+   */
+  @Override
+  public long memoryBytes() {
+    return size * stateLength * Long.BYTES + tableSize * Integer.BYTES;
+  }
+
+  /**
+   * Deletes the scratch files of this set. The set must not be used afterwards.
+   */
+  @Override
+  public void close() {
+    states.close();
+    table.close();
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Returns the slot of the table that holds the id of the state equal to the one that starts at
+   * the given offset in the given array, or the empty slot it would go in if it is not in the set.
+   *
+   * @param source array containing state
+   * @param offset index in array at which state starts
+   * @return slot of state
+   */
+  private long find(long[] source, int offset) {
+    long mask = tableSize - 1;
+    long slot = Hashing.stateHash(source, offset, stateLength) & mask;
+    while (true) {
+      int entry = table.getInt(slot * Integer.BYTES);
+      if (entry == 0 || equalsState(entry - 1, source, offset)) return slot;
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  /**
+   * Rebuilds the hash table at twice its size in a new scratch file, putting every state back in
+   * it.
+   *
+   * @throws IllegalStateException if the set cannot grow any larger or a file could not be mapped
+   */
+  private void grow() throws IllegalStateException {
+    if (tableSize == MAX_TABLE_SIZE)
+      throw new IllegalStateException("State set cannot hold more than " + size + " states.");
+
+    MappedBuffer newTable = new MappedBuffer(directory, "table");
+    long newSize = tableSize * 2;
+    long mask = newSize - 1;
+    try {
+      newTable.ensureCapacity(newSize * Integer.BYTES);
+      for (long id = 0; id < size; id++) {
+        get(id, scratch, 0);
+        long slot = Hashing.stateHash(scratch, 0, stateLength) & mask;
+        while (newTable.getInt(slot * Integer.BYTES) != 0) slot = (slot + 1) & mask;
+        newTable.putInt(slot * Integer.BYTES, (int) (id + 1));
+      }
+    } catch (IllegalStateException e) {
+      newTable.close();
+      throw e;
+    }
+    table.close();
+    table = newTable;
+    tableSize = newSize;
+  }
+
+  /**
+   * Returns whether the state with the given id is equal to the one that starts at the given
+   * offset in the given array.
+   *
+   * @param id     id of state in set
+   * @param source array containing other state
+   * @param offset index in array at which other state starts
+   * @return true if states are equal, false otherwise
+   */
+  private boolean equalsState(long id, long[] source, int offset) {
+    long start = id * stateLength * Long.BYTES;
+    for (int i = 0; i < stateLength; i++)
+      if (states.getLong(start + i * Long.BYTES) != source[offset + i]) return false;
+    return true;
+  }
+}
@@ -0,0 +1,77 @@
+package blockdude.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import blockdude.model.BlockDudeModel;
+import blockdude.util.Command;
+
+/**
+ * The moves a solver can make, and how to make them on a model.
+ */
+final class MovePrimitives {
+  /**
+   * The commands for the four moves of the game, indexed by the codes solvers use to store them.
+   */
+  static final Command[] COMMANDS = {
+    Command.MOVE_LEFT, Command.MOVE_RIGHT, Command.MOVE_UP, Command.PICK_UP_PUT_DOWN
+  };
+
+  /**
+   * Not meant to be constructed.
+   */
+  private MovePrimitives() {
+  }
+
+  /**
+   * Makes the move with the given code on the given model.
+   *
+   * @param model model to make move on
+   * @param move  code of move (index in COMMANDS)
+   * @return true if the move changed the state of the model, false otherwise
+   * @throws RuntimeException if the move reached the edge of the board (which no solution can do),
+   *                          in which case the model may be left part way through the move
+   */
+  static boolean apply(BlockDudeModel model, int move) throws RuntimeException {
+    switch (move) {
+      case 0:
+        return model.moveLeft();
+      case 1:
+        return model.moveRight();
+      case 2:
+        return model.moveUp();
+      default:
+        return model.pickUpOrPutDown();
+    }
+  }
+
+  /**
+   * Returns the code of the given move.
+   *
+   * @param move one of the commands in COMMANDS
+   * @return code of move (index in COMMANDS)
+   * @throws IllegalArgumentException if move is not one of the commands in COMMANDS
+   */
+  static int codeOf(Command move) throws IllegalArgumentException {
+    for (int code = 0; code < COMMANDS.length; code++) if (COMMANDS[code] == move) return code;
+    throw new IllegalArgumentException("Command '" + move + "' is not a move.");
+  }
+
+  /**
+   * Returns the moves that lead from the initial state of a search to the state with the given id,
+   * given the state each state was reached from and the move that reached it.
+   *
+   * @param id      id of state to find moves to
+   * @param parents id of the state each state was reached from (-1 for the initial state)
+   * @param moves   code of the move that reached each state
+   * @return moves from initial state to state
+   */
+  static List<Command> movesTo(int id, int[] parents, byte[] moves) {
+    List<Command> path = new ArrayList<>();
+    for (int state = id; parents[state] >= 0; state = parents[state])
+      path.add(COMMANDS[moves[state]]);
+    Collections.reverse(path);
+    return path;
+  }
+}
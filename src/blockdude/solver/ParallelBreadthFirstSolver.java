@@ -0,0 +1,308 @@
+package blockdude.solver;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import blockdude.model.PackedBlockDudeModel;
+import blockdude.util.Command;
+import blockdude.util.Level;
+
+/**
+ * A solver that finds the shortest way to complete a level by searching its states breadth first,
+ * one layer (all the states the same number of moves away) at a time, with the states of each
+ * layer expanded in parallel on a ForkJoinPool. Each layer is split in halves until the pieces are
+ * small, and idle threads steal pieces from busy ones.
+ *
+ * <p>States are stored in a ConcurrentStateSet, whose ids are dense and increasing just like those
+ * of a HashStateSet, so the states of each layer are a range of ids that the layer before it added,
+ * and the solver keeps the same arrays of parents and moves as BreadthFirstSolver. Every thread
+ * expands states on its own PackedBlockDudeModel. A solution is only taken from the layer that
+ * first reaches the door, so it is as short as one from BreadthFirstSolver (although which of
+ * several shortest solutions is found can differ from run to run). Optionally, states a
+ * DeadStateDetector (shared by every thread) finds the level can no longer be completed from are
+ * never stored or expanded.
+ */
+public class ParallelBreadthFirstSolver implements Solver {
+  private static final int SPLIT_THRESHOLD = 256; // most states one task expands without splitting
+  private static final int STRIPES_PER_THREAD = 64;
+
+  private final int parallelism;
+  private final long maxStates;
+  private final boolean pruneDeadStates;
+
+  /**
+   * Constructs a new ParallelBreadthFirstSolver that uses every available processor and searches
+   * until it has decided whether the level can be completed (or runs out of memory).
+   */
+  public ParallelBreadthFirstSolver() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Constructs a new ParallelBreadthFirstSolver that uses the given number of threads and searches
+   * until it has decided whether the level can be completed (or runs out of memory).
+   *
+   * @param parallelism number of threads to expand states on
+   * @throws IllegalArgumentException if parallelism is not positive
+   */
+  public ParallelBreadthFirstSolver(int parallelism) throws IllegalArgumentException {
+    this(parallelism, Long.MAX_VALUE);
+  }
+
+  /**
+   * Constructs a new ParallelBreadthFirstSolver that uses the given number of threads and gives up
+   * once it has stored (about) the given number of states.
+   *
+   * @param parallelism number of threads to expand states on
+   * @param maxStates   most states to store before giving up
+   * @throws IllegalArgumentException if parallelism or maxStates is not positive
+   */
+  public ParallelBreadthFirstSolver(int parallelism, long maxStates)
+          throws IllegalArgumentException {
+    this(parallelism, maxStates, false);
+  }
+
+  /**
+   * Constructs a new ParallelBreadthFirstSolver that uses the given number of threads, gives up
+   * once it has stored (about) the given number of states, and may skip dead states.
+   *
+   * @param parallelism     number of threads to expand states on
+   * @param maxStates       most states to store before giving up
+   * @param pruneDeadStates whether to skip states a DeadStateDetector finds the level can no longer
+   *                        be completed from
+   * @throws IllegalArgumentException if parallelism or maxStates is not positive
+   */
+  public ParallelBreadthFirstSolver(int parallelism, long maxStates, boolean pruneDeadStates)
+          throws IllegalArgumentException {
+    if (parallelism <= 0) throw new IllegalArgumentException("Parallelism must be > 0.");
+    if (maxStates <= 0) throw new IllegalArgumentException("Maximum states must be > 0.");
+    this.parallelism = parallelism;
+    this.maxStates = maxStates;
+    this.pruneDeadStates = pruneDeadStates;
+  }
+
+  /* Interface methods -------------------------------------------------------------------------- */
+
+  @Override
+  public Solution solve(Level level) throws IllegalArgumentException {
+    if (level == null) throw new IllegalArgumentException("Cannot solve null level.");
+    long start = System.nanoTime();
+
+    PackedBlockDudeModel model = new PackedBlockDudeModel(0);
+    model.loadLevel(level);
+    int stripes = Integer.highestOneBit(parallelism * STRIPES_PER_THREAD);
+    DeadStateDetector deadStates = pruneDeadStates ? new DeadStateDetector(level) : null;
+    Search search = new Search(level, new ConcurrentStateSet(model.snapshotLength(), stripes),
+            maxStates, deadStates);
+    search.states.add(model.snapshot(), 0);
+    search.parents[0] = -1;
+    if (deadStates != null && deadStates.isDead(model)) {
+      return new Solution(Solution.Status.UNSOLVABLE, Collections.<Command>emptyList(), 0, 1,
+              search.states.memoryBytes(), System.nanoTime() - start);
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      long peakMemory = 0;
+      int layerStart = 0;
+      int layerEnd = 1;
+      while (layerStart < layerEnd) {
+        // each state adds at most one new state per move, so the arrays need no growing mid-layer
+        long layerSize = layerEnd - layerStart;
+        search.ensureCapacity(layerEnd + layerSize * MovePrimitives.COMMANDS.length);
+        pool.invoke(new ExpandTask(search, layerStart, layerEnd));
+        peakMemory = Math.max(peakMemory,
+                search.states.memoryBytes() + search.parents.length * 5L);
+
+        long goal = search.goal.get();
+        if (goal >= 0) {
+          List<Command> solution = MovePrimitives.movesTo((int) (goal >>> 2), search.parents,
+                  search.moves);
+          solution.add(MovePrimitives.COMMANDS[(int) goal & 3]);
+          return new Solution(Solution.Status.SOLVED, solution, search.expanded.sum(),
+                  search.states.size(), peakMemory, System.nanoTime() - start);
+        }
+        if (search.limitReached || Thread.currentThread().isInterrupted()) {
+          return new Solution(Solution.Status.LIMIT_REACHED, Collections.<Command>emptyList(),
+                  search.expanded.sum(), search.states.size(), peakMemory,
+                  System.nanoTime() - start);
+        }
+        layerStart = layerEnd;
+        layerEnd = (int) search.states.size();
+      }
+
+      return new Solution(Solution.Status.UNSOLVABLE, Collections.<Command>emptyList(),
+              search.expanded.sum(), search.states.size(), peakMemory, System.nanoTime() - start);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Represents everything the threads of one search share.
+   */
+  private static final class Search {
+    private final StateSet states;
+    private final long maxStates;
+    private final DeadStateDetector deadStates; // or null if not pruning
+    // parents[id] is the id of the state that state id was reached from, moves[id] the move code
+    private int[] parents = new int[1024];
+    private byte[] moves = new byte[1024];
+    // the state the door was reached from and the move that reached it, as (id << 2) | move
+    private final AtomicLong goal = new AtomicLong(-1);
+    private volatile boolean limitReached;
+    private final LongAdder expanded = new LongAdder();
+    private final ThreadLocal<Worker> workers;
+
+    /**
+     * Constructs a new Search of the given level.
+     *
+     * @param level      level to search
+     * @param states     set to store states in
+     * @param maxStates  most states to store before giving up
+     * @param deadStates detector of states to skip, or null to skip none
+     */
+    private Search(final Level level, StateSet states, long maxStates,
+                   DeadStateDetector deadStates) {
+      this.states = states;
+      this.maxStates = maxStates;
+      this.deadStates = deadStates;
+      this.workers = new ThreadLocal<Worker>() {
+        @Override
+        protected Worker initialValue() {
+          return new Worker(level);
+        }
+      };
+    }
+
+    /**
+     * Makes sure the arrays of parents and moves can hold the given number of states. Must not be
+     * called while any thread is expanding states.
+     *
+     * @param capacity number of states
+     * @throws IllegalStateException if capacity is too large for an array
+     */
+    private void ensureCapacity(long capacity) throws IllegalStateException {
+      if (capacity <= parents.length) return;
+      if (capacity > Integer.MAX_VALUE - 8)
+        throw new IllegalStateException("Search cannot hold more than " + parents.length +
+                " states.");
+      int length = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(capacity, parents.length * 2L));
+      parents = Arrays.copyOf(parents, length);
+      moves = Arrays.copyOf(moves, length);
+    }
+
+    /**
+     * Returns whether the search has reached the door or its limit, so no more states need
+     * expanding.
+     *
+     * @return true if search is over, false otherwise
+     */
+    private boolean isOver() {
+      return goal.get() >= 0 || limitReached;
+    }
+
+    /**
+     * Tries every move from the state with the given id on the calling thread's model, adding the
+     * states they reach to the set.
+     *
+     * @param id id of state to expand
+     */
+    private void expand(int id) {
+      Worker worker = workers.get();
+      PackedBlockDudeModel model = worker.model;
+      states.get(id, worker.current, 0);
+      model.restore(worker.current, 0);
+      expanded.increment();
+
+      int legal = model.legalMoves();
+      for (int move = 0; move < MovePrimitives.COMMANDS.length; move++) {
+        if ((legal & (1 << move)) == 0) continue;
+        long token = model.make(MovePrimitives.COMMANDS[move]);
+
+        if (model.isLevelCompleted()) {
+          goal.compareAndSet(-1, ((long) id << 2) | move);
+          model.unmake(token);
+          return;
+        }
+        if (deadStates != null && deadStates.isDead(model)) {
+          model.unmake(token);
+          continue;
+        }
+        model.snapshot(worker.next, 0);
+        model.unmake(token);
+        if (states.size() >= maxStates && !states.contains(worker.next, 0)) {
+          limitReached = true;
+          return;
+        }
+        long added = states.add(worker.next, 0);
+        if (added < 0) continue;
+        parents[(int) added] = id;
+        moves[(int) added] = (byte) move;
+      }
+    }
+  }
+
+  /**
+   * Represents what each thread needs of its own to expand states.
+   */
+  private static final class Worker {
+    private final PackedBlockDudeModel model;
+    private final long[] current;
+    private final long[] next;
+
+    /**
+     * Constructs a new Worker for the given level.
+     *
+     * @param level level to expand states of
+     */
+    private Worker(Level level) {
+      // each move tried is taken back with unmake(...), so the model needs no history
+      model = new PackedBlockDudeModel(0);
+      model.loadLevel(level);
+      current = new long[model.snapshotLength()];
+      next = new long[model.snapshotLength()];
+    }
+  }
+
+  /**
+   * Represents the expansion of a range of state ids, which splits itself in half until it is
+   * small enough to do directly.
+   */
+  private static final class ExpandTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Search search;
+    private final int from;
+    private final int to;
+
+    /**
+     * Constructs a new ExpandTask for the states with ids from the first given one (inclusive) to
+     * the second (exclusive).
+     *
+     * @param search search the states are part of
+     * @param from   first id to expand
+     * @param to     id after last id to expand
+     */
+    private ExpandTask(Search search, int from, int to) {
+      this.search = search;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > SPLIT_THRESHOLD) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new ExpandTask(search, from, middle), new ExpandTask(search, middle, to));
+        return;
+      }
+      for (int id = from; id < to && !search.isOver(); id++) search.expand(id);
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package blockdude.solver;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import blockdude.util.Command;
+
+/**
+ * The state each state of a search was reached from and the move that reached it, indexed by the
+ * id of the state, from which the moves of a solution are read back. They are kept in arrays on
+ * the heap until they are spilled into a scratch file (a MappedBuffer, with the two packed into one
+ * long per state), for searches with more states than the heap can hold.
+ *
+ * <p>The scratch file is deleted when the links are closed. ParentLinks are not safe to share
+ * between threads.
+ */
+final class ParentLinks implements Closeable {
+  private int[] parents = new int[1024];
+  private byte[] moves = new byte[1024];
+  private MappedBuffer mapped; // null until spilled, then (parent << 2) | move for each id
+
+  /**
+   * Records that the state with the given id was reached from the given state by the given move.
+   *
+   * @param id     id of state
+   * @param parent id of state it was reached from, or -1 for the initial state
+   * @param move   code of move that reached it
+   * @throws IllegalStateException if the scratch file could not be mapped
+   */
+  void set(int id, int parent, int move) throws IllegalStateException {
+    if (mapped != null) {
+      long offset = (long) id * Long.BYTES;
+      mapped.ensureCapacity(offset + Long.BYTES);
+      mapped.putLong(offset, ((long) parent << 2) | move);
+      return;
+    }
+    if (id >= parents.length) {
+      int length = Math.max(id + 1, parents.length * 2);
+      parents = Arrays.copyOf(parents, length);
+      moves = Arrays.copyOf(moves, length);
+    }
+    parents[id] = parent;
+    moves[id] = (byte) move;
+  }
+
+  /**
+   * Returns the moves that lead from the initial state of the search to the state with the given
+   * id.
+   *
+   * @param id id of state to find moves to
+   * @return moves from initial state to state
+   */
+  List<Command> movesTo(int id) {
+    List<Command> path = new ArrayList<>();
+    for (int state = id; parentOf(state) >= 0; state = parentOf(state))
+      path.add(MovePrimitives.COMMANDS[moveOf(state)]);
+    Collections.reverse(path);
+    return path;
+  }
+
+  /**
+   * Moves every link recorded so far into a new scratch file in the given directory, and records
+   * every link there from then on.
+   *
+   * @param directory directory to create scratch file in
+   * @param count     number of links recorded so far (the highest id plus 1)
+   * @throws IllegalStateException if the scratch file could not be created or mapped
+   */
+  void spill(File directory, int count) throws IllegalStateException {
+    MappedBuffer spilled = new MappedBuffer(directory, "parents");
+    try {
+      spilled.ensureCapacity((long) count * Long.BYTES);
+      for (int id = 0; id < count; id++)
+        spilled.putLong((long) id * Long.BYTES, ((long) parents[id] << 2) | moves[id]);
+    } catch (IllegalStateException e) {
+      spilled.close();
+      throw e;
+    }
+    mapped = spilled;
+    parents = null;
+    moves = null;
+  }
+
+  /**
+   * Returns whether the links have been moved into a scratch file.
+   *
+   * @return true if links have spilled, false otherwise
+   */
+  boolean isSpilled() {
+    return mapped != null;
+  }
+
+  /**
+   * Returns the number of bytes of heap used to store the links (which is none once they have
+   * spilled).
+   *
+   * @return memory used in bytes
+   */
+  long memoryBytes() {
+    return mapped != null ? 0 : parents.length * 5L;
+  }
+
+  /**
+   * Deletes the scratch file of the links, if they have spilled. The links must not be used
+   * afterwards.
+   */
+  @Override
+  public void close() {
+    if (mapped != null) mapped.close();
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Returns the id of the state the state with the given id was reached from.
+   *
+   * @param id id of state
+   * @return id of parent, or -1 for the initial state
+   */
+  private int parentOf(int id) {
+    return mapped != null ? (int) (mapped.getLong((long) id * Long.BYTES) >> 2) : parents[id];
+  }
+
+  /**
+   * Returns the code of the move that reached the state with the given id.
+   *
+   * @param id id of state
+   * @return code of move
+   */
+  private int moveOf(int id) {
+    return mapped != null ? (int) (mapped.getLong((long) id * Long.BYTES) & 3) : moves[id];
+  }
+}
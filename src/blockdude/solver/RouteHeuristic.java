@@ -0,0 +1,92 @@
+package blockdude.solver;
+
+import blockdude.model.SearchableBlockDudeModel;
+import blockdude.util.GamePiece;
+
+/**
+ * The DOOR_DISTANCE and STAIRCASE heuristics, which look at the route from the player to each door
+ * of a level and count the moves any way along it has to make.
+ *
+ * <p>Only pieces that can never move (walls, heavy blocks) are used to work out the route, so
+ * everything about it comes from the LevelGeometry: the lowest row the player can be in within
+ * each column, and which rows have the top of a fixed piece to climb onto. The moves counted are:
+ * <ul>
+ *   <li>moves that change the player's column, of which there must be at least as many as the
+ *   columns to the door, and at least as many as the rows the player has to climb (since climbing
+ *   is the only way up and always changes column),</li>
+ *   <li>for STAIRCASE, one put down for every row the player climbs from that has no top of a
+ *   fixed piece and no block in it, and one pick up for each of those blocks except one already
+ *   held. Blocks only ever move by being put down, so each of those rows needs its own.</li>
+ * </ul>
+ */
+final class RouteHeuristic implements Heuristic {
+  private final LevelGeometry geometry;
+  private final boolean countStaircase;
+
+  /**
+   * Constructs a new RouteHeuristic for the level with the given geometry.
+   *
+   * @param geometry       geometry of level to estimate moves in
+   * @param countStaircase whether to count the block moves needed to climb, not just the route
+   */
+  RouteHeuristic(LevelGeometry geometry, boolean countStaircase) {
+    this.geometry = geometry;
+    this.countStaircase = countStaircase;
+  }
+
+  /* Interface methods -------------------------------------------------------------------------- */
+
+  @Override
+  public int estimate(SearchableBlockDudeModel model) throws RuntimeException {
+    if (model.isLevelCompleted()) return 0;
+    int playerRow = model.playerRow();
+    int playerCol = model.playerCol();
+
+    int best = Integer.MAX_VALUE;
+    for (int door = 0; door < geometry.doorCount(); door++) {
+      int topRow = geometry.topRowOnWay(playerCol, door);
+      int doorCol = geometry.doorCell(door) % geometry.width();
+      int climb = Math.max(0, playerRow - topRow);
+      int estimate = Math.max(Math.abs(doorCol - playerCol), climb);
+      if (countStaircase && estimate < best)
+        estimate += staircaseMoves(model, topRow + 1, playerRow);
+      best = Math.min(best, estimate);
+    }
+
+    // a level without doors cannot be completed, but searches find that out for themselves
+    return best == Integer.MAX_VALUE ? 0 : best;
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Returns the number of pick ups and put downs needed to climb from every row in the given range,
+   * given the blocks currently on the board of the given model.
+   *
+   * @param model   model whose board to look at
+   * @param fromRow highest row to climb from
+   * @param toRow   lowest row to climb from (the row of the player)
+   * @return number of block moves needed
+   */
+  private int staircaseMoves(SearchableBlockDudeModel model, int fromRow, int toRow) {
+    int blocksNeeded = 0;
+    for (int row = fromRow; row <= toRow; row++)
+      if (!geometry.hasFixedTop(row) && !hasBlockInRow(model, row)) blocksNeeded++;
+    if (blocksNeeded == 0) return 0;
+    return 2 * blocksNeeded - (model.isHoldingPiece() ? 1 : 0);
+  }
+
+  /**
+   * Returns whether there is a block lying on the board of the given model in the given row (not
+   * counting one the player is holding).
+   *
+   * @param model model whose board to look at
+   * @param row   row to look in
+   * @return true if a block is in row, false otherwise
+   */
+  private boolean hasBlockInRow(SearchableBlockDudeModel model, int row) {
+    for (int col = 0; col < geometry.width(); col++)
+      if (GamePiece.canPickUp(model.pieceAt(row, col))) return true;
+    return false;
+  }
+}
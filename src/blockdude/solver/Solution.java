@@ -0,0 +1,132 @@
+package blockdude.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import blockdude.util.Command;
+
+/**
+ * Represents the result of searching for a way to complete a level: whether one was found, the
+ * moves that complete it, and how much work the search took.
+ */
+public final class Solution {
+  /**
+   * Represents how a search ended.
+   */
+  public enum Status {
+    /**
+     * A sequence of moves that completes the level was found.
+     */
+    SOLVED,
+    /**
+     * Every reachable state was searched and none of them completes the level.
+     */
+    UNSOLVABLE,
+    /**
+     * The search gave up after reaching its limit, without deciding whether the level can be
+     * completed.
+     */
+    LIMIT_REACHED
+  }
+
+  private final Status status;
+  private final List<Command> moves;
+  private final long nodesExpanded;
+  private final long statesStored;
+  private final long peakMemoryBytes;
+  private final long elapsedNanos;
+
+  /**
+   * Constructs a new Solution. Access is package private since solutions should only ever be
+   * created by a solver.
+   *
+   * @param status          how the search ended
+   * @param moves           moves that complete the level (empty unless status is SOLVED)
+   * @param nodesExpanded   number of states whose moves were tried
+   * @param statesStored    number of distinct states remembered by the search
+   * @param peakMemoryBytes most memory used by the search's own data structures at once
+   * @param elapsedNanos    wall-clock time taken by the search
+   */
+  Solution(Status status, List<Command> moves, long nodesExpanded, long statesStored,
+           long peakMemoryBytes, long elapsedNanos) {
+    this.status = status;
+    this.moves = Collections.unmodifiableList(new ArrayList<>(moves));
+    this.nodesExpanded = nodesExpanded;
+    this.statesStored = statesStored;
+    this.peakMemoryBytes = peakMemoryBytes;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * Returns how the search ended.
+   *
+   * @return status of search
+   */
+  public Status status() {
+    return status;
+  }
+
+  /**
+   * Returns whether a sequence of moves that completes the level was found.
+   *
+   * @return true if level was solved, false otherwise
+   */
+  public boolean isSolved() {
+    return status == Status.SOLVED;
+  }
+
+  /**
+   * Returns the moves that complete the level, each one of MOVE_LEFT, MOVE_RIGHT, MOVE_UP and
+   * PICK_UP_PUT_DOWN.
+   *
+   * @return unmodifiable list of moves (empty if level was not solved)
+   */
+  public List<Command> moves() {
+    return moves;
+  }
+
+  /**
+   * Returns the number of states whose moves were tried during the search.
+   *
+   * @return number of nodes expanded
+   */
+  public long nodesExpanded() {
+    return nodesExpanded;
+  }
+
+  /**
+   * Returns the number of distinct states the search remembered.
+   *
+   * @return number of states stored
+   */
+  public long statesStored() {
+    return statesStored;
+  }
+
+  /**
+   * Returns the most memory the search's own data structures used at once, in bytes. This does
+   * not include the model or other fixed overhead.
+   *
+   * @return peak memory used in bytes
+   */
+  public long peakMemoryBytes() {
+    return peakMemoryBytes;
+  }
+
+  /**
+   * Returns the wall-clock time the search took, in nanoseconds.
+   *
+   * @return elapsed time in nanoseconds
+   */
+  public long elapsedNanos() {
+    return elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return status + " in " + moves.size() + " moves (" + nodesExpanded + " nodes expanded, " +
+            statesStored + " states stored, " + (peakMemoryBytes >> 10) + " KiB, " +
+            (elapsedNanos / 1000000) + " ms)";
+  }
+}
@@ -0,0 +1,19 @@
+package blockdude.solver;
+
+import blockdude.util.Level;
+
+/**
+ * Represents something that searches for a way to complete a level of the Block Dude game.
+ */
+public interface Solver {
+  /**
+   * Searches for a sequence of moves that completes the given level, starting from its initial
+   * state. If the calling thread is interrupted, the search gives up soon after, as if it had
+   * reached its limit, and leaves the thread interrupted.
+   *
+   * @param level level to solve
+   * @return result of search, including the moves found (if any) and statistics about the search
+   * @throws IllegalArgumentException if level is null
+   */
+  Solution solve(Level level) throws IllegalArgumentException;
+}
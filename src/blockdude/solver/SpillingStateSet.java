@@ -0,0 +1,124 @@
+package blockdude.solver;
+
+import java.io.Closeable;
+import java.io.File;
+
+/**
+ * A set of game states that starts out on the heap, as a HashStateSet, and moves itself into a
+ * MappedStateSet once it holds a given number of states, so a search can keep going past the size
+ * of the heap without having to decide up front where to keep its states. Every state is copied
+ * over in order when the set spills, so ids stay the same.
+ *
+ * <p>The scratch files of the MappedStateSet are deleted when the set is closed, which must be done
+ * once it is no longer needed. A SpillingStateSet is not safe to share between threads.
+ */
+public final class SpillingStateSet implements StateSet, Closeable {
+  private final int stateLength;
+  private final long threshold;
+  private final File directory;
+  private StateSet states;
+  private MappedStateSet mapped; // null until the set has spilled
+
+  /**
+   * Constructs a new, empty SpillingStateSet for states of the given length, that spills into
+   * scratch files in the given directory once it holds the given number of states.
+   *
+   * @param stateLength number of longs in each state
+   * @param threshold   number of states to hold on the heap before spilling
+   * @param directory   directory to keep scratch files in
+   * @throws IllegalArgumentException if stateLength or threshold is not positive or directory is
+   *                                  not a directory
+   */
+  public SpillingStateSet(int stateLength, long threshold, File directory)
+          throws IllegalArgumentException {
+    if (threshold <= 0) throw new IllegalArgumentException("Spill threshold must be > 0.");
+    if (directory == null || !directory.isDirectory())
+      throw new IllegalArgumentException("Scratch directory must be a directory.");
+    this.states = new HashStateSet(stateLength);
+    this.stateLength = stateLength;
+    this.threshold = threshold;
+    this.directory = directory;
+  }
+
+  /**
+   * Returns whether this set has moved its states into scratch files.
+   *
+   * @return true if set has spilled, false otherwise
+   */
+  public boolean isSpilled() {
+    return mapped != null;
+  }
+
+  /* Interface methods -------------------------------------------------------------------------- */
+
+  @Override
+  public int stateLength() {
+    return stateLength;
+  }
+
+  @Override
+  public long add(long[] source, int offset) throws IllegalStateException {
+    if (mapped == null && states.size() >= threshold) {
+      if (states.contains(source, offset)) return -1;
+      spill();
+    }
+    return states.add(source, offset);
+  }
+
+  @Override
+  public boolean contains(long[] source, int offset) {
+    return states.contains(source, offset);
+  }
+
+  @Override
+  public long idOf(long[] source, int offset) {
+    return states.idOf(source, offset);
+  }
+
+  @Override
+  public void get(long id, long[] destination, int offset) throws IndexOutOfBoundsException {
+    states.get(id, destination, offset);
+  }
+
+  @Override
+  public long size() {
+    return states.size();
+  }
+
+  @Override
+  public long memoryBytes() {
+    return states.memoryBytes();
+  }
+
+  /**
+   * Deletes the scratch files of this set, if it has spilled. The set must not be used
+   * afterwards.
+   */
+  @Override
+  public void close() {
+    if (mapped != null) mapped.close();
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Copies every state into a new MappedStateSet, in order of id, and uses it from then on.
+   *
+   * @throws IllegalStateException if the scratch files could not be created or mapped
+   */
+  private void spill() throws IllegalStateException {
+    MappedStateSet spilled = new MappedStateSet(stateLength, directory);
+    long[] state = new long[stateLength];
+    try {
+      for (long id = 0; id < states.size(); id++) {
+        states.get(id, state, 0);
+        spilled.add(state, 0);
+      }
+    } catch (IllegalStateException e) {
+      spilled.close();
+      throw e;
+    }
+    mapped = spilled;
+    states = spilled;
+  }
+}
@@ -0,0 +1,100 @@
+package blockdude.solver;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads back the game states a StateRunWriter wrote to a file, in order, through a buffer that is
+ * filled from the file in large sequential chunks. The reader holds the state it read last, so
+ * several of them can be merged by comparing their current states.
+ *
+ * <p>A StateRunReader is not safe to share between threads.
+ */
+final class StateRunReader implements Closeable {
+  private static final int BUFFER_BYTES = 1 << 20;
+
+  private final File file;
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private final long[] state;
+  private boolean exhausted; // whether the whole file has been read into the buffer
+
+  /**
+   * Constructs a new StateRunReader that reads states of the given length from the given file.
+   * No state is current until next() is called.
+   *
+   * @param file        file to read states from
+   * @param stateLength number of longs in each state
+   * @throws IllegalStateException if the file could not be opened
+   */
+  StateRunReader(File file, int stateLength) throws IllegalStateException {
+    try {
+      this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not open " + file + " for reading.", e);
+    }
+    this.file = file;
+    this.buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.nativeOrder());
+    buffer.limit(0);
+    this.state = new long[stateLength];
+  }
+
+  /**
+   * Reads the next state of the file, making it the current state.
+   *
+   * @return true if a state was read, false if there are no more states in the file
+   * @throws IllegalStateException if the file could not be read or ends part way through a state
+   */
+  boolean next() throws IllegalStateException {
+    if (buffer.remaining() < state.length * Long.BYTES && !fill()) return false;
+    for (int i = 0; i < state.length; i++) state[i] = buffer.getLong();
+    return true;
+  }
+
+  /**
+   * Returns the current state, in an array that is overwritten by the next call to next().
+   *
+   * @return current state
+   */
+  long[] state() {
+    return state;
+  }
+
+  @Override
+  public void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      // the file was only read, so nothing is lost
+    }
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Reads more of the file into the buffer, keeping what is left of it.
+   *
+   * @return true if the buffer now holds a whole state, false if the file has ended
+   * @throws IllegalStateException if the file could not be read or ends part way through a state
+   */
+  private boolean fill() throws IllegalStateException {
+    buffer.compact();
+    try {
+      while (!exhausted && buffer.hasRemaining()) {
+        if (channel.read(buffer) < 0) exhausted = true;
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not read " + file + ".", e);
+    }
+    buffer.flip();
+    if (buffer.remaining() >= state.length * Long.BYTES) return true;
+    if (buffer.hasRemaining())
+      throw new IllegalStateException(file + " ends part way through a state.");
+    return false;
+  }
+}
@@ -0,0 +1,106 @@
+package blockdude.solver;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes game states to a file one after another, through a buffer that is written out to the
+ * file in large sequential chunks. Each state is stored as its longs, back to back, so the file can
+ * be read back with a StateRunReader for states of the same length.
+ *
+ * <p>The file is forced to disk when the writer is closed, so a file that was closed without an
+ * exception survives a crash. A StateRunWriter is not safe to share between threads.
+ */
+final class StateRunWriter implements Closeable {
+  private static final int BUFFER_BYTES = 1 << 20;
+
+  private final File file;
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private long count;
+
+  /**
+   * Constructs a new StateRunWriter that writes to the given file, replacing whatever it held.
+   *
+   * @param file file to write states to
+   * @throws IllegalStateException if the file could not be opened
+   */
+  StateRunWriter(File file) throws IllegalStateException {
+    try {
+      this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not open " + file + " for writing.", e);
+    }
+    this.file = file;
+    this.buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * Writes the state of the given length that starts at the given offset in the given array.
+   *
+   * @param source array containing state
+   * @param offset index in array at which state starts
+   * @param length number of longs in state
+   * @throws IllegalStateException if the file could not be written
+   */
+  void write(long[] source, int offset, int length) throws IllegalStateException {
+    for (int i = 0; i < length; i++) {
+      if (!buffer.hasRemaining()) flush();
+      buffer.putLong(source[offset + i]);
+    }
+    count++;
+  }
+
+  /**
+   * Returns the number of states written so far.
+   *
+   * @return number of states
+   */
+  long count() {
+    return count;
+  }
+
+  /**
+   * Writes out whatever is left in the buffer, forces the file to disk and closes it.
+   *
+   * @throws IllegalStateException if the file could not be written
+   */
+  @Override
+  public void close() throws IllegalStateException {
+    try {
+      flush();
+      channel.force(true);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not write " + file + ".", e);
+    } finally {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // nothing more can be done about a file that will not close
+      }
+    }
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Writes out the contents of the buffer and empties it.
+   *
+   * @throws IllegalStateException if the file could not be written
+   */
+  private void flush() throws IllegalStateException {
+    buffer.flip();
+    try {
+      while (buffer.hasRemaining()) channel.write(buffer);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not write " + file + ".", e);
+    }
+    buffer.clear();
+  }
+}
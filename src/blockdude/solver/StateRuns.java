@@ -0,0 +1,145 @@
+package blockdude.solver;
+
+/**
+ * Static methods for sorted runs of game states: states of a fixed length, stored back to back in
+ * a long array, in the order of compare() (the order of their longs, compared one at a time).
+ */
+final class StateRuns {
+  private static final int INSERTION_SORT_THRESHOLD = 16;
+
+  /**
+   * Not meant to be constructed.
+   */
+  private StateRuns() {
+  }
+
+  /**
+   * Compares the state of the given length that starts at the given offset in one array with the
+   * one that starts at the given offset in another.
+   *
+   * @param a       array containing first state
+   * @param aOffset index in first array at which first state starts
+   * @param b       array containing second state
+   * @param bOffset index in second array at which second state starts
+   * @param length  number of longs in each state
+   * @return a negative number, zero or a positive number if the first state comes before, is equal
+   *         to or comes after the second
+   */
+  static int compare(long[] a, int aOffset, long[] b, int bOffset, int length) {
+    for (int i = 0; i < length; i++) {
+      int result = Long.compare(a[aOffset + i], b[bOffset + i]);
+      if (result != 0) return result;
+    }
+    return 0;
+  }
+
+  /**
+   * Sorts the given number of states of the given length at the start of the given array, and
+   * removes duplicates, moving the remaining states to the start of the array.
+   *
+   * @param states array containing states
+   * @param count  number of states
+   * @param length number of longs in each state
+   * @return number of distinct states
+   */
+  static int sortUnique(long[] states, int count, int length) {
+    if (count == 0) return 0;
+    sort(states, 0, count, length, new long[length], new long[length]);
+
+    int unique = 1;
+    for (int i = 1; i < count; i++) {
+      if (compare(states, i * length, states, (unique - 1) * length, length) != 0) {
+        if (i != unique) System.arraycopy(states, i * length, states, unique * length, length);
+        unique++;
+      }
+    }
+    return unique;
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Sorts the states from the given index (inclusive) to the given index (exclusive) with a
+   * quicksort that splits them in three around a pivot, so runs of equal states (of which there
+   * are many, as most states are reached several ways) are dealt with in one pass.
+   *
+   * @param states array containing states
+   * @param from   index of first state to sort
+   * @param to     index after last state to sort
+   * @param length number of longs in each state
+   * @param pivot  array to hold the pivot
+   * @param temp   array to hold a state being moved
+   */
+  private static void sort(long[] states, int from, int to, int length, long[] pivot,
+                           long[] temp) {
+    while (to - from > INSERTION_SORT_THRESHOLD) {
+      int middle = (from + to) >>> 1;
+      System.arraycopy(states, medianOfThree(states, from, middle, to - 1, length) * length,
+              pivot, 0, length);
+
+      // [from, less) is before the pivot, [less, i) equal to it and [more, to) after it
+      int less = from;
+      int more = to;
+      int i = from;
+      while (i < more) {
+        int result = compare(states, i * length, pivot, 0, length);
+        if (result < 0) swap(states, less++, i++, length, temp);
+        else if (result > 0) swap(states, i, --more, length, temp);
+        else i++;
+      }
+
+      // recursing into the smaller side keeps the stack shallow
+      if (less - from < to - more) {
+        sort(states, from, less, length, pivot, temp);
+        from = more;
+      } else {
+        sort(states, more, to, length, pivot, temp);
+        to = less;
+      }
+    }
+
+    for (int i = from + 1; i < to; i++) {
+      System.arraycopy(states, i * length, temp, 0, length);
+      int j = i - 1;
+      while (j >= from && compare(states, j * length, temp, 0, length) > 0) {
+        System.arraycopy(states, j * length, states, (j + 1) * length, length);
+        j--;
+      }
+      System.arraycopy(temp, 0, states, (j + 1) * length, length);
+    }
+  }
+
+  /**
+   * Returns the index of the state that comes between the other two of the three given ones.
+   *
+   * @param states array containing states
+   * @param a      index of first state
+   * @param b      index of second state
+   * @param c      index of third state
+   * @param length number of longs in each state
+   * @return index of median state
+   */
+  private static int medianOfThree(long[] states, int a, int b, int c, int length) {
+    boolean ab = compare(states, a * length, states, b * length, length) < 0;
+    boolean bc = compare(states, b * length, states, c * length, length) < 0;
+    boolean ac = compare(states, a * length, states, c * length, length) < 0;
+    if (ab == bc) return b;
+    return ab == ac ? c : a;
+  }
+
+  /**
+   * Swaps the states at the given indexes.
+   *
+   * @param states array containing states
+   * @param i      index of one state
+   * @param j      index of other state
+   * @param length number of longs in each state
+   * @param temp   array to hold a state while swapping
+   */
+  private static void swap(long[] states, int i, int j, int length, long[] temp) {
+    if (i == j) return;
+    System.arraycopy(states, i * length, temp, 0, length);
+    System.arraycopy(states, j * length, states, i * length, length);
+    System.arraycopy(temp, 0, states, j * length, length);
+  }
+}
@@ -0,0 +1,71 @@
+package blockdude.solver;
+
+/**
+ * Represents a set of game states that a search has already seen, with each state stored as a
+ * snapshot of a fixed number of longs. States are given ids 0, 1, 2, ... in the order they are
+ * added, so a search can keep other information about each state in arrays indexed by id (and a
+ * breadth-first search can use the ids themselves as its queue).
+ */
+public interface StateSet {
+  /**
+   * Returns the number of longs in each state stored in this set.
+   *
+   * @return length of a state
+   */
+  int stateLength();
+
+  /**
+   * Adds the state that starts at the given offset in the given array to this set, unless an equal
+   * state is already in it.
+   *
+   * @param source array containing state
+   * @param offset index in array at which state starts
+   * @return id of newly added state, or -1 if state was already in set
+   * @throws IllegalStateException if the set cannot hold any more states
+   */
+  long add(long[] source, int offset) throws IllegalStateException;
+
+  /**
+   * Returns whether a state equal to the one that starts at the given offset in the given array is
+   * in this set.
+   *
+   * @param source array containing state
+   * @param offset index in array at which state starts
+   * @return true if state is in set, false otherwise
+   */
+  boolean contains(long[] source, int offset);
+
+  /**
+   * Returns the id of the state equal to the one that starts at the given offset in the given
+   * array.
+   *
+   * @param source array containing state
+   * @param offset index in array at which state starts
+   * @return id of state, or -1 if state is not in set
+   */
+  long idOf(long[] source, int offset);
+
+  /**
+   * Copies the state with the given id into the given array, starting at the given offset.
+   *
+   * @param id          id of state to copy
+   * @param destination array to copy state into
+   * @param offset      index in array at which to start copying
+   * @throws IndexOutOfBoundsException if no state has the given id
+   */
+  void get(long id, long[] destination, int offset) throws IndexOutOfBoundsException;
+
+  /**
+   * Returns the number of states in this set.
+   *
+   * @return size of set
+   */
+  long size();
+
+  /**
+   * Returns the number of bytes of memory currently used to store this set.
+   *
+   * @return memory used in bytes
+   */
+  long memoryBytes();
+}
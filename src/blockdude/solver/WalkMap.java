@@ -0,0 +1,288 @@
+package blockdude.solver;
+
+import java.util.Arrays;
+import java.util.List;
+
+import blockdude.model.SearchableBlockDudeModel;
+import blockdude.util.Command;
+import blockdude.util.GamePiece;
+import blockdude.util.Level;
+
+/**
+ * A flood fill of the places the player can walk to from the current state of a model, without
+ * picking up or putting down anything. Since walking, falling and climbing move nothing but the
+ * player, the board stays as it is while they do, so the fill only has to read it once and follow
+ * the rules of the moves over it. Each place is a node: a cell the player can stand in, together
+ * with the direction they face there.
+ *
+ * <p>The fill is breadth first, so it finds the fewest moves to every node, and remembers the move
+ * that first reached each one, from which the moves of the walk can be read back. One WalkMap is
+ * reused for every fill on the same level, and is not safe to share between threads.
+ */
+final class WalkMap {
+  private static final int UNREACHED = -1;
+
+  private final int width;
+  private final int height;
+  private final boolean[] solid; // indexed by row * width + col, with the player left out
+  private final boolean[] liftable; // indexed by row * width + col
+  private final int[] distances; // indexed by node, UNREACHED if not reached
+  private final int[] previous; // node each node was first reached from
+  private final byte[] moves; // code of the move that first reached each node
+  private final int[] order; // nodes in the order they were reached
+  private int reachedCount;
+  private int doorFrom; // node the door was first reached from, UNREACHED if not reached
+  private byte doorMove; // code of the move that reached the door
+
+  /**
+   * Constructs a new WalkMap for the given level.
+   *
+   * @param level level to fill places of
+   */
+  WalkMap(Level level) {
+    width = level.width();
+    height = level.height();
+    solid = new boolean[width * height];
+    liftable = new boolean[width * height];
+    distances = new int[2 * width * height];
+    previous = new int[2 * width * height];
+    moves = new byte[2 * width * height];
+    order = new int[2 * width * height];
+    Arrays.fill(distances, UNREACHED);
+  }
+
+  /**
+   * Fills the places the player can walk to from the current state of the given model, which must
+   * have the level this WalkMap was made for loaded, forgetting those of any earlier fill.
+   *
+   * @param model model whose state to start from
+   * @throws RuntimeException if no level has been loaded into model yet
+   */
+  void fill(SearchableBlockDudeModel model) throws RuntimeException {
+    for (int i = 0; i < reachedCount; i++) distances[order[i]] = UNREACHED;
+    reachedCount = 0;
+    doorFrom = UNREACHED;
+
+    int playerRow = model.playerRow();
+    int playerCol = model.playerCol();
+    boolean facingRight = model.pieceAt(playerRow, playerCol) == GamePiece.PLAYER_RIGHT;
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        GamePiece piece = model.pieceAt(row, col);
+        solid[row * width + col] = GamePiece.isSolid(piece);
+        liftable[row * width + col] = GamePiece.canPickUp(piece);
+      }
+    }
+    solid[playerRow * width + playerCol] = false;
+
+    int start = nodeAt(playerRow, playerCol, facingRight);
+    distances[start] = 0;
+    previous[start] = UNREACHED;
+    order[reachedCount++] = start;
+    for (int i = 0; i < reachedCount && doorFrom == UNREACHED; i++) {
+      int node = order[i];
+      for (int move = 0; move < 3 && doorFrom == UNREACHED; move++)
+        reach(model, node, move);
+    }
+  }
+
+  /**
+   * Returns the number of nodes reached by the last fill.
+   *
+   * @return number of nodes reached
+   */
+  int reachedCount() {
+    return reachedCount;
+  }
+
+  /**
+   * Returns the node with the given number in the order the last fill reached them, which is in
+   * order of the fewest moves to them.
+   *
+   * @param index number of node, from 0 to reachedCount() - 1
+   * @return node
+   */
+  int reached(int index) {
+    return order[index];
+  }
+
+  /**
+   * Returns the fewest moves it takes to walk to the given node, as found by the last fill.
+   *
+   * @param node node to walk to
+   * @return number of moves, or -1 if node was not reached
+   */
+  int distance(int node) {
+    return distances[node];
+  }
+
+  /**
+   * Returns the fewest moves it takes to walk to a door, as found by the last fill. The fill stops
+   * as soon as it reaches a door, since the level is completed then.
+   *
+   * @return number of moves, or -1 if no door can be reached
+   */
+  int doorDistance() {
+    return doorFrom == UNREACHED ? UNREACHED : distances[doorFrom] + 1;
+  }
+
+  /**
+   * Returns the column the player stands in at the given node.
+   *
+   * @param node node
+   * @return column of node
+   */
+  int colOf(int node) {
+    return (node >>> 1) % width;
+  }
+
+  /**
+   * Returns the row the player stands in at the given node.
+   *
+   * @param node node
+   * @return row of node
+   */
+  int rowOf(int node) {
+    return (node >>> 1) / width;
+  }
+
+  /**
+   * Returns whether the player faces right at the given node.
+   *
+   * @param node node
+   * @return true if facing right, false if facing left
+   */
+  boolean facesRight(int node) {
+    return (node & 1) != 0;
+  }
+
+  /**
+   * Returns whether the player faces a block at the given node, as the board was at the last fill.
+   *
+   * @param node node
+   * @return true if the cell in front of player at node holds a block, false otherwise
+   */
+  boolean facesBlock(int node) {
+    int col = colOf(node) + (facesRight(node) ? 1 : -1);
+    return col >= 0 && col < width && liftable[rowOf(node) * width + col];
+  }
+
+  /**
+   * Writes the codes of the moves of the shortest walk to the given node, as found by the last
+   * fill, into the given array.
+   *
+   * @param node        node to walk to
+   * @param destination array to write codes into, which must hold distance(node) codes
+   * @return number of codes written
+   */
+  int walkTo(int node, byte[] destination) {
+    int length = distances[node];
+    for (int i = length - 1; i >= 0; i--) {
+      destination[i] = moves[node];
+      node = previous[node];
+    }
+    return length;
+  }
+
+  /**
+   * Adds the commands of the shortest walk to the given node, as found by the last fill, to the
+   * given list.
+   *
+   * @param node     node to walk to
+   * @param commands list to add commands to
+   */
+  void addWalkTo(int node, List<Command> commands) {
+    byte[] codes = new byte[distances[node]];
+    int length = walkTo(node, codes);
+    for (int i = 0; i < length; i++) commands.add(MovePrimitives.COMMANDS[codes[i]]);
+  }
+
+  /**
+   * Adds the commands of the shortest walk to a door, as found by the last fill, to the given
+   * list. The last fill must have reached a door.
+   *
+   * @param commands list to add commands to
+   */
+  void addWalkToDoor(List<Command> commands) {
+    addWalkTo(doorFrom, commands);
+    commands.add(MovePrimitives.COMMANDS[doorMove]);
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Follows the move with the given code (left, right or up) from the given node, the same way the
+   * model would make it, and records the node it leads to if it has not been reached yet, or the
+   * door if it reaches one. A move that would reach the edge of the board, which the model refuses
+   * with an exception, leads nowhere.
+   *
+   * @param model model being filled, to read doors from
+   * @param node  node to move from
+   * @param move  code of move
+   */
+  private void reach(SearchableBlockDudeModel model, int node, int move) {
+    int row = rowOf(node);
+    int col = colOf(node);
+    boolean facingRight = facesRight(node);
+    int target;
+    boolean door;
+
+    if (move < 2) {
+      boolean right = move == 1;
+      int sideCol = right ? col + 1 : col - 1;
+      if (sideCol < 0 || sideCol >= width) return;
+      if (isSolid(row, sideCol)) {
+        // only turning to face the other way
+        if (right == facingRight) return;
+        target = nodeAt(row, col, right);
+        door = false;
+      } else {
+        int landingRow = row;
+        while (landingRow + 1 < height && !isSolid(landingRow + 1, sideCol)) landingRow++;
+        if (landingRow == height - 1) return;
+        target = nodeAt(landingRow, sideCol, right);
+        door = GamePiece.isGoal(model.pieceAt(row, sideCol)) ||
+                GamePiece.isGoal(model.pieceAt(landingRow, sideCol));
+      }
+    } else {
+      int sideCol = facingRight ? col + 1 : col - 1;
+      if (row == 0 || sideCol < 0 || sideCol >= width) return;
+      if (isSolid(row - 1, col) || !isSolid(row, sideCol) || isSolid(row - 1, sideCol)) return;
+      target = nodeAt(row - 1, sideCol, facingRight);
+      door = GamePiece.isGoal(model.pieceAt(row - 1, sideCol));
+    }
+
+    if (door) {
+      doorFrom = node;
+      doorMove = (byte) move;
+    } else if (distances[target] == UNREACHED) {
+      distances[target] = distances[node] + 1;
+      previous[target] = node;
+      moves[target] = (byte) move;
+      order[reachedCount++] = target;
+    }
+  }
+
+  /**
+   * Returns whether the given cell is solid, not counting the player.
+   *
+   * @param row row of cell
+   * @param col column of cell
+   * @return true if cell is solid, false otherwise
+   */
+  private boolean isSolid(int row, int col) {
+    return solid[row * width + col];
+  }
+
+  /**
+   * Returns the node for the given cell and direction.
+   *
+   * @param row         row of cell
+   * @param col         column of cell
+   * @param facingRight whether player faces right
+   * @return node
+   */
+  private int nodeAt(int row, int col, boolean facingRight) {
+    return ((row * width + col) << 1) | (facingRight ? 1 : 0);
+  }
+}
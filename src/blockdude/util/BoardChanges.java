@@ -0,0 +1,51 @@
+package blockdude.util;
+
+/**
+ * Represents the cells of a Block Dude game board that were changed by a move, each with the game
+ * piece shown in it before and after the move. Changes are indexed from 0 to size() - 1, and no
+ * cell appears more than once.
+ */
+public interface BoardChanges {
+  /**
+   * Returns the number of cells that were changed.
+   *
+   * @return number of changed cells
+   */
+  int size();
+
+  /**
+   * Returns the row of the changed cell with the given index.
+   *
+   * @param index index of change
+   * @return row of changed cell
+   * @throws IndexOutOfBoundsException if index is not in [0, size())
+   */
+  int row(int index) throws IndexOutOfBoundsException;
+
+  /**
+   * Returns the column of the changed cell with the given index.
+   *
+   * @param index index of change
+   * @return column of changed cell
+   * @throws IndexOutOfBoundsException if index is not in [0, size())
+   */
+  int col(int index) throws IndexOutOfBoundsException;
+
+  /**
+   * Returns the game piece shown in the changed cell with the given index before it changed.
+   *
+   * @param index index of change
+   * @return game piece before change
+   * @throws IndexOutOfBoundsException if index is not in [0, size())
+   */
+  GamePiece before(int index) throws IndexOutOfBoundsException;
+
+  /**
+   * Returns the game piece shown in the changed cell with the given index after it changed.
+   *
+   * @param index index of change
+   * @return game piece after change
+   * @throws IndexOutOfBoundsException if index is not in [0, size())
+   */
+  GamePiece after(int index) throws IndexOutOfBoundsException;
+}
@@ -4,5 +4,6 @@ package blockdude.util;
  * Represents commands for the controller to handle.
  */
 public enum Command {
-  MOVE_LEFT, MOVE_RIGHT, MOVE_UP, PICK_UP_PUT_DOWN, RESTART_LEVEL, RESTART_GAME, QUIT, TRY_PASSWORD
+  MOVE_LEFT, MOVE_RIGHT, MOVE_UP, PICK_UP_PUT_DOWN, UNDO, REDO, RESTART_LEVEL, RESTART_GAME, QUIT,
+  TRY_PASSWORD, HINT
 }
@@ -1,13 +1,87 @@
 package blockdude.util;
 
 /**
- * Represents game pieces in the Block Dude game.
+ * Represents game pieces in the Block Dude game. Every piece is defined by the symbol used for it
+ * in level files and a set of traits, so a new kind of piece (such as a heavy block that is solid
+ * but cannot be picked up) only needs a new constant here.
  */
 public enum GamePiece {
-  BLOCK, DOOR, EMPTY, PLAYER_LEFT, PLAYER_RIGHT, WALL;
+  BLOCK('B', GamePiece.SOLID | GamePiece.LIFTABLE),
+  DOOR('D', GamePiece.GOAL),
+  EMPTY('_', 0),
+  PLAYER_LEFT('L', GamePiece.SOLID | GamePiece.PLAYER),
+  PLAYER_RIGHT('R', GamePiece.SOLID | GamePiece.PLAYER),
+  WALL('X', GamePiece.SOLID),
+  HEAVY_BLOCK('H', GamePiece.SOLID);
+
+  /**
+   * Trait of pieces that cannot be entered and stop any game piece that falls on them.
+   */
+  public static final int SOLID = 1;
+  /**
+   * Trait of pieces that are the player.
+   */
+  public static final int PLAYER = 1 << 1;
+  /**
+   * Trait of pieces that can be picked up by the player.
+   */
+  public static final int LIFTABLE = 1 << 2;
+  /**
+   * Trait of pieces that complete the level when the player reaches them.
+   */
+  public static final int GOAL = 1 << 3;
+
+  // pieces indexed by symbol, built once so parsing a level does not scan every piece
+  private static final GamePiece[] BY_SYMBOL = new GamePiece[128];
+
+  static {
+    for (GamePiece gp : values()) BY_SYMBOL[gp.symbol] = gp;
+  }
+
+  private final char symbol;
+  private final int traits;
+
+  /**
+   * Defines a new kind of GamePiece.
+   *
+   * @param symbol symbol used for piece in level files
+   * @param traits bitwise OR of the traits of piece
+   */
+  GamePiece(char symbol, int traits) {
+    this.symbol = symbol;
+    this.traits = traits;
+  }
 
   /* Public methods ----------------------------------------------------------------------------- */
 
+  /**
+   * Returns the symbol used for this GamePiece in level files.
+   *
+   * @return symbol of this piece
+   */
+  public char symbol() {
+    return symbol;
+  }
+
+  /**
+   * Returns the traits of this GamePiece as a bitmask of SOLID, PLAYER, LIFTABLE and GOAL.
+   *
+   * @return traits of this piece
+   */
+  public int traits() {
+    return traits;
+  }
+
+  /**
+   * Returns the GamePiece that the given symbol is used for in level files.
+   *
+   * @param symbol symbol to look up
+   * @return piece with given symbol, or null if no piece has it
+   */
+  public static GamePiece fromSymbol(char symbol) {
+    return (symbol < BY_SYMBOL.length) ? BY_SYMBOL[symbol] : null;
+  }
+
   /**
    * Determines and returns whether the given GamePiece can be picked up by the player.
    *
@@ -15,8 +89,7 @@ public enum GamePiece {
    * @return true if given GamePiece can be picked up, false if it cannot be
    */
   public static boolean canPickUp(GamePiece gp) {
-    GamePiece[] pickUpPieces = {BLOCK};
-    return contains(pickUpPieces, gp);
+    return hasTrait(gp, LIFTABLE);
   }
 
   /**
@@ -26,8 +99,7 @@ public enum GamePiece {
    * @return true if GamePiece is a player, false otherwise
    */
   public static boolean isPlayer(GamePiece gp) {
-    GamePiece[] playerPieces = {PLAYER_LEFT, PLAYER_RIGHT};
-    return contains(playerPieces, gp);
+    return hasTrait(gp, PLAYER);
   }
 
   /**
@@ -38,21 +110,29 @@ public enum GamePiece {
    * @return true of given GamePiece is solid, false if it is not
    */
   public static boolean isSolid(GamePiece gp) {
-    GamePiece[] solidPieces = {BLOCK, WALL};
-    return contains(solidPieces, gp) || isPlayer(gp);
+    return hasTrait(gp, SOLID);
+  }
+
+  /**
+   * Returns whether the given GamePiece completes the level when the player reaches it.
+   *
+   * @param gp GamePiece to check
+   * @return true if GamePiece is a goal, false otherwise
+   */
+  public static boolean isGoal(GamePiece gp) {
+    return hasTrait(gp, GOAL);
   }
 
   /* Private methods ---------------------------------------------------------------------------- */
 
   /**
-   * Determines and returns whether the given array of GamePieces contains the given GamePiece.
+   * Determines and returns whether the given GamePiece has the given trait.
    *
-   * @param arr    array of GamePieces to check
-   * @param target GamePiece for which to check contents of array
-   * @return true if given array contains given GamePiece, false otherwise
+   * @param gp    GamePiece to check (may be null, in which case it has no traits)
+   * @param trait trait to check for
+   * @return true if given GamePiece has trait, false otherwise
    */
-  private static boolean contains(GamePiece[] arr, GamePiece target) {
-    for (GamePiece gp : arr) if (gp == target) return true;
-    return false;
+  private static boolean hasTrait(GamePiece gp, int trait) {
+    return gp != null && (gp.traits & trait) != 0;
   }
 }
@@ -4,27 +4,31 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Represents a level of the Block Dude game.
+ * Represents a level of the Block Dude game. The layout of a level is stored as a single flat array
+ * of game pieces in row-major order that is never modified once the level is built, so any number
+ * of models can share it and start the level from a copy of it.
  */
 public class Level {
   private final String password;
-  private final List<List<GamePiece>> layout;
+  private final GamePiece[] cells; // INVARIANT: row-major, length is width * height, never mutated
+  private final int width;
+  private final int height;
   private final GamePiece player;
-  private final Position playerPosition;
+  private final int playerCell; // INVARIANT: (row * width + col) of the player in cells
 
   /**
    * Constructs a new Level.
    *
-   * @param password       password of this level
-   * @param layout         layout of this level
-   * @param player         player to use at start of level
-   * @param playerPosition where player is initially located
+   * @param password  password of this level
+   * @param layout    layout of this level
+   * @param player    player to use at start of level
+   * @param playerRow row in which player is initially located
+   * @param playerCol column in which player is initially located
    * @throws IllegalArgumentException if password is null or empty, if layout is null or empty, if
-   *                                  layout is not rectangular, if player is null or if
-   *                                  playerPosition is null
+   *                                  layout is not rectangular or if player is null
    */
-  private Level(String password, List<List<GamePiece>> layout,
-                GamePiece player, Position playerPosition) throws IllegalArgumentException {
+  private Level(String password, List<List<GamePiece>> layout, GamePiece player, int playerRow,
+                int playerCol) throws IllegalArgumentException {
     // validating password exists and is not empty
     if (password == null || password.isEmpty())
       throw new IllegalArgumentException("Password must be >= 1 character.");
@@ -41,17 +45,22 @@ public class Level {
       prevRowSize = row.size();
     }
 
-    // validating player and player position are not null
-    if (player == null || playerPosition == null)
-      throw new IllegalArgumentException("Player and its position cannot be null.");
+    // validating player is not null
+    if (player == null) throw new IllegalArgumentException("Player cannot be null.");
 
     // the invalid game states of the player position not being correct and having multiple players
     // are both protected by the builder
 
     this.password = password;
-    this.layout = layout;
+    this.width = layout.get(0).size();
+    this.height = layout.size();
+    this.cells = new GamePiece[width * height];
+    for (int row = 0; row < height; row++) {
+      List<GamePiece> layoutRow = layout.get(row);
+      for (int col = 0; col < width; col++) cells[row * width + col] = layoutRow.get(col);
+    }
     this.player = player;
-    this.playerPosition = playerPosition;
+    this.playerCell = playerRow * width + playerCol;
   }
 
   /**
@@ -62,7 +71,8 @@ public class Level {
     private String password;
     private List<List<GamePiece>> layout;
     private GamePiece player;
-    private Position playerPosition;
+    private int playerRow;
+    private int playerCol;
     private boolean invalidLevelConfiguration;
     private String errorMessage;
 
@@ -73,7 +83,8 @@ public class Level {
       password = "";
       layout = new ArrayList<>();
       player = null;
-      playerPosition = null;
+      playerRow = -1;
+      playerCol = -1;
       invalidLevelConfiguration = false;
       errorMessage = "";
     }
@@ -110,9 +121,8 @@ public class Level {
         }
 
         player = gp;
-        int x = finalRow.size() - 1;
-        int y = layout.size() - 1;
-        playerPosition = new Position(x, y);
+        playerRow = layout.size() - 1;
+        playerCol = finalRow.size() - 1;
       }
     }
 
@@ -125,7 +135,7 @@ public class Level {
     Level build() throws IllegalStateException {
       try {
         if (invalidLevelConfiguration) throw new IllegalStateException();
-        return new Level(password, layout, player, playerPosition);
+        return new Level(password, layout, player, playerRow, playerCol);
       } catch (IllegalArgumentException | IllegalStateException e) {
         if (e.getMessage() != null) errorMessage += e.getMessage();
         throw new IllegalStateException("Could not build Level as specified: " + errorMessage);
@@ -148,12 +158,60 @@ public class Level {
    * @return layout of this level
    */
   public List<List<GamePiece>> layout() {
-    // copying layout so that it cannot be manipulated externally
-    List<List<GamePiece>> layoutCopy = new ArrayList<>();
-    for (List<GamePiece> row : layout) layoutCopy.add(new ArrayList<>(row));
+    // building a new layout so that it cannot be manipulated externally
+    List<List<GamePiece>> layoutCopy = new ArrayList<>(height);
+    for (int row = 0; row < height; row++) {
+      List<GamePiece> layoutRow = new ArrayList<>(width);
+      for (int col = 0; col < width; col++) layoutRow.add(cells[row * width + col]);
+      layoutCopy.add(layoutRow);
+    }
     return layoutCopy;
   }
 
+  /**
+   * Returns the number of columns in the layout of this level.
+   *
+   * @return width of layout
+   */
+  public int width() {
+    return width;
+  }
+
+  /**
+   * Returns the number of rows in the layout of this level.
+   *
+   * @return height of layout
+   */
+  public int height() {
+    return height;
+  }
+
+  /**
+   * Returns the game piece at the given row and column of the layout of this level, without
+   * copying the layout.
+   *
+   * @param row index of row of piece
+   * @param col index of column of piece
+   * @return game piece at row and column
+   * @throws IndexOutOfBoundsException if row or column is not in layout
+   */
+  public GamePiece pieceAt(int row, int col) throws IndexOutOfBoundsException {
+    if (row < 0 || row >= height || col < 0 || col >= width)
+      throw new IndexOutOfBoundsException("Row " + row + ", column " + col + " is not in layout.");
+    return cells[row * width + col];
+  }
+
+  /**
+   * Returns a copy of the layout of this level as a single array in row-major order, so the piece
+   * at (row, col) is at index (row * width() + col). This costs one array copy no matter how many
+   * rows the level has, which makes it the cheap way to start a level.
+   *
+   * @return copy of layout as flat array
+   */
+  public GamePiece[] copyCells() {
+    return cells.clone();
+  }
+
   /**
    * Returns the player to use for this level.
    *
@@ -163,13 +221,23 @@ public class Level {
     return player;
   }
 
+  /**
+   * Returns the index of the cell the player starts this level in, in the order of copyCells(),
+   * so the player is in row (playerCell() / width()) and column (playerCell() % width()).
+   *
+   * @return cell of player in this level
+   */
+  public int playerCell() {
+    return playerCell;
+  }
+
   /**
    * Returns position of player in this level.
    *
    * @return position of player in this level
    */
   public Position playerPosition() {
-    // copying so player position cannot be manipulated externally
-    return playerPosition.copy();
+    // a new position every time, so player position cannot be manipulated externally
+    return new Position(playerCell % width, playerCell / width);
   }
 }
@@ -83,22 +83,15 @@ public class LevelSetReader {
    * @throws IllegalStateException if given char is not a valid game piece
    */
   private static GamePiece parseGamePiece(char c) throws IllegalStateException {
-    switch (c) {
-      case 'X':
-        return GamePiece.WALL;
-      case '_':
-        return GamePiece.EMPTY;
-      case 'B':
-        return GamePiece.BLOCK;
-      case 'D':
-        return GamePiece.DOOR;
-      case 'L':
-        return GamePiece.PLAYER_LEFT;
-      case 'R':
-        return GamePiece.PLAYER_RIGHT;
-      default:
-        throw new IllegalStateException("Char '" + c + "' cannot be parsed as GamePiece. " +
-                "The only valid chars are: {'X', '_', 'B', 'D', 'L', 'R'}.");
+    GamePiece gp = GamePiece.fromSymbol(c);
+    if (gp != null) return gp;
+
+    StringBuilder validChars = new StringBuilder();
+    for (GamePiece piece : GamePiece.values()) {
+      if (validChars.length() > 0) validChars.append(", ");
+      validChars.append('\'').append(piece.symbol()).append('\'');
     }
+    throw new IllegalStateException("Char '" + c + "' cannot be parsed as GamePiece. " +
+            "The only valid chars are: {" + validChars + "}.");
   }
 }
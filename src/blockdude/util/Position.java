@@ -3,6 +3,10 @@ package blockdude.util;
 /**
  * Represents a position on the Block Dude game board. Column indices are equivalent to coordinates
  * on the x axis, while row indices are equivalent to those on the y axis.
+ *
+ * <p>Positions are only handed out to code outside the game (such as listeners and tests). Models
+ * and levels keep a position as the index of its cell, (row * width + col), so moving around the
+ * board is integer arithmetic that creates no objects.
  */
 public final class Position {
   public int col, row;
@@ -27,7 +31,7 @@ public final class Position {
 
   @Override
   public int hashCode() {
-    return toString().hashCode();
+    return 31 * col + row;
   }
 
   @Override
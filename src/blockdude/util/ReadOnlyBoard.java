@@ -0,0 +1,32 @@
+package blockdude.util;
+
+/**
+ * Represents a read-only view of a Block Dude game board. A view is not a copy of the board: it
+ * always shows the current state of whatever handed it out, so reading it costs no more than
+ * reading the board itself.
+ */
+public interface ReadOnlyBoard {
+  /**
+   * Returns the number of columns on this board.
+   *
+   * @return width of board
+   */
+  int width();
+
+  /**
+   * Returns the number of rows on this board.
+   *
+   * @return height of board
+   */
+  int height();
+
+  /**
+   * Returns the game piece at the given row and column of this board.
+   *
+   * @param row index of row of piece
+   * @param col index of column of piece
+   * @return game piece at row and column
+   * @throws IndexOutOfBoundsException if row or column is not on board
+   */
+  GamePiece get(int row, int col) throws IndexOutOfBoundsException;
+}
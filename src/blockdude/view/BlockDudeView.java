@@ -1,9 +1,7 @@
 package blockdude.view;
 
-import java.util.List;
-
 import blockdude.controller.BlockDudeController;
-import blockdude.util.GamePiece;
+import blockdude.util.ReadOnlyBoard;
 
 /**
  * Represents a view for the Block Dude game.
@@ -17,13 +15,14 @@ public interface BlockDudeView {
   void start(BlockDudeController controller);
 
   /**
-   * Refreshes this view to display the given information.
+   * Refreshes this view to display the given information. The board may be a live view of the
+   * model, so it should be read during this call rather than kept for later.
    *
-   * @param layout        layout to display
+   * @param board         board to display
    * @param levelIndex    index of current level
    * @param levelPassword password of current level
    */
-  void refresh(List<List<GamePiece>> layout, int levelIndex, String levelPassword);
+  void refresh(ReadOnlyBoard board, int levelIndex, String levelPassword);
 
   /**
    * Displays a message to the user.
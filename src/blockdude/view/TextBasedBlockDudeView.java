@@ -2,13 +2,13 @@ package blockdude.view;
 
 import java.io.InputStream;
 import java.io.PrintStream;
-import java.util.List;
 import java.util.Scanner;
 
 import blockdude.controller.BlockDudeController;
 import blockdude.util.Command;
 import blockdude.util.CommandArguments;
 import blockdude.util.GamePiece;
+import blockdude.util.ReadOnlyBoard;
 
 /**
  * A text-based view for the Block Dude game (intended for use with the console).
@@ -35,10 +35,11 @@ public class TextBasedBlockDudeView implements BlockDudeView {
 
   @Override
   public void start(BlockDudeController controller) {
-    out.print("Welcome to Block Dude!\n\nCommands:\n- a = move left\n- d = move right\n- w = mov" +
-            "e up\n- s = put block down / pick block up\n- /pass: = try password (after :)\n- /r" +
-            "el = restart level\n- /reg = restart game\n- /quit = end game\n\nPress 'enter' / 'r" +
-            "eturn' to use a command.\nCommands are case-insensitive.");
+    out.print("Welcome to Block Dude!\n\nCommands:\n- a = move left\n- d = move right\n- w = move" +
+            " up\n- s = put block down / pick block up\n- z = undo last move\n- y = redo undone m" +
+            "ove\n- h = hint (next move of a shortest solution)\n- /pass: = try password (after :" +
+            ")\n- /rel = restart level\n- /reg = restart game\n- /quit = end game\n\nPress 'enter" +
+            "' / 'return' to use a command.\nCommands are case-insensitive.");
 
     nextLine();
     controller.refreshView();
@@ -59,17 +60,16 @@ public class TextBasedBlockDudeView implements BlockDudeView {
   }
 
   @Override
-  public void refresh(List<List<GamePiece>> layout, int levelIndex, String levelPassword) {
+  public void refresh(ReadOnlyBoard board, int levelIndex, String levelPassword) {
     StringBuilder outputString = new StringBuilder();
 
     outputString.append("Level ").append(levelIndexString(levelIndex));
     outputString.append(" (password: ").append(levelPassword).append(")\n\n");
 
-    int rowIndex = 0;
-    for (List<GamePiece> row : layout) {
-      for (GamePiece piece : row) outputString.append(charFor(piece));
-      rowIndex++;
-      if (rowIndex < layout.size()) outputString.append('\n');
+    for (int row = 0; row < board.height(); row++) {
+      for (int col = 0; col < board.width(); col++)
+        outputString.append(charFor(board.get(row, col)));
+      if (row < board.height() - 1) outputString.append('\n');
     }
 
     out.print(outputString.toString());
@@ -112,6 +112,8 @@ public class TextBasedBlockDudeView implements BlockDudeView {
         return '\u25A2'; // hollow box
       case WALL:
         return '\u2588'; // solid box
+      case HEAVY_BLOCK:
+        return '\u25A3'; // filled box
       case DOOR:
         return 'Π';
       default:
@@ -144,6 +146,15 @@ public class TextBasedBlockDudeView implements BlockDudeView {
       case "D":
         command = Command.MOVE_RIGHT;
         break;
+      case "Z":
+        command = Command.UNDO;
+        break;
+      case "Y":
+        command = Command.REDO;
+        break;
+      case "H":
+        command = Command.HINT;
+        break;
       case "/REL":
         command = Command.RESTART_LEVEL;
         break;
@@ -0,0 +1,189 @@
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import blockdude.collections.LongHashSet;
+import blockdude.collections.LongIntHashMap;
+import blockdude.collections.StateQueue;
+import util.TestUtil;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A class for testing members of the collections package.
+ */
+public class CollectionsTests {
+
+  /* LongHashSet Tests -------------------------------------------------------------------------- */
+
+  @Test(expected = IllegalArgumentException.class)
+  public void longHashSetCannotHaveNegativeExpectedSize() {
+    new LongHashSet(-1);
+  }
+
+  @Test
+  public void longHashSetAddsEachKeyOnce() {
+    LongHashSet set = new LongHashSet();
+    assertTrue(set.isEmpty());
+    assertTrue(set.add(42));
+    assertTrue(set.add(-42));
+    assertTrue(set.add(0));
+    assertFalse(set.add(42));
+    assertFalse(set.add(0));
+    assertEquals(3, set.size());
+    assertTrue(set.contains(42));
+    assertTrue(set.contains(-42));
+    assertTrue(set.contains(0));
+    assertFalse(set.contains(7));
+  }
+
+  @Test
+  public void longHashSetKeepsEveryKeyWhenGrowing() {
+    LongHashSet set = new LongHashSet();
+    Set<Long> expected = new HashSet<>();
+    Random random = new Random(1);
+    for (int i = 0; i < 100000; i++) {
+      // keys that differ only in their high bits must not all land in the same slot
+      long key = i % 2 == 0 ? random.nextLong() : (long) i << 40;
+      assertEquals(expected.add(key), set.add(key));
+    }
+    assertEquals(expected.size(), set.size());
+    for (long key : expected) assertTrue(set.contains(key));
+  }
+
+  @Test
+  public void longHashSetIsEmptyWhenCleared() {
+    LongHashSet set = new LongHashSet();
+    for (long key = 0; key < 100; key++) set.add(key);
+    set.clear();
+    assertTrue(set.isEmpty());
+    for (long key = 0; key < 100; key++) assertFalse(set.contains(key));
+    assertTrue(set.add(5));
+  }
+
+  @Test
+  public void longHashSetAddsWithoutAllocatingOnceLargeEnough() {
+    final LongHashSet set = new LongHashSet(1000);
+    Runnable adds = new Runnable() {
+      @Override
+      public void run() {
+        set.clear();
+        for (long key = 1; key <= 1000; key++) set.add(key * 0x12345L);
+      }
+    };
+    assertEquals(0, TestUtil.bytesAllocatedBy(adds));
+    assertEquals(1000, set.size());
+  }
+
+  /* LongIntHashMap Tests ----------------------------------------------------------------------- */
+
+  @Test(expected = IllegalArgumentException.class)
+  public void longIntHashMapCannotHaveNegativeExpectedSize() {
+    new LongIntHashMap(-1);
+  }
+
+  @Test
+  public void longIntHashMapGetsWhatWasPut() {
+    LongIntHashMap map = new LongIntHashMap();
+    assertEquals(-1, map.get(3, -1));
+    map.put(3, 30);
+    map.put(0, 7);
+    map.put(-3, -30);
+    assertEquals(30, map.get(3, -1));
+    assertEquals(7, map.get(0, -1));
+    assertEquals(-30, map.get(-3, -1));
+    assertFalse(map.containsKey(4));
+    assertEquals(3, map.size());
+
+    map.put(3, 31);
+    map.put(0, 8);
+    assertEquals(31, map.get(3, -1));
+    assertEquals(8, map.get(0, -1));
+    assertEquals(3, map.size());
+  }
+
+  @Test
+  public void longIntHashMapKeepsEveryKeyWhenGrowing() {
+    LongIntHashMap map = new LongIntHashMap();
+    Map<Long, Integer> expected = new HashMap<>();
+    Random random = new Random(2);
+    for (int i = 0; i < 100000; i++) {
+      long key = random.nextInt(50000) * 0x9E3779B97F4A7C15L;
+      map.put(key, i);
+      expected.put(key, i);
+    }
+    assertEquals(expected.size(), map.size());
+    for (Map.Entry<Long, Integer> entry : expected.entrySet())
+      assertEquals((int) entry.getValue(), map.get(entry.getKey(), -1));
+  }
+
+  @Test
+  public void longIntHashMapIsEmptyWhenCleared() {
+    LongIntHashMap map = new LongIntHashMap();
+    for (long key = 0; key < 100; key++) map.put(key, (int) key);
+    map.clear();
+    assertTrue(map.isEmpty());
+    for (long key = 0; key < 100; key++) assertFalse(map.containsKey(key));
+  }
+
+  /* StateQueue Tests --------------------------------------------------------------------------- */
+
+  @Test(expected = IllegalArgumentException.class)
+  public void stateQueueCannotHaveNonPositiveStateLength() {
+    new StateQueue(0);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void stateQueueCannotRemoveFromEmptyQueue() {
+    new StateQueue(2).remove(new long[2], 0);
+  }
+
+  @Test
+  public void stateQueueRemovesStatesInOrderAdded() {
+    StateQueue queue = new StateQueue(3);
+    long[] state = new long[3];
+    int added = 0;
+    int removed = 0;
+    // adding more than removing, so the queue wraps around and grows
+    for (int round = 0; round < 200; round++) {
+      for (int i = 0; i < 3; i++, added++) queue.add(new long[]{-1, added, -added, added}, 1);
+      for (int i = 0; i < 2; i++, removed++) {
+        queue.remove(state, 0);
+        assertArrayEquals(new long[]{removed, -removed, removed}, state);
+      }
+    }
+    assertEquals(added - removed, queue.size());
+    while (!queue.isEmpty()) {
+      queue.remove(state, 0);
+      assertArrayEquals(new long[]{removed, -removed, removed}, state);
+      removed++;
+    }
+    assertEquals(added, removed);
+  }
+
+  @Test
+  public void stateQueueAddsAndRemovesWithoutAllocatingOnceLargeEnough() {
+    final StateQueue queue = new StateQueue(2);
+    final long[] state = {1, 2};
+    for (int i = 0; i < 100; i++) queue.add(state, 0);
+    queue.clear();
+    Runnable cycle = new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0; i < 1000; i++) {
+          queue.add(state, 0);
+          if (queue.size() > 50) queue.remove(state, 0);
+        }
+        queue.clear();
+      }
+    };
+    assertEquals(0, TestUtil.bytesAllocatedBy(cycle));
+  }
+}
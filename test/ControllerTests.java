@@ -1,9 +1,32 @@
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import blockdude.controller.BlockDudeController;
+import blockdude.controller.ClassicBlockDudeController;
+import blockdude.controller.CommandBatchResult;
+import blockdude.model.BlockDudeModel;
+import blockdude.model.ClassicBlockDudeModel;
+import blockdude.model.PackedBlockDudeModel;
+import blockdude.solver.HintCache;
+import blockdude.util.Command;
+import blockdude.util.GamePiece;
+import blockdude.util.LevelSet;
+import blockdude.util.LevelSetReader;
+import blockdude.util.ReadOnlyBoard;
+import blockdude.view.BlockDudeView;
+import util.TestUtil;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -12,6 +35,69 @@ import static org.junit.Assert.fail;
 public class ControllerTests {
   // TODO: examples
 
+  // Examples for use in tests
+  private BlockDudeModel model;
+  private RecordingView view;
+  private BlockDudeController controller;
+  private LevelSet levels;
+  private List<Runnable> hintTasks;
+  private BlockDudeController hintController;
+
+  /**
+   * A view that records what it is asked to do instead of displaying anything.
+   */
+  private static class RecordingView implements BlockDudeView {
+    int refreshCount = 0;
+    List<List<GamePiece>> lastLayout = null;
+    List<String> messages = new ArrayList<>();
+
+    @Override
+    public void start(BlockDudeController controller) {
+      // nothing to start
+    }
+
+    @Override
+    public void refresh(ReadOnlyBoard board, int levelIndex, String levelPassword) {
+      refreshCount++;
+      lastLayout = TestUtil.layoutOf(board);
+    }
+
+    @Override
+    public void displayMessage(String message) {
+      messages.add(message);
+    }
+  }
+
+  /* JUnit Setup -------------------------------------------------------------------------------- */
+
+  @Before
+  public void setUp() {
+    String levelSetString = "-level one\n" +
+            "XD_LX\n" +
+            "XXXXX\n" +
+            "-/level\n" +
+            "-level two\n" +
+            "X___X\n" +
+            "X_BRX\n" +
+            "XXXXX\n" +
+            "-/level";
+    levels = LevelSetReader.parseLevelSet(new StringReader(levelSetString));
+    model = new ClassicBlockDudeModel();
+    view = new RecordingView();
+    controller = new ClassicBlockDudeController(model, view, levels);
+
+    // hints are worked out only when the test runs the tasks
+    hintTasks = new ArrayList<>();
+    Executor executor = new Executor() {
+      @Override
+      public void execute(Runnable task) {
+        hintTasks.add(task);
+      }
+    };
+    hintController = new ClassicBlockDudeController(model, view, levels,
+            new HintCache(100, executor));
+  }
+
   /* ClassicBlockDudeController ----------------------------------------------------------------- */
 
   // TODO: tests
@@ -20,4 +106,172 @@ public class ControllerTests {
   // - setCommandArguments(...)
   // - handleCommand(...)
   // - refreshView()
+
+  // handleCommand(...) tests
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorThrowsIAEWhenHintCacheNull() {
+    new ClassicBlockDudeController(model, view, levels, null);
+  }
+
+  @Test
+  public void handleCommandGivesHintOnceWorkedOutWithoutChangingGame() {
+    hintController.handleCommand(Command.HINT);
+    assertEquals("Working out a hint, ask again in a moment.", lastMessage());
+    hintController.handleCommand(Command.HINT);
+    assertEquals(1, hintTasks.size());
+
+    hintTasks.get(0).run();
+    hintController.handleCommand(Command.HINT);
+    assertEquals("Hint: move left.", lastMessage());
+    assertEquals(0, view.refreshCount);
+    assertFalse(model.isLevelCompleted());
+  }
+
+  @Test
+  public void handleCommandGivesHintsForStateReachedByUndoAndRedo() {
+    hintController.handleCommand(Command.MOVE_RIGHT);
+    hintController.handleCommand(Command.UNDO);
+    hintController.handleCommand(Command.REDO);
+    hintController.handleCommand(Command.HINT);
+    hintTasks.get(0).run();
+
+    // facing right, so the first move left only turns the player around
+    hintController.handleCommand(Command.HINT);
+    assertEquals("Hint: move left.", lastMessage());
+    hintController.handleCommand(Command.MOVE_LEFT);
+    hintController.handleCommand(Command.HINT);
+    assertEquals("Hint: move left.", lastMessage());
+    assertEquals(1, hintTasks.size());
+  }
+
+  @Test
+  public void handleCommandReportsLevelThatCannotBeCompleted() {
+    hintController.handleCommand(Command.MOVE_LEFT);
+    hintController.handleCommand(Command.MOVE_LEFT);
+    assertEquals(1, levels.currentLevelIndex());
+
+    // the second level has no door
+    hintController.handleCommand(Command.HINT);
+    hintTasks.get(0).run();
+    hintController.handleCommand(Command.HINT);
+    assertEquals("The level cannot be completed from here. Try undoing or restarting the level.",
+            lastMessage());
+  }
+
+  @Test
+  public void handleCommandGivesHintsForAnyKindOfModelFromSameCache() {
+    HintCache hints = new HintCache(100, new Executor() {
+      @Override
+      public void execute(Runnable task) {
+        hintTasks.add(task);
+      }
+    });
+    BlockDudeController classicController = new ClassicBlockDudeController(model, view, levels,
+            hints);
+    BlockDudeController packedController = new ClassicBlockDudeController(
+            new PackedBlockDudeModel(), view, levels, hints);
+
+    // the board of the classic model is copied, the packed one is searched as it is
+    classicController.handleCommand(Command.HINT);
+    hintTasks.get(0).run();
+    packedController.handleCommand(Command.HINT);
+    assertEquals("Hint: move left.", lastMessage());
+    assertEquals(1, hintTasks.size());
+  }
+
+  // handleCommands(...) tests
+
+  @Test(expected = IllegalArgumentException.class)
+  public void handleCommandsThrowsIAEWhenCommandsNull() {
+    controller.handleCommands(null);
+  }
+
+  @Test
+  public void handleCommandsThrowsIAEForCommandsThatCannotBeBatchedBeforeHandlingAny() {
+    for (Command command : new Command[]{Command.QUIT, Command.TRY_PASSWORD, Command.HINT,
+        null}) {
+      try {
+        controller.handleCommands(Arrays.asList(Command.MOVE_LEFT, command));
+        fail("Expected IllegalArgumentException for " + command + ".");
+      } catch (IllegalArgumentException e) {
+        assertEquals(0, view.refreshCount);
+        assertFalse(model.isLevelCompleted());
+      }
+    }
+  }
+
+  @Test
+  public void handleCommandsReportsEachCommandAndRefreshesViewOnce() {
+    CommandBatchResult result = controller.handleCommands(Arrays.asList(Command.MOVE_RIGHT,
+            Command.PICK_UP_PUT_DOWN, Command.UNDO, Command.REDO, Command.MOVE_RIGHT));
+
+    assertEquals(5, result.size());
+    assertTrue(result.succeeded(0)); // turning right
+    assertFalse(result.succeeded(1)); // nothing to pick up
+    assertTrue(result.succeeded(2));
+    assertTrue(result.succeeded(3));
+    assertFalse(result.succeeded(4)); // wall in the way
+    assertEquals(3, result.successCount());
+    assertEquals(0, result.levelCompletions().length);
+    assertEquals(0, result.levelIndex());
+
+    assertEquals(1, view.refreshCount);
+    assertTrue(view.messages.isEmpty());
+    assertNotNull(view.lastLayout);
+    assertTrue(TestUtil.layoutsAreSame(model.layoutToRender(), result.layout()));
+    assertTrue(TestUtil.layoutsAreSame(view.lastLayout, result.layout()));
+  }
+
+  @Test
+  public void handleCommandsContinuesOnNextLevelWhenLevelCompletedPartway() {
+    CommandBatchResult result = controller.handleCommands(Arrays.asList(Command.MOVE_LEFT,
+            Command.MOVE_LEFT, Command.MOVE_LEFT, Command.PICK_UP_PUT_DOWN));
+
+    // the second command reaches the door, so the rest are handled on the second level
+    assertArrayEquals(new int[]{1}, result.levelCompletions());
+    assertEquals(1, result.levelIndex());
+    assertTrue(result.succeeded(2)); // turning left on the second level
+    assertTrue(result.succeeded(3)); // picking up the block on the second level
+    assertEquals(1, view.refreshCount);
+
+    String expectedLayoutString = "-level two\n" +
+            "X___X\n" +
+            "X__LX\n" +
+            "XXXXX\n" +
+            "-/level";
+    List<List<GamePiece>> expectedLayout = TestUtil.levelFromString(expectedLayoutString).layout();
+    expectedLayout.get(0).set(3, GamePiece.BLOCK); // held block
+    assertTrue(TestUtil.layoutsAreSame(expectedLayout, result.layout()));
+  }
+
+  @Test
+  public void handleCommandsRestartsGameWhenLastLevelCompleted() {
+    CommandBatchResult result = controller.handleCommands(Arrays.asList(Command.MOVE_LEFT,
+            Command.MOVE_LEFT, Command.RESTART_GAME));
+    assertEquals(0, result.levelIndex());
+
+    String finishingLevelSetString = "-level one\n" +
+            "XDLX\n" +
+            "XXXX\n" +
+            "-/level";
+    LevelSet levels = LevelSetReader.parseLevelSet(new StringReader(finishingLevelSetString));
+    controller = new ClassicBlockDudeController(model, view, levels);
+    result = controller.handleCommands(Arrays.asList(Command.MOVE_LEFT, Command.MOVE_RIGHT));
+    assertArrayEquals(new int[]{0}, result.levelCompletions());
+    assertEquals(0, result.levelIndex());
+    assertEquals(1, view.messages.size());
+    assertTrue(result.succeeded(1)); // turning right after the game restarted
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Returns the last message the view was asked to display.
+   *
+   * @return last message
+   */
+  private String lastMessage() {
+    return view.messages.get(view.messages.size() - 1);
+  }
 }
@@ -4,18 +4,33 @@ import org.junit.Test;
 
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+import blockdude.model.AsyncModelListener;
 import blockdude.model.BlockDudeModel;
 import blockdude.model.ClassicBlockDudeModel;
+import blockdude.model.ModelEvent;
+import blockdude.model.ModelListener;
+import blockdude.util.BoardChanges;
 import blockdude.util.GamePiece;
 import blockdude.util.Level;
 import blockdude.util.LevelSet;
 import blockdude.util.LevelSetReader;
+import blockdude.util.ReadOnlyBoard;
 import util.TestUtil;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.fail;
 
 /**
@@ -24,7 +39,7 @@ import static org.junit.Assert.fail;
 public class ModelTests {
   // Model example for use in tests
   private BlockDudeModel model;
-  private static LevelSet levels;
+  protected static LevelSet levels;
 
   /* JUnit Setup -------------------------------------------------------------------------------- */
 
@@ -40,10 +55,31 @@ public class ModelTests {
 
   @Before
   public void setUp() {
-    model = new ClassicBlockDudeModel();
+    model = createModel();
     levels.restart();
   }
 
+  /**
+   * Creates the model to run the tests in this class against. Subclasses override this to run the
+   * entire suite against other implementations of BlockDudeModel.
+   *
+   * @return a new model with no level loaded
+   */
+  protected BlockDudeModel createModel() {
+    return new ClassicBlockDudeModel();
+  }
+
+  /**
+   * Creates the model to run the tests in this class against, remembering the given number of
+   * moves for undoing.
+   *
+   * @param historyCapacity maximum number of moves that can be undone
+   * @return a new model with no level loaded
+   */
+  protected BlockDudeModel createModel(int historyCapacity) {
+    return new ClassicBlockDudeModel(historyCapacity);
+  }
+
   /* restartLevel() Tests ----------------------------------------------------------------------- */
 
   @Test(expected = RuntimeException.class)
@@ -1639,6 +1675,191 @@ public class ModelTests {
     assertTrue(TestUtil.layoutsAreSame(layoutAfterMove, expectedResultLayout));
   }
 
+  @Test
+  public void heavyBlockCannotBePickedUpButCanBeClimbed() {
+    String levelString = "-level hvy\n" +
+            "X______X\n" +
+            "X______X\n" +
+            "XD_H__LX\n" +
+            "XXXXXXXX\n" +
+            "-/level";
+    model.loadLevel(TestUtil.levelFromString(levelString));
+    assertTrue(model.moveLeft());
+    assertTrue(model.moveLeft());
+    assertFalse(model.pickUpOrPutDown()); // heavy block is solid but cannot be lifted
+    assertTrue(model.moveUp());
+    assertTrue(model.moveLeft()); // stepping off of heavy block and falling
+    assertTrue(model.moveLeft());
+    assertTrue(model.isLevelCompleted());
+
+    String expectedString = "-level hvy\n" +
+            "X______X\n" +
+            "X______X\n" +
+            "XL_H___X\n" +
+            "XXXXXXXX\n" +
+            "-/level";
+    List<List<GamePiece>> expected = TestUtil.levelFromString(expectedString).layout();
+    assertTrue(TestUtil.layoutsAreSame(expected, model.layoutToRender()));
+  }
+
+  /* undo() and redo() Tests ------------------------------------------------------------------- */
+
+  @Test(expected = RuntimeException.class)
+  public void undoThrowsREWhenNoLevelLoaded() {
+    model.undo();
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void redoThrowsREWhenNoLevelLoaded() {
+    model.redo();
+  }
+
+  @Test
+  public void undoAndRedoReturnFalseWhenNoMovesMade() {
+    model.loadLevel(levels.currentLevel());
+    List<List<GamePiece>> originalLayout = model.layoutToRender();
+    assertFalse(model.undo());
+    assertFalse(model.redo());
+    assertTrue(TestUtil.layoutsAreSame(originalLayout, model.layoutToRender()));
+  }
+
+  @Test
+  public void undoRevertsEachKindOfMoveInReverseOrder() {
+    Level level = levels.currentLevel();
+    model.loadLevel(level);
+
+    // walking, picking up, turning, putting down, climbing, and falling
+    List<List<List<GamePiece>>> layouts = new ArrayList<>();
+    layouts.add(model.layoutToRender());
+    assertTrue(model.moveLeft());
+    layouts.add(model.layoutToRender());
+    assertTrue(model.pickUpOrPutDown());
+    layouts.add(model.layoutToRender());
+    assertTrue(model.moveRight());
+    layouts.add(model.layoutToRender());
+    assertTrue(model.moveLeft());
+    layouts.add(model.layoutToRender());
+    assertTrue(model.pickUpOrPutDown());
+    layouts.add(model.layoutToRender());
+    assertTrue(model.moveUp());
+    layouts.add(model.layoutToRender());
+    assertTrue(model.moveLeft());
+    layouts.add(model.layoutToRender());
+
+    for (int i = layouts.size() - 2; i >= 0; i--) {
+      assertTrue(model.undo());
+      assertTrue(TestUtil.layoutsAreSame(layouts.get(i), model.layoutToRender()));
+    }
+    assertFalse(model.undo());
+
+    // the model must still play correctly from the restored state
+    assertTrue(model.moveLeft());
+    assertTrue(TestUtil.layoutsAreSame(layouts.get(1), model.layoutToRender()));
+  }
+
+  @Test
+  public void undoSkipsMovesThatDidNotChangeBoard() {
+    String levelString = "-level test\n" +
+            "X___X\n" +
+            "XX_LX\n" +
+            "XXXXX\n" +
+            "-/level";
+    Level level = TestUtil.levelFromString(levelString);
+    model.loadLevel(level);
+
+    List<List<GamePiece>> originalLayout = model.layoutToRender();
+    assertTrue(model.moveLeft());
+    List<List<GamePiece>> layoutAfterMove = model.layoutToRender();
+    assertFalse(model.moveLeft());
+    assertFalse(model.pickUpOrPutDown());
+    assertTrue(model.undo());
+    assertTrue(TestUtil.layoutsAreSame(originalLayout, model.layoutToRender()));
+    assertFalse(model.undo());
+    assertTrue(model.redo());
+    assertTrue(TestUtil.layoutsAreSame(layoutAfterMove, model.layoutToRender()));
+  }
+
+  @Test
+  public void redoReappliesUndoneMovesUntilNewMoveMade() {
+    Level level = levels.currentLevel();
+    model.loadLevel(level);
+
+    assertTrue(model.moveLeft());
+    assertTrue(model.pickUpOrPutDown());
+    List<List<GamePiece>> layoutAfterPickUp = model.layoutToRender();
+    assertTrue(model.moveRight());
+    List<List<GamePiece>> layoutAfterMoveRight = model.layoutToRender();
+
+    assertTrue(model.undo());
+    assertTrue(model.undo());
+    assertTrue(model.redo());
+    assertTrue(TestUtil.layoutsAreSame(layoutAfterPickUp, model.layoutToRender()));
+    assertTrue(model.redo());
+    assertTrue(TestUtil.layoutsAreSame(layoutAfterMoveRight, model.layoutToRender()));
+    assertFalse(model.redo());
+
+    // making a new move after undoing forgets the moves that could have been redone
+    assertTrue(model.undo());
+    assertTrue(model.pickUpOrPutDown());
+    assertFalse(model.redo());
+  }
+
+  @Test
+  public void undoRevertsReachingDoor() {
+    String levelString = "-level test\n" +
+            "XDLX\n" +
+            "XXXX\n" +
+            "-/level";
+    Level level = TestUtil.levelFromString(levelString);
+    model.loadLevel(level);
+
+    List<List<GamePiece>> originalLayout = model.layoutToRender();
+    assertTrue(model.moveLeft());
+    assertTrue(model.isLevelCompleted());
+    assertTrue(model.undo());
+    assertFalse(model.isLevelCompleted());
+    assertTrue(TestUtil.layoutsAreSame(originalLayout, model.layoutToRender()));
+  }
+
+  @Test
+  public void undoOnlyRemembersHistoryCapacityMoves() {
+    model = createModel(2);
+    String levelString = "-level test\n" +
+            "X____LX\n" +
+            "XXXXXXX\n" +
+            "-/level";
+    Level level = TestUtil.levelFromString(levelString);
+    model.loadLevel(level);
+
+    assertTrue(model.moveLeft());
+    List<List<GamePiece>> layoutAfterFirstMove = model.layoutToRender();
+    assertTrue(model.moveLeft());
+    assertTrue(model.moveLeft());
+    assertTrue(model.undo());
+    assertTrue(model.undo());
+    assertFalse(model.undo());
+    assertTrue(TestUtil.layoutsAreSame(layoutAfterFirstMove, model.layoutToRender()));
+
+    model = createModel(0);
+    model.loadLevel(level);
+    assertTrue(model.moveLeft());
+    assertFalse(model.undo());
+  }
+
+  @Test
+  public void undoAndRedoReturnFalseAfterRestartingOrLoadingLevel() {
+    model.loadLevel(levels.currentLevel());
+    assertTrue(model.moveLeft());
+    model.restartLevel();
+    assertFalse(model.undo());
+
+    assertTrue(model.moveLeft());
+    assertTrue(model.undo());
+    model.loadLevel(levels.nextLevel());
+    assertFalse(model.redo());
+    assertFalse(model.undo());
+  }
+
   /* layoutToRender() Tests --------------------------------------------------------------------- */
 
   // Tests for layoutToRender() are not as intensive as those for other methods as it is effectively
@@ -1881,6 +2102,422 @@ public class ModelTests {
     assertTrue(TestUtil.layoutsAreSame(expectedLayout, finalLayout));
   }
 
+  /* boardToRender() Tests ---------------------------------------------------------------------- */
+
+  @Test(expected = RuntimeException.class)
+  public void boardToRenderThrowsREWhenNoLevelLoaded() {
+    model.boardToRender();
+  }
+
+  @Test
+  public void boardToRenderMatchesLayoutToRenderAfterEveryMove() {
+    model.loadLevel(levels.currentLevel());
+    ReadOnlyBoard board = model.boardToRender();
+    assertTrue(TestUtil.layoutsAreSame(model.layoutToRender(), TestUtil.layoutOf(board)));
+
+    // walking, picking up, turning, putting down, climbing, and falling, all while holding the
+    // same board instead of asking for a new one
+    assertTrue(model.moveLeft());
+    assertTrue(TestUtil.layoutsAreSame(model.layoutToRender(), TestUtil.layoutOf(board)));
+    assertTrue(model.pickUpOrPutDown());
+    assertEquals(GamePiece.BLOCK, board.get(3, 15)); // held above player
+    assertTrue(TestUtil.layoutsAreSame(model.layoutToRender(), TestUtil.layoutOf(board)));
+    assertTrue(model.moveRight());
+    assertTrue(TestUtil.layoutsAreSame(model.layoutToRender(), TestUtil.layoutOf(board)));
+    assertTrue(model.moveLeft());
+    assertTrue(TestUtil.layoutsAreSame(model.layoutToRender(), TestUtil.layoutOf(board)));
+    assertTrue(model.pickUpOrPutDown());
+    assertTrue(TestUtil.layoutsAreSame(model.layoutToRender(), TestUtil.layoutOf(board)));
+    assertTrue(model.moveUp());
+    assertTrue(TestUtil.layoutsAreSame(model.layoutToRender(), TestUtil.layoutOf(board)));
+    assertTrue(model.undo());
+    assertTrue(TestUtil.layoutsAreSame(model.layoutToRender(), TestUtil.layoutOf(board)));
+    model.restartLevel();
+    assertTrue(TestUtil.layoutsAreSame(model.layoutToRender(), TestUtil.layoutOf(board)));
+  }
+
+  @Test
+  public void boardToRenderReflectsNewlyLoadedLevel() {
+    model.loadLevel(levels.currentLevel());
+    ReadOnlyBoard board = model.boardToRender();
+    Level secondLevel = levels.nextLevel();
+    model.loadLevel(secondLevel);
+    assertEquals(secondLevel.width(), board.width());
+    assertEquals(secondLevel.height(), board.height());
+    assertTrue(TestUtil.layoutsAreSame(secondLevel.layout(), TestUtil.layoutOf(board)));
+  }
+
+  @Test
+  public void boardToRenderThrowsIOOBEForPositionsOffBoard() {
+    model.loadLevel(levels.currentLevel());
+    ReadOnlyBoard board = model.boardToRender();
+    int[][] offBoard = {{-1, 0}, {0, -1}, {board.height(), 0}, {0, board.width()}};
+    for (int[] position : offBoard) {
+      try {
+        board.get(position[0], position[1]);
+        fail("Expected IndexOutOfBoundsException for " + position[0] + ", " + position[1]);
+      } catch (IndexOutOfBoundsException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void readingBoardToRenderDoesNotAllocate() {
+    model.loadLevel(levels.currentLevel());
+    assertTrue(model.moveLeft());
+    assertTrue(model.pickUpOrPutDown());
+    final int[] pieceCounts = new int[GamePiece.values().length];
+
+    Runnable reads = new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0; i < 1000; i++) countPieces(model.boardToRender(), pieceCounts);
+      }
+    };
+
+    // warming up so that nothing is measured while classes are still being loaded
+    reads.run();
+    assertEquals(0, TestUtil.bytesAllocatedBy(reads));
+
+    // both blocks (one of them held) are seen on each of the 6000 reads
+    assertEquals(2 * 6000, pieceCounts[GamePiece.BLOCK.ordinal()]);
+  }
+
+  /**
+   * Reads every cell of the given board, adding to the count of each piece that is read.
+   *
+   * @param board       board to read
+   * @param pieceCounts number of times each piece has been read, indexed by ordinal
+   */
+  private static void countPieces(ReadOnlyBoard board, int[] pieceCounts) {
+    for (int row = 0; row < board.height(); row++) {
+      for (int col = 0; col < board.width(); col++) pieceCounts[board.get(row, col).ordinal()]++;
+    }
+  }
+
+  /* lastChanges() Tests ------------------------------------------------------------------------ */
+
+  @Test(expected = RuntimeException.class)
+  public void lastChangesThrowsREWhenNoLevelLoaded() {
+    model.lastChanges();
+  }
+
+  @Test
+  public void lastChangesIsEmptyAfterLoadingAndRestarting() {
+    model.loadLevel(levels.currentLevel());
+    assertEquals(0, model.lastChanges().size());
+    assertTrue(model.moveLeft());
+    model.restartLevel();
+    assertEquals(0, model.lastChanges().size());
+  }
+
+  @Test
+  public void lastChangesIsEmptyAfterMoveThatChangesNothing() {
+    // first level: "XD__X___X_B_X_B_R__X" on the floor
+    model.loadLevel(levels.currentLevel());
+    assertFalse(model.pickUpOrPutDown()); // facing right at empty cell
+    assertEquals(0, model.lastChanges().size());
+    assertFalse(model.undo());
+    assertEquals(0, model.lastChanges().size());
+  }
+
+  @Test
+  public void lastChangesDescribesWalking() {
+    model.loadLevel(levels.currentLevel());
+    List<List<GamePiece>> before = model.layoutToRender();
+    assertTrue(model.moveLeft());
+    assertChangesLeadTo(before, model.layoutToRender(), model.lastChanges());
+    assertEquals(2, model.lastChanges().size()); // player leaves one cell and enters another
+  }
+
+  @Test
+  public void lastChangesDescribesEveryKindOfMove() {
+    model.loadLevel(levels.currentLevel());
+    List<List<GamePiece>> before = model.layoutToRender();
+
+    // walking, picking up, carrying, turning, putting down, climbing, falling, undoing and redoing
+    String moves = "LPRLPUR-+-";
+    for (char move : moves.toCharArray()) {
+      switch (move) {
+        case 'L':
+          assertTrue(model.moveLeft());
+          break;
+        case 'R':
+          assertTrue(model.moveRight());
+          break;
+        case 'U':
+          assertTrue(model.moveUp());
+          break;
+        case 'P':
+          assertTrue(model.pickUpOrPutDown());
+          break;
+        case '-':
+          assertTrue(model.undo());
+          break;
+        default:
+          assertTrue(model.redo());
+          break;
+      }
+      List<List<GamePiece>> after = model.layoutToRender();
+      assertTrue(model.lastChanges().size() > 0);
+      assertChangesLeadTo(before, after, model.lastChanges());
+      before = after;
+    }
+  }
+
+  @Test
+  public void lastChangesIncludesHeldBlockMovingWithPlayer() {
+    // first level: "XD__X___X_B_X_B_R__X" on the floor
+    model.loadLevel(levels.currentLevel());
+    assertTrue(model.moveLeft());
+    assertTrue(model.pickUpOrPutDown());
+    List<List<GamePiece>> before = model.layoutToRender();
+    assertTrue(model.moveLeft()); // walking into the cell the block was in
+    assertChangesLeadTo(before, model.layoutToRender(), model.lastChanges());
+    assertEquals(4, model.lastChanges().size()); // two for the player and two for the block
+  }
+
+  /**
+   * Asserts that the given changes are exactly what is needed to turn the first layout into the
+   * second one: every change is to a different cell, starts from what the first layout shows there
+   * and actually changes it, and applying them all gives the second layout.
+   *
+   * @param before  layout before changes
+   * @param after   layout after changes
+   * @param changes changes between layouts
+   */
+  private static void assertChangesLeadTo(List<List<GamePiece>> before,
+                                          List<List<GamePiece>> after, BoardChanges changes) {
+    List<List<GamePiece>> changed = new ArrayList<>();
+    for (List<GamePiece> row : before) changed.add(new ArrayList<>(row));
+
+    for (int i = 0; i < changes.size(); i++) {
+      int row = changes.row(i);
+      int col = changes.col(i);
+      assertEquals(before.get(row).get(col), changes.before(i));
+      assertEquals(before.get(row).get(col), changed.get(row).get(col)); // not changed twice
+      assertNotEquals(changes.before(i), changes.after(i));
+      changed.get(row).set(col, changes.after(i));
+    }
+
+    assertTrue(TestUtil.layoutsAreSame(after, changed));
+  }
+
+  /* addListener() and removeListener() Tests --------------------------------------------------- */
+
+  /**
+   * A listener that records the events it is told about as strings.
+   */
+  private static class RecordingListener implements ModelListener {
+    final List<String> events = new ArrayList<>();
+
+    @Override
+    public void onEvent(ModelEvent event) {
+      events.add(event.toString());
+    }
+  }
+
+  // level on which every kind of event can happen: the player starts facing left next to a block
+  // that can be dropped into the pit, filling it so that the player can walk to the door
+  private static final String EVENT_LEVEL = "-level evt\n" +
+          "X______X\n" +
+          "X______X\n" +
+          "XD__BLXX\n" +
+          "XXX_XXXX\n" +
+          "XXXXXXXX\n" +
+          "-/level";
+
+  @Test(expected = IllegalArgumentException.class)
+  public void addListenerThrowsIAEForNullListener() {
+    model.addListener(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void removeListenerThrowsIAEForNullListener() {
+    model.removeListener(null);
+  }
+
+  @Test
+  public void listenerIsToldAboutEveryKindOfEvent() {
+    RecordingListener listener = new RecordingListener();
+    model.addListener(listener);
+    model.loadLevel(TestUtil.levelFromString(EVENT_LEVEL));
+
+    assertTrue(model.moveRight()); // turning towards the wall
+    assertTrue(model.moveLeft()); // turning back towards the block
+    assertTrue(model.pickUpOrPutDown());
+    assertTrue(model.moveLeft());
+    assertTrue(model.pickUpOrPutDown()); // dropping the block into the pit
+    assertTrue(model.undo());
+    assertTrue(model.redo());
+    assertTrue(model.moveLeft());
+    assertTrue(model.moveLeft());
+    assertTrue(model.moveLeft()); // reaching the door
+    model.restartLevel();
+
+    List<String> expected = Arrays.asList(
+            "LEVEL_LOADED",
+            "TURNED PLAYER_RIGHT (5,2)->(5,2)",
+            "TURNED PLAYER_LEFT (5,2)->(5,2)",
+            "PICKED_UP BLOCK (4,2)->(5,1)",
+            "MOVED PLAYER_LEFT (5,2)->(4,2)",
+            "PUT_DOWN BLOCK (4,1)->(3,2)",
+            "FELL BLOCK (3,2)->(3,3)",
+            "UNDONE",
+            "REDONE",
+            "MOVED PLAYER_LEFT (4,2)->(3,2)",
+            "MOVED PLAYER_LEFT (3,2)->(2,2)",
+            "MOVED PLAYER_LEFT (2,2)->(1,2)",
+            "DOOR_REACHED PLAYER_LEFT (1,2)->(1,2)",
+            "LEVEL_RESTARTED");
+    assertEquals(expected, listener.events);
+  }
+
+  @Test
+  public void listenerIsToldAboutPlayerFalling() {
+    // first level: "XD__X___X_B_X_B_R__X" on the floor
+    model.loadLevel(levels.currentLevel());
+    assertTrue(model.moveLeft());
+    assertTrue(model.moveUp());
+    RecordingListener listener = new RecordingListener();
+    model.addListener(listener);
+    assertTrue(model.moveRight()); // turning and stepping off of the block
+    assertEquals(Arrays.asList(
+            "MOVED PLAYER_RIGHT (14,3)->(15,3)",
+            "FELL PLAYER_RIGHT (15,3)->(15,4)"), listener.events);
+  }
+
+  @Test
+  public void listenerIsNotToldAboutMovesThatChangeNothing() {
+    model.loadLevel(TestUtil.levelFromString(EVENT_LEVEL));
+    RecordingListener listener = new RecordingListener();
+    model.addListener(listener);
+    assertFalse(model.moveLeft()); // already facing the block
+    assertFalse(model.undo());
+    assertFalse(model.redo());
+    assertTrue(listener.events.isEmpty());
+  }
+
+  @Test
+  public void listenerIsToldOnceMoveHasFinished() {
+    model.loadLevel(TestUtil.levelFromString(EVENT_LEVEL));
+    final List<Boolean> completedWhenTold = new ArrayList<>();
+    model.addListener(new ModelListener() {
+      @Override
+      public void onEvent(ModelEvent event) {
+        if (event.type() == ModelEvent.Type.DOOR_REACHED)
+          completedWhenTold.add(model.isLevelCompleted());
+      }
+    });
+    assertTrue(model.pickUpOrPutDown());
+    assertTrue(model.moveLeft());
+    assertTrue(model.pickUpOrPutDown());
+    assertTrue(model.moveLeft());
+    assertTrue(model.moveLeft());
+    assertFalse(model.isLevelCompleted());
+    assertTrue(model.moveLeft());
+    assertTrue(model.isLevelCompleted());
+    assertEquals(Arrays.asList(true), completedWhenTold);
+  }
+
+  @Test
+  public void removedListenerIsNoLongerTold() {
+    RecordingListener first = new RecordingListener();
+    RecordingListener second = new RecordingListener();
+    model.addListener(first);
+    model.addListener(second);
+    model.loadLevel(TestUtil.levelFromString(EVENT_LEVEL));
+    model.removeListener(first);
+    model.removeListener(new RecordingListener()); // never added, so nothing happens
+    assertTrue(model.moveRight());
+    assertEquals(Arrays.asList("LEVEL_LOADED"), first.events);
+    assertEquals(Arrays.asList("LEVEL_LOADED", "TURNED PLAYER_RIGHT (5,2)->(5,2)"),
+            second.events);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void asyncListenerThrowsIAEForNullListener() {
+    new AsyncModelListener(null, Executors.newSingleThreadExecutor(), 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void asyncListenerThrowsIAEForNonPositiveCapacity() {
+    new AsyncModelListener(new RecordingListener(), Executors.newSingleThreadExecutor(), 0);
+  }
+
+  @Test
+  public void asyncListenerPassesEventsOnInOrderOnlyWhenExecutorRuns() {
+    final List<Runnable> tasks = new ArrayList<>();
+    Executor queueingExecutor = new Executor() {
+      @Override
+      public void execute(Runnable task) {
+        tasks.add(task);
+      }
+    };
+    RecordingListener listener = new RecordingListener();
+    AsyncModelListener async = new AsyncModelListener(listener, queueingExecutor, 3);
+    model.addListener(async);
+
+    model.loadLevel(TestUtil.levelFromString(EVENT_LEVEL));
+    assertTrue(model.moveRight());
+    assertTrue(model.moveLeft());
+    assertTrue(model.pickUpOrPutDown()); // buffer is full, so this event is dropped
+    assertTrue(listener.events.isEmpty());
+    assertEquals(1, tasks.size()); // one drain for all of the buffered events
+    assertEquals(1, async.droppedCount());
+
+    tasks.remove(0).run();
+    assertEquals(Arrays.asList("LEVEL_LOADED", "TURNED PLAYER_RIGHT (5,2)->(5,2)",
+            "TURNED PLAYER_LEFT (5,2)->(5,2)"), listener.events);
+
+    assertTrue(model.moveLeft()); // buffer has room again
+    tasks.remove(0).run();
+    assertEquals("MOVED PLAYER_LEFT (5,2)->(4,2)", listener.events.get(3));
+  }
+
+  @Test
+  public void asyncListenerNeverHoldsUpMoves() throws InterruptedException {
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+    ModelListener stuckListener = new ModelListener() {
+      @Override
+      public void onEvent(ModelEvent event) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        received.add(event.toString());
+      }
+    };
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    AsyncModelListener async = new AsyncModelListener(stuckListener, executor, 4);
+    RecordingListener everything = new RecordingListener();
+    model.addListener(async);
+    model.addListener(everything);
+
+    // every move finishes even though the listener is stuck on the very first event
+    model.loadLevel(levels.currentLevel());
+    for (int i = 0; i < 100; i++) {
+      model.moveLeft();
+      model.moveRight();
+    }
+
+    release.countDown();
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    assertTrue(async.droppedCount() > 0);
+    assertEquals(everything.events.size(), received.size() + async.droppedCount());
+
+    // the events that were not dropped were passed on in the order they happened
+    int next = 0;
+    for (String event : received) {
+      while (!everything.events.get(next).equals(event)) next++;
+      next++;
+    }
+  }
+
   /* isLevelCompleted() Tests ------------------------------------------------------------------- */
 
   @Test(expected = RuntimeException.class)
@@ -2037,4 +2674,29 @@ public class ModelTests {
     assertFalse(model.isLevelCompleted());
   }
 
+  /* Allocation Tests --------------------------------------------------------------------------- */
+
+  @Test
+  public void movingDoesNotAllocate() {
+    // first level: "XD__X___X_B_X_B_R__X" on the floor, moving left puts player next to block
+    model.loadLevel(levels.currentLevel());
+    assertTrue(model.moveLeft());
+
+    Runnable moves = new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0; i < 10000; i++) {
+          assertTrue(model.pickUpOrPutDown()); // picking up block
+          assertTrue(model.pickUpOrPutDown()); // putting block back down
+          assertTrue(model.moveUp()); // climbing on top of block
+          assertTrue(model.moveRight()); // stepping off of block and falling
+          assertTrue(model.moveLeft()); // turning to face block again
+        }
+      }
+    };
+
+    // warming up so that nothing is measured while classes are still being loaded
+    moves.run();
+    assertEquals(0, TestUtil.bytesAllocatedBy(moves));
+  }
 }
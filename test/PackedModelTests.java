@@ -0,0 +1,579 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import blockdude.model.BlockDudeModel;
+import blockdude.model.ClassicBlockDudeModel;
+import blockdude.model.ModelEvent;
+import blockdude.model.ModelListener;
+import blockdude.model.PackedBlockDudeModel;
+import blockdude.model.SearchableBlockDudeModel;
+import blockdude.util.Command;
+import blockdude.util.GamePiece;
+import blockdude.util.Level;
+import util.TestUtil;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A class for running all model tests against the PackedBlockDudeModel, as well as for testing
+ * behavior that is specific to it.
+ */
+public class PackedModelTests extends ModelTests {
+  @Override
+  protected BlockDudeModel createModel() {
+    return new PackedBlockDudeModel();
+  }
+
+  @Override
+  protected BlockDudeModel createModel(int historyCapacity) {
+    return new PackedBlockDudeModel(historyCapacity);
+  }
+
+  /* Gravity Tests ------------------------------------------------------------------------------ */
+
+  @Test
+  public void playerFallsToBottomOfVeryTallShaft() {
+    // the shaft in column 2 is open all the way from the top of the board
+    BlockDudeModel model = createModel();
+    model.loadLevel(TestUtil.levelFromString(tallLevelString("XX_X", 3000, "XR_X")));
+
+    assertTrue(model.moveRight());
+    List<List<GamePiece>> layout = model.layoutToRender();
+    assertEquals(GamePiece.EMPTY, layout.get(0).get(2));
+    assertEquals(GamePiece.PLAYER_RIGHT, layout.get(2998).get(2));
+  }
+
+  @Test
+  public void playerAndBlockFallToBottomOfVeryTallShaftUnderOverhang() {
+    // the wall in the top row overhangs the shaft in column 4
+    BlockDudeModel model = createModel();
+    model.loadLevel(TestUtil.levelFromString(tallLevelString("XXXX_X", 3000, "X___XX", "XBR__X")));
+
+    // dropping the block first, so that the player lands on top of it
+    assertTrue(model.moveLeft());
+    assertTrue(model.pickUpOrPutDown());
+    assertTrue(model.moveRight());
+    assertTrue(model.pickUpOrPutDown());
+    assertTrue(model.moveRight());
+    assertFalse(model.isLevelCompleted());
+
+    List<List<GamePiece>> layout = model.layoutToRender();
+    assertEquals(GamePiece.BLOCK, layout.get(2998).get(4));
+    assertEquals(GamePiece.PLAYER_RIGHT, layout.get(2997).get(4));
+    assertEquals(GamePiece.EMPTY, layout.get(1).get(3));
+  }
+
+  /**
+   * Returns a level string for a level that starts with the given top rows, repeats the given
+   * middle row until the level has the given height, and ends with a row of walls.
+   *
+   * @param middleRow row to repeat underneath top rows
+   * @param height    total number of rows in the level
+   * @param topRows   rows at top of level
+   * @return level string that can be parsed into a level
+   */
+  private static String tallLevelString(String middleRow, int height, String... topRows) {
+    StringBuilder levelString = new StringBuilder("-level tall\n");
+    for (String row : topRows) levelString.append(row).append('\n');
+    for (int row = topRows.length; row < height - 1; row++)
+      levelString.append(middleRow).append('\n');
+    for (int col = 0; col < middleRow.length(); col++) levelString.append('X');
+    return levelString.append("\n-/level").toString();
+  }
+
+  /* stateHash() Tests -------------------------------------------------------------------------- */
+
+  @Test(expected = RuntimeException.class)
+  public void stateHashThrowsREWhenNoLevelLoaded() {
+    new PackedBlockDudeModel().stateHash();
+  }
+
+  @Test
+  public void stateHashIsSameForSameStateReachedDifferently() {
+    SearchableBlockDudeModel model = new PackedBlockDudeModel();
+    SearchableBlockDudeModel otherModel = new PackedBlockDudeModel();
+    model.loadLevel(levels.currentLevel());
+    otherModel.loadLevel(levels.currentLevel());
+    long originalHash = model.stateHash();
+    assertEquals(originalHash, otherModel.stateHash());
+
+    // walking there and back again
+    assertTrue(model.moveLeft());
+    assertNotEquals(originalHash, model.stateHash());
+    assertTrue(model.moveRight());
+    assertTrue(model.moveLeft());
+    assertTrue(otherModel.moveLeft());
+    assertEquals(model.stateHash(), otherModel.stateHash());
+
+    // undoing, redoing, and restarting
+    assertTrue(model.undo());
+    assertTrue(model.redo());
+    assertEquals(model.stateHash(), otherModel.stateHash());
+    model.restartLevel();
+    assertEquals(originalHash, model.stateHash());
+  }
+
+  @Test
+  public void stateHashCoversFacingAndHeldPiece() {
+    SearchableBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(levels.currentLevel());
+    assertTrue(model.moveLeft());
+    long hashFacingLeft = model.stateHash();
+
+    // holding the block is different from the block being on the floor
+    assertTrue(model.pickUpOrPutDown());
+    long hashHolding = model.stateHash();
+    assertNotEquals(hashFacingLeft, hashHolding);
+    assertTrue(model.pickUpOrPutDown());
+    assertEquals(hashFacingLeft, model.stateHash());
+
+    // turning around in place changes only the direction the player faces
+    assertTrue(model.moveRight());
+    assertTrue(model.moveLeft());
+    assertEquals(hashFacingLeft, model.stateHash());
+    assertTrue(model.pickUpOrPutDown());
+    assertTrue(model.moveRight());
+    assertNotEquals(hashHolding, model.stateHash());
+  }
+
+  /* playerRow(), playerCol() and isHoldingPiece() Tests ---------------------------------------- */
+
+  @Test(expected = RuntimeException.class)
+  public void playerRowThrowsREWhenNoLevelLoaded() {
+    new PackedBlockDudeModel().playerRow();
+  }
+
+  @Test
+  public void playerPositionAndHeldPieceFollowMoves() {
+    SearchableBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(levels.currentLevel());
+    assertEquals(4, model.playerRow());
+    assertEquals(16, model.playerCol());
+    assertFalse(model.isHoldingPiece());
+
+    assertTrue(model.moveLeft());
+    assertEquals(4, model.playerRow());
+    assertEquals(15, model.playerCol());
+    assertTrue(model.pickUpOrPutDown());
+    assertTrue(model.isHoldingPiece());
+
+    assertTrue(model.undo());
+    assertFalse(model.isHoldingPiece());
+    model.restartLevel();
+    assertEquals(16, model.playerCol());
+  }
+
+  /* legalMoves(), playerCellAfter(...) and dropAfter(...) Tests -------------------------------- */
+
+  @Test(expected = RuntimeException.class)
+  public void legalMovesThrowsREWhenNoLevelLoaded() {
+    new PackedBlockDudeModel().legalMoves();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void playerCellAfterThrowsIAEForCommandThatIsNotAMove() {
+    SearchableBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(levels.currentLevel());
+    model.playerCellAfter(Command.UNDO);
+  }
+
+  @Test
+  public void legalMovesAtStartOfFirstLevel() {
+    // first level: "XD__X___X_B_X_B_R__X" on the floor, player facing right with open floor around
+    SearchableBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(levels.currentLevel());
+    long before = model.stateHash();
+    int legal = model.legalMoves();
+    assertEquals(before, model.stateHash());
+
+    // stepping either way is legal, climbing and picking up are not
+    assertEquals((1 << Command.MOVE_LEFT.ordinal()) | (1 << Command.MOVE_RIGHT.ordinal()), legal);
+    assertEquals(4 * 20 + 15, model.playerCellAfter(Command.MOVE_LEFT));
+    assertEquals(4 * 20 + 17, model.playerCellAfter(Command.MOVE_RIGHT));
+    assertEquals(4 * 20 + 16, model.playerCellAfter(Command.MOVE_UP));
+    assertEquals(0, model.dropAfter(Command.MOVE_RIGHT));
+  }
+
+  @Test
+  public void predictionsMatchMovesMadeOnEveryLevel() {
+    SearchableBlockDudeModel model = new PackedBlockDudeModel(0);
+    SearchableBlockDudeModel checker = new PackedBlockDudeModel(0);
+    final int[] fallen = new int[1];
+    checker.addListener(new ModelListener() {
+      @Override
+      public void onEvent(ModelEvent event) {
+        if (event.type() == ModelEvent.Type.FELL) fallen[0] += event.to().row - event.from().row;
+      }
+    });
+    Random random = new Random(3);
+
+    while (true) {
+      Level level = levels.currentLevel();
+      model.loadLevel(level);
+      checker.loadLevel(level);
+      for (int step = 0; step < 2000; step++) {
+        long[] snapshot = model.snapshot();
+        int legal = model.legalMoves();
+        int cell = model.playerRow() * level.width() + model.playerCol();
+        for (int move = 0; move < 4; move++) {
+          Command command = Command.values()[move];
+          checker.restore(snapshot);
+          fallen[0] = 0;
+          boolean changed;
+          try {
+            changed = makeMove(checker, command);
+          } catch (RuntimeException e) {
+            changed = false;
+          }
+
+          assertEquals(changed, (legal & (1 << move)) != 0);
+          int cellAfter = checker.playerRow() * level.width() + checker.playerCol();
+          assertEquals(changed ? cellAfter : cell, model.playerCellAfter(command));
+          assertEquals(changed ? fallen[0] : 0, model.dropAfter(command));
+        }
+
+        if (legal == 0) {
+          model.restartLevel();
+          continue;
+        }
+        int move = random.nextInt(4);
+        while ((legal & (1 << move)) == 0) move = random.nextInt(4);
+        assertTrue(makeMove(model, Command.values()[move]));
+      }
+
+      try {
+        levels.nextLevel();
+      } catch (IllegalStateException e) {
+        break;
+      }
+    }
+  }
+
+  /* make(...) and unmake(...) Tests ------------------------------------------------------------ */
+
+  @Test(expected = RuntimeException.class)
+  public void makeThrowsREWhenNoLevelLoaded() {
+    new PackedBlockDudeModel().make(Command.MOVE_LEFT);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void loadLevelThrowsIAEForLevelTooTallToTakeMovesBack() {
+    StringBuilder level = new StringBuilder("-level tall\nRD\n");
+    for (int row = 1; row <= 0xFFFF; row++) level.append("XX\n");
+    new PackedBlockDudeModel().loadLevel(TestUtil.levelFromString(level + "-/level"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void makeThrowsIAEForCommandThatIsNotAMove() {
+    SearchableBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(levels.currentLevel());
+    model.make(Command.REDO);
+  }
+
+  @Test
+  public void makeLeavesModelAsItIsForIllegalMove() {
+    SearchableBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(levels.currentLevel());
+    long[] before = model.snapshot();
+    assertEquals(-1, model.make(Command.MOVE_UP));
+    assertArrayEquals(before, model.snapshot());
+    model.unmake(-1);
+    assertArrayEquals(before, model.snapshot());
+  }
+
+  @Test
+  public void makeMatchesMovesAndUnmakeTakesThemBackOnEveryLevel() {
+    SearchableBlockDudeModel model = new PackedBlockDudeModel(0);
+    SearchableBlockDudeModel checker = new PackedBlockDudeModel(0);
+    Random random = new Random(4);
+    long[] tokens = new long[300];
+    long[][] snapshots = new long[tokens.length][];
+    long[] hashes = new long[tokens.length];
+
+    while (true) {
+      Level level = levels.currentLevel();
+      model.loadLevel(level);
+      checker.loadLevel(level);
+      for (int walk = 0; walk < 20; walk++) {
+        // making moves down a random path, checking each against the same move made normally
+        int depth = 0;
+        while (depth < tokens.length) {
+          int legal = model.legalMoves();
+          if (legal == 0) break;
+          int move = random.nextInt(4);
+          while ((legal & (1 << move)) == 0) move = random.nextInt(4);
+          snapshots[depth] = model.snapshot();
+          hashes[depth] = model.stateHash();
+          tokens[depth] = model.make(Command.values()[move]);
+          assertNotEquals(-1, tokens[depth]);
+          assertTrue(makeMove(checker, Command.values()[move]));
+          assertArrayEquals(checker.snapshot(), model.snapshot());
+          assertEquals(checker.stateHash(), model.stateHash());
+          depth++;
+        }
+
+        // taking them all back again
+        while (depth > 0) {
+          depth--;
+          model.unmake(tokens[depth]);
+          assertArrayEquals(snapshots[depth], model.snapshot());
+          assertEquals(hashes[depth], model.stateHash());
+        }
+        checker.restore(model.snapshot());
+      }
+
+      try {
+        levels.nextLevel();
+      } catch (IllegalStateException e) {
+        break;
+      }
+    }
+  }
+
+  /* pieceAt(...) Tests ------------------------------------------------------------------------- */
+
+  @Test(expected = RuntimeException.class)
+  public void pieceAtThrowsREWhenNoLevelLoaded() {
+    new PackedBlockDudeModel().pieceAt(0, 0);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void pieceAtThrowsIOOBEOffBoard() {
+    SearchableBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(levels.currentLevel());
+    model.pieceAt(0, 20);
+  }
+
+  @Test
+  public void pieceAtDoesNotShowHeldPiece() {
+    SearchableBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(levels.currentLevel());
+    assertEquals(GamePiece.BLOCK, model.pieceAt(4, 14));
+    assertEquals(GamePiece.PLAYER_RIGHT, model.pieceAt(4, 16));
+    assertEquals(GamePiece.DOOR, model.pieceAt(4, 1));
+
+    assertTrue(model.moveLeft());
+    assertTrue(model.pickUpOrPutDown());
+    assertEquals(GamePiece.EMPTY, model.pieceAt(4, 14));
+    assertEquals(GamePiece.EMPTY, model.pieceAt(3, 15));
+    assertEquals(GamePiece.BLOCK, model.boardToRender().get(3, 15));
+  }
+
+  /* snapshot() and restore(...) Tests ---------------------------------------------------------- */
+
+  @Test(expected = RuntimeException.class)
+  public void snapshotThrowsREWhenNoLevelLoaded() {
+    new PackedBlockDudeModel().snapshot();
+  }
+
+  @Test
+  public void restoreReturnsToSnapshottedState() {
+    SearchableBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(levels.currentLevel());
+    assertTrue(model.moveLeft());
+    assertTrue(model.pickUpOrPutDown());
+    long[] snapshot = model.snapshot();
+    List<List<GamePiece>> snapshotLayout = model.layoutToRender();
+    long snapshotHash = model.stateHash();
+
+    // the snapshot is compact and equal states have equal snapshots
+    assertEquals(model.snapshotLength(), snapshot.length);
+    assertTrue(snapshot.length <= 4);
+    assertArrayEquals(snapshot, model.snapshot());
+
+    // dropping the block somewhere else and falling off of the ledge, then restoring
+    assertTrue(model.moveRight());
+    assertTrue(model.moveRight());
+    assertTrue(model.pickUpOrPutDown());
+    assertFalse(Arrays.equals(snapshot, model.snapshot()));
+    model.restore(snapshot);
+    assertTrue(TestUtil.layoutsAreSame(snapshotLayout, model.layoutToRender()));
+    assertEquals(snapshotHash, model.stateHash());
+    assertFalse(model.undo());
+
+    // the restored model must play exactly like the original did
+    assertTrue(model.pickUpOrPutDown());
+    assertTrue(model.moveUp());
+    assertFalse(model.isLevelCompleted());
+  }
+
+  @Test
+  public void restoreWorksOnOtherModelWithSameLevel() {
+    SearchableBlockDudeModel model = new PackedBlockDudeModel();
+    SearchableBlockDudeModel otherModel = new PackedBlockDudeModel();
+    model.loadLevel(levels.currentLevel());
+    otherModel.loadLevel(levels.currentLevel());
+
+    // reaching the door in one model, then copying its state into the other through an array
+    String levelString = "-level test\n" +
+            "X____X\n" +
+            "XDXBLX\n" +
+            "XXXXXX\n" +
+            "-/level";
+    model.loadLevel(TestUtil.levelFromString(levelString));
+    otherModel.loadLevel(TestUtil.levelFromString(levelString));
+    assertTrue(model.moveUp());
+    assertTrue(model.moveLeft());
+    assertTrue(model.moveLeft());
+    assertTrue(model.isLevelCompleted());
+
+    long[] states = new long[model.snapshotLength() + 1];
+    model.snapshot(states, 1);
+    otherModel.restore(states, 1);
+    assertTrue(otherModel.isLevelCompleted());
+    assertTrue(TestUtil.layoutsAreSame(model.layoutToRender(), otherModel.layoutToRender()));
+    assertEquals(model.stateHash(), otherModel.stateHash());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void restoreThrowsIAEForSnapshotOfWrongLength() {
+    SearchableBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(levels.currentLevel());
+    model.restore(new long[model.snapshotLength() + 1]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void restoreThrowsIAEForSnapshotThatPutsPlayerInWall() {
+    SearchableBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(levels.currentLevel());
+    model.restore(new long[model.snapshotLength()]);
+  }
+
+  @Test
+  public void restoreFromBoardMatchesModelThatShowsIt() {
+    // the board of any kind of model will do, so using one of another kind to play
+    BlockDudeModel shown = new ClassicBlockDudeModel();
+    SearchableBlockDudeModel played = new PackedBlockDudeModel();
+    PackedBlockDudeModel restored = new PackedBlockDudeModel();
+    Level level = levels.currentLevel();
+    shown.loadLevel(level);
+    played.loadLevel(level);
+    restored.loadLevel(level);
+
+    Random random = new Random(3);
+    Command[] moves = {Command.MOVE_LEFT, Command.MOVE_RIGHT, Command.MOVE_UP,
+                       Command.PICK_UP_PUT_DOWN};
+    for (int i = 0; i < 500 && !played.isLevelCompleted(); i++) {
+      Command move = moves[random.nextInt(moves.length)];
+      assertEquals(makeMove(played, move), makeMove(shown, move));
+      restored.restore(shown.boardToRender());
+      assertArrayEquals(played.snapshot(), restored.snapshot());
+      assertEquals(played.stateHash(), restored.stateHash());
+      assertEquals(played.isHoldingPiece(), restored.isHoldingPiece());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void restoreFromBoardThrowsIAEForBoardOfOtherLevel() {
+    BlockDudeModel other = new PackedBlockDudeModel();
+    other.loadLevel(levels.currentLevel());
+    PackedBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(levels.nextLevel());
+    model.restore(other.boardToRender());
+  }
+
+  /* Allocation Tests --------------------------------------------------------------------------- */
+
+  @Test
+  public void movesDoNotAllocate() {
+    // first level: "XD__X___X_B_X_B_R__X" on the floor, moving left puts player next to block
+    final BlockDudeModel model = createModel();
+    model.loadLevel(levels.currentLevel());
+    assertTrue(model.moveLeft());
+
+    Runnable moves = new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0; i < 10000; i++) cycleThroughAllMoves(model);
+      }
+    };
+
+    // warming up so that nothing is measured while classes are still being loaded
+    moves.run();
+    assertEquals(0, TestUtil.bytesAllocatedBy(moves));
+  }
+
+  @Test
+  public void makeAndUnmakeDoNotAllocate() {
+    final SearchableBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(levels.currentLevel());
+    assertTrue(model.moveLeft());
+
+    Runnable moves = new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0; i < 10000; i++) {
+          long pickUp = model.make(Command.PICK_UP_PUT_DOWN);
+          long turn = model.make(Command.MOVE_RIGHT);
+          long step = model.make(Command.MOVE_RIGHT);
+          model.unmake(step);
+          model.unmake(turn);
+          model.unmake(pickUp);
+        }
+      }
+    };
+
+    moves.run();
+    assertEquals(0, TestUtil.bytesAllocatedBy(moves));
+  }
+
+  @Test
+  public void restartLevelDoesNotAllocate() {
+    final BlockDudeModel model = createModel();
+    model.loadLevel(levels.currentLevel());
+
+    Runnable restarts = new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0; i < 10000; i++) {
+          assertTrue(model.moveLeft());
+          model.restartLevel();
+        }
+      }
+    };
+
+    restarts.run();
+    assertEquals(0, TestUtil.bytesAllocatedBy(restarts));
+  }
+
+  /**
+   * Makes the given move on the given model.
+   *
+   * @param model model to make move on
+   * @param move  MOVE_LEFT, MOVE_RIGHT, MOVE_UP or PICK_UP_PUT_DOWN
+   * @return whether the move changed the state of the model
+   */
+  private static boolean makeMove(BlockDudeModel model, Command move) {
+    switch (move) {
+      case MOVE_LEFT:
+        return model.moveLeft();
+      case MOVE_RIGHT:
+        return model.moveRight();
+      case MOVE_UP:
+        return model.moveUp();
+      default:
+        return model.pickUpOrPutDown();
+    }
+  }
+
+  /**
+   * Uses every move operation once, starting and ending with the player facing left next to the
+   * block in the first level.
+   *
+   * @param model model to make moves on
+   */
+  private static void cycleThroughAllMoves(BlockDudeModel model) {
+    assertTrue(model.pickUpOrPutDown()); // picking up block
+    assertTrue(model.pickUpOrPutDown()); // putting block back down
+    assertTrue(model.moveUp()); // climbing on top of block
+    assertTrue(model.moveRight()); // stepping off of block and falling
+    assertTrue(model.moveLeft()); // turning to face block again
+  }
+}
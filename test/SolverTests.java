@@ -0,0 +1,1274 @@
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import blockdude.model.BlockDudeModel;
+import blockdude.model.ClassicBlockDudeModel;
+import blockdude.model.PackedBlockDudeModel;
+import blockdude.model.SearchableBlockDudeModel;
+import blockdude.solver.AStarSolver;
+import blockdude.solver.BreadthFirstSolver;
+import blockdude.solver.ConcurrentStateSet;
+import blockdude.solver.DeadStateDetector;
+import blockdude.solver.ExternalBreadthFirstSolver;
+import blockdude.solver.HashStateSet;
+import blockdude.solver.Heuristic;
+import blockdude.solver.Hint;
+import blockdude.solver.HintCache;
+import blockdude.solver.Heuristics;
+import blockdude.solver.IdaStarSolver;
+import blockdude.solver.LevelSetVerifier;
+import blockdude.solver.MacroMoveSolver;
+import blockdude.solver.MappedStateSet;
+import blockdude.solver.ParallelBreadthFirstSolver;
+import blockdude.solver.Solution;
+import blockdude.solver.Solver;
+import blockdude.solver.SpillingStateSet;
+import blockdude.solver.StateSet;
+import blockdude.util.Command;
+import blockdude.util.Level;
+import blockdude.util.LevelSet;
+import blockdude.util.LevelSetReader;
+import util.TestUtil;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A class for testing members of the solver package.
+ */
+public class SolverTests {
+  private static final Command[] MOVES = {
+    Command.MOVE_LEFT, Command.MOVE_RIGHT, Command.MOVE_UP, Command.PICK_UP_PUT_DOWN
+  };
+  // Level examples for use in tests
+  private static final String WALK_LEVEL = "-level walk\n" +
+          "X_____X\n" +
+          "XD__L_X\n" +
+          "XXXXXXX\n" +
+          "-/level";
+  private static final String CLIMB_LEVEL = "-level climb\n" +
+          "X______X\n" +
+          "XD_____X\n" +
+          "XX___BLX\n" +
+          "XXXXXXXX\n" +
+          "-/level";
+  private static final String WALLED_OFF_LEVEL = "-level walled\n" +
+          "XXXXXXXX\n" +
+          "XD_XB_LX\n" +
+          "XXXXXXXX\n" +
+          "-/level";
+  private static final String PIT_LEVEL = "-level pit\n" +
+          "X_______X\n" +
+          "X______DX\n" +
+          "X_____XXX\n" +
+          "X_R___XXX\n" +
+          "XXX_XXXXX\n" +
+          "XXXBXXXXX\n" +
+          "XXXXXXXXX\n" +
+          "-/level";
+  private static final String WIDE_LEVEL = "-level wide\n" +
+          "XXXXXXXXX\n" +
+          "X_______X\n" +
+          "XB__R_B_X\n" +
+          "XXXXXXXXX\n" +
+          "XDXXXXXXX\n" +
+          "XXXXXXXXX\n" +
+          "-/level";
+  private static final String COVER_LEVEL = "-level cover\n" +
+          "X_____X\n" +
+          "XD_B_LX\n" +
+          "XXXXXXX\n" +
+          "-/level";
+  private static final String DROP_LEVEL = "-level drop\n" +
+          "XXXXXXXXXXX\n" +
+          "X_________X\n" +
+          "XD_____B_RX\n" +
+          "XXX__XXXXXX\n" +
+          "XXX__XXXXXX\n" +
+          "XXXXXXXXXXX\n" +
+          "-/level";
+
+  private static LevelSet levels;
+  // Solver example for use in tests
+  private Solver solver;
+
+  // runs every task as soon as it is given, so hints are worked out before they are asked for again
+  private static final Executor INLINE = new Executor() {
+    @Override
+    public void execute(Runnable task) {
+      task.run();
+    }
+  };
+
+  /* JUnit Setup -------------------------------------------------------------------------------- */
+
+  @BeforeClass
+  public static void onlyOnce() {
+    try {
+      String filename = "levelSources/levels.txt";
+      levels = LevelSetReader.parseLevelSet(new FileReader(filename));
+    } catch (FileNotFoundException e) {
+      throw new IllegalArgumentException("File name is incorrect.");
+    }
+  }
+
+  @Before
+  public void setUp() {
+    solver = new BreadthFirstSolver();
+    levels.restart();
+  }
+
+  /* BreadthFirstSolver Tests ------------------------------------------------------------------- */
+
+  @Test(expected = IllegalArgumentException.class)
+  public void solverCannotHaveNonPositiveStateLimit() {
+    new BreadthFirstSolver(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void solverCannotSolveNullLevel() {
+    solver.solve(null);
+  }
+
+  @Test
+  public void solverFindsShortestWalkToDoor() {
+    Solution solution = solver.solve(TestUtil.levelFromString(WALK_LEVEL));
+
+    assertEquals(Solution.Status.SOLVED, solution.status());
+    assertTrue(solution.isSolved());
+    assertEquals(3, solution.moves().size());
+    for (Command move : solution.moves()) assertEquals(Command.MOVE_LEFT, move);
+  }
+
+  @Test
+  public void solverFindsShortestSolution() {
+    Level level = TestUtil.levelFromString(CLIMB_LEVEL);
+    Solution solution = solver.solve(level);
+
+    assertEquals(Solution.Status.SOLVED, solution.status());
+    assertEquals(5, solution.moves().size());
+    assertTrue(completes(level, solution.moves()));
+    assertFalse(anySequenceCompletes(level, solution.moves().size() - 1));
+  }
+
+  @Test
+  public void solverReportsUnsolvableLevel() {
+    Solution solution = solver.solve(TestUtil.levelFromString(WALLED_OFF_LEVEL));
+
+    assertEquals(Solution.Status.UNSOLVABLE, solution.status());
+    assertFalse(solution.isSolved());
+    assertTrue(solution.moves().isEmpty());
+    assertEquals(solution.statesStored(), solution.nodesExpanded());
+  }
+
+  @Test
+  public void solverGivesUpAtStateLimit() {
+    Solution solution = new BreadthFirstSolver(10).solve(levels.currentLevel());
+
+    assertEquals(Solution.Status.LIMIT_REACHED, solution.status());
+    assertTrue(solution.moves().isEmpty());
+    assertEquals(10, solution.statesStored());
+  }
+
+  @Test
+  public void solverReportsSearchStatistics() {
+    Solution solution = solver.solve(levels.currentLevel());
+
+    assertTrue(solution.nodesExpanded() > 0);
+    assertTrue(solution.statesStored() >= solution.nodesExpanded());
+    assertTrue(solution.peakMemoryBytes() > 0);
+    assertTrue(solution.elapsedNanos() > 0);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void solutionMovesCannotBeModified() {
+    solver.solve(TestUtil.levelFromString(WALK_LEVEL)).moves().clear();
+  }
+
+  @Test
+  public void solverSolvesSmallShippedLevels() {
+    // the first, second, third and sixth levels take well under a second each
+    int[] lengths = {19, 74, 94, -1, -1, 106};
+    for (int i = 0; i < lengths.length; i++) {
+      if (lengths[i] > 0) {
+        Level level = levels.currentLevel();
+        Solution solution = solver.solve(level);
+        assertEquals(level.password(), Solution.Status.SOLVED, solution.status());
+        assertEquals(level.password(), lengths[i], solution.moves().size());
+        assertTrue(level.password(), completes(level, solution.moves()));
+      }
+      levels.nextLevel();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void solverCannotHaveNegativeSpillThreshold() {
+    new BreadthFirstSolver(10, false, -1, null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void solverCannotSpillIntoMissingDirectory() {
+    new BreadthFirstSolver(10, false, 10, new File("levelSources/levels.txt"));
+  }
+
+  @Test
+  public void solverFindsSameSolutionsWhenSpilling() throws IOException {
+    File directory = scratchDirectory();
+    try {
+      Solver spilling = new BreadthFirstSolver(Long.MAX_VALUE, false, 1000, directory);
+      int[] lengths = {19, 74, 94};
+      for (int length : lengths) {
+        Level level = levels.currentLevel();
+        Solution solution = spilling.solve(level);
+        assertEquals(level.password(), length, solution.moves().size());
+        assertTrue(level.password(), completes(level, solution.moves()));
+        assertEquals(0, directory.list().length);
+        levels.nextLevel();
+      }
+    } finally {
+      directory.delete();
+    }
+  }
+
+  @Test
+  public void solverSolvesFromGivenState() {
+    Level level = TestUtil.levelFromString(CLIMB_LEVEL);
+    List<Command> moves = solver.solve(level).moves();
+    PackedBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(level);
+    make(model, moves.get(0));
+
+    Solution solution = new BreadthFirstSolver().solve(level, model.snapshot());
+    assertEquals(moves.subList(1, moves.size()), solution.moves());
+  }
+
+  /* AStarSolver Tests -------------------------------------------------------------------------- */
+
+  @Test(expected = IllegalArgumentException.class)
+  public void aStarSolverCannotHaveNullHeuristics() {
+    new AStarSolver(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void aStarSolverCannotHaveNonPositiveStateLimit() {
+    new AStarSolver(Heuristics.STAIRCASE, 0);
+  }
+
+  @Test
+  public void aStarSolverFindsShortestSolutionsWithEveryHeuristic() {
+    Level climb = TestUtil.levelFromString(CLIMB_LEVEL);
+    Level first = levels.currentLevel();
+    levels.nextLevel();
+    Level third = levels.nextLevel();
+    for (Heuristics heuristics : Heuristics.values()) {
+      Solver aStar = new AStarSolver(heuristics);
+      assertSolvesIn(aStar, climb, 5);
+      assertSolvesIn(aStar, first, 19);
+      assertSolvesIn(aStar, third, 94);
+    }
+  }
+
+  @Test
+  public void aStarSolverReportsUnsolvableLevel() {
+    Solution solution = new AStarSolver().solve(TestUtil.levelFromString(WALLED_OFF_LEVEL));
+    assertEquals(Solution.Status.UNSOLVABLE, solution.status());
+  }
+
+  @Test
+  public void aStarSolverGivesUpAtStateLimit() {
+    Solution solution = new AStarSolver(Heuristics.STAIRCASE, 10).solve(levels.nextLevel());
+    assertEquals(Solution.Status.LIMIT_REACHED, solution.status());
+    assertEquals(10, solution.statesStored());
+  }
+
+  @Test
+  public void aStarSolverExpandsFewerStatesWithHeuristic() {
+    Level level = levels.currentLevel();
+    Solution uninformed = new AStarSolver(Heuristics.NONE).solve(level);
+    Solution informed = new AStarSolver(Heuristics.STAIRCASE).solve(level);
+    assertTrue(informed.nodesExpanded() < uninformed.nodesExpanded());
+    assertTrue(informed.statesStored() < uninformed.statesStored());
+  }
+
+  /* IdaStarSolver Tests ------------------------------------------------------------------------ */
+
+  @Test(expected = IllegalArgumentException.class)
+  public void idaStarSolverCannotHaveNullHeuristics() {
+    new IdaStarSolver(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void idaStarSolverCannotHaveNonPositiveNodeLimit() {
+    new IdaStarSolver(Heuristics.STAIRCASE, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void idaStarSolverCannotSolveNullLevel() {
+    new IdaStarSolver().solve(null);
+  }
+
+  @Test
+  public void idaStarSolverFindsShortestSolutions() {
+    Solver idaStar = new IdaStarSolver();
+    assertSolvesIn(idaStar, TestUtil.levelFromString(WALK_LEVEL), 3);
+    assertSolvesIn(idaStar, TestUtil.levelFromString(CLIMB_LEVEL), 5);
+    assertSolvesIn(idaStar, levels.currentLevel(), 19);
+  }
+
+  @Test
+  public void idaStarSolverReportsUnsolvableLevel() {
+    Solution solution = new IdaStarSolver().solve(TestUtil.levelFromString(WALLED_OFF_LEVEL));
+    assertEquals(Solution.Status.UNSOLVABLE, solution.status());
+  }
+
+  @Test
+  public void idaStarSolverGivesUpAtNodeLimit() {
+    Solution solution = new IdaStarSolver(Heuristics.STAIRCASE, 100).solve(levels.nextLevel());
+    assertEquals(Solution.Status.LIMIT_REACHED, solution.status());
+    assertEquals(100, solution.nodesExpanded());
+  }
+
+  @Test
+  public void idaStarSolverKeepsTableSmallOnLongSearches() {
+    levels.nextLevel();
+    levels.nextLevel();
+    Solution solution = new IdaStarSolver(Heuristics.STAIRCASE, 1000000).solve(levels.nextLevel());
+    assertTrue(solution.statesStored() <= 1 << 16);
+    assertTrue(solution.peakMemoryBytes() < 2 << 20);
+  }
+
+  /* ParallelBreadthFirstSolver Tests ----------------------------------------------------------- */
+
+  @Test(expected = IllegalArgumentException.class)
+  public void parallelSolverCannotHaveNonPositiveParallelism() {
+    new ParallelBreadthFirstSolver(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void parallelSolverCannotHaveNonPositiveStateLimit() {
+    new ParallelBreadthFirstSolver(2, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void parallelSolverCannotSolveNullLevel() {
+    new ParallelBreadthFirstSolver(2).solve(null);
+  }
+
+  @Test
+  public void parallelSolverFindsShortestSolutions() {
+    Solver parallel = new ParallelBreadthFirstSolver(4);
+    assertSolvesIn(parallel, TestUtil.levelFromString(WALK_LEVEL), 3);
+    assertSolvesIn(parallel, TestUtil.levelFromString(CLIMB_LEVEL), 5);
+    assertSolvesIn(parallel, levels.currentLevel(), 19);
+    assertSolvesIn(parallel, levels.nextLevel(), 74);
+    assertSolvesIn(parallel, levels.nextLevel(), 94);
+  }
+
+  @Test
+  public void parallelSolverReportsUnsolvableLevel() {
+    Level level = TestUtil.levelFromString(WALLED_OFF_LEVEL);
+    Solution solution = new ParallelBreadthFirstSolver(4).solve(level);
+
+    assertEquals(Solution.Status.UNSOLVABLE, solution.status());
+    assertEquals(solver.solve(level).statesStored(), solution.statesStored());
+  }
+
+  @Test
+  public void parallelSolverGivesUpAtStateLimit() {
+    Solution solution = new ParallelBreadthFirstSolver(4, 1000).solve(levels.nextLevel());
+    assertEquals(Solution.Status.LIMIT_REACHED, solution.status());
+    assertTrue(solution.statesStored() >= 1000);
+  }
+
+  /* MacroMoveSolver Tests ---------------------------------------------------------------------- */
+
+  @Test(expected = IllegalArgumentException.class)
+  public void macroMoveSolverCannotHaveNonPositiveStateLimit() {
+    new MacroMoveSolver(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void macroMoveSolverCannotSolveNullLevel() {
+    new MacroMoveSolver().solve(null);
+  }
+
+  @Test
+  public void macroMoveSolverFindsShortestSolutions() {
+    Solver macro = new MacroMoveSolver();
+    assertSolvesIn(macro, TestUtil.levelFromString(WALK_LEVEL), 3);
+    assertSolvesIn(macro, TestUtil.levelFromString(CLIMB_LEVEL), 5);
+    assertSolvesIn(macro, TestUtil.levelFromString(DROP_LEVEL), 10);
+    assertSolvesIn(macro, levels.currentLevel(), 19);
+    assertSolvesIn(macro, levels.nextLevel(), 74);
+    assertSolvesIn(macro, levels.nextLevel(), 94);
+  }
+
+  @Test
+  public void macroMoveSolverStoresFewerStates() {
+    Level level = levels.currentLevel();
+    Solution macro = new MacroMoveSolver().solve(level);
+    Solution single = solver.solve(level);
+    assertTrue(macro.nodesExpanded() < single.nodesExpanded());
+    assertTrue(macro.statesStored() < single.statesStored());
+  }
+
+  @Test
+  public void macroMoveSolverReportsUnsolvableLevel() {
+    Solution solution = new MacroMoveSolver().solve(TestUtil.levelFromString(WALLED_OFF_LEVEL));
+    assertEquals(Solution.Status.UNSOLVABLE, solution.status());
+    assertTrue(solution.moves().isEmpty());
+  }
+
+  @Test
+  public void macroMoveSolverGivesUpAtStateLimit() {
+    Solution solution = new MacroMoveSolver(10).solve(levels.nextLevel());
+    assertEquals(Solution.Status.LIMIT_REACHED, solution.status());
+    assertEquals(10, solution.statesStored());
+  }
+
+  /* ExternalBreadthFirstSolver Tests ----------------------------------------------------------- */
+
+  @Test(expected = IllegalArgumentException.class)
+  public void externalSolverMustHaveWorkingDirectory() {
+    new ExternalBreadthFirstSolver(new File("levelSources/levels.txt"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void externalSolverCannotHaveNonPositiveRunStates() {
+    new ExternalBreadthFirstSolver(new File("."), 10, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void externalSolverCannotSolveNullLevel() {
+    new ExternalBreadthFirstSolver(new File(".")).solve(null);
+  }
+
+  @Test
+  public void externalSolverFindsShortestSolutions() throws IOException {
+    File directory = scratchDirectory();
+    try {
+      // runs this small make every layer of the shipped levels take many of them
+      Solver external = new ExternalBreadthFirstSolver(directory, Long.MAX_VALUE, 100);
+      assertSolvesIn(external, TestUtil.levelFromString(WALK_LEVEL), 3);
+      assertSolvesIn(external, TestUtil.levelFromString(CLIMB_LEVEL), 5);
+      int[] lengths = {19, 74, 94};
+      for (int length : lengths) {
+        Level level = levels.currentLevel();
+        Solution solution = external.solve(level);
+        assertEquals(level.password(), length, solution.moves().size());
+        assertTrue(level.password(), completes(level, solution.moves()));
+        assertEquals(0, directory.list().length);
+        levels.nextLevel();
+      }
+    } finally {
+      directory.delete();
+    }
+  }
+
+  @Test
+  public void externalSolverReportsUnsolvableLevel() throws IOException {
+    File directory = scratchDirectory();
+    try {
+      Level level = TestUtil.levelFromString(WALLED_OFF_LEVEL);
+      Solution solution = new ExternalBreadthFirstSolver(directory).solve(level);
+
+      assertEquals(Solution.Status.UNSOLVABLE, solution.status());
+      assertEquals(solver.solve(level).statesStored(), solution.statesStored());
+      assertEquals(solution.statesStored(), solution.nodesExpanded());
+      assertEquals(0, directory.list().length);
+    } finally {
+      directory.delete();
+    }
+  }
+
+  @Test
+  public void externalSolverMergesMoreRunsThanItOpensAtOnce() throws IOException {
+    File directory = scratchDirectory();
+    try {
+      // with one state per run, the middle layers of this level have over 64 runs each
+      Level level = TestUtil.levelFromString(WIDE_LEVEL);
+      Solution solution = new ExternalBreadthFirstSolver(directory, Long.MAX_VALUE, 1)
+              .solve(level);
+
+      assertEquals(Solution.Status.UNSOLVABLE, solution.status());
+      assertEquals(solver.solve(level).statesStored(), solution.statesStored());
+      assertEquals(solution.statesStored(), solution.nodesExpanded());
+      assertEquals(0, directory.list().length);
+    } finally {
+      directory.delete();
+    }
+  }
+
+  @Test
+  public void externalSolverResumesFromLastLayer() throws IOException {
+    File directory = scratchDirectory();
+    try {
+      levels.nextLevel();
+      Level level = levels.currentLevel();
+      Solution partial = new ExternalBreadthFirstSolver(directory, 1000).solve(level);
+      assertEquals(Solution.Status.LIMIT_REACHED, partial.status());
+      assertTrue(partial.statesStored() >= 1000);
+      assertTrue(directory.list().length > 0);
+
+      // as if the search had crashed part way through the next layer
+      new File(directory, "run-0.run").createNewFile();
+      Solution resumed = new ExternalBreadthFirstSolver(directory, Long.MAX_VALUE, 100)
+              .solve(level);
+      assertEquals(74, resumed.moves().size());
+      assertTrue(completes(level, resumed.moves()));
+      assertTrue(resumed.statesStored() > partial.statesStored());
+      assertTrue(resumed.nodesExpanded() > partial.nodesExpanded());
+      assertEquals(0, directory.list().length);
+    } finally {
+      directory.delete();
+    }
+  }
+
+  @Test
+  public void externalSolverStartsOverForDifferentLevel() throws IOException {
+    File directory = scratchDirectory();
+    try {
+      Solution partial = new ExternalBreadthFirstSolver(directory, 10)
+              .solve(levels.currentLevel());
+      assertEquals(Solution.Status.LIMIT_REACHED, partial.status());
+
+      Level level = TestUtil.levelFromString(CLIMB_LEVEL);
+      assertSolvesIn(new ExternalBreadthFirstSolver(directory), level, 5);
+      assertEquals(0, directory.list().length);
+    } finally {
+      directory.delete();
+    }
+  }
+
+  /* HintCache Tests ---------------------------------------------------------------------------- */
+
+  @Test(expected = IllegalArgumentException.class)
+  public void hintCacheCannotHaveNonPositiveCapacity() {
+    new HintCache(0, INLINE);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void hintCacheCannotHaveNullExecutor() {
+    new HintCache(10, null);
+  }
+
+  @Test
+  public void hintCacheGivesHintsAlongShortestSolution() {
+    HintCache hints = new HintCache(100, INLINE);
+    Level level = TestUtil.levelFromString(CLIMB_LEVEL);
+    PackedBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(level);
+
+    int moves = 0;
+    while (!model.isLevelCompleted()) {
+      Hint hint = hints.hintFor(level, model);
+      assertEquals(Hint.Status.READY, hint.status());
+      make(model, hint.move());
+      moves++;
+    }
+    assertEquals(5, moves);
+    assertEquals(5, hints.size());
+  }
+
+  @Test
+  public void hintCacheGivesPendingHintUntilSolved() {
+    final List<Runnable> tasks = new ArrayList<>();
+    HintCache hints = new HintCache(100, new Executor() {
+      @Override
+      public void execute(Runnable task) {
+        tasks.add(task);
+      }
+    });
+    Level level = TestUtil.levelFromString(WALK_LEVEL);
+    PackedBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(level);
+
+    assertEquals(Hint.Status.PENDING, hints.hintFor(level, model).status());
+    assertEquals(Hint.Status.PENDING, hints.hintFor(level, model).status());
+    assertEquals(1, tasks.size());
+    tasks.get(0).run();
+    Hint hint = hints.hintFor(level, model);
+    assertEquals(Hint.Status.READY, hint.status());
+    assertEquals(Command.MOVE_LEFT, hint.move());
+  }
+
+  @Test
+  public void hintCacheCancelsSearchForStatePlayerMovedAwayFrom() {
+    final List<Runnable> tasks = new ArrayList<>();
+    HintCache hints = new HintCache(100, new Executor() {
+      @Override
+      public void execute(Runnable task) {
+        tasks.add(task);
+      }
+    });
+    Level level = TestUtil.levelFromString(CLIMB_LEVEL);
+    PackedBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(level);
+
+    assertEquals(Hint.Status.PENDING, hints.hintFor(level, model).status());
+    assertTrue(model.moveRight());
+    assertEquals(Hint.Status.PENDING, hints.hintFor(level, model).status());
+    assertEquals(2, tasks.size());
+    assertTrue(((Future<?>) tasks.get(0)).isCancelled());
+
+    // the cancelled search does nothing, and only the state the player is in now gets solved
+    tasks.get(0).run();
+    assertEquals(0, hints.size());
+    tasks.get(1).run();
+    assertEquals(Hint.Status.READY, hints.hintFor(level, model).status());
+    assertEquals(2, tasks.size());
+  }
+
+  @Test
+  public void hintCacheKeepsSearchOthersStillWaitOn() {
+    final List<Runnable> tasks = new ArrayList<>();
+    HintCache hints = new HintCache(100, new Executor() {
+      @Override
+      public void execute(Runnable task) {
+        tasks.add(task);
+      }
+    });
+    Level level = TestUtil.levelFromString(CLIMB_LEVEL);
+    PackedBlockDudeModel first = new PackedBlockDudeModel();
+    PackedBlockDudeModel second = new PackedBlockDudeModel();
+    first.loadLevel(level);
+    second.loadLevel(level);
+    Object firstPlayer = new Object();
+    Object secondPlayer = new Object();
+
+    // both players wait on one search, so it is only cancelled once neither does
+    assertEquals(Hint.Status.PENDING, hints.hintFor(level, first, firstPlayer).status());
+    assertEquals(Hint.Status.PENDING, hints.hintFor(level, second, secondPlayer).status());
+    assertEquals(1, tasks.size());
+    assertTrue(first.moveRight());
+    assertEquals(Hint.Status.PENDING, hints.hintFor(level, first, firstPlayer).status());
+    assertEquals(2, tasks.size());
+    assertFalse(((Future<?>) tasks.get(0)).isCancelled());
+    assertTrue(second.moveRight());
+    assertEquals(Hint.Status.PENDING, hints.hintFor(level, second, secondPlayer).status());
+    assertEquals(2, tasks.size());
+    assertTrue(((Future<?>) tasks.get(0)).isCancelled());
+  }
+
+  @Test
+  public void hintCacheIsSharedByWholeProgram() {
+    assertTrue(HintCache.shared() == HintCache.shared());
+  }
+
+  @Test
+  public void hintCacheReportsStateLevelCannotBeCompletedFrom() {
+    HintCache hints = new HintCache(100, INLINE);
+    Level level = TestUtil.levelFromString(WALLED_OFF_LEVEL);
+    PackedBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(level);
+
+    Hint hint = hints.hintFor(level, model);
+    assertEquals(Hint.Status.UNSOLVABLE, hint.status());
+    assertEquals(null, hint.move());
+  }
+
+  @Test
+  public void hintCacheForgetsLeastRecentlyUsedStates() {
+    final int[] solves = new int[1];
+    HintCache hints = new HintCache(2, new Executor() {
+      @Override
+      public void execute(Runnable task) {
+        solves[0]++;
+        task.run();
+      }
+    });
+    Level level = TestUtil.levelFromString(CLIMB_LEVEL);
+    PackedBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(level);
+
+    // only the first two states of the solution are kept, so the third is solved again
+    for (int moves = 0; moves < 3; moves++) {
+      Hint hint = hints.hintFor(level, model);
+      assertEquals(Hint.Status.READY, hint.status());
+      make(model, hint.move());
+    }
+    assertEquals(2, solves[0]);
+    assertEquals(2, hints.size());
+  }
+
+  /* LevelSetVerifier Tests --------------------------------------------------------------------- */
+
+  @Test(expected = IllegalArgumentException.class)
+  public void verifierCannotHaveNullSolver() {
+    new LevelSetVerifier(null, 1, 1000);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void verifierCannotHaveNonPositiveThreads() {
+    new LevelSetVerifier(solver, 0, 1000);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void verifierCannotHaveNonPositiveBudget() {
+    new LevelSetVerifier(solver, 1, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void verifierCannotVerifyNullLevels() {
+    new LevelSetVerifier(solver, 1, 1000).verify(null, new StringBuilder());
+  }
+
+  @Test
+  public void verifierReportsEveryLevel() {
+    LevelSet set = LevelSetReader.parseLevelSet(new StringReader(WALK_LEVEL + "\n"
+            + CLIMB_LEVEL + "\n" + WALLED_OFF_LEVEL));
+    StringBuilder report = new StringBuilder();
+    int failures = new LevelSetVerifier(solver, 2, 60000).verify(set, report);
+    assertEquals(1, failures);
+
+    String[] lines = report.toString().split("\n");
+    assertEquals(3, lines.length);
+    for (String line : lines) {
+      if (line.contains("\"password\":\"walk\"")) {
+        assertTrue(line.contains("\"level\":1,"));
+        assertTrue(line.contains("\"status\":\"SOLVED\",\"verified\":true"));
+        assertTrue(line.contains("\"length\":3,\"solution\":\"aaa\",\"revisits\":0"));
+      } else if (line.contains("\"password\":\"climb\"")) {
+        assertTrue(line.contains("\"status\":\"SOLVED\",\"verified\":true"));
+      } else {
+        assertTrue(line.contains("\"password\":\"walled\""));
+        assertTrue(line.contains("\"status\":\"UNSOLVABLE\",\"verified\":false"));
+        assertTrue(line.contains("\"length\":null,\"solution\":null,\"revisits\":null"));
+      }
+    }
+    // the level set is left at its first level
+    assertEquals("walk", set.currentLevel().password());
+  }
+
+  @Test
+  public void verifierStopsLevelsThatRunOutOfTime() {
+    StringBuilder report = new StringBuilder();
+    int failures = new LevelSetVerifier(solver, 1, 50).verify(levels, report);
+    assertTrue(failures > 0);
+    assertEquals(11, report.toString().split("\n").length);
+    assertTrue(report.toString().contains("\"status\":\"TIMED_OUT\",\"verified\":false"));
+  }
+
+  /* Heuristics Tests --------------------------------------------------------------------------- */
+
+  @Test(expected = IllegalArgumentException.class)
+  public void heuristicCannotBeMadeForNullLevel() {
+    Heuristics.STAIRCASE.forLevel(null);
+  }
+
+  @Test
+  public void heuristicsCountRouteAndStaircase() {
+    // five columns to the door and two rows to climb, with no wall top or block in the lower row
+    Level level = TestUtil.levelFromString(PIT_LEVEL);
+    SearchableBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(level);
+    assertEquals(0, Heuristics.NONE.forLevel(level).estimate(model));
+    assertEquals(5, Heuristics.DOOR_DISTANCE.forLevel(level).estimate(model));
+    assertEquals(7, Heuristics.STAIRCASE.forLevel(level).estimate(model));
+  }
+
+  @Test
+  public void heuristicsNeverOverestimateAlongShortestSolutions() {
+    Level[] examples = {
+      TestUtil.levelFromString(WALK_LEVEL), TestUtil.levelFromString(CLIMB_LEVEL),
+      levels.currentLevel(), levels.nextLevel(), levels.nextLevel()
+    };
+    for (Level level : examples) {
+      List<Command> moves = solver.solve(level).moves();
+      for (Heuristics heuristics : Heuristics.values()) {
+        Heuristic heuristic = heuristics.forLevel(level);
+        SearchableBlockDudeModel model = new PackedBlockDudeModel();
+        model.loadLevel(level);
+        int previous = heuristic.estimate(model);
+        for (int i = 0; i < moves.size(); i++) {
+          assertTrue(previous <= moves.size() - i);
+          make(model, moves.get(i));
+          int estimate = heuristic.estimate(model);
+          assertTrue(previous <= estimate + 1);
+          previous = estimate;
+        }
+        assertEquals(0, previous);
+      }
+    }
+  }
+
+  /* DeadStateDetector Tests -------------------------------------------------------------------- */
+
+  @Test(expected = IllegalArgumentException.class)
+  public void deadStateDetectorCannotBeMadeForNullLevel() {
+    new DeadStateDetector(null);
+  }
+
+  @Test
+  public void deadStateDetectorFindsCoveredDoor() {
+    Level level = TestUtil.levelFromString(COVER_LEVEL);
+    DeadStateDetector detector = new DeadStateDetector(level);
+    SearchableBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(level);
+    Command[] moves = {Command.MOVE_LEFT, Command.PICK_UP_PUT_DOWN, Command.MOVE_LEFT,
+                       Command.MOVE_LEFT, Command.PICK_UP_PUT_DOWN};
+    for (Command move : moves) {
+      assertFalse(detector.isDead(model));
+      make(model, move);
+    }
+    assertTrue(detector.isDead(model));
+    make(model, Command.PICK_UP_PUT_DOWN);
+    assertTrue(detector.isDead(model));
+  }
+
+  @Test
+  public void deadStateDetectorFindsPlayerStuckWithoutBlocks() {
+    // climbing over the block and dropping into the pit without it
+    Level level = TestUtil.levelFromString(DROP_LEVEL);
+    DeadStateDetector detector = new DeadStateDetector(level);
+    SearchableBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(level);
+    Command[] moves = {Command.MOVE_LEFT, Command.MOVE_UP, Command.MOVE_LEFT, Command.MOVE_LEFT,
+                       Command.MOVE_LEFT};
+    for (Command move : moves) {
+      assertFalse(detector.isDead(model));
+      make(model, move);
+    }
+    assertEquals(4, model.playerRow());
+    assertTrue(detector.isDead(model));
+  }
+
+  @Test
+  public void deadStateDetectorFindsDoorOutOfReach() {
+    Level level = TestUtil.levelFromString(WALLED_OFF_LEVEL);
+    SearchableBlockDudeModel model = new PackedBlockDudeModel();
+    model.loadLevel(level);
+    assertTrue(new DeadStateDetector(level).isDead(model));
+  }
+
+  @Test
+  public void deadStateDetectorNeverFindsStatesOnShortestSolutionsDead() {
+    Level[] examples = {
+      TestUtil.levelFromString(WALK_LEVEL), TestUtil.levelFromString(CLIMB_LEVEL),
+      TestUtil.levelFromString(DROP_LEVEL), levels.currentLevel(), levels.nextLevel(),
+      levels.nextLevel()
+    };
+    for (Level level : examples) {
+      DeadStateDetector detector = new DeadStateDetector(level);
+      SearchableBlockDudeModel model = new PackedBlockDudeModel();
+      model.loadLevel(level);
+      for (Command move : solver.solve(level).moves()) {
+        assertFalse(level.password(), detector.isDead(model));
+        make(model, move);
+      }
+      assertFalse(level.password(), detector.isDead(model));
+    }
+  }
+
+  @Test
+  public void pruningIdaStarStepsDoNotAllocate() {
+    // every step IDA* takes along the third level's solution, checking each state for deadness
+    levels.nextLevel();
+    Level level = levels.nextLevel();
+    final Command[] solution = solver.solve(level).moves().toArray(new Command[0]);
+    final long[] tokens = new long[solution.length];
+    final Heuristic heuristic = Heuristics.STAIRCASE.forLevel(level);
+    final DeadStateDetector detector = new DeadStateDetector(level);
+    final PackedBlockDudeModel model = new PackedBlockDudeModel(0);
+    model.loadLevel(level);
+
+    Runnable steps = new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0; i < 100; i++) {
+          for (int depth = 0; depth < solution.length; depth++) {
+            int legal = model.legalMoves();
+            for (Command move : MOVES) {
+              if ((legal & (1 << move.ordinal())) == 0) continue;
+              long token = model.make(move);
+              heuristic.estimate(model);
+              model.stateHash();
+              detector.isDead(model);
+              model.unmake(token);
+            }
+            tokens[depth] = model.make(solution[depth]);
+          }
+          for (int depth = solution.length - 1; depth >= 0; depth--) model.unmake(tokens[depth]);
+        }
+      }
+    };
+
+    steps.run();
+    assertEquals(0, TestUtil.bytesAllocatedBy(steps));
+  }
+
+  @Test
+  public void pruningSolversFindShortestSolutionsExpandingFewerStates() {
+    Level drop = TestUtil.levelFromString(DROP_LEVEL);
+    levels.nextLevel();
+    Level third = levels.nextLevel();
+    Solver[] pruning = {
+      new BreadthFirstSolver(Long.MAX_VALUE, true),
+      new AStarSolver(Heuristics.STAIRCASE, Long.MAX_VALUE, true),
+      new IdaStarSolver(Heuristics.STAIRCASE, Long.MAX_VALUE, true),
+      new ParallelBreadthFirstSolver(2, Long.MAX_VALUE, true),
+      new MacroMoveSolver(Long.MAX_VALUE, true)
+    };
+    for (Solver pruningSolver : pruning) {
+      assertSolvesIn(pruningSolver, drop, 10);
+      assertSolvesIn(pruningSolver, third, 94);
+    }
+    assertTrue(pruning[0].solve(third).nodesExpanded() < solver.solve(third).nodesExpanded());
+    Solver aStar = new AStarSolver();
+    assertTrue(pruning[1].solve(third).nodesExpanded() < aStar.solve(third).nodesExpanded());
+  }
+
+  @Test
+  public void pruningSolversGiveUpOnDeadStart() {
+    Level level = TestUtil.levelFromString(WALLED_OFF_LEVEL);
+    Solver[] pruning = {
+      new BreadthFirstSolver(Long.MAX_VALUE, true),
+      new AStarSolver(Heuristics.STAIRCASE, Long.MAX_VALUE, true),
+      new IdaStarSolver(Heuristics.STAIRCASE, Long.MAX_VALUE, true),
+      new ParallelBreadthFirstSolver(2, Long.MAX_VALUE, true),
+      new MacroMoveSolver(Long.MAX_VALUE, true)
+    };
+    for (Solver pruningSolver : pruning) {
+      Solution solution = pruningSolver.solve(level);
+      assertEquals(Solution.Status.UNSOLVABLE, solution.status());
+      assertEquals(0, solution.nodesExpanded());
+    }
+  }
+
+  /* HashStateSet Tests ------------------------------------------------------------------------- */
+
+  @Test(expected = IllegalArgumentException.class)
+  public void stateSetCannotHaveNonPositiveStateLength() {
+    new HashStateSet(0);
+  }
+
+  @Test
+  public void stateSetGivesIdsInOrderAndIgnoresDuplicates() {
+    StateSet states = new HashStateSet(2);
+    long[] buffer = {7, 1, 2, 3, 1, 2};
+
+    assertEquals(0, states.add(buffer, 1));
+    assertEquals(1, states.add(buffer, 0));
+    assertEquals(-1, states.add(buffer, 4));
+    assertEquals(2, states.size());
+    assertTrue(states.contains(new long[]{1, 2}, 0));
+    assertFalse(states.contains(new long[]{2, 1}, 0));
+
+    long[] copy = new long[3];
+    states.get(1, copy, 1);
+    assertArrayEquals(new long[]{0, 7, 1}, copy);
+  }
+
+  @Test
+  public void stateSetKeepsEveryStateWhenGrowing() {
+    StateSet states = new HashStateSet(3);
+    long[] state = new long[3];
+    for (int i = 0; i < 10000; i++) {
+      state[0] = i;
+      state[2] = -i;
+      assertEquals(i, states.add(state, 0));
+    }
+
+    assertEquals(10000, states.size());
+    for (int i = 0; i < 10000; i++) {
+      states.get(i, state, 0);
+      assertEquals(i, state[0]);
+      assertEquals(-i, state[2]);
+      assertTrue(states.contains(state, 0));
+    }
+    assertTrue(states.memoryBytes() >= 10000L * 3 * Long.BYTES);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void stateSetCannotGetMissingState() {
+    StateSet states = new HashStateSet(1);
+    states.add(new long[]{5}, 0);
+    states.get(1, new long[1], 0);
+  }
+
+  /* ConcurrentStateSet Tests ------------------------------------------------------------------- */
+
+  @Test(expected = IllegalArgumentException.class)
+  public void concurrentStateSetMustHavePowerOfTwoStripes() {
+    new ConcurrentStateSet(2, 12);
+  }
+
+  @Test
+  public void concurrentStateSetGivesIdsInOrderAndIgnoresDuplicates() {
+    StateSet states = new ConcurrentStateSet(2, 4);
+    long[] buffer = {7, 1, 2, 3, 1, 2};
+
+    assertEquals(0, states.add(buffer, 1));
+    assertEquals(1, states.add(buffer, 0));
+    assertEquals(-1, states.add(buffer, 4));
+    assertEquals(1, states.idOf(new long[]{7, 1}, 0));
+    assertEquals(-1, states.idOf(new long[]{2, 1}, 0));
+
+    long[] copy = new long[2];
+    states.get(0, copy, 0);
+    assertArrayEquals(new long[]{1, 2}, copy);
+  }
+
+  @Test
+  public void concurrentStateSetKeepsEveryStateAddedFromManyThreads() throws Exception {
+    final StateSet states = new ConcurrentStateSet(2, 8);
+    final int count = 100000;
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<Integer>> results = new ArrayList<>();
+    for (int thread = 0; thread < 4; thread++) {
+      // every state is added by two of the threads
+      final int first = thread % 2 == 0 ? 0 : count / 2;
+      results.add(executor.submit(new Callable<Integer>() {
+        @Override
+        public Integer call() {
+          int added = 0;
+          long[] state = new long[2];
+          for (int i = first; i < first + count / 2; i++) {
+            state[0] = i;
+            state[1] = ~i;
+            if (states.add(state, 0) >= 0) added++;
+          }
+          return added;
+        }
+      }));
+    }
+    int added = 0;
+    for (Future<Integer> result : results) added += result.get();
+    executor.shutdown();
+
+    assertEquals(count, added);
+    assertEquals(count, states.size());
+    boolean[] seen = new boolean[count];
+    long[] state = new long[2];
+    for (int id = 0; id < count; id++) {
+      states.get(id, state, 0);
+      assertEquals(~state[0], state[1]);
+      assertFalse(seen[(int) state[0]]);
+      seen[(int) state[0]] = true;
+      assertEquals(id, states.idOf(state, 0));
+    }
+  }
+
+  /* MappedStateSet Tests ----------------------------------------------------------------------- */
+
+  @Test(expected = IllegalArgumentException.class)
+  public void mappedStateSetCannotHaveNonPositiveStateLength() {
+    new MappedStateSet(0, new File(System.getProperty("java.io.tmpdir")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void mappedStateSetMustHaveScratchDirectory() {
+    new MappedStateSet(1, new File("levelSources/levels.txt"));
+  }
+
+  @Test
+  public void mappedStateSetGivesIdsInOrderAndIgnoresDuplicates() throws IOException {
+    File directory = scratchDirectory();
+    MappedStateSet states = new MappedStateSet(2, directory);
+    try {
+      long[] buffer = {7, 1, 2, 3, 1, 2};
+
+      assertEquals(0, states.add(buffer, 1));
+      assertEquals(1, states.add(buffer, 0));
+      assertEquals(-1, states.add(buffer, 4));
+      assertEquals(2, states.size());
+      assertEquals(1, states.idOf(new long[]{7, 1}, 0));
+      assertFalse(states.contains(new long[]{2, 1}, 0));
+
+      long[] copy = new long[3];
+      states.get(1, copy, 1);
+      assertArrayEquals(new long[]{0, 7, 1}, copy);
+    } finally {
+      states.close();
+      directory.delete();
+    }
+  }
+
+  @Test
+  public void mappedStateSetKeepsEveryStateWhenGrowing() throws IOException {
+    File directory = scratchDirectory();
+    MappedStateSet states = new MappedStateSet(3, directory);
+    try {
+      // enough states for the table to grow a few times
+      long[] state = new long[3];
+      for (int i = 0; i < 200000; i++) {
+        state[0] = i;
+        state[2] = -i;
+        assertEquals(i, states.add(state, 0));
+      }
+
+      assertEquals(200000, states.size());
+      for (int i = 0; i < 200000; i++) {
+        states.get(i, state, 0);
+        assertEquals(i, state[0]);
+        assertEquals(-i, state[2]);
+        assertEquals(i, states.idOf(state, 0));
+      }
+    } finally {
+      states.close();
+      directory.delete();
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void mappedStateSetCannotGetMissingState() throws IOException {
+    File directory = scratchDirectory();
+    MappedStateSet states = new MappedStateSet(1, directory);
+    try {
+      states.add(new long[]{5}, 0);
+      states.get(1, new long[1], 0);
+    } finally {
+      states.close();
+      directory.delete();
+    }
+  }
+
+  @Test
+  public void mappedStateSetDeletesScratchFilesWhenClosed() throws IOException {
+    File directory = scratchDirectory();
+    MappedStateSet states = new MappedStateSet(1, directory);
+    states.add(new long[]{5}, 0);
+    assertTrue(directory.list().length > 0);
+
+    states.close();
+    assertEquals(0, directory.list().length);
+    assertTrue(directory.delete());
+  }
+
+  /* SpillingStateSet Tests --------------------------------------------------------------------- */
+
+  @Test(expected = IllegalArgumentException.class)
+  public void spillingStateSetCannotHaveNonPositiveThreshold() {
+    new SpillingStateSet(1, 0, new File(System.getProperty("java.io.tmpdir")));
+  }
+
+  @Test
+  public void spillingStateSetKeepsIdsWhenSpilling() throws IOException {
+    File directory = scratchDirectory();
+    SpillingStateSet states = new SpillingStateSet(2, 100, directory);
+    try {
+      long[] state = new long[2];
+      for (int i = 0; i < 1000; i++) {
+        state[0] = i;
+        state[1] = i * 31;
+        assertEquals(i, states.add(state, 0));
+        assertEquals(-1, states.add(state, 0));
+        assertEquals(i >= 100, states.isSpilled());
+      }
+
+      assertEquals(1000, states.size());
+      for (int i = 0; i < 1000; i++) {
+        states.get(i, state, 0);
+        assertEquals(i, state[0]);
+        assertEquals(i, states.idOf(state, 0));
+      }
+    } finally {
+      states.close();
+      directory.delete();
+    }
+    assertFalse(directory.exists());
+  }
+
+  /* Private methods ---------------------------------------------------------------------------- */
+
+  /**
+   * Returns a new, empty directory to keep scratch files in.
+   *
+   * @return new directory
+   * @throws IOException if the directory could not be created
+   */
+  private static File scratchDirectory() throws IOException {
+    return Files.createTempDirectory("solver").toFile();
+  }
+
+  /**
+   * Asserts that the given solver finds a solution of the given length to the given level, and
+   * that making its moves completes the level.
+   *
+   * @param solver solver to use
+   * @param level  level to solve
+   * @param length length of shortest solution to level
+   */
+  private static void assertSolvesIn(Solver solver, Level level, int length) {
+    Solution solution = solver.solve(level);
+    assertEquals(level.password(), Solution.Status.SOLVED, solution.status());
+    assertEquals(level.password(), length, solution.moves().size());
+    assertTrue(level.password(), completes(level, solution.moves()));
+  }
+
+  /**
+   * Returns whether making the given moves on a ClassicBlockDudeModel completes the given level.
+   *
+   * @param level level to play
+   * @param moves moves to make
+   * @return true if level is completed after the last move (and not before), false otherwise
+   */
+  private static boolean completes(Level level, List<Command> moves) {
+    BlockDudeModel model = new ClassicBlockDudeModel();
+    model.loadLevel(level);
+    for (Command move : moves) {
+      if (model.isLevelCompleted()) return false;
+      make(model, move);
+    }
+    return model.isLevelCompleted();
+  }
+
+  /**
+   * Returns whether any sequence of at most the given number of moves completes the given level,
+   * by trying every one of them on a ClassicBlockDudeModel.
+   *
+   * @param level    level to play
+   * @param maxMoves most moves to make
+   * @return true if some sequence completes level, false otherwise
+   */
+  private static boolean anySequenceCompletes(Level level, int maxMoves) {
+    int sequences = 1 << (2 * maxMoves);
+    for (int sequence = 0; sequence < sequences; sequence++) {
+      BlockDudeModel model = new ClassicBlockDudeModel();
+      model.loadLevel(level);
+      for (int i = 0; i < maxMoves && !model.isLevelCompleted(); i++)
+        make(model, MOVES[(sequence >> (2 * i)) & 3]);
+      if (model.isLevelCompleted()) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Makes the given move on the given model.
+   *
+   * @param model model to make move on
+   * @param move  one of MOVE_LEFT, MOVE_RIGHT, MOVE_UP and PICK_UP_PUT_DOWN
+   */
+  private static void make(BlockDudeModel model, Command move) {
+    switch (move) {
+      case MOVE_LEFT:
+        model.moveLeft();
+        break;
+      case MOVE_RIGHT:
+        model.moveRight();
+        break;
+      case MOVE_UP:
+        model.moveUp();
+        break;
+      default:
+        model.pickUpOrPutDown();
+    }
+  }
+}
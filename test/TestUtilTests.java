@@ -4,7 +4,11 @@ import org.junit.Test;
 
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.util.List;
 
+import blockdude.model.BlockDudeModel;
+import blockdude.model.ClassicBlockDudeModel;
+import blockdude.util.GamePiece;
 import blockdude.util.Level;
 import blockdude.util.LevelSet;
 import blockdude.util.LevelSetReader;
@@ -171,4 +175,17 @@ public class TestUtilTests {
     Level secondLevel = levels.nextLevel();
     TestUtil.layoutsAreSame(secondLevel.layout(), secondLevelFromString.layout());
   }
+
+  // layoutOf(...) tests
+
+  @Test
+  public void layoutOfCopiesBoard() {
+    BlockDudeModel model = new ClassicBlockDudeModel();
+    Level firstLevel = levels.currentLevel();
+    model.loadLevel(firstLevel);
+    List<List<GamePiece>> layout = TestUtil.layoutOf(model.boardToRender());
+    assertTrue(TestUtil.layoutsAreSame(firstLevel.layout(), layout));
+    model.moveLeft();
+    assertTrue(TestUtil.layoutsAreSame(firstLevel.layout(), layout));
+  }
 }
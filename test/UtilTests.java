@@ -18,6 +18,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -50,13 +51,15 @@ public class UtilTests {
   private final GamePiece wall = GamePiece.WALL;
   private final GamePiece leftPlayer = GamePiece.PLAYER_LEFT;
   private final GamePiece rightPlayer = GamePiece.PLAYER_RIGHT;
+  private final GamePiece heavyBlock = GamePiece.HEAVY_BLOCK;
 
   @Test
   public void gamePieceCanPickUpWorks() {
     GamePiece[] piecesThatCanBePickedUp = {block};
     for (GamePiece piece : piecesThatCanBePickedUp) assertTrue(GamePiece.canPickUp(piece));
 
-    GamePiece[] piecesThatCannotBePickedUp = {door, empty, wall, leftPlayer, rightPlayer};
+    GamePiece[] piecesThatCannotBePickedUp = {door, empty, wall, leftPlayer, rightPlayer,
+      heavyBlock};
     for (GamePiece piece : piecesThatCannotBePickedUp) assertFalse(GamePiece.canPickUp(piece));
 
     assertFalse(GamePiece.canPickUp(null));
@@ -67,7 +70,7 @@ public class UtilTests {
     GamePiece[] piecesThatArePlayers = {leftPlayer, rightPlayer};
     for (GamePiece piece : piecesThatArePlayers) assertTrue(GamePiece.isPlayer(piece));
 
-    GamePiece[] piecesThatAreNotPlayers = {door, empty, wall, block};
+    GamePiece[] piecesThatAreNotPlayers = {door, empty, wall, block, heavyBlock};
     for (GamePiece piece : piecesThatAreNotPlayers) assertFalse(GamePiece.isPlayer(piece));
 
     assertFalse(GamePiece.isPlayer(null));
@@ -75,7 +78,7 @@ public class UtilTests {
 
   @Test
   public void gamePieceIsSolidWorks() {
-    GamePiece[] piecesThatAreSolid = {leftPlayer, rightPlayer, wall, block};
+    GamePiece[] piecesThatAreSolid = {leftPlayer, rightPlayer, wall, block, heavyBlock};
     for (GamePiece piece : piecesThatAreSolid) assertTrue(GamePiece.isSolid(piece));
 
     GamePiece[] piecesThatAreNotSolid = {door, empty};
@@ -84,6 +87,43 @@ public class UtilTests {
     assertFalse(GamePiece.isSolid(null));
   }
 
+  @Test
+  public void gamePieceIsGoalWorks() {
+    assertTrue(GamePiece.isGoal(door));
+
+    GamePiece[] piecesThatAreNotGoals = {empty, wall, block, leftPlayer, rightPlayer, heavyBlock};
+    for (GamePiece piece : piecesThatAreNotGoals) assertFalse(GamePiece.isGoal(piece));
+
+    assertFalse(GamePiece.isGoal(null));
+  }
+
+  @Test
+  public void gamePieceTraitsMatchTraitMethods() {
+    for (GamePiece piece : GamePiece.values()) {
+      int traits = piece.traits();
+      assertEquals(GamePiece.isSolid(piece), (traits & GamePiece.SOLID) != 0);
+      assertEquals(GamePiece.isPlayer(piece), (traits & GamePiece.PLAYER) != 0);
+      assertEquals(GamePiece.canPickUp(piece), (traits & GamePiece.LIFTABLE) != 0);
+      assertEquals(GamePiece.isGoal(piece), (traits & GamePiece.GOAL) != 0);
+    }
+  }
+
+  @Test
+  public void gamePieceFromSymbolWorks() {
+    assertEquals(block, GamePiece.fromSymbol('B'));
+    assertEquals(door, GamePiece.fromSymbol('D'));
+    assertEquals(empty, GamePiece.fromSymbol('_'));
+    assertEquals(leftPlayer, GamePiece.fromSymbol('L'));
+    assertEquals(rightPlayer, GamePiece.fromSymbol('R'));
+    assertEquals(wall, GamePiece.fromSymbol('X'));
+    assertEquals(heavyBlock, GamePiece.fromSymbol('H'));
+    for (GamePiece piece : GamePiece.values())
+      assertEquals(piece, GamePiece.fromSymbol(piece.symbol()));
+
+    assertNull(GamePiece.fromSymbol('?'));
+    assertNull(GamePiece.fromSymbol('\u25A2'));
+  }
+
   /* Level Tests -------------------------------------------------------------------------------- */
 
   // There are no tests for Level.Builder in this section since it is not public; it is tested as
@@ -146,6 +186,45 @@ public class UtilTests {
     assertNotEquals(layout.get(0).get(0), level.layout().get(0).get(0));
   }
 
+  @Test
+  public void levelWidthAndHeightMatchLayout() {
+    Level level = levels.currentLevel();
+    List<List<GamePiece>> layout = level.layout();
+    assertEquals(layout.size(), level.height());
+    assertEquals(layout.get(0).size(), level.width());
+  }
+
+  @Test
+  public void levelPieceAtMatchesLayout() {
+    Level level = levels.currentLevel();
+    List<List<GamePiece>> layout = level.layout();
+    for (int row = 0; row < level.height(); row++) {
+      for (int col = 0; col < level.width(); col++)
+        assertEquals(layout.get(row).get(col), level.pieceAt(row, col));
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void levelPieceAtThrowsIOOBEForPositionOffLayout() {
+    Level level = levels.currentLevel();
+    level.pieceAt(0, level.width());
+  }
+
+  @Test
+  public void levelCopyCellsMatchesLayoutAndCannotBeMutated() {
+    Level level = levels.currentLevel();
+    GamePiece[] cells = level.copyCells();
+    assertEquals(level.width() * level.height(), cells.length);
+    for (int row = 0; row < level.height(); row++) {
+      for (int col = 0; col < level.width(); col++)
+        assertEquals(level.pieceAt(row, col), cells[row * level.width() + col]);
+    }
+
+    cells[0] = GamePiece.BLOCK;
+    assertEquals(GamePiece.WALL, level.pieceAt(0, 0));
+    assertEquals(GamePiece.WALL, level.copyCells()[0]);
+  }
+
   @Test
   public void levelPlayerReturnsCorrectValue() {
     Level level = levels.currentLevel();
@@ -161,6 +240,13 @@ public class UtilTests {
     assertEquals(new Position(18, 6), nextLevel.playerPosition());
   }
 
+  @Test
+  public void levelPlayerCellMatchesPlayerPosition() {
+    Level level = levels.currentLevel();
+    assertEquals(4 * level.width() + 16, level.playerCell());
+    assertEquals(GamePiece.PLAYER_RIGHT, level.copyCells()[level.playerCell()]);
+  }
+
   @Test
   public void levelPlayerPositionCannotBeMutated() {
     Level level = levels.currentLevel();
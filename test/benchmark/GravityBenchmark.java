@@ -0,0 +1,81 @@
+package benchmark;
+
+import blockdude.model.BlockDudeModel;
+import blockdude.model.ClassicBlockDudeModel;
+import blockdude.model.PackedBlockDudeModel;
+import blockdude.util.Level;
+import util.TestUtil;
+
+/**
+ * A benchmark comparing how long it takes the player to fall down a very tall shaft in the
+ * ClassicBlockDudeModel, which scans down the column one cell at a time, and in the
+ * PackedBlockDudeModel, which looks the landing row up in its index of solid cells. This is not a
+ * unit test; run its main method directly.
+ */
+public class GravityBenchmark {
+  private static final int[] HEIGHTS = {100, 1000, 5000};
+  private static final int WARMUP_ITERATIONS = 2000;
+  private static final int MEASURED_ITERATIONS = 2000;
+
+  /**
+   * Runs the benchmark and prints the average time per fall for each model and level height.
+   *
+   * @param args unused
+   */
+  public static void main(String[] args) {
+    for (int height : HEIGHTS) {
+      // open shaft: landing row comes from the column surface
+      Level openShaft = TestUtil.levelFromString(shaftLevelString(height, "XR_X", "XX_X"));
+      // covered shaft: something overhangs the player, so the column bitset is scanned
+      Level coveredShaft = TestUtil.levelFromString(shaftLevelString(height, "XXXX", "XR_X", "XX_X"));
+
+      for (Level level : new Level[]{openShaft, coveredShaft}) {
+        String shaft = (level == openShaft) ? "open" : "covered";
+        double classicNanos = nanosPerFall(new ClassicBlockDudeModel(), level);
+        double packedNanos = nanosPerFall(new PackedBlockDudeModel(), level);
+        System.out.printf("height %5d, %-7s shaft: classic %10.0f ns, packed %8.0f ns%n",
+                height, shaft, classicNanos, packedNanos);
+      }
+    }
+  }
+
+  /**
+   * Returns the average number of nanoseconds it takes the player to step into and fall down the
+   * shaft in the given level. Restarting the level between falls is not included in the time.
+   *
+   * @param model model to benchmark
+   * @param level level containing a shaft directly to the right of the player
+   * @return average nanoseconds per fall
+   */
+  private static double nanosPerFall(BlockDudeModel model, Level level) {
+    model.loadLevel(level);
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      model.restartLevel();
+      model.moveRight();
+    }
+
+    long totalNanos = 0;
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      model.restartLevel();
+      long start = System.nanoTime();
+      model.moveRight();
+      totalNanos += System.nanoTime() - start;
+    }
+    return (double) totalNanos / MEASURED_ITERATIONS;
+  }
+
+  /**
+   * Returns a level string for a level with the given height that starts with the given rows, then
+   * repeats the last given row until the bottom row, which is all walls.
+   *
+   * @param height total number of rows in the level
+   * @param rows   rows at top of level, the last of which is repeated
+   * @return level string that can be parsed into a level
+   */
+  private static String shaftLevelString(int height, String... rows) {
+    StringBuilder levelString = new StringBuilder("-level shaft\n");
+    for (int row = 0; row < height - 1; row++)
+      levelString.append(rows[Math.min(row, rows.length - 1)]).append('\n');
+    return levelString.append("XXXX\n-/level").toString();
+  }
+}
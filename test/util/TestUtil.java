@@ -1,12 +1,15 @@
 package util;
 
 import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.List;
 
 import blockdude.util.GamePiece;
 import blockdude.util.Level;
 import blockdude.util.LevelSet;
 import blockdude.util.LevelSetReader;
+import blockdude.util.ReadOnlyBoard;
 
 /**
  * A class of static methods to aid in testing of src directory.
@@ -50,4 +53,47 @@ public class TestUtil {
     return levels.currentLevel();
   }
 
+  /**
+   * Copies the pieces currently shown by the given board into a layout.
+   *
+   * @param board board to copy
+   * @return layout with the same pieces as board
+   */
+  public static List<List<GamePiece>> layoutOf(ReadOnlyBoard board) {
+    List<List<GamePiece>> layout = new ArrayList<>();
+    for (int row = 0; row < board.height(); row++) {
+      List<GamePiece> layoutRow = new ArrayList<>();
+      for (int col = 0; col < board.width(); col++) layoutRow.add(board.get(row, col));
+      layout.add(layoutRow);
+    }
+    return layout;
+  }
+
+  /**
+   * Runs the given action several times and returns the fewest bytes it allocated on this thread
+   * in any one run. Taking the fewest ignores the stray allocations made by the JVM itself (such as
+   * while compiling the code being measured), which only happen in some runs. The action should be
+   * warmed up before it is measured.
+   *
+   * @param action action to measure
+   * @return fewest bytes allocated by one run of action
+   */
+  public static long bytesAllocatedBy(Runnable action) {
+    com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+
+    long fewest = Long.MAX_VALUE;
+    for (int run = 0; run < 5; run++) {
+      // measuring how many bytes reading the counter itself costs, so that it can be ignored
+      long before = threadBean.getThreadAllocatedBytes(threadId);
+      long overhead = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+      before = threadBean.getThreadAllocatedBytes(threadId);
+      action.run();
+      long allocated = threadBean.getThreadAllocatedBytes(threadId) - before - overhead;
+      fewest = Math.min(fewest, allocated);
+    }
+    return fewest;
+  }
 }